@@ -0,0 +1,122 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.PoolConexiones;
+import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.dao.ResultadoReserva;
+import es.uco.pw.data.dao.SolicitudReserva;
+import es.uco.pw.data.repositorio.MotorDatos;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Medición de la carga masiva de reservas individuales ({@link ReservasDAO#hacerReservasIndividuales})
+ * contra la base de datos. Para cada lote muestra el tiempo, las sentencias JDBC que cuenta el
+ * pool (un lote enviado con {@code executeBatch} cuenta como una) y las sentencias que ha recibido
+ * el servidor según su contador {@code Questions}, que son las idas y vueltas reales: con
+ * {@code rewriteBatchedStatements} cada lote de INSERT llega como una sola sentencia de varias
+ * filas en lugar de una por reserva. El contador del servidor es global, así que la cifra solo es
+ * exacta si nadie más usa la base de datos durante la medición.
+ * <p>
+ * Las reservas se crean de verdad en la primera pista de adultos, en franjas libres a más de dos
+ * años vista, así que la medición modifica la base de datos; por eso usa la configuración de
+ * {@code -Dbench.config} (ver {@link EsquemaMedicion}) en lugar de config.properties.
+ *
+ * Uso: {@code java es.uco.pw.bench.BenchCargaMasiva correo [reservasPorLote] [lotes]}
+ */
+public class BenchCargaMasiva {
+
+    /**
+     * Franjas de 90 minutos que caben en un día entre las 9:00 y las 19:30.
+     */
+    private static final int FRANJAS_POR_DIA = 8;
+
+    /**
+     * Punto de entrada de la medición.
+     *
+     * @param args Correo de un jugador activo, reservas de cada lote (500) y número de lotes (3).
+     * @throws SQLException Si no se puede leer el contador del servidor.
+     * @throws IllegalStateException Si no se indica una configuración de medición válida.
+     */
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 1) {
+            System.err.println("Uso: java es.uco.pw.bench.BenchCargaMasiva correo [reservasPorLote] [lotes]");
+            return;
+        }
+        int porLote = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int lotes = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        EsquemaMedicion.usarEsquemaDesechable();
+        MotorDatos motor = MotorDatos.crear(MotorDatos.JDBC);
+        ReservasDAO reservasDAO = new ReservasDAO(motor);
+        reservasDAO.cargarIndiceOcupacion();
+        JugadorDTO jugador = motor.getJugadores().buscarJugadorPorCorreo(args[0]);
+        if (jugador == null || !jugador.isCuentaActiva()) {
+            throw new IllegalArgumentException("No hay ningún jugador activo con el correo " + args[0] + ".");
+        }
+        List<PistaDTO> pistasAdultos = motor.getPistas().listarPistasDisponibles("adulto");
+        if (pistasAdultos.isEmpty()) {
+            throw new IllegalStateException("No hay ninguna pista de adultos disponible.");
+        }
+        PistaDTO pista = pistasAdultos.get(0);
+        PoolConexiones pool = PoolConexiones.getInstancia();
+
+        System.out.println("Lote  Reservas        ms  Sentencias JDBC  Sentencias en el servidor");
+        LocalDate primerDia = Reloj.hoy().plusDays(800);
+        int diasPorLote = porLote / FRANJAS_POR_DIA + 1;
+        for (int lote = 0; lote < lotes; lote++) {
+            List<SolicitudReserva> solicitudes = new ArrayList<>(porLote);
+            LocalDate inicio = primerDia.plusDays((long) lote * diasPorLote);
+            for (int i = 0; i < porLote; i++) {
+                solicitudes.add(new SolicitudReserva(jugador, inicio.plusDays(i / FRANJAS_POR_DIA)
+                        .atTime(9, 0).plusMinutes((i % FRANJAS_POR_DIA) * 90), 60, pista, 2, 0));
+            }
+
+            long preguntasAntes = preguntasServidor();
+            long sentenciasAntes = pool.getSentenciasEjecutadas();
+            long t0 = System.nanoTime();
+            List<ResultadoReserva> resultados = reservasDAO.hacerReservasIndividuales(solicitudes);
+            long nanos = System.nanoTime() - t0;
+            long sentencias = pool.getSentenciasEjecutadas() - sentenciasAntes;
+            // La propia lectura del contador cuenta como una sentencia más
+            long preguntas = preguntasServidor() - preguntasAntes - 1;
+
+            for (ResultadoReserva resultado : resultados) {
+                if (!resultado.isCorrecta()) {
+                    throw new IllegalStateException("Una reserva del lote " + lote + " no se pudo crear: " + resultado.getError());
+                }
+            }
+            System.out.printf("%4d  %8d  %8.1f  %15d  %25d%n", lote, porLote, nanos / 1_000_000.0, sentencias, preguntas);
+        }
+    }
+
+    /**
+     * Lee el número de sentencias que ha recibido el servidor desde que arrancó. Se llama fuera del
+     * intervalo en el que se toma el contador del pool, así que no altera esa cifra.
+     *
+     * @return El valor de la variable de estado global {@code Questions}.
+     * @throws SQLException Si falla la consulta.
+     */
+    private static long preguntasServidor() throws SQLException {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new SQLException("No se pudo obtener una conexión del pool.");
+        }
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SHOW GLOBAL STATUS LIKE 'Questions'")) {
+            return rs.next() ? rs.getLong(2) : 0;
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.data.common.PoolConexiones;
+import es.uco.pw.data.dao.ReservasDAO;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Medición de las idas y vueltas a la base de datos que cuestan las lecturas de reservas.
+ * Ejecuta varias veces las consultas de lectura de {@link ReservasDAO} contra la base de datos
+ * del archivo de {@code -Dbench.config} (ver {@link EsquemaMedicion}) y muestra, para cada una, las sentencias ejecutadas por
+ * reserva leída y el tiempo medio por llamada. Con la consulta combinada el número de
+ * sentencias por llamada es constante, independientemente del número de reservas.
+ *
+ * Uso: {@code java es.uco.pw.bench.BenchIdasYVueltasReservas [iteraciones] [idPista]}
+ */
+public class BenchIdasYVueltasReservas {
+
+    /**
+     * Punto de entrada de la medición.
+     *
+     * @param args Número de iteraciones (10 por defecto) e id de la pista para la consulta por rango (1 por defecto).
+     * @throws SQLException Si no se puede obtener una conexión del pool.
+     * @throws IllegalStateException Si no se indica una configuración de medición válida.
+     */
+    public static void main(String[] args) throws SQLException {
+        int iteraciones = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int idPista = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        EsquemaMedicion.usarEsquemaDesechable();
+        ReservasDAO reservasDAO = new ReservasDAO();
+        PoolConexiones pool = PoolConexiones.getInstancia();
+
+        LocalDate inicio = Reloj.hoy();
+        LocalDate fin = inicio.plusDays(7);
+
+        // Calentamiento: abre las conexiones del pool y carga las clases implicadas
+        reservasDAO.consultarReservasFuturas();
+
+        System.out.println("Consulta                                   Llamadas  Reservas  Sentencias  Sent./reserva  ms/llamada");
+        medir("consultarReservasFuturas", iteraciones, pool, reservasDAO::consultarReservasFuturas);
+        medir("consultarReservasPorRangosDeFechaYPista", iteraciones, pool,
+                () -> reservasDAO.consultarReservasPorRangosDeFechaYPista(inicio, fin, idPista));
+        System.out.println("Caché de sentencias: " + pool.getAciertosCacheSentencias() + " aciertos, "
+                + pool.getFallosCacheSentencias() + " fallos");
+    }
+
+    /**
+     * Ejecuta una consulta de lectura varias veces y muestra sus idas y vueltas.
+     *
+     * @param nombre      El nombre de la consulta.
+     * @param iteraciones Número de veces que se ejecuta.
+     * @param pool        El pool del que se leen las sentencias ejecutadas.
+     * @param consulta    La consulta a medir.
+     */
+    private static void medir(String nombre, int iteraciones, PoolConexiones pool, Consulta consulta) {
+        long reservas = 0;
+        long sentenciasAntes = pool.getSentenciasEjecutadas();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteraciones; i++) {
+            reservas += consulta.ejecutar().size();
+        }
+        long nanos = System.nanoTime() - inicio;
+        long sentencias = pool.getSentenciasEjecutadas() - sentenciasAntes;
+
+        System.out.printf("%-42s %8d  %8d  %10d  %13.2f  %10.3f%n", nombre, iteraciones, reservas, sentencias,
+                reservas == 0 ? 0.0 : (double) sentencias / reservas, nanos / 1_000_000.0 / iteraciones);
+    }
+
+    /**
+     * Consulta de lectura de reservas que se mide.
+     */
+    @FunctionalInterface
+    private interface Consulta {
+
+        /**
+         * Ejecuta la consulta.
+         *
+         * @return Las reservas leídas.
+         */
+        List<ReservaDTO> ejecutar();
+    }
+}
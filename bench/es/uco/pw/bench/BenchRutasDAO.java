@@ -0,0 +1,151 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.data.cache.CacheJugadores;
+import es.uco.pw.data.cache.CachePistas;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.EstadisticasConsultas;
+import es.uco.pw.data.common.PoolConexiones;
+import es.uco.pw.data.dao.CoordinadorReservas;
+import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Medición de las rutas principales de los DAO con el motor de datos configurado en el archivo
+ * de {@code -Dbench.config} (ver {@link EsquemaMedicion}): la base de datos, un esquema
+ * desechable cargado con {@link SembradorDatos}, o el motor en memoria, que se mide de forma
+ * aislada con {@code -Dmotor=memoria} sin necesidad de ese archivo.
+ * Mide la reserva individual, la reserva con bono, la consulta de reservas futuras, el listado
+ * de pistas disponibles, la primera página de 50 jugadores activos, el informe de ocupación del
+ * último año y los ingresos del último año por tipo de reserva. Las reservas se crean de
+ * verdad, en franjas libres a más de un año vista, así que la medición modifica la base de datos.
+ *
+ * Uso: {@code java es.uco.pw.bench.BenchRutasDAO correo [iteraciones] [calentamiento]}
+ */
+public class BenchRutasDAO {
+
+    /**
+     * Franjas de 90 minutos que caben en un día entre las 9:00 y las 19:30.
+     */
+    private static final int FRANJAS_POR_DIA = 8;
+
+    /**
+     * Punto de entrada de la medición.
+     *
+     * @param args Correo de un jugador activo, número de llamadas medidas (200) y de calentamiento (50).
+     *             Con el motor en memoria el jugador y una pista de adultos se crean al empezar.
+     * @throws Exception Si no se encuentra el jugador o una pista de adultos, o si con la base de
+     *                   datos no se indica una configuración de medición válida.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java es.uco.pw.bench.BenchRutasDAO correo [iteraciones] [calentamiento]");
+            return;
+        }
+        int iteraciones = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int calentamiento = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        String nombreMotor = System.getProperty("motor");
+        if (!MotorDatos.MEMORIA.equals(nombreMotor)) {
+            // Solo el motor en memoria se mide sin un esquema desechable
+            EsquemaMedicion.usarEsquemaDesechable();
+        }
+        MotorDatos motor = MotorDatos.crear(nombreMotor != null ? nombreMotor
+                : Configuracion.getInstancia().getPropiedad("motor", MotorDatos.JDBC));
+        boolean conBaseDatos = MotorDatos.JDBC.equals(motor.getNombre());
+        ReservasDAO reservasDAO = new ReservasDAO(motor);
+        RepositorioPistas pistasDAO = motor.getPistas();
+        RepositorioJugadores jugadoresDAO = motor.getJugadores();
+        if (!conBaseDatos) {
+            // El motor en memoria empieza vacío
+            jugadoresDAO.altaJugador(new JugadorDTO("Jugador de medición", inicioDia(-30 * 365), args[0]));
+            pistasDAO.crearPista("Pista de medición", true, false, TamanoPista.ADULTOS, 10);
+        }
+        reservasDAO.cargarIndiceOcupacion();
+
+        JugadorDTO jugador = jugadoresDAO.buscarJugadorPorCorreo(args[0]);
+        if (jugador == null || !jugador.isCuentaActiva()) {
+            throw new IllegalArgumentException("No hay ningún jugador activo con el correo " + args[0] + ".");
+        }
+        List<PistaDTO> pistasAdultos = pistasDAO.listarPistasDisponibles("adulto");
+        if (pistasAdultos.isEmpty()) {
+            throw new IllegalStateException("No hay ninguna pista de adultos disponible.");
+        }
+        PistaDTO pista = pistasAdultos.get(0);
+
+        // Cada serie de reservas usa días distintos para no solaparse con la otra
+        int llamadas = calentamiento + iteraciones;
+        int diasPorSerie = llamadas / FRANJAS_POR_DIA + 1;
+        LocalDate inicioIndividuales = inicioDia(400);
+        LocalDate inicioBono = inicioDia(400 + diasPorSerie);
+
+        Medidor medidor = new Medidor(calentamiento, iteraciones, conBaseDatos ? PoolConexiones.getInstancia() : null);
+        System.out.println(Medidor.CABECERA);
+        medidor.medir("hacerReservaIndividual", llamada -> {
+            if (reservasDAO.hacerReservaIndividual(jugador, franja(inicioIndividuales, llamada), 60, pista, 2, 0) == -1) {
+                throw new IllegalStateException("La reserva individual " + llamada + " no se pudo crear.");
+            }
+        });
+        medidor.medir("hacerReservaBono", llamada -> {
+            if (!reservasDAO.hacerReservaBono(jugador, franja(inicioBono, llamada), 60, pista, 2, 0)) {
+                throw new IllegalStateException("La reserva con bono " + llamada + " no se pudo crear.");
+            }
+        });
+        medidor.medir("consultarReservasFuturas", llamada -> reservasDAO.consultarReservasFuturas());
+        medidor.medir("listarPistasDisponibles", llamada -> pistasDAO.listarPistasDisponibles("familiar"));
+        medidor.medir("listarJugadoresActivos", llamada -> jugadoresDAO.listarJugadoresActivos(0, 50));
+        LocalDate hoy = Reloj.hoy();
+        medidor.medir("generarInformeOcupacion", llamada -> reservasDAO.generarInformeOcupacion(hoy.minusYears(1), hoy));
+        medidor.medir("ingresosPorTipo", llamada -> reservasDAO.obtenerResumenIngresos().porTipo(hoy.minusYears(1), hoy));
+        System.out.println();
+        for (CoordinadorReservas.EstadisticasPista estadisticas : CoordinadorReservas.getInstancia().getEstadisticas()) {
+            System.out.println(estadisticas);
+        }
+        if (!conBaseDatos) {
+            return;
+        }
+
+        PoolConexiones pool = PoolConexiones.getInstancia();
+        CachePistas cachePistas = CachePistas.getInstancia();
+        CacheJugadores cacheJugadores = CacheJugadores.getInstancia();
+        System.out.println();
+        System.out.println("Caché de sentencias: " + pool.getAciertosCacheSentencias() + " aciertos, "
+                + pool.getFallosCacheSentencias() + " fallos");
+        System.out.println("Caché de pistas: " + cachePistas.getAciertos() + " aciertos, " + cachePistas.getFallos() + " fallos");
+        System.out.println("Caché de jugadores: " + cacheJugadores.getAciertos() + " aciertos, "
+                + cacheJugadores.getFallos() + " fallos");
+        System.out.println();
+        System.out.print(EstadisticasConsultas.getInstancia().informe());
+    }
+
+    /**
+     * Obtiene el día de dentro de unos días.
+     *
+     * @param dias Número de días a partir de hoy.
+     * @return El día.
+     */
+    private static LocalDate inicioDia(int dias) {
+        return Reloj.hoy().plusDays(dias);
+    }
+
+    /**
+     * Obtiene la franja libre que corresponde a una llamada: ocho franjas de 90 minutos por día
+     * a partir de las 9:00, y al día siguiente cuando se acaban.
+     *
+     * @param inicio  El primer día de la serie.
+     * @param llamada El número de llamada.
+     * @return La fecha y hora de la franja.
+     */
+    private static LocalDateTime franja(LocalDate inicio, int llamada) {
+        return inicio.plusDays(llamada / FRANJAS_POR_DIA).atTime(9, 0).plusMinutes((llamada % FRANJAS_POR_DIA) * 90);
+    }
+}
@@ -0,0 +1,326 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaAdulto;
+import es.uco.pw.business.reserva.ReservaDTO;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Comparación de las reglas de fechas de las reservas antes y después de pasar el modelo a
+ * {@code java.time}. Para cada regla (antelación y horario de una reserva, plazo para modificarla
+ * o cancelarla, ajuste de un rango a días completos, caducidad de un bono y antigüedad de un
+ * jugador) ejecuta la versión anterior, con {@link Calendar} y {@link Date}, y la actual, con el
+ * {@link Reloj} de la aplicación, sobre las mismas fechas. No toca la base de datos.
+ * <p>
+ * Cada versión se ejecuta por rondas de muchas operaciones: las primeras rondas calientan la JVM
+ * y no se miden, y de las demás se da la mediana del tiempo por operación y la media de bytes
+ * reservados por operación en el hilo que mide. Los resultados se acumulan en un sumidero que se
+ * muestra al final, para que el compilador no descarte las operaciones.
+ *
+ * Uso: {@code java es.uco.pw.bench.BenchValidacionFechas [operacionesPorRonda] [rondas]}
+ */
+public class BenchValidacionFechas {
+
+    /**
+     * Número de fechas distintas sobre las que se repiten las operaciones; potencia de dos.
+     */
+    private static final int FECHAS = 1024;
+
+    /**
+     * Rondas de calentamiento de cada versión, que no se miden.
+     */
+    private static final int RONDAS_CALENTAMIENTO = 5;
+
+    /**
+     * Medidor de la memoria reservada por el hilo actual.
+     */
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Operaciones de cada ronda.
+     */
+    private final int operaciones;
+
+    /**
+     * Rondas medidas de cada versión.
+     */
+    private final int rondas;
+
+    /**
+     * Fechas de inicio de las reservas, en el modelo actual.
+     */
+    private final LocalDateTime[] fechasHora = new LocalDateTime[FECHAS];
+
+    /**
+     * Las mismas fechas de inicio, como en el modelo anterior.
+     */
+    private final Date[] fechasHoraAntes = new Date[FECHAS];
+
+    /**
+     * Reservas que empiezan en cada fecha.
+     */
+    private final ReservaDTO[] reservas = new ReservaDTO[FECHAS];
+
+    /**
+     * Bonos con fechas de caducidad alrededor de hoy.
+     */
+    private final Bono[] bonos = new Bono[FECHAS];
+
+    /**
+     * Las mismas fechas de caducidad, como en el modelo anterior.
+     */
+    private final Date[] caducidadesAntes = new Date[FECHAS];
+
+    /**
+     * Jugadores con fechas de inscripción de los últimos años.
+     */
+    private final JugadorDTO[] jugadores = new JugadorDTO[FECHAS];
+
+    /**
+     * Las mismas fechas de inscripción, como en el modelo anterior.
+     */
+    private final Date[] inscripcionesAntes = new Date[FECHAS];
+
+    /**
+     * Acumulado de los resultados de todas las operaciones.
+     */
+    private long sumidero;
+
+    /**
+     * Constructor de la medición, que prepara las fechas de prueba.
+     *
+     * @param operaciones Operaciones de cada ronda.
+     * @param rondas      Rondas medidas de cada versión.
+     */
+    private BenchValidacionFechas(int operaciones, int rondas) {
+        this.operaciones = operaciones;
+        this.rondas = rondas;
+        ZoneId zona = Reloj.zona();
+        LocalDateTime base = Reloj.ahora().truncatedTo(ChronoUnit.HOURS);
+        LocalDate hoy = Reloj.hoy();
+        for (int i = 0; i < FECHAS; i++) {
+            // Inicios cada media hora durante tres semanas, dentro y fuera del horario y del plazo
+            LocalDateTime fechaHora = base.plusMinutes(30L * (i * 7 % (21 * 48)));
+            fechasHora[i] = fechaHora;
+            fechasHoraAntes[i] = Date.from(fechaHora.atZone(zona).toInstant());
+            reservas[i] = new ReservaAdulto(1, fechaHora, 60, 1, 2);
+
+            LocalDate caducidad = hoy.plusDays(i % 61 - 30);
+            bonos[i] = new Bono();
+            bonos[i].setFechaCaducidad(caducidad);
+            caducidadesAntes[i] = Date.from(caducidad.atStartOfDay(zona).toInstant());
+
+            LocalDate inscripcion = hoy.minusDays(i * 5L);
+            jugadores[i] = new JugadorDTO();
+            jugadores[i].setFechaInscripcion(inscripcion);
+            inscripcionesAntes[i] = Date.from(inscripcion.atStartOfDay(zona).toInstant());
+        }
+    }
+
+    /**
+     * Punto de entrada de la medición.
+     *
+     * @param args Operaciones por ronda (1.000.000 por defecto) y rondas medidas (10 por defecto).
+     */
+    public static void main(String[] args) {
+        int operaciones = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        new BenchValidacionFechas(operaciones, rondas).ejecutar();
+    }
+
+    /**
+     * Mide todas las reglas y muestra una línea por regla.
+     */
+    private void ejecutar() {
+        if (!HILOS.isThreadAllocatedMemorySupported()) {
+            System.out.println("Esta JVM no mide la memoria reservada por hilo; los bytes por operación salen a 0.");
+        }
+        System.out.printf("%-30s %12s %12s %12s %12s %9s%n",
+                "Regla", "antes ns/op", "ahora ns/op", "antes B/op", "ahora B/op", "mejora");
+        comparar("validarFechaHora",
+                i -> validarFechaHoraAntes(fechasHoraAntes[i]) ? 1 : 0,
+                i -> ReservaDTO.cumpleAntelacion(fechasHora[i], Reloj.ahora()) && ReservaDTO.estaEnHorario(fechasHora[i]) ? 1 : 0);
+        comparar("puedeModificarseOCancelarse",
+                i -> puedeModificarseOCancelarseAntes(fechasHoraAntes[i]) ? 1 : 0,
+                i -> reservas[i].puedeModificarseOCancelarse(Reloj.ahora()) ? 1 : 0);
+        comparar("rango de días completos",
+                i -> ajustarRangoAntes(fechasHoraAntes[i], fechasHoraAntes[(i + 7) & (FECHAS - 1)]),
+                i -> ajustarRango(fechasHora[i].toLocalDate(), fechasHora[(i + 7) & (FECHAS - 1)].toLocalDate()));
+        comparar("Bono.estaCaducado",
+                i -> new Date().after(caducidadesAntes[i]) ? 1 : 0,
+                i -> bonos[i].estaCaducado() ? 1 : 0);
+        comparar("JugadorDTO.calcularAntiguedad",
+                i -> calcularAntiguedadAntes(inscripcionesAntes[i]),
+                i -> jugadores[i].calcularAntiguedad());
+        System.out.println();
+        System.out.println("Sumidero: " + sumidero);
+    }
+
+    /**
+     * Mide las dos versiones de una regla y muestra la comparación.
+     *
+     * @param regla El nombre de la regla.
+     * @param antes La versión anterior.
+     * @param ahora La versión actual.
+     */
+    private void comparar(String regla, Variante antes, Variante ahora) {
+        double[] medidaAntes = medir(antes);
+        double[] medidaAhora = medir(ahora);
+        System.out.printf("%-30s %12.1f %12.1f %12.1f %12.1f %8.1fx%n", regla,
+                medidaAntes[0], medidaAhora[0], medidaAntes[1], medidaAhora[1], medidaAntes[0] / medidaAhora[0]);
+    }
+
+    /**
+     * Calienta y mide una versión de una regla.
+     *
+     * @param variante La versión.
+     * @return La mediana de nanosegundos por operación y la media de bytes reservados por operación.
+     */
+    private double[] medir(Variante variante) {
+        for (int i = 0; i < RONDAS_CALENTAMIENTO; i++) {
+            sumidero += ronda(variante);
+        }
+        long[] tiempos = new long[rondas];
+        long bytes = 0;
+        for (int i = 0; i < rondas; i++) {
+            long bytesAntes = HILOS.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            sumidero += ronda(variante);
+            tiempos[i] = System.nanoTime() - inicio;
+            bytes += HILOS.getCurrentThreadAllocatedBytes() - bytesAntes;
+        }
+        Arrays.sort(tiempos);
+        double total = (double) operaciones * rondas;
+        return new double[] {(double) tiempos[rondas / 2] / operaciones, bytes / total};
+    }
+
+    /**
+     * Ejecuta una ronda de una versión, recorriendo las fechas de prueba.
+     *
+     * @param variante La versión.
+     * @return La suma de los resultados.
+     */
+    private long ronda(Variante variante) {
+        long suma = 0;
+        for (int i = 0; i < operaciones; i++) {
+            suma += variante.ejecutar(i & (FECHAS - 1));
+        }
+        return suma;
+    }
+
+    /**
+     * Ajusta un rango a días completos como {@code ReservasDAO.consultarReservasPorRangosDeFechaYPista}.
+     *
+     * @param inicio El primer día.
+     * @param fin    El último día.
+     * @return Un valor derivado del rango ajustado.
+     */
+    private static long ajustarRango(LocalDate inicio, LocalDate fin) {
+        LocalDateTime desde = inicio.atStartOfDay();
+        LocalDateTime hasta = fin.atTime(LocalTime.MAX);
+        return desde.getDayOfYear() + hasta.getNano();
+    }
+
+    /**
+     * Versión anterior de {@code ReservasDAO.validarFechaHora}, sin lanzar la excepción.
+     *
+     * @param fechaHora La fecha y hora de la reserva.
+     * @return true si cumple la antelación y el horario.
+     */
+    private static boolean validarFechaHoraAntes(Date fechaHora) {
+        Date ahora = new Date();
+        Calendar calendario = Calendar.getInstance();
+        calendario.setTime(ahora);
+        calendario.add(Calendar.HOUR, 6);
+        if (fechaHora.before(calendario.getTime())) {
+            return false;
+        }
+        Calendar horaReserva = Calendar.getInstance();
+        horaReserva.setTime(fechaHora);
+        int hora = horaReserva.get(Calendar.HOUR_OF_DAY);
+        int minuto = horaReserva.get(Calendar.MINUTE);
+        return !(hora < 9 || (hora == 20 && minuto > 30) || hora > 20);
+    }
+
+    /**
+     * Versión anterior de {@code ReservasDAO.puedeModificarseOCancelarse}.
+     *
+     * @param fechaHora La fecha y hora de la reserva.
+     * @return true si faltan más de 24 horas.
+     */
+    private static boolean puedeModificarseOCancelarseAntes(Date fechaHora) {
+        long diferenciaTiempo = fechaHora.getTime() - new Date().getTime();
+        return diferenciaTiempo > 24 * 60 * 60 * 1000;
+    }
+
+    /**
+     * Versión anterior del ajuste a días completos de
+     * {@code ReservasDAO.consultarReservasPorRangosDeFechaYPista}.
+     *
+     * @param inicio El primer día.
+     * @param fin    El último día.
+     * @return Un valor derivado del rango ajustado.
+     */
+    private static long ajustarRangoAntes(Date inicio, Date fin) {
+        Calendar calInicio = Calendar.getInstance();
+        calInicio.setTime(inicio);
+        calInicio.set(Calendar.HOUR_OF_DAY, 0);
+        calInicio.set(Calendar.MINUTE, 0);
+        calInicio.set(Calendar.SECOND, 0);
+        calInicio.set(Calendar.MILLISECOND, 0);
+        Date desde = calInicio.getTime();
+
+        Calendar calFin = Calendar.getInstance();
+        calFin.setTime(fin);
+        calFin.set(Calendar.HOUR_OF_DAY, 23);
+        calFin.set(Calendar.MINUTE, 59);
+        calFin.set(Calendar.SECOND, 59);
+        calFin.set(Calendar.MILLISECOND, 999);
+        Date hasta = calFin.getTime();
+        return desde.getTime() + hasta.getTime();
+    }
+
+    /**
+     * Versión anterior de {@code JugadorDTO.calcularAntiguedad}.
+     *
+     * @param fechaInscripcion La fecha de inscripción.
+     * @return Los años de antigüedad.
+     */
+    private static int calcularAntiguedadAntes(Date fechaInscripcion) {
+        Calendar fechaActual = Calendar.getInstance();
+        Calendar fechaInscripcionCal = Calendar.getInstance();
+        fechaInscripcionCal.setTime(fechaInscripcion);
+        int aniosAntiguedad = fechaActual.get(Calendar.YEAR) - fechaInscripcionCal.get(Calendar.YEAR);
+        if (fechaActual.get(Calendar.DAY_OF_YEAR) < fechaInscripcionCal.get(Calendar.DAY_OF_YEAR)) {
+            aniosAntiguedad--;
+        }
+        return aniosAntiguedad;
+    }
+
+    /**
+     * Versión de una regla que se mide.
+     */
+    @FunctionalInterface
+    private interface Variante {
+
+        /**
+         * Aplica la regla a una de las fechas de prueba.
+         *
+         * @param i La posición de la fecha de prueba.
+         * @return Un valor derivado del resultado, que se acumula en el sumidero.
+         */
+        long ejecutar(int i);
+    }
+}
@@ -0,0 +1,247 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.MigradorEsquema;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.dao.JugadoresDAO;
+import es.uco.pw.data.dao.PistasDAO;
+import es.uco.pw.data.dao.ReservasBonosDAO;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Comprobación de los planes de ejecución de las consultas de los DAO. Aplica las migraciones del
+ * esquema del archivo de {@code -Dbench.config} (ver {@link EsquemaMedicion}), actualiza las
+ * estadísticas de las tablas con {@code ANALYZE TABLE} y lanza {@code EXPLAIN} sobre cada SELECT,
+ * UPDATE y DELETE de {@code sql.properties} que usan los DAO, con valores de ejemplo en lugar de
+ * los parámetros. Falla si alguna tabla se recorre entera, salvo en las consultas que leen a
+ * propósito la tabla completa ({@link #LECTURAS_COMPLETAS}), tanto si no hay ningún índice posible
+ * como si lo hay y el optimizador no lo usa.
+ * <p>
+ * Con tablas casi vacías el optimizador puede preferir recorrerlas aunque haya un índice, así que
+ * hay que lanzarla después de {@link SembradorDatos}, con datos de un tamaño realista. Termina con
+ * código 1 si alguna consulta falla, para poder usarla en un script.
+ *
+ * Uso: {@code java es.uco.pw.bench.ComprobarPlanesConsultas}
+ */
+public class ComprobarPlanesConsultas {
+
+    /**
+     * Tablas (o alias) que cada consulta lee enteras a propósito: el catálogo de pistas se carga
+     * completo en memoria y los ingresos se acumulan sobre todas las reservas.
+     */
+    private static final Map<String, Set<String>> LECTURAS_COMPLETAS = Map.of(
+            "listarCatalogoPistas", Set.of("p"),
+            "listarIngresosReservas", Set.of("r", "ReservaArchivada"));
+
+    /**
+     * Columnas de texto que se comparan con parámetros.
+     */
+    private static final Set<String> COLUMNAS_TEXTO = Set.of("correo", "nombre", "nombreApellidos");
+
+    /**
+     * Columna comparada con un parámetro: {@code col = ?}, {@code col >= ?},
+     * {@code col BETWEEN ?} o {@code col BETWEEN ? AND ?}, al final del texto anterior al parámetro.
+     */
+    private static final Pattern COMPARACION = Pattern.compile(
+            "(\\w+)\\s*(\\s+BETWEEN\\s+\\?\\s+AND|\\s+BETWEEN|=|!=|<>|>=|<=|<|>)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * {@code LIMIT ?} al final del texto anterior al parámetro.
+     */
+    private static final Pattern LIMITE = Pattern.compile("LIMIT\\s*$", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Registro con las consultas SQL de la aplicación.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
+    /**
+     * Fecha y hora de ejemplo para las columnas de fecha, como literal SQL: el momento actual.
+     */
+    private final String fechaDesde = literalFecha(0);
+
+    /**
+     * Fecha de ejemplo para el extremo superior de los intervalos, una semana después de
+     * {@link #fechaDesde}, para que el intervalo no quede vacío y el optimizador no lo descarte.
+     */
+    private final String fechaHasta = literalFecha(7);
+
+    /**
+     * Punto de entrada de la comprobación.
+     *
+     * @param args Los argumentos de línea de comandos (no utilizados).
+     * @throws SQLException Si no se puede obtener una conexión o falla algún EXPLAIN.
+     * @throws IllegalStateException Si no se indica una configuración de medición válida.
+     */
+    public static void main(String[] args) throws SQLException {
+        EsquemaMedicion.usarEsquemaDesechable();
+        new MigradorEsquema().migrar();
+        int fallos = new ComprobarPlanesConsultas().comprobar();
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Comprueba el plan de todas las consultas de los DAO y muestra el resultado de cada una.
+     *
+     * @return El número de tablas recorridas enteras fuera de {@link #LECTURAS_COMPLETAS}.
+     * @throws SQLException Si no se puede obtener una conexión o falla algún EXPLAIN.
+     */
+    int comprobar() throws SQLException {
+        Set<String> claves = new LinkedHashSet<>();
+        claves.addAll(JugadoresDAO.CONSULTAS_REQUERIDAS);
+        claves.addAll(PistasDAO.CONSULTAS_REQUERIDAS);
+        claves.addAll(ReservasBonosDAO.CONSULTAS_REQUERIDAS);
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new SQLException("No se pudo obtener una conexión del pool.");
+        }
+        int comprobadas = 0;
+        List<String> fallos = new ArrayList<>();
+        try (Statement st = con.createStatement()) {
+            analizarTablas(con, st);
+            for (String clave : claves) {
+                String sql = consultas.getConsulta(clave);
+                if (!seComprueba(sql)) {
+                    continue;
+                }
+                comprobadas++;
+                Set<String> permitidas = LECTURAS_COMPLETAS.getOrDefault(clave, Collections.emptySet());
+                try (ResultSet rs = st.executeQuery("EXPLAIN " + sustituirParametros(clave, sql))) {
+                    while (rs.next()) {
+                        String tabla = rs.getString("table");
+                        String tipo = rs.getString("type");
+                        String posibles = rs.getString("possible_keys");
+                        if (!"ALL".equals(tipo) || tabla == null || tabla.startsWith("<") || permitidas.contains(tabla)) {
+                            continue;
+                        }
+                        String detalle = String.format("%-40s %-18s %s filas", clave, tabla, rs.getString("rows"));
+                        fallos.add(detalle);
+                        System.out.println("FALLO " + detalle + (posibles == null
+                                ? ", sin índice posible" : ", el optimizador no usa " + posibles));
+                    }
+                }
+            }
+        } finally {
+            conexion.closeConnection();
+        }
+
+        System.out.println();
+        System.out.println("Consultas comprobadas: " + comprobadas + ". Recorridos completos: " + fallos.size() + ".");
+        return fallos.size();
+    }
+
+    /**
+     * Actualiza las estadísticas de todas las tablas del esquema, para que los planes no dependan
+     * de estimaciones antiguas, por ejemplo de antes de cargar los datos.
+     *
+     * @param con La conexión con la base de datos.
+     * @param st  La sentencia con la que se lanza {@code ANALYZE TABLE}.
+     * @throws SQLException Si no se pueden listar o analizar las tablas.
+     */
+    private static void analizarTablas(Connection con, Statement st) throws SQLException {
+        List<String> tablas = new ArrayList<>();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, "%", new String[] { "TABLE" })) {
+            while (rs.next()) {
+                tablas.add("`" + rs.getString("TABLE_NAME") + "`");
+            }
+        }
+        if (!tablas.isEmpty()) {
+            st.execute("ANALYZE TABLE " + String.join(", ", tablas));
+        }
+    }
+
+    /**
+     * Da formato de literal SQL a la fecha y hora actual desplazada unos días.
+     *
+     * @param dias Los días que se suman al momento actual.
+     * @return El literal, entre comillas.
+     */
+    private static String literalFecha(int dias) {
+        Calendar calendario = Calendar.getInstance();
+        calendario.add(Calendar.DAY_OF_MONTH, dias);
+        return "'" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(calendario.getTime()) + "'";
+    }
+
+    /**
+     * Indica si se comprueba el plan de una consulta: las lecturas, modificaciones y borrados con
+     * parámetros normales. Las inserciones no recorren tablas, las plantillas de
+     * {@code String.format} no son SQL completo y las consultas a {@code INFORMATION_SCHEMA} no
+     * tienen índices.
+     *
+     * @param sql El texto SQL.
+     * @return true si se comprueba.
+     */
+    private static boolean seComprueba(String sql) {
+        String inicio = sql.trim().toUpperCase();
+        boolean tipo = inicio.startsWith("SELECT") || inicio.startsWith("UPDATE")
+                || inicio.startsWith("DELETE") || inicio.startsWith("(");
+        return tipo && !sql.contains("%s") && !inicio.contains("INFORMATION_SCHEMA");
+    }
+
+    /**
+     * Sustituye cada parámetro por un literal del tipo de la columna con la que se compara: una
+     * fecha para las columnas {@code fecha*} (una semana después si es el extremo superior de un
+     * intervalo), un texto para los correos y nombres y un entero para el resto y para {@code LIMIT}.
+     *
+     * @param clave La clave de la consulta, para los mensajes de error.
+     * @param sql   El texto SQL con parámetros.
+     * @return El texto SQL con los parámetros sustituidos.
+     * @throws IllegalStateException Si no se reconoce con qué se compara algún parámetro.
+     */
+    private String sustituirParametros(String clave, String sql) {
+        StringBuilder resultado = new StringBuilder(sql.length() + 64);
+        int desde = 0;
+        for (int i = sql.indexOf('?'); i >= 0; i = sql.indexOf('?', i + 1)) {
+            String anterior = sql.substring(0, i);
+            resultado.append(sql, desde, i).append(valorEjemplo(clave, anterior));
+            desde = i + 1;
+        }
+        return resultado.append(sql.substring(desde)).toString();
+    }
+
+    /**
+     * Elige el literal de ejemplo de un parámetro a partir del texto que lo precede.
+     *
+     * @param clave    La clave de la consulta.
+     * @param anterior El texto SQL anterior al parámetro.
+     * @return El literal SQL.
+     * @throws IllegalStateException Si el parámetro no sigue a una comparación ni a {@code LIMIT}.
+     */
+    private String valorEjemplo(String clave, String anterior) {
+        if (LIMITE.matcher(anterior).find()) {
+            return "10";
+        }
+        Matcher m = COMPARACION.matcher(anterior);
+        if (!m.find()) {
+            throw new IllegalStateException("No se reconoce un parámetro de '" + clave + "' tras: "
+                    + anterior.substring(Math.max(0, anterior.length() - 40)));
+        }
+        String columna = m.group(1);
+        if (columna.startsWith("fecha")) {
+            String operador = m.group(2).trim().toUpperCase();
+            return operador.startsWith("<") && !operador.equals("<>") || operador.endsWith("AND") ? fechaHasta : fechaDesde;
+        }
+        if (COLUMNAS_TEXTO.contains(columna)) {
+            return "'planes@ejemplo.es'";
+        }
+        return "1";
+    }
+}
@@ -0,0 +1,68 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.data.common.Configuracion;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Salvaguarda de las mediciones que escriben en la base de datos. Ninguna de ellas usa
+ * config.properties: exigen un archivo de configuración propio, indicado con
+ * {@code -Dbench.config=<archivo>}, cuya URL apunte a un esquema desechable distinto del de la
+ * aplicación, y se niegan a empezar si no se indica o si apunta a la misma base de datos.
+ */
+final class EsquemaMedicion {
+
+    /**
+     * Propiedad del sistema con el archivo de configuración de las mediciones.
+     */
+    static final String PROPIEDAD_CONFIGURACION = "bench.config";
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private EsquemaMedicion() {
+    }
+
+    /**
+     * Comprueba el archivo indicado con {@link #PROPIEDAD_CONFIGURACION} y hace que toda la
+     * configuración se lea de él. Debe llamarse al empezar, antes de usar la configuración, el
+     * pool o cualquier DAO.
+     *
+     * @throws IllegalStateException Si no se indica el archivo, no define una URL o apunta a la
+     *                               misma base de datos que config.properties.
+     */
+    static void usarEsquemaDesechable() {
+        String archivo = System.getProperty(PROPIEDAD_CONFIGURACION);
+        if (archivo == null || archivo.trim().isEmpty()) {
+            throw new IllegalStateException("Las mediciones escriben en la base de datos: indique con -D"
+                    + PROPIEDAD_CONFIGURACION + "=<archivo> una configuración que apunte a un esquema desechable.");
+        }
+        String urlMedicion = baseDatos(Configuracion.cargarConfiguracion(archivo));
+        if (urlMedicion.isEmpty()) {
+            throw new IllegalStateException("El archivo " + archivo + " no define la propiedad url.");
+        }
+        String urlAplicacion = baseDatos(Configuracion.cargarConfiguracion(Configuracion.ARCHIVO_CONFIGURACION));
+        if (urlMedicion.equals(urlAplicacion)) {
+            throw new IllegalStateException("El archivo " + archivo + " apunta a la misma base de datos que "
+                    + Configuracion.ARCHIVO_CONFIGURACION + "; las mediciones necesitan un esquema desechable.");
+        }
+        System.setProperty(Configuracion.PROPIEDAD_ARCHIVO, archivo);
+    }
+
+    /**
+     * Obtiene la URL de la base de datos de una configuración, sin los parámetros de conexión y en
+     * minúsculas, para que dos URL del mismo esquema con distintas opciones se reconozcan.
+     *
+     * @param propiedades Las propiedades de la configuración.
+     * @return La URL normalizada, vacía si no está definida.
+     */
+    private static String baseDatos(Properties propiedades) {
+        String url = propiedades.getProperty("url", "").trim();
+        int parametros = url.indexOf('?');
+        if (parametros >= 0) {
+            url = url.substring(0, parametros);
+        }
+        return url.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,119 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.data.common.PoolConexiones;
+
+import java.util.Arrays;
+
+/**
+ * Arnés mínimo de medición para las operaciones de los DAO. Ejecuta una operación unas cuantas
+ * veces para calentar la JVM, el pool y las cachés, y después la mide llamada a llamada para
+ * dar la media, los percentiles 50 y 99, las operaciones por segundo y las sentencias SQL que
+ * cuesta cada llamada.
+ */
+final class Medidor {
+
+    /**
+     * Cabecera de la tabla de resultados.
+     */
+    static final String CABECERA = String.format("%-34s %8s %10s %10s %10s %10s %10s",
+            "Operación", "Llamadas", "media µs", "p50 µs", "p99 µs", "op/s", "sent./op");
+
+    /**
+     * Pool del que se leen las sentencias ejecutadas, o null si el motor no usa la base de datos.
+     */
+    private final PoolConexiones pool;
+
+    /**
+     * Número de llamadas de calentamiento, que no se miden.
+     */
+    private final int calentamiento;
+
+    /**
+     * Número de llamadas medidas.
+     */
+    private final int iteraciones;
+
+    /**
+     * Constructor del medidor.
+     *
+     * @param calentamiento Número de llamadas de calentamiento.
+     * @param iteraciones   Número de llamadas medidas.
+     * @param pool          Pool del que se leen las sentencias ejecutadas, o null si no hay base de datos.
+     */
+    Medidor(int calentamiento, int iteraciones, PoolConexiones pool) {
+        this.calentamiento = calentamiento;
+        this.iteraciones = iteraciones;
+        this.pool = pool;
+    }
+
+    /**
+     * Calienta y mide una operación, y muestra una línea con sus resultados.
+     *
+     * @param nombre    El nombre de la operación.
+     * @param operacion La operación a medir; recibe el número de llamada, empezando por 0.
+     */
+    void medir(String nombre, Operacion operacion) {
+        try {
+            for (int i = 0; i < calentamiento; i++) {
+                operacion.ejecutar(i);
+            }
+
+            long[] tiempos = new long[iteraciones];
+            long sentenciasAntes = sentenciasEjecutadas();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < iteraciones; i++) {
+                long antes = System.nanoTime();
+                operacion.ejecutar(calentamiento + i);
+                tiempos[i] = System.nanoTime() - antes;
+            }
+            long total = System.nanoTime() - inicio;
+            long sentencias = sentenciasEjecutadas() - sentenciasAntes;
+
+            Arrays.sort(tiempos);
+            System.out.printf("%-34s %8d %10.1f %10.1f %10.1f %10.1f %10.2f%n", nombre, iteraciones,
+                    total / 1_000.0 / iteraciones, percentil(tiempos, 0.50) / 1_000.0, percentil(tiempos, 0.99) / 1_000.0,
+                    iteraciones * 1_000_000_000.0 / total, (double) sentencias / iteraciones);
+        } catch (Exception e) {
+            System.out.printf("%-34s error: %s%n", nombre, e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene las sentencias ejecutadas hasta ahora por el pool.
+     *
+     * @return Las sentencias ejecutadas, o 0 si no hay pool.
+     */
+    private long sentenciasEjecutadas() {
+        return pool == null ? 0 : pool.getSentenciasEjecutadas();
+    }
+
+    /**
+     * Obtiene un percentil de unos tiempos ordenados.
+     *
+     * @param ordenados Los tiempos, ordenados de menor a mayor.
+     * @param fraccion  El percentil, entre 0 y 1.
+     * @return El tiempo del percentil, en nanosegundos.
+     */
+    private static long percentil(long[] ordenados, double fraccion) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int posicion = (int) Math.ceil(fraccion * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(posicion, ordenados.length - 1))];
+    }
+
+    /**
+     * Operación que se mide.
+     */
+    @FunctionalInterface
+    interface Operacion {
+
+        /**
+         * Ejecuta la operación una vez.
+         *
+         * @param llamada El número de llamada, empezando por 0 en el calentamiento.
+         * @throws Exception Si la operación falla; se muestra el error y se deja de medir.
+         */
+        void ejecutar(int llamada) throws Exception;
+    }
+}
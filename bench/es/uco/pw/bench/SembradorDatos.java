@@ -0,0 +1,311 @@
+package es.uco.pw.bench;
+
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.MigradorEsquema;
+import es.uco.pw.data.common.RegistroConsultas;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Carga en la base de datos del archivo indicado con {@code -Dbench.config} (ver
+ * {@link EsquemaMedicion}) un conjunto de datos para las mediciones: jugadores, pistas de los tres tamaños y varios meses de reservas. Usa las mismas
+ * consultas de sql.properties que la aplicación, enviadas por lotes, después de crear con
+ * {@link MigradorEsquema} las tablas e índices que falten. Debe ejecutarse contra un esquema
+ * desechable, nunca contra la base de datos real: se niega a empezar si el archivo apunta a la
+ * misma base de datos que config.properties.
+ *
+ * Uso: {@code java es.uco.pw.bench.SembradorDatos [jugadores] [pistas] [meses] [ocupacion] [semilla]}
+ */
+public class SembradorDatos {
+
+    /**
+     * Número de filas que se envían en cada lote antes de confirmar.
+     */
+    private static final int TAMANO_LOTE = 500;
+
+    /**
+     * Registro con las consultas SQL de la aplicación.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
+    /**
+     * Generador de números aleatorios, con semilla fija para que los datos sean reproducibles.
+     */
+    private final Random aleatorio;
+
+    /**
+     * Etiqueta de esta carga, que hace únicos los correos y los nombres de pista.
+     */
+    private final String etiqueta = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Constructor del sembrador.
+     *
+     * @param semilla La semilla del generador de números aleatorios.
+     */
+    SembradorDatos(long semilla) {
+        this.aleatorio = new Random(semilla);
+    }
+
+    /**
+     * Punto de entrada del sembrador.
+     *
+     * @param args Número de jugadores (200), de pistas (10), meses de reservas pasadas (3),
+     *             fracción de franjas ocupadas (0.5) y semilla (42).
+     * @throws SQLException Si falla la carga.
+     * @throws IllegalStateException Si no se indica una configuración de medición válida.
+     */
+    public static void main(String[] args) throws SQLException {
+        int jugadores = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int pistas = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int meses = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        double ocupacion = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+        long semilla = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        EsquemaMedicion.usarEsquemaDesechable();
+        // Un esquema recién creado empieza sin tablas
+        new MigradorEsquema().migrar();
+        new SembradorDatos(semilla).sembrar(jugadores, pistas, meses, ocupacion);
+    }
+
+    /**
+     * Carga los jugadores, las pistas y las reservas.
+     *
+     * @param numeroJugadores Número de jugadores a crear.
+     * @param numeroPistas    Número de pistas a crear.
+     * @param meses           Meses de reservas pasadas; además se crea un mes de reservas futuras.
+     * @param ocupacion       Fracción de las franjas de cada pista que se reservan.
+     * @throws SQLException Si falla alguna inserción.
+     */
+    void sembrar(int numeroJugadores, int numeroPistas, int meses, double ocupacion) throws SQLException {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new SQLException("No se pudo obtener una conexión del pool.");
+        }
+        try {
+            con.setAutoCommit(false);
+            long inicio = System.nanoTime();
+
+            List<Integer> jugadores = insertarJugadores(con, numeroJugadores);
+            List<Integer> idsPistas = new ArrayList<>();
+            List<TamanoPista> tamanos = new ArrayList<>();
+            insertarPistas(con, numeroPistas, idsPistas, tamanos);
+            int reservas = insertarReservas(con, jugadores, idsPistas, tamanos, meses, ocupacion);
+
+            System.out.printf("Cargados %d jugadores, %d pistas y %d reservas en %.1f s.%n",
+                    jugadores.size(), idsPistas.size(), reservas, (System.nanoTime() - inicio) / 1e9);
+            System.out.println("Jugador para las mediciones: " + correo(0));
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Inserta los jugadores, con la cuenta activa y sin fecha de inscripción.
+     *
+     * @param con    La conexión, con la transacción abierta.
+     * @param numero Número de jugadores.
+     * @return Los IDs generados.
+     * @throws SQLException Si falla la inserción.
+     */
+    private List<Integer> insertarJugadores(Connection con, int numero) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("altaJugador"), Statement.RETURN_GENERATED_KEYS)) {
+            Calendar nacimiento = Calendar.getInstance();
+            for (int i = 0; i < numero; i++) {
+                nacimiento.set(1960 + aleatorio.nextInt(50), aleatorio.nextInt(12), 1 + aleatorio.nextInt(28));
+                ps.setString(1, "Jugador " + i);
+                ps.setDate(2, new java.sql.Date(nacimiento.getTimeInMillis()));
+                ps.setNull(3, java.sql.Types.DATE);
+                ps.setString(4, correo(i));
+                ps.setInt(5, 1);
+                ps.addBatch();
+                if ((i + 1) % TAMANO_LOTE == 0 || i == numero - 1) {
+                    ps.executeBatch();
+                    leerClaves(ps, ids);
+                    con.commit();
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Inserta las pistas, alternando entre los tres tamaños.
+     *
+     * @param con     La conexión, con la transacción abierta.
+     * @param numero  Número de pistas.
+     * @param ids     Lista en la que se añaden los IDs generados.
+     * @param tamanos Lista en la que se añade el tamaño de cada pista.
+     * @throws SQLException Si falla la inserción.
+     */
+    private void insertarPistas(Connection con, int numero, List<Integer> ids, List<TamanoPista> tamanos) throws SQLException {
+        TamanoPista[] ciclo = {TamanoPista.ADULTOS, TamanoPista.MINIBASKET, TamanoPista._3VS3};
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("crearPista"), Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < numero; i++) {
+                TamanoPista tamano = ciclo[i % ciclo.length];
+                ps.setString(1, "Pista " + etiqueta + "-" + i);
+                ps.setBoolean(2, true);
+                ps.setBoolean(3, i % 2 == 1);
+                ps.setString(4, tamano.name());
+                ps.setInt(5, tamano == TamanoPista.ADULTOS ? 10 : 8);
+                ps.addBatch();
+                tamanos.add(tamano);
+            }
+            ps.executeBatch();
+            leerClaves(ps, ids);
+            con.commit();
+        }
+    }
+
+    /**
+     * Inserta las reservas de cada pista en franjas de 90 minutos entre las 9:00 y las 19:30,
+     * desde hace {@code meses} meses hasta dentro de un mes, con su fila de tipo de reserva.
+     *
+     * @param con       La conexión, con la transacción abierta.
+     * @param jugadores Los IDs de los jugadores.
+     * @param pistas    Los IDs de las pistas.
+     * @param tamanos   El tamaño de cada pista.
+     * @param meses     Meses de reservas pasadas.
+     * @param ocupacion Fracción de franjas reservadas.
+     * @return Número de reservas insertadas.
+     * @throws SQLException Si falla la inserción.
+     */
+    private int insertarReservas(Connection con, List<Integer> jugadores, List<Integer> pistas, List<TamanoPista> tamanos,
+                                 int meses, double ocupacion) throws SQLException {
+        Calendar dia = Calendar.getInstance();
+        dia.set(Calendar.HOUR_OF_DAY, 0);
+        dia.set(Calendar.MINUTE, 0);
+        dia.set(Calendar.SECOND, 0);
+        dia.set(Calendar.MILLISECOND, 0);
+        Calendar fin = (Calendar) dia.clone();
+        fin.add(Calendar.MONTH, 1);
+        dia.add(Calendar.MONTH, -meses);
+
+        int total = 0;
+        List<Integer> pendientes = new ArrayList<>();
+        try (PreparedStatement psReserva = con.prepareStatement(consultas.getConsulta("insertarReserva"), Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement psAdulto = con.prepareStatement(consultas.getConsulta("insertarReservaAdulto"));
+             PreparedStatement psInfantil = con.prepareStatement(consultas.getConsulta("insertarReservaInfantil"));
+             PreparedStatement psFamiliar = con.prepareStatement(consultas.getConsulta("insertarReservaFamiliar"))) {
+            for (; dia.before(fin); dia.add(Calendar.DAY_OF_MONTH, 1)) {
+                for (int p = 0; p < pistas.size(); p++) {
+                    for (int franja = 0; franja < 8; franja++) {
+                        if (aleatorio.nextDouble() >= ocupacion) {
+                            continue;
+                        }
+                        int duracion = aleatorio.nextBoolean() ? 60 : 90;
+                        long fechaHora = dia.getTimeInMillis() + (9 * 60 + franja * 90) * 60_000L;
+                        psReserva.setInt(1, jugadores.get(aleatorio.nextInt(jugadores.size())));
+                        psReserva.setInt(2, pistas.get(p));
+                        psReserva.setTimestamp(3, new java.sql.Timestamp(fechaHora));
+                        psReserva.setInt(4, duracion);
+                        psReserva.setFloat(5, ReservaDTO.calcularPrecio(duracion, 0));
+                        psReserva.setFloat(6, 0);
+                        psReserva.setObject(7, null);
+                        psReserva.addBatch();
+                        pendientes.add(p);
+                        if (pendientes.size() == TAMANO_LOTE) {
+                            total += enviarReservas(con, psReserva, psAdulto, psInfantil, psFamiliar, pendientes, tamanos);
+                        }
+                    }
+                }
+            }
+            if (!pendientes.isEmpty()) {
+                total += enviarReservas(con, psReserva, psAdulto, psInfantil, psFamiliar, pendientes, tamanos);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Envía el lote de reservas pendiente y, con los IDs generados, el lote de sus filas de tipo.
+     *
+     * @param con        La conexión, con la transacción abierta.
+     * @param psReserva  Sentencia de {@code insertarReserva} con el lote preparado.
+     * @param psAdulto   Sentencia de {@code insertarReservaAdulto}.
+     * @param psInfantil Sentencia de {@code insertarReservaInfantil}.
+     * @param psFamiliar Sentencia de {@code insertarReservaFamiliar}.
+     * @param pendientes La posición de la pista de cada reserva del lote; se vacía al terminar.
+     * @param tamanos    El tamaño de cada pista.
+     * @return Número de reservas enviadas.
+     * @throws SQLException Si falla el envío.
+     */
+    private int enviarReservas(Connection con, PreparedStatement psReserva, PreparedStatement psAdulto, PreparedStatement psInfantil,
+                               PreparedStatement psFamiliar, List<Integer> pendientes, List<TamanoPista> tamanos) throws SQLException {
+        psReserva.executeBatch();
+        List<Integer> ids = new ArrayList<>();
+        leerClaves(psReserva, ids);
+        if (ids.size() != pendientes.size()) {
+            throw new SQLException("Se obtuvieron " + ids.size() + " IDs para " + pendientes.size() + " reservas.");
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            switch (tamanos.get(pendientes.get(i))) {
+                case ADULTOS:
+                    psAdulto.setInt(1, ids.get(i));
+                    psAdulto.setInt(2, 2 + aleatorio.nextInt(9));
+                    psAdulto.addBatch();
+                    break;
+                case MINIBASKET:
+                    psInfantil.setInt(1, ids.get(i));
+                    psInfantil.setInt(2, 2 + aleatorio.nextInt(7));
+                    psInfantil.addBatch();
+                    break;
+                default:
+                    psFamiliar.setInt(1, ids.get(i));
+                    psFamiliar.setInt(2, 1 + aleatorio.nextInt(2));
+                    psFamiliar.setInt(3, 1 + aleatorio.nextInt(4));
+                    psFamiliar.addBatch();
+                    break;
+            }
+        }
+        psAdulto.executeBatch();
+        psInfantil.executeBatch();
+        psFamiliar.executeBatch();
+        con.commit();
+
+        int enviadas = pendientes.size();
+        pendientes.clear();
+        return enviadas;
+    }
+
+    /**
+     * Lee los IDs generados por el último lote de una sentencia.
+     *
+     * @param ps  La sentencia que ejecutó el lote.
+     * @param ids Lista en la que se añaden los IDs.
+     * @throws SQLException Si no se pueden leer los IDs.
+     */
+    private static void leerClaves(PreparedStatement ps, List<Integer> ids) throws SQLException {
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * Obtiene el correo del jugador i-ésimo de esta carga.
+     *
+     * @param i La posición del jugador.
+     * @return El correo del jugador.
+     */
+    private String correo(int i) {
+        return "jugador" + i + "." + etiqueta + "@bench.local";
+    }
+}
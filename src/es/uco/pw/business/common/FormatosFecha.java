@@ -0,0 +1,38 @@
+package es.uco.pw.business.common;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+
+/**
+ * Formatos de fecha compartidos por los menús, la API y los listados. A diferencia de
+ * {@code SimpleDateFormat}, un {@link DateTimeFormatter} es inmutable y se puede usar desde varios
+ * hilos a la vez, así que se crea una sola vez en lugar de en cada llamada o en cada fila.
+ * <p>
+ * Los formatos de entrada son estrictos: una fecha que no existe, como el 30 de febrero, es un
+ * error de formato en lugar de pasar al día siguiente.
+ */
+public final class FormatosFecha {
+
+    /**
+     * Día en formato ISO, {@code yyyy-MM-dd}, con el que se piden las fechas en los menús y la API.
+     */
+    public static final DateTimeFormatter FECHA =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Día y hora, {@code yyyy-MM-dd HH:mm}, con los que se piden y muestran las reservas.
+     */
+    public static final DateTimeFormatter FECHA_HORA =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm").withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Día en el formato habitual en España, {@code dd/MM/yyyy}, para mostrar los jugadores.
+     */
+    public static final DateTimeFormatter FECHA_LEGIBLE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    /**
+     * Constructor privado: la clase solo contiene constantes.
+     */
+    private FormatosFecha() {
+    }
+}
@@ -0,0 +1,138 @@
+package es.uco.pw.business.common;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Reloj único de la aplicación. Todas las reglas que dependen del momento actual (antelación de
+ * las reservas, caducidad de los bonos, antigüedad de los jugadores, reservas futuras, archivado)
+ * lo leen de aquí, de modo que se puede sustituir por un {@link Clock} fijo o desplazado para
+ * probar o medir esas reglas en un momento concreto.
+ * <p>
+ * Las fechas y horas de las reservas son {@link LocalDateTime}, la hora de pared de las pistas;
+ * los índices en memoria las guardan en milisegundos, y la conversión entre ambas usa la zona
+ * horaria de este reloj.
+ */
+public final class Reloj {
+
+    /**
+     * Reloj en uso; por defecto, el del sistema en la zona horaria por defecto.
+     */
+    private static volatile Clock reloj = Clock.systemDefaultZone();
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private Reloj() {
+    }
+
+    /**
+     * Obtiene el reloj en uso.
+     *
+     * @return El reloj.
+     */
+    public static Clock getReloj() {
+        return reloj;
+    }
+
+    /**
+     * Sustituye el reloj de la aplicación, por ejemplo por {@link Clock#fixed(Instant, ZoneId)}.
+     *
+     * @param nuevo El nuevo reloj.
+     * @throws IllegalArgumentException Si el reloj es null.
+     */
+    public static void setReloj(Clock nuevo) {
+        if (nuevo == null) {
+            throw new IllegalArgumentException("El reloj no puede ser null.");
+        }
+        reloj = nuevo;
+    }
+
+    /**
+     * Vuelve al reloj del sistema.
+     */
+    public static void restablecer() {
+        reloj = Clock.systemDefaultZone();
+    }
+
+    /**
+     * Obtiene la zona horaria del reloj.
+     *
+     * @return La zona horaria.
+     */
+    public static ZoneId zona() {
+        return reloj.getZone();
+    }
+
+    /**
+     * Obtiene la fecha y hora actuales.
+     *
+     * @return La fecha y hora actuales en la zona del reloj.
+     */
+    public static LocalDateTime ahora() {
+        return LocalDateTime.now(reloj);
+    }
+
+    /**
+     * Obtiene la fecha de hoy.
+     *
+     * @return El día actual en la zona del reloj.
+     */
+    public static LocalDate hoy() {
+        return LocalDate.now(reloj);
+    }
+
+    /**
+     * Obtiene el instante actual en milisegundos, sin crear ningún objeto.
+     *
+     * @return Los milisegundos desde el 1 de enero de 1970 UTC.
+     */
+    public static long milisegundos() {
+        return reloj.millis();
+    }
+
+    /**
+     * Convierte una fecha y hora de pared en milisegundos, con la zona del reloj.
+     *
+     * @param fechaHora La fecha y hora.
+     * @return Los milisegundos desde el 1 de enero de 1970 UTC.
+     */
+    public static long aMilisegundos(LocalDateTime fechaHora) {
+        ZoneOffset desfase = reloj.getZone().getRules().getOffset(fechaHora);
+        return fechaHora.toEpochSecond(desfase) * 1000 + fechaHora.getNano() / 1_000_000;
+    }
+
+    /**
+     * Convierte unos milisegundos en la fecha y hora de pared de la zona del reloj.
+     *
+     * @param milisegundos Los milisegundos desde el 1 de enero de 1970 UTC.
+     * @return La fecha y hora.
+     */
+    public static LocalDateTime deMilisegundos(long milisegundos) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(milisegundos), reloj.getZone());
+    }
+
+    /**
+     * Obtiene los milisegundos del inicio de un día en la zona del reloj.
+     *
+     * @param dia El día.
+     * @return Los milisegundos de las 0:00 del día.
+     */
+    public static long inicioDia(LocalDate dia) {
+        return dia.atStartOfDay(reloj.getZone()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Obtiene el día al que pertenece un instante en la zona del reloj.
+     *
+     * @param milisegundos Los milisegundos desde el 1 de enero de 1970 UTC.
+     * @return El día.
+     */
+    public static LocalDate diaDe(long milisegundos) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(milisegundos), reloj.getZone());
+    }
+}
@@ -1,8 +1,10 @@
 package es.uco.pw.business.jugador;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import es.uco.pw.business.common.FormatosFecha;
+import es.uco.pw.business.common.Reloj;
+
+import java.time.LocalDate;
+import java.time.Period;
 
 /**
  * Representa un jugador con atributos como nombre, fecha de nacimiento, correo electrónico, 
@@ -26,13 +28,13 @@ public class JugadorDTO {
     /**
      * Fecha de nacimiento del jugador.
      */
-    private Date fechaNacimiento;
+    private LocalDate fechaNacimiento;
 
     /**
      * Fecha de inscripción del jugador en el sistema. 
      * Puede ser null si el jugador no está inscrito.
      */
-    private Date fechaInscripcion;
+    private LocalDate fechaInscripcion;
 
     /**
      * Correo electrónico del jugador.
@@ -58,7 +60,7 @@ public class JugadorDTO {
      * @param fechaNacimiento   Fecha de nacimiento del jugador.
      * @param correoElectronico Correo electrónico del jugador.
      */
-    public JugadorDTO(String nombreApellidos, Date fechaNacimiento, String correoElectronico) {
+    public JugadorDTO(String nombreApellidos, LocalDate fechaNacimiento, String correoElectronico) {
         this();
         this.nombreApellidos = nombreApellidos;
         this.fechaNacimiento = fechaNacimiento;
@@ -126,7 +128,7 @@ public class JugadorDTO {
      *
      * @return Fecha de nacimiento del jugador.
      */
-    public Date getFechaNacimiento() {
+    public LocalDate getFechaNacimiento() {
         return fechaNacimiento;
     }
 
@@ -135,7 +137,7 @@ public class JugadorDTO {
      *
      * @param fechaNacimiento Fecha de nacimiento del jugador.
      */
-    public void setFechaNacimiento(Date fechaNacimiento) {
+    public void setFechaNacimiento(LocalDate fechaNacimiento) {
         this.fechaNacimiento = fechaNacimiento;
     }
 
@@ -144,7 +146,7 @@ public class JugadorDTO {
      *
      * @return Fecha de inscripción del jugador, o null si no está inscrito.
      */
-    public Date getFechaInscripcion() {
+    public LocalDate getFechaInscripcion() {
         return fechaInscripcion;
     }
 
@@ -153,7 +155,7 @@ public class JugadorDTO {
      *
      * @param fechaInscripcion Fecha de inscripción del jugador.
      */
-    public void setFechaInscripcion(Date fechaInscripcion) {
+    public void setFechaInscripcion(LocalDate fechaInscripcion) {
         this.fechaInscripcion = fechaInscripcion;
     }
 
@@ -182,34 +184,23 @@ public class JugadorDTO {
      */
     @Override
     public String toString() {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
         return "ID: " + idJugador + 
                "\nNombre: " + nombreApellidos +
-               "\nFecha de Nacimiento: " + sdf.format(fechaNacimiento) +
-               "\nFecha de Inscripción: " + (fechaInscripcion != null ? sdf.format(fechaInscripcion) : "No inscrito") +
+               "\nFecha de Nacimiento: " + FormatosFecha.FECHA_LEGIBLE.format(fechaNacimiento) +
+               "\nFecha de Inscripción: " + (fechaInscripcion != null ? FormatosFecha.FECHA_LEGIBLE.format(fechaInscripcion) : "No inscrito") +
                "\nCorreo Electrónico: " + correoElectronico;
     }
 
     /**
-     * Calcula los años de antigüedad del jugador desde su fecha de inscripción.
+     * Calcula los años de antigüedad del jugador desde su fecha de inscripción hasta hoy, según
+     * el reloj de la aplicación.
      * 
-     * @return Años de antigüedad, o 0 si el jugador no está inscrito.
+     * @return Años de antigüedad cumplidos, o 0 si el jugador no está inscrito.
      */
     public int calcularAntiguedad() {
         if (fechaInscripcion == null) {
             return 0; // Si no está inscrito, no tiene antigüedad
         }
-        Calendar fechaActual = Calendar.getInstance();
-        Calendar fechaInscripcionCal = Calendar.getInstance();
-        fechaInscripcionCal.setTime(fechaInscripcion);
-
-        int aniosAntiguedad = fechaActual.get(Calendar.YEAR) - fechaInscripcionCal.get(Calendar.YEAR);
-
-        // Si aún no ha pasado la fecha de inscripción en este año, restamos 1
-        if (fechaActual.get(Calendar.DAY_OF_YEAR) < fechaInscripcionCal.get(Calendar.DAY_OF_YEAR)) {
-            aniosAntiguedad--;
-        }
-
-        return aniosAntiguedad;
+        return Period.between(fechaInscripcion, Reloj.hoy()).getYears();
     }
 }
@@ -1,7 +1,8 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
-import java.util.Calendar;
+import es.uco.pw.business.common.Reloj;
+
+import java.time.LocalDate;
 
 /**
  * Clase que representa un bono de reservas de pistas de baloncesto.
@@ -26,7 +27,7 @@ public class Bono {
     /**
      * Fecha de caducidad del bono, que es un año desde la fecha de la primera reserva.
      */
-    private Date fechaCaducidad; // Un año desde la primera reserva
+    private LocalDate fechaCaducidad; // Un año desde la primera reserva
 
     /** 
      * Constructor vacío.
@@ -42,7 +43,7 @@ public class Bono {
      * @param numeroSesion El número de la sesión que se está utilizando.
      * @param fechaPrimeraReserva La fecha de la primera reserva.
      */
-    public Bono(int idBono, int idUsuario, int numeroSesion, Date fechaPrimeraReserva) {
+    public Bono(int idBono, int idUsuario, int numeroSesion, LocalDate fechaPrimeraReserva) {
         this.idBono = idBono;
         this.idUsuario = idUsuario;
         this.sesionesRestantes = 5 - numeroSesion; // Calcular sesiones restantes
@@ -55,21 +56,18 @@ public class Bono {
      * @param fechaPrimeraReserva La fecha de la primera reserva.
      * @return La fecha de caducidad del bono.
      */
-    public Date calcularFechaCaducidad(Date fechaPrimeraReserva) {
-        // Lógica para calcular la fecha de caducidad a partir de la primera reserva (un año)
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(fechaPrimeraReserva);
-        cal.add(Calendar.YEAR, 1); // Añade un año
-        return cal.getTime();
+    public LocalDate calcularFechaCaducidad(LocalDate fechaPrimeraReserva) {
+        return fechaPrimeraReserva.plusYears(1); // Un año después de la primera reserva
     }
 
     /**
-     * Verifica si el bono ha caducado.
+     * Verifica si el bono ha caducado. El bono deja de valer al empezar el día de caducidad,
+     * según el reloj de la aplicación.
      * 
      * @return true si el bono está caducado, false en caso contrario.
      */
     public boolean estaCaducado() {
-        return new Date().after(fechaCaducidad);
+        return !Reloj.hoy().isBefore(fechaCaducidad);
     }
 
     /**
@@ -147,7 +145,7 @@ public class Bono {
      * 
      * @return La fecha de caducidad del bono.
      */
-    public Date getFechaCaducidad() {
+    public LocalDate getFechaCaducidad() {
         return fechaCaducidad;
     }
 
@@ -156,7 +154,7 @@ public class Bono {
      * 
      * @param fechaCaducidad La nueva fecha de caducidad.
      */
-    public void setFechaCaducidad(Date fechaCaducidad) {
+    public void setFechaCaducidad(LocalDate fechaCaducidad) {
         this.fechaCaducidad = fechaCaducidad;
     }
 
@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Clase que representa una reserva de pista de baloncesto para adultos.
@@ -29,7 +29,7 @@ public class ReservaAdulto extends ReservaDTO {
      * @param idPista El identificador de la pista reservada.
      * @param numeroAdultos El número de adultos en la reserva.
      */
-    public ReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
+    public ReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
         super(idUsuario, fechaHora, duracionMinutos, idPista);
         this.numeroAdultos = numeroAdultos;
     }
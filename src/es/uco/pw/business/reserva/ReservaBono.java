@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Clase que representa una reserva de pista de baloncesto utilizando un bono.
@@ -30,7 +30,7 @@ public class ReservaBono extends ReservaDTO {
      * @param bono            El bono utilizado para la reserva.
      * @param numeroSesion    El número de sesión del bono.
      */
-    public ReservaBono(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, Bono bono, int numeroSesion) {
+    public ReservaBono(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, Bono bono, int numeroSesion) {
         super(idUsuario, fechaHora, duracionMinutos, idPista);
         this.bono = bono;
         this.idBono = bono.getIdBono();
@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Clase concreta de la fábrica de reservas para el tipo de reserva con bono.
@@ -29,7 +29,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva infantil con bono.
      */
     @Override
-    public ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion) {
         // Crear la reserva base con los detalles comunes
         ReservaBono reservaBase = new ReservaBono(idUsuario, fechaHora, duracionMinutos, idPista, bono, numeroSesion);
         
@@ -60,7 +60,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva familiar con bono.
      */
     @Override
-    public ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
         // Crear la reserva base con los detalles comunes
         ReservaBono reservaBase = new ReservaBono(idUsuario, fechaHora, duracionMinutos, idPista, bono, numeroSesion);
         
@@ -90,7 +90,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva de adulto con bono.
      */
     @Override
-    public ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion) {
         // Crear la reserva base con los detalles comunes
         ReservaBono reservaBase = new ReservaBono(idUsuario, fechaHora, duracionMinutos, idPista, bono, numeroSesion);
         
@@ -114,7 +114,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Siempre lanza esta excepción, indicando que no se permiten reservas sin bono en esta fábrica.
      */
     @Override
-    public ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
+    public ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
         throw new UnsupportedOperationException("Reserva individual no permitida en ReservaBonoFactory");
     }
 
@@ -130,7 +130,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Siempre lanza esta excepción, indicando que no se permiten reservas sin bono en esta fábrica.
      */
     @Override
-    public ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
+    public ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
         throw new UnsupportedOperationException("Reserva individual no permitida en ReservaBonoFactory");
     }
 
@@ -145,7 +145,7 @@ public class ReservaBonoFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Siempre lanza esta excepción, indicando que no se permiten reservas sin bono en esta fábrica.
      */
     @Override
-    public ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
+    public ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
         throw new UnsupportedOperationException("Reserva individual no permitida en ReservaBonoFactory");
     }
 }
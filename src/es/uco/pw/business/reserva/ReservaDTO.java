@@ -1,12 +1,34 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import es.uco.pw.business.common.FormatosFecha;
+
+import java.time.LocalDateTime;
 
 /**
  * Clase abstracta que representa una reserva de pista de baloncesto.
  * Contiene atributos comunes a todas las reservas y métodos para calcular precios.
  */
 public abstract class ReservaDTO {
+	/**
+	 * Horas de antelación con que hay que pedir una reserva.
+	 */
+	private static final int HORAS_ANTELACION_MINIMA = 6;
+
+	/**
+	 * Horas que deben faltar para el inicio de una reserva para poder modificarla o cancelarla.
+	 */
+	private static final int HORAS_MINIMAS_CAMBIO = 24;
+
+	/**
+	 * Primer inicio permitido, las 9:00, en minutos desde medianoche.
+	 */
+	private static final int PRIMER_INICIO_MINUTOS = 9 * 60;
+
+	/**
+	 * Último inicio permitido, las 20:30, en minutos desde medianoche.
+	 */
+	private static final int ULTIMO_INICIO_MINUTOS = 20 * 60 + 30;
+
 	/**
 	 * Identificador único de la reserva.
 	 */
@@ -20,7 +42,7 @@ public abstract class ReservaDTO {
 	/**
 	 * Fecha y hora de la reserva.
 	 */
-	private Date fechaHora;
+	private LocalDateTime fechaHora;
 
 	/**
 	 * Duración de la reserva en minutos.
@@ -61,7 +83,7 @@ public abstract class ReservaDTO {
      * @param duracionMinutos La duración de la reserva en minutos.
      * @param idPista El identificador de la pista reservada.
      */
-    public ReservaDTO(int idUsuario, Date fechaHora, int duracionMinutos, int idPista) {
+    public ReservaDTO(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista) {
         this.idUsuario = idUsuario;
         this.fechaHora = fechaHora;
         this.duracionMinutos = duracionMinutos;
@@ -90,6 +112,39 @@ public abstract class ReservaDTO {
         return precioBase * (1 - descuento);
     }
 
+    /**
+     * Comprueba que una reserva se pida con al menos 6 horas de antelación.
+     *
+     * @param fechaHora La fecha y hora de inicio de la reserva.
+     * @param ahora     El momento en que se pide la reserva.
+     * @return true si faltan 6 horas o más para el inicio; false en caso contrario.
+     */
+    public static boolean cumpleAntelacion(LocalDateTime fechaHora, LocalDateTime ahora) {
+        return !fechaHora.isBefore(ahora.plusHours(HORAS_ANTELACION_MINIMA));
+    }
+
+    /**
+     * Comprueba que una reserva empiece dentro del horario de las pistas, entre las 9:00 y las 20:30.
+     *
+     * @param fechaHora La fecha y hora de inicio de la reserva.
+     * @return true si empieza dentro del horario; false en caso contrario.
+     */
+    public static boolean estaEnHorario(LocalDateTime fechaHora) {
+        int minutoDelDia = fechaHora.getHour() * 60 + fechaHora.getMinute();
+        return minutoDelDia >= PRIMER_INICIO_MINUTOS && minutoDelDia <= ULTIMO_INICIO_MINUTOS;
+    }
+
+    /**
+     * Comprueba si la reserva aún se puede modificar o cancelar, lo que exige que falten más de
+     * 24 horas para su inicio.
+     *
+     * @param ahora El momento en que se quiere modificar o cancelar.
+     * @return true si se puede modificar o cancelar; false en caso contrario.
+     */
+    public boolean puedeModificarseOCancelarse(LocalDateTime ahora) {
+        return fechaHora.isAfter(ahora.plusHours(HORAS_MINIMAS_CAMBIO));
+    }
+
     // Métodos get y set para cada atributo
 
     /**
@@ -115,7 +170,7 @@ public abstract class ReservaDTO {
      * 
      * @return La fecha y hora de la reserva.
      */
-    public Date getFechaHora() {
+    public LocalDateTime getFechaHora() {
         return fechaHora;
     }
 
@@ -124,7 +179,7 @@ public abstract class ReservaDTO {
      * 
      * @param fechaHora La nueva fecha y hora de la reserva.
      */
-    public void setFechaHora(Date fechaHora) {
+    public void setFechaHora(LocalDateTime fechaHora) {
         this.fechaHora = fechaHora;
     }
 
@@ -249,7 +304,7 @@ public abstract class ReservaDTO {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("  ID Usuario: ").append(idUsuario).append("\n")
-          .append("  Fecha y Hora: ").append(fechaHora).append("\n")
+          .append("  Fecha y Hora: ").append(fechaHora != null ? FormatosFecha.FECHA_HORA.format(fechaHora) : "-").append("\n")
           .append("  Pista: ").append(idPista).append("\n")
           .append("  Duración: ").append(duracionMinutos).append(" minutos\n")
           .append("  Precio Total (Con descuento): ").append(precio).append("\n")
@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Clase abstracta que define el patrón de diseño Factory para la creación de diferentes tipos de reservas.
@@ -24,7 +24,7 @@ public abstract class ReservaFactory {
      * @param numeroNinos El número de niños incluidos en la reserva.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva infantil.
      */
-    public abstract ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos);
+    public abstract ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos);
 
     /**
      * Crea una reserva de tipo familiar sin bono.
@@ -40,7 +40,7 @@ public abstract class ReservaFactory {
      * @param numeroNinos El número de niños incluidos en la reserva.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva familiar.
      */
-    public abstract ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos);
+    public abstract ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos);
 
     /**
      * Crea una reserva de tipo adulto sin bono.
@@ -55,7 +55,7 @@ public abstract class ReservaFactory {
      * @param numeroAdultos El número de adultos incluidos en la reserva.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva de adulto.
      */
-    public abstract ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos);
+    public abstract ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos);
 
     /**
      * Crea una reserva de tipo infantil con bono.
@@ -73,7 +73,7 @@ public abstract class ReservaFactory {
      * @param numeroSesion El número de sesión asociado al bono.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva infantil con bono.
      */
-    public abstract ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion);
+    public abstract ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion);
 
     /**
      * Crea una reserva de tipo familiar con bono.
@@ -92,7 +92,7 @@ public abstract class ReservaFactory {
      * @param numeroSesion El número de sesión asociado al bono.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva familiar con bono.
      */
-    public abstract ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion);
+    public abstract ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion);
 
     /**
      * Crea una reserva de tipo adulto con bono.
@@ -110,5 +110,5 @@ public abstract class ReservaFactory {
      * @param numeroSesion El número de sesión asociado al bono.
      * @return Una instancia de {@link ReservaDTO} que representa la reserva de adulto con bono.
      */
-    public abstract ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion);
+    public abstract ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion);
 }
@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Clase que representa una reserva familiar en el sistema.
@@ -35,7 +35,7 @@ public class ReservaFamiliar extends ReservaDTO {
 	  * @param numeroAdultos   El número de adultos incluidos en la reserva.
 	  * @param numeroNinos     El número de niños incluidos en la reserva.
 	  */
-    public ReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
+    public ReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
         super(idUsuario, fechaHora, duracionMinutos, idPista);
         this.numeroAdultos = numeroAdultos;
         this.numeroNinos = numeroNinos;
@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * La clase {@code ReservaIndividual} representa una reserva individual
@@ -18,7 +18,7 @@ public class ReservaIndividual extends ReservaDTO {
      * @param duracionMinutos La duración de la reserva en minutos.
      * @param idPista         El ID de la pista que se está reservando.
      */
-    public ReservaIndividual(int idUsuario, Date fechaHora, int duracionMinutos, int idPista) {
+    public ReservaIndividual(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista) {
         super(idUsuario, fechaHora, duracionMinutos, idPista);
     }
 
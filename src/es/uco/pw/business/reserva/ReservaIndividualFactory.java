@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * Fábrica concreta que implementa la creación de reservas sin bono.
@@ -28,7 +28,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva infantil.
      */
     @Override
-    public ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
+    public ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
         ReservaIndividual reservaBase = new ReservaIndividual(idUsuario, fechaHora, duracionMinutos, idPista);
         ReservaDTO reservaEspecifica = new ReservaInfantil(idUsuario, fechaHora, duracionMinutos, idPista, numeroNinos);
         reservaBase.setReservaEspecifica(reservaEspecifica);
@@ -51,7 +51,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva familiar.
      */
     @Override
-    public ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
+    public ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos) {
         ReservaIndividual reservaBase = new ReservaIndividual(idUsuario, fechaHora, duracionMinutos, idPista);
         ReservaDTO reservaEspecifica = new ReservaFamiliar(idUsuario, fechaHora, duracionMinutos, idPista, numeroAdultos, numeroNinos);
         reservaBase.setReservaEspecifica(reservaEspecifica);
@@ -73,7 +73,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @return Una instancia de {@link ReservaDTO} que representa la reserva de adulto.
      */
     @Override
-    public ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
+    public ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos) {
         ReservaIndividual reservaBase = new ReservaIndividual(idUsuario, fechaHora, duracionMinutos, idPista);
         ReservaDTO reservaEspecifica = new ReservaAdulto(idUsuario, fechaHora, duracionMinutos, idPista, numeroAdultos);
         reservaBase.setReservaEspecifica(reservaEspecifica);
@@ -96,7 +96,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Si se intenta crear una reserva con bono.
      */
     @Override
-    public ReservaDTO crearReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos, Bono bono, int numeroSesion) {
         throw new UnsupportedOperationException("No se puede crear una reserva con bono en ReservaIndividualFactory");
     }
 
@@ -117,7 +117,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Si se intenta crear una reserva con bono.
      */
     @Override
-    public ReservaDTO crearReservaFamiliar(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaFamiliar(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
         throw new UnsupportedOperationException("No se puede crear una reserva con bono en ReservaIndividualFactory");
     }
 
@@ -137,7 +137,7 @@ public class ReservaIndividualFactory extends ReservaFactory {
      * @throws UnsupportedOperationException Si se intenta crear una reserva con bono.
      */
     @Override
-    public ReservaDTO crearReservaAdulto(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion) {
+    public ReservaDTO crearReservaAdulto(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroAdultos, Bono bono, int numeroSesion) {
         throw new UnsupportedOperationException("No se puede crear una reserva con bono en ReservaIndividualFactory");
     }
 }
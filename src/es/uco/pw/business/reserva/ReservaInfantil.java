@@ -1,6 +1,6 @@
 package es.uco.pw.business.reserva;
 
-import java.util.Date;
+import java.time.LocalDateTime;
 
 /**
  * La clase {@code ReservaInfantil} representa una reserva de baloncesto
@@ -28,7 +28,7 @@ public class ReservaInfantil extends ReservaDTO {
      * @param idPista        El ID de la pista que se está reservando.
      * @param numeroNinos     El número de niños incluidos en la reserva.
      */
-    public ReservaInfantil(int idUsuario, Date fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
+    public ReservaInfantil(int idUsuario, LocalDateTime fechaHora, int duracionMinutos, int idPista, int numeroNinos) {
         super(idUsuario, fechaHora, duracionMinutos, idPista);
         this.numeroNinos = numeroNinos;
     }
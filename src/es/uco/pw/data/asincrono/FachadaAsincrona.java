@@ -0,0 +1,437 @@
+package es.uco.pw.data.asincrono;
+
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.material.EstadoMaterial;
+import es.uco.pw.business.material.TipoMaterial;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.PoolConexiones;
+import es.uco.pw.data.dao.FranjaLibre;
+import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.PosicionReserva;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fachada asíncrona sobre las reservas, las pistas y los jugadores, pensada para atender a la vez
+ * a varios clientes (una web, quioscos) desde el mismo proceso. Cada operación devuelve un
+ * {@link CompletableFuture} y se ejecuta en un hilo virtual propio cuando la máquina virtual los
+ * tiene (Java 21 o posterior); en versiones anteriores se ejecuta en un grupo fijo de hilos del
+ * mismo tamaño que el límite de concurrencia, y las peticiones que no caben esperan en cola sin
+ * ocupar ningún hilo.
+ * <p>
+ * Como mucho {@code asincrono.concurrenciaMaxima} operaciones usan los datos a la vez; por defecto,
+ * tantas como conexiones tiene el pool con la base de datos, de modo que las operaciones esperan un
+ * permiso de la fachada en lugar de agotar el pool. Si una operación falla, el futuro se completa
+ * con la misma excepción que habría lanzado la llamada bloqueante.
+ */
+public final class FachadaAsincrona implements AutoCloseable {
+
+    /**
+     * Lógica de reservas.
+     */
+    private final ReservasDAO reservasDAO;
+
+    /**
+     * Repositorio de pistas.
+     */
+    private final RepositorioPistas pistas;
+
+    /**
+     * Repositorio de jugadores.
+     */
+    private final RepositorioJugadores jugadores;
+
+    /**
+     * Ejecutor de las operaciones.
+     */
+    private final ExecutorService ejecutor;
+
+    /**
+     * Indica si el ejecutor crea un hilo virtual por operación.
+     */
+    private final boolean hilosVirtuales;
+
+    /**
+     * Permisos para usar los datos, uno por operación en curso.
+     */
+    private final Semaphore permisos;
+
+    /**
+     * Número máximo de operaciones que usan los datos a la vez.
+     */
+    private final int concurrenciaMaxima;
+
+    /**
+     * Operaciones recibidas que aún no han terminado, incluidas las que esperan un permiso.
+     */
+    private final AtomicInteger pendientes = new AtomicInteger();
+
+    /**
+     * Crea la fachada sobre el motor de datos elegido en config.properties.
+     */
+    public FachadaAsincrona() {
+        this(MotorDatos.getInstancia());
+    }
+
+    /**
+     * Crea la fachada sobre un motor de datos concreto.
+     *
+     * @param motor El motor de datos.
+     */
+    public FachadaAsincrona(MotorDatos motor) {
+        this.reservasDAO = new ReservasDAO(motor);
+        this.pistas = motor.getPistas();
+        this.jugadores = motor.getJugadores();
+
+        int porDefecto = MotorDatos.JDBC.equals(motor.getNombre())
+                ? PoolConexiones.getInstancia().getTamanoMaximo()
+                : Runtime.getRuntime().availableProcessors();
+        this.concurrenciaMaxima = Math.max(1, Configuracion.getInstancia().getEntero("asincrono.concurrenciaMaxima", porDefecto));
+        this.permisos = new Semaphore(concurrenciaMaxima, true);
+
+        ExecutorService virtual = crearEjecutorVirtual();
+        this.hilosVirtuales = virtual != null;
+        this.ejecutor = hilosVirtuales ? virtual : crearEjecutorFijo(concurrenciaMaxima);
+    }
+
+    /**
+     * Operación bloqueante que la fachada ejecuta de forma asíncrona.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Operacion<T> {
+
+        /**
+         * Ejecuta la operación.
+         *
+         * @return El resultado de la operación.
+         * @throws Exception Si la operación falla.
+         */
+        T ejecutar() throws Exception;
+    }
+
+    /**
+     * Ejecuta una operación cualquiera sobre los datos con el mismo límite de concurrencia que el
+     * resto de operaciones de la fachada.
+     *
+     * @param <T>       Tipo del resultado.
+     * @param operacion La operación bloqueante.
+     * @return El futuro con el resultado de la operación.
+     */
+    public <T> CompletableFuture<T> ejecutar(Operacion<T> operacion) {
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        pendientes.incrementAndGet();
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    permisos.acquire();
+                    try {
+                        futuro.complete(operacion.ejecutar());
+                    } finally {
+                        permisos.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futuro.completeExceptionally(e);
+                } catch (Throwable e) {
+                    futuro.completeExceptionally(e);
+                } finally {
+                    pendientes.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            // El ejecutor está cerrado o rechaza la tarea
+            pendientes.decrementAndGet();
+            futuro.completeExceptionally(e);
+        }
+        return futuro;
+    }
+
+    /**
+     * Realiza una reserva individual.
+     *
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos.
+     * @param numeroNinos     El número de niños.
+     * @return El futuro con el ID de la reserva creada, o -1 si no se pudo guardar.
+     */
+    public CompletableFuture<Integer> hacerReservaIndividual(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
+        return ejecutar(() -> reservasDAO.hacerReservaIndividual(jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos));
+    }
+
+    /**
+     * Realiza una reserva con bono.
+     *
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos.
+     * @param numeroNinos     El número de niños.
+     * @return El futuro que indica si la reserva se realizó.
+     */
+    public CompletableFuture<Boolean> hacerReservaBono(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
+        return ejecutar(() -> reservasDAO.hacerReservaBono(jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos));
+    }
+
+    /**
+     * Modifica una reserva existente.
+     *
+     * @param jugadorDTO           El jugador de la reserva.
+     * @param pistaOriginal        La pista en la que se hizo la reserva.
+     * @param fechaHoraOriginal    La fecha y hora originales de la reserva.
+     * @param nuevaPista           La nueva pista de la reserva.
+     * @param nuevaFechaHora       La nueva fecha y hora.
+     * @param nuevaDuracionMinutos La nueva duración en minutos.
+     * @param numeroAdultos        El nuevo número de adultos.
+     * @param numeroNinos          El nuevo número de niños.
+     * @param bono                 El bono de la reserva, o null si es individual.
+     * @param numeroSesion         El número de sesión del bono, o 0 si es individual.
+     * @return El futuro que se completa al modificar la reserva.
+     */
+    public CompletableFuture<Void> modificarReserva(JugadorDTO jugadorDTO, PistaDTO pistaOriginal, LocalDateTime fechaHoraOriginal, PistaDTO nuevaPista, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
+        return ejecutar(() -> {
+            reservasDAO.modificarReserva(jugadorDTO, pistaOriginal, fechaHoraOriginal, nuevaPista, nuevaFechaHora,
+                    nuevaDuracionMinutos, numeroAdultos, numeroNinos, bono, numeroSesion);
+            return null;
+        });
+    }
+
+    /**
+     * Cancela una reserva.
+     *
+     * @param jugadorDTO El jugador que cancela la reserva.
+     * @param pistaDTO   La pista de la reserva.
+     * @param fechaHora  La fecha y hora de la reserva.
+     * @return El futuro que se completa al cancelar la reserva.
+     */
+    public CompletableFuture<Void> cancelarReserva(JugadorDTO jugadorDTO, PistaDTO pistaDTO, LocalDateTime fechaHora) {
+        return ejecutar(() -> {
+            reservasDAO.cancelarReserva(jugadorDTO, pistaDTO, fechaHora);
+            return null;
+        });
+    }
+
+    /**
+     * Obtiene una página de reservas futuras.
+     *
+     * @param despuesDe    Posición de la última reserva de la página anterior, o null para la primera.
+     * @param tamanoPagina Número máximo de reservas de la página.
+     * @return El futuro con las reservas de la página.
+     */
+    public CompletableFuture<List<ReservaDTO>> consultarPaginaReservasFuturas(PosicionReserva despuesDe, int tamanoPagina) {
+        return ejecutar(() -> reservasDAO.consultarPaginaReservasFuturas(despuesDe, tamanoPagina));
+    }
+
+    /**
+     * Busca los primeros horarios libres.
+     *
+     * @param desde           Momento a partir del cual buscar.
+     * @param hasta           Último momento en el que puede empezar la franja.
+     * @param duracionMinutos La duración: 60, 90 o 120 minutos.
+     * @param tamano          El tamaño de pista, o null para cualquiera.
+     * @param exterior        true para exteriores, false para interiores o null para ambas.
+     * @param numJugadores    El número de jugadores que debe admitir la pista.
+     * @param maximo          El número máximo de franjas.
+     * @return El futuro con las franjas libres.
+     */
+    public CompletableFuture<List<FranjaLibre>> buscarFranjasLibres(LocalDateTime desde, LocalDateTime hasta, int duracionMinutos, TamanoPista tamano, Boolean exterior, int numJugadores, int maximo) {
+        return ejecutar(() -> reservasDAO.buscarFranjasLibres(desde, hasta, duracionMinutos, tamano, exterior, numJugadores, maximo));
+    }
+
+    /**
+     * Lista las pistas disponibles para un tipo de reserva.
+     *
+     * @param tipoReserva El tipo de reserva (infantil, familiar o adulto).
+     * @return El futuro con las pistas admitidas.
+     */
+    public CompletableFuture<List<PistaDTO>> listarPistasDisponibles(String tipoReserva) {
+        return ejecutar(() -> pistas.listarPistasDisponibles(tipoReserva));
+    }
+
+    /**
+     * Busca una pista por su ID.
+     *
+     * @param idPista El ID de la pista.
+     * @return El futuro con la pista, o con null si no existe.
+     */
+    public CompletableFuture<PistaDTO> buscarPistaPorId(int idPista) {
+        return ejecutar(() -> pistas.buscarPistaPorId(idPista));
+    }
+
+    /**
+     * Crea una pista.
+     *
+     * @param nombre       El nombre de la pista, que no puede repetirse.
+     * @param disponible   Indica si la pista está disponible.
+     * @param exterior     Indica si la pista es exterior.
+     * @param tamano       El tamaño de la pista.
+     * @param maxJugadores El número máximo de jugadores.
+     * @return El futuro que se completa al crear la pista.
+     */
+    public CompletableFuture<Void> crearPista(String nombre, boolean disponible, boolean exterior, TamanoPista tamano, int maxJugadores) {
+        return ejecutar(() -> {
+            pistas.crearPista(nombre, disponible, exterior, tamano, maxJugadores);
+            return null;
+        });
+    }
+
+    /**
+     * Crea un material sin asociarlo a ninguna pista.
+     *
+     * @param idMaterial  El ID del material, que no puede repetirse.
+     * @param tipo        El tipo del material.
+     * @param usoExterior Indica si el material es de exterior.
+     * @param estado      El estado del material.
+     * @return El futuro que se completa al crear el material.
+     */
+    public CompletableFuture<Void> crearMaterial(int idMaterial, TipoMaterial tipo, boolean usoExterior, EstadoMaterial estado) {
+        return ejecutar(() -> {
+            pistas.crearMaterial(idMaterial, tipo, usoExterior, estado);
+            return null;
+        });
+    }
+
+    /**
+     * Asocia un material a una pista.
+     *
+     * @param nombrePista El nombre de la pista.
+     * @param idMaterial  El ID del material.
+     * @return El futuro que indica si el material se asoció.
+     */
+    public CompletableFuture<Boolean> asociarMaterialAPista(String nombrePista, int idMaterial) {
+        return ejecutar(() -> pistas.asociarMaterialAPista(nombrePista, idMaterial));
+    }
+
+    /**
+     * Da de alta a un jugador.
+     *
+     * @param nuevoJugador El jugador a registrar.
+     * @return El futuro con el mensaje del resultado.
+     */
+    public CompletableFuture<String> altaJugador(JugadorDTO nuevoJugador) {
+        return ejecutar(() -> jugadores.altaJugador(nuevoJugador));
+    }
+
+    /**
+     * Busca un jugador por su correo electrónico.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return El futuro con el jugador, o con null si no existe.
+     */
+    public CompletableFuture<JugadorDTO> buscarJugadorPorCorreo(String correoElectronico) {
+        return ejecutar(() -> jugadores.buscarJugadorPorCorreo(correoElectronico));
+    }
+
+    /**
+     * Obtiene una página de jugadores activos.
+     *
+     * @param despuesDeId  ID del último jugador de la página anterior, o 0 para la primera.
+     * @param tamanoPagina Número máximo de jugadores de la página.
+     * @return El futuro con los jugadores de la página.
+     */
+    public CompletableFuture<List<JugadorDTO>> listarJugadoresActivos(int despuesDeId, int tamanoPagina) {
+        return ejecutar(() -> jugadores.listarJugadoresActivos(despuesDeId, tamanoPagina));
+    }
+
+    /**
+     * Indica si las operaciones se ejecutan en hilos virtuales.
+     *
+     * @return true con hilos virtuales; false con el grupo fijo de hilos.
+     */
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * Obtiene el número máximo de operaciones que usan los datos a la vez.
+     *
+     * @return El límite de concurrencia.
+     */
+    public int getConcurrenciaMaxima() {
+        return concurrenciaMaxima;
+    }
+
+    /**
+     * Obtiene el número de operaciones recibidas que aún no han terminado.
+     *
+     * @return Las operaciones pendientes, en curso o esperando.
+     */
+    public int getPendientes() {
+        return pendientes.get();
+    }
+
+    /**
+     * Obtiene el número de operaciones que esperan un permiso para usar los datos.
+     *
+     * @return Las operaciones en espera.
+     */
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    /**
+     * Deja de aceptar operaciones y espera hasta 30 segundos a que terminen las pendientes.
+     */
+    @Override
+    public void close() {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Quedan " + pendientes.get() + " operaciones asíncronas sin terminar.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea si la máquina virtual lo admite. Se busca por
+     * reflexión porque el proyecto se compila con Java 17, que no tiene hilos virtuales.
+     *
+     * @return El ejecutor, o null si no hay hilos virtuales.
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            Method metodo = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) metodo.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 17, o Java 19 y 20 sin las funciones en vista previa activadas
+            return null;
+        }
+    }
+
+    /**
+     * Crea un grupo fijo de hilos demonio, para que no impidan terminar la aplicación.
+     *
+     * @param hilos El número de hilos.
+     * @return El ejecutor.
+     */
+    private static ExecutorService crearEjecutorFijo(int hilos) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "fachada-asincrona-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+}
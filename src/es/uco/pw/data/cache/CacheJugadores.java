@@ -0,0 +1,388 @@
+package es.uco.pw.data.cache;
+
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.data.common.Configuracion;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria de los jugadores, accesible por correo electrónico y por ID.
+ * Guarda como mucho {@code cacheJugadores.capacidad} jugadores y expulsa el menos usado
+ * recientemente; cada entrada caduca tras {@code cacheJugadores.caducidadMs} milisegundos.
+ * Además recuerda durante {@code cacheJugadores.caducidadNegativaMs} milisegundos los correos que
+ * no existen, para que los errores al teclear un correo no lleguen a la base de datos una y otra vez.
+ * {@code JugadoresDAO} invalida el correo afectado en cada alta, baja, modificación o inscripción.
+ * Quien guarda un resultado pasa la generación que leyó antes de consultar la base de datos, y el
+ * resultado se descarta si entretanto ha habido alguna invalidación.
+ */
+public final class CacheJugadores {
+
+    /**
+     * Instancia única de la caché de jugadores.
+     */
+    private static final CacheJugadores INSTANCIA = new CacheJugadores();
+
+    /**
+     * Número máximo de jugadores en la caché.
+     */
+    private final int capacidad;
+
+    /**
+     * Tiempo de vida de un jugador en la caché, en milisegundos.
+     */
+    private final long caducidadMs;
+
+    /**
+     * Tiempo durante el que se recuerda que un correo no existe, en milisegundos (0 lo desactiva).
+     */
+    private final long caducidadNegativaMs;
+
+    /**
+     * Jugadores indexados por su correo normalizado, en orden de uso (el menos reciente primero).
+     */
+    private final LinkedHashMap<String, Entrada> porCorreo;
+
+    /**
+     * Correo normalizado de cada jugador de la caché, indexado por su ID.
+     */
+    private final Map<Integer, String> correoPorId = new HashMap<>();
+
+    /**
+     * Correos normalizados que no existen, con el momento en que caduca cada uno.
+     */
+    private final LinkedHashMap<String, Long> correosDesconocidos;
+
+    /**
+     * Generación de la caché. Se incrementa en cada invalidación.
+     */
+    private long generacion = 0;
+
+    /**
+     * Búsquedas resueltas con un jugador de la caché.
+     */
+    private final LongAdder aciertos = new LongAdder();
+
+    /**
+     * Búsquedas resueltas porque se sabía que el correo no existe.
+     */
+    private final LongAdder aciertosNegativos = new LongAdder();
+
+    /**
+     * Búsquedas que tuvieron que ir a la base de datos.
+     */
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Constructor privado que lee los límites de la configuración.
+     */
+    private CacheJugadores() {
+        Configuracion config = Configuracion.getInstancia();
+        this.capacidad = Math.max(1, config.getEntero("cacheJugadores.capacidad", 1000));
+        this.caducidadMs = config.getLargo("cacheJugadores.caducidadMs", 300_000);
+        this.caducidadNegativaMs = config.getLargo("cacheJugadores.caducidadNegativaMs", 30_000);
+
+        this.porCorreo = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                if (size() > capacidad) {
+                    correoPorId.remove(mayor.getValue().jugador.getIdJugador());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.correosDesconocidos = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> mayor) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    /**
+     * Obtiene la caché de jugadores.
+     *
+     * @return La caché compartida.
+     */
+    public static CacheJugadores getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Busca un jugador por su correo electrónico.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return El resultado de la búsqueda: el jugador, que no existe o que hay que consultar la base de datos.
+     */
+    public synchronized Busqueda buscarPorCorreo(String correoElectronico) {
+        String clave = normalizar(correoElectronico);
+        long ahora = System.currentTimeMillis();
+
+        Entrada entrada = porCorreo.get(clave);
+        if (entrada != null) {
+            if (entrada.caduca > ahora) {
+                aciertos.increment();
+                return new Busqueda(copiar(entrada.jugador), true);
+            }
+            quitar(clave);
+        }
+
+        Long caduca = correosDesconocidos.get(clave);
+        if (caduca != null) {
+            if (caduca > ahora) {
+                aciertosNegativos.increment();
+                return new Busqueda(null, true);
+            }
+            correosDesconocidos.remove(clave);
+        }
+
+        fallos.increment();
+        return Busqueda.DESCONOCIDA;
+    }
+
+    /**
+     * Busca un jugador por su ID.
+     *
+     * @param idJugador El ID del jugador.
+     * @return Una copia del jugador, o null si no está en la caché y hay que consultar la base de datos.
+     */
+    public synchronized JugadorDTO buscarPorId(int idJugador) {
+        String clave = correoPorId.get(idJugador);
+        Entrada entrada = clave == null ? null : porCorreo.get(clave);
+        if (entrada != null) {
+            if (entrada.caduca > System.currentTimeMillis()) {
+                aciertos.increment();
+                return copiar(entrada.jugador);
+            }
+            quitar(clave);
+        }
+        fallos.increment();
+        return null;
+    }
+
+    /**
+     * Obtiene la generación actual, que debe leerse antes de consultar la base de datos.
+     *
+     * @return La generación de la caché.
+     */
+    public synchronized long getGeneracion() {
+        return generacion;
+    }
+
+    /**
+     * Guarda un jugador leído de la base de datos.
+     *
+     * @param jugador         El jugador leído.
+     * @param generacionLeida La generación leída antes de la consulta.
+     */
+    public synchronized void guardar(JugadorDTO jugador, long generacionLeida) {
+        if (generacionLeida != generacion) {
+            return;
+        }
+        String clave = normalizar(jugador.getCorreoElectronico());
+        String anterior = correoPorId.put(jugador.getIdJugador(), clave);
+        if (anterior != null && !anterior.equals(clave)) {
+            porCorreo.remove(anterior);
+        }
+        porCorreo.put(clave, new Entrada(copiar(jugador), System.currentTimeMillis() + caducidadMs));
+        correosDesconocidos.remove(clave);
+    }
+
+    /**
+     * Recuerda que un correo no corresponde a ningún jugador.
+     *
+     * @param correoElectronico El correo buscado.
+     * @param generacionLeida   La generación leída antes de la consulta.
+     */
+    public synchronized void guardarDesconocido(String correoElectronico, long generacionLeida) {
+        if (caducidadNegativaMs > 0 && generacionLeida == generacion) {
+            correosDesconocidos.put(normalizar(correoElectronico), System.currentTimeMillis() + caducidadNegativaMs);
+        }
+    }
+
+    /**
+     * Olvida todo lo que se sabe de un correo, tanto si era un jugador como si se sabía que no existía.
+     *
+     * @param correoElectronico El correo del jugador modificado.
+     */
+    public synchronized void invalidar(String correoElectronico) {
+        if (correoElectronico == null) {
+            return;
+        }
+        String clave = normalizar(correoElectronico);
+        quitar(clave);
+        correosDesconocidos.remove(clave);
+        generacion++;
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public synchronized void vaciar() {
+        generacion++;
+        porCorreo.clear();
+        correoPorId.clear();
+        correosDesconocidos.clear();
+    }
+
+    /**
+     * Obtiene el número de búsquedas resueltas con un jugador en memoria.
+     *
+     * @return Número de aciertos.
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * Obtiene el número de búsquedas de correos inexistentes resueltas en memoria.
+     *
+     * @return Número de aciertos negativos.
+     */
+    public long getAciertosNegativos() {
+        return aciertosNegativos.sum();
+    }
+
+    /**
+     * Obtiene el número de búsquedas que tuvieron que consultar la base de datos.
+     *
+     * @return Número de fallos.
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * Obtiene el número de jugadores guardados.
+     *
+     * @return Número de jugadores en la caché.
+     */
+    public synchronized int getTamano() {
+        return porCorreo.size();
+    }
+
+    /**
+     * Quita un jugador de los dos índices.
+     *
+     * @param clave El correo normalizado del jugador.
+     */
+    private void quitar(String clave) {
+        Entrada entrada = porCorreo.remove(clave);
+        if (entrada != null) {
+            correoPorId.remove(entrada.jugador.getIdJugador());
+        }
+    }
+
+    /**
+     * Normaliza un correo para usarlo como clave. MySQL compara los correos sin distinguir
+     * mayúsculas de minúsculas, así que la caché tampoco lo hace.
+     *
+     * @param correoElectronico El correo a normalizar.
+     * @return El correo sin espacios en los extremos y en minúsculas.
+     */
+    private static String normalizar(String correoElectronico) {
+        return correoElectronico.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Copia un jugador, para que quien lo recibe pueda modificarlo sin alterar la caché.
+     *
+     * @param jugador El jugador a copiar.
+     * @return La copia del jugador.
+     */
+    private static JugadorDTO copiar(JugadorDTO jugador) {
+        JugadorDTO copia = new JugadorDTO();
+        copia.setIdJugador(jugador.getIdJugador());
+        copia.setNombreApellidos(jugador.getNombreApellidos());
+        copia.setFechaNacimiento(jugador.getFechaNacimiento());
+        copia.setFechaInscripcion(jugador.getFechaInscripcion());
+        copia.setCorreoElectronico(jugador.getCorreoElectronico());
+        copia.setCuentaActiva(jugador.isCuentaActiva());
+        return copia;
+    }
+
+    /**
+     * Resultado de una búsqueda por correo en la caché.
+     */
+    public static final class Busqueda {
+
+        /**
+         * Resultado de una búsqueda que la caché no puede responder.
+         */
+        private static final Busqueda DESCONOCIDA = new Busqueda(null, false);
+
+        /**
+         * Jugador encontrado, o null si no existe o no se sabe.
+         */
+        private final JugadorDTO jugador;
+
+        /**
+         * Indica si la caché ha respondido a la búsqueda.
+         */
+        private final boolean resuelta;
+
+        /**
+         * Constructor del resultado.
+         *
+         * @param jugador  El jugador encontrado, o null.
+         * @param resuelta Si la caché ha respondido a la búsqueda.
+         */
+        private Busqueda(JugadorDTO jugador, boolean resuelta) {
+            this.jugador = jugador;
+            this.resuelta = resuelta;
+        }
+
+        /**
+         * Obtiene el jugador encontrado.
+         *
+         * @return El jugador, o null si no existe o la búsqueda no se ha resuelto.
+         */
+        public JugadorDTO getJugador() {
+            return jugador;
+        }
+
+        /**
+         * Indica si la caché ha respondido a la búsqueda, encontrando al jugador o sabiendo que no existe.
+         *
+         * @return true si no hace falta consultar la base de datos; false en caso contrario.
+         */
+        public boolean isResuelta() {
+            return resuelta;
+        }
+    }
+
+    /**
+     * Jugador guardado con el momento en que caduca.
+     */
+    private static final class Entrada {
+
+        /**
+         * Jugador guardado.
+         */
+        private final JugadorDTO jugador;
+
+        /**
+         * Momento en que caduca la entrada, en milisegundos.
+         */
+        private final long caduca;
+
+        /**
+         * Constructor de la entrada.
+         *
+         * @param jugador El jugador guardado.
+         * @param caduca  El momento en que caduca, en milisegundos.
+         */
+        private Entrada(JugadorDTO jugador, long caduca) {
+            this.jugador = jugador;
+            this.caduca = caduca;
+        }
+    }
+}
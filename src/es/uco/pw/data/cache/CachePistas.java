@@ -0,0 +1,281 @@
+package es.uco.pw.data.cache;
+
+import es.uco.pw.business.material.MaterialDTO;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.data.common.Configuracion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria del catálogo de pistas con sus materiales.
+ * El catálogo cambia muy pocas veces, así que {@code PistasDAO} lo lee completo con una sola
+ * consulta y lo publica aquí como una instantánea inmutable, indexada por ID y por tamaño de pista.
+ * Cada cambio en pistas o materiales incrementa la versión de la caché, lo que invalida la
+ * instantánea publicada; la siguiente lectura vuelve a cargar el catálogo. Opcionalmente la
+ * instantánea caduca tras {@code catalogoPistas.caducidadMs} milisegundos, para recoger los
+ * cambios hechos fuera de la aplicación.
+ */
+public final class CachePistas {
+
+    /**
+     * Instancia única de la caché, compartida por todos los DAO de pistas.
+     */
+    private static final CachePistas INSTANCIA = new CachePistas();
+
+    /**
+     * Versión actual del catálogo. Se incrementa en cada invalidación.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Última instantánea publicada, o null si no hay ninguna.
+     */
+    private volatile Catalogo catalogo;
+
+    /**
+     * Tiempo máximo de vida de una instantánea, en milisegundos (0 para que no caduque).
+     */
+    private final long caducidadMs;
+
+    /**
+     * Lecturas servidas desde la instantánea vigente.
+     */
+    private final LongAdder aciertos = new LongAdder();
+
+    /**
+     * Lecturas que no encontraron una instantánea vigente.
+     */
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Número de invalidaciones.
+     */
+    private final LongAdder invalidaciones = new LongAdder();
+
+    /**
+     * Constructor privado que lee la caducidad de la configuración.
+     */
+    private CachePistas() {
+        this.caducidadMs = Configuracion.getInstancia().getLargo("catalogoPistas.caducidadMs", 0);
+    }
+
+    /**
+     * Obtiene la caché del catálogo de pistas.
+     *
+     * @return La caché compartida.
+     */
+    public static CachePistas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Obtiene la instantánea vigente y cuenta la lectura como acierto o como fallo.
+     *
+     * @return La instantánea vigente, o null si hay que cargar el catálogo.
+     */
+    public Catalogo obtener() {
+        Catalogo vigente = getVigente();
+        if (vigente != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+        }
+        return vigente;
+    }
+
+    /**
+     * Obtiene la instantánea vigente sin contar la lectura.
+     *
+     * @return La instantánea publicada si corresponde a la versión actual y no ha caducado, o null.
+     */
+    public Catalogo getVigente() {
+        Catalogo actual = catalogo;
+        if (actual == null || actual.version != version.get()) {
+            return null;
+        }
+        if (caducidadMs > 0 && System.currentTimeMillis() - actual.cargadoEn > caducidadMs) {
+            return null;
+        }
+        return actual;
+    }
+
+    /**
+     * Obtiene la versión actual. Quien carga el catálogo la lee antes de la consulta y la pasa a
+     * {@link #publicar(long, List)}, de modo que una carga que se cruza con una invalidación no
+     * deja publicada una instantánea anterior al cambio.
+     *
+     * @return La versión actual del catálogo.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Publica una instantánea del catálogo.
+     *
+     * @param versionLeida La versión leída antes de cargar las pistas.
+     * @param pistas       Las pistas cargadas, con sus materiales.
+     * @return La instantánea creada, que puede usarse aunque ya no esté vigente.
+     */
+    public Catalogo publicar(long versionLeida, List<PistaDTO> pistas) {
+        Catalogo nuevo = new Catalogo(versionLeida, pistas);
+        if (version.get() == versionLeida) {
+            catalogo = nuevo;
+        }
+        return nuevo;
+    }
+
+    /**
+     * Invalida el catálogo tras un cambio en las pistas o en sus materiales.
+     */
+    public void invalidar() {
+        version.incrementAndGet();
+        catalogo = null;
+        invalidaciones.increment();
+    }
+
+    /**
+     * Obtiene el número de lecturas servidas desde memoria.
+     *
+     * @return Número de aciertos.
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * Obtiene el número de lecturas que necesitaron cargar el catálogo.
+     *
+     * @return Número de fallos.
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * Obtiene el número de veces que se ha invalidado el catálogo.
+     *
+     * @return Número de invalidaciones.
+     */
+    public long getInvalidaciones() {
+        return invalidaciones.sum();
+    }
+
+    /**
+     * Copia una pista y sus materiales, para que quien la recibe pueda modificarla sin
+     * alterar la instantánea compartida.
+     *
+     * @param pista La pista a copiar.
+     * @return La copia de la pista.
+     */
+    private static PistaDTO copiar(PistaDTO pista) {
+        PistaDTO copia = new PistaDTO(pista.getIdPista(), pista.getNombrePista(), pista.isDisponible(),
+                pista.isExterior(), pista.getPista(), pista.getMax_jugadores());
+        for (MaterialDTO material : pista.getMateriales()) {
+            copia.getMateriales().add(new MaterialDTO(material.getId(), material.getTipo(),
+                    material.isUsoExterior(), material.getEstado()));
+        }
+        return copia;
+    }
+
+    /**
+     * Instantánea inmutable del catálogo de pistas. Las pistas se devuelven siempre copiadas.
+     */
+    public static final class Catalogo {
+
+        /**
+         * Versión de la caché con la que se cargó la instantánea.
+         */
+        private final long version;
+
+        /**
+         * Momento de la carga, en milisegundos.
+         */
+        private final long cargadoEn;
+
+        /**
+         * Pistas indexadas por su ID, en el orden en que se cargaron.
+         */
+        private final Map<Integer, PistaDTO> porId;
+
+        /**
+         * Pistas agrupadas por su tamaño.
+         */
+        private final Map<TamanoPista, List<PistaDTO>> porTamano;
+
+        /**
+         * Constructor que indexa las pistas cargadas.
+         *
+         * @param version La versión de la caché con la que se cargaron.
+         * @param pistas  Las pistas cargadas.
+         */
+        private Catalogo(long version, List<PistaDTO> pistas) {
+            this.version = version;
+            this.cargadoEn = System.currentTimeMillis();
+            Map<Integer, PistaDTO> indicePorId = new LinkedHashMap<>();
+            Map<TamanoPista, List<PistaDTO>> indicePorTamano = new EnumMap<>(TamanoPista.class);
+            for (PistaDTO pista : pistas) {
+                PistaDTO copia = copiar(pista);
+                indicePorId.put(copia.getIdPista(), copia);
+                indicePorTamano.computeIfAbsent(copia.getPista(), t -> new ArrayList<>()).add(copia);
+            }
+            this.porId = Collections.unmodifiableMap(indicePorId);
+            this.porTamano = Collections.unmodifiableMap(indicePorTamano);
+        }
+
+        /**
+         * Busca una pista por su ID.
+         *
+         * @param idPista El ID de la pista.
+         * @return Una copia de la pista, o null si no existe.
+         */
+        public PistaDTO getPista(int idPista) {
+            PistaDTO pista = porId.get(idPista);
+            return pista == null ? null : copiar(pista);
+        }
+
+        /**
+         * Obtiene todas las pistas del catálogo.
+         *
+         * @return Copias de todas las pistas.
+         */
+        public List<PistaDTO> getPistas() {
+            List<PistaDTO> pistas = new ArrayList<>(porId.size());
+            for (PistaDTO pista : porId.values()) {
+                pistas.add(copiar(pista));
+            }
+            return pistas;
+        }
+
+        /**
+         * Obtiene las pistas de un tamaño.
+         *
+         * @param tamano El tamaño de pista.
+         * @return Copias de las pistas de ese tamaño; vacía si no hay ninguna.
+         */
+        public List<PistaDTO> getPistas(TamanoPista tamano) {
+            List<PistaDTO> pistas = new ArrayList<>();
+            for (PistaDTO pista : porTamano.getOrDefault(tamano, Collections.emptyList())) {
+                pistas.add(copiar(pista));
+            }
+            return pistas;
+        }
+
+        /**
+         * Obtiene la versión de la caché con la que se cargó la instantánea.
+         *
+         * @return La versión de la instantánea.
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package es.uco.pw.data.cache;
+
+import es.uco.pw.business.common.Reloj;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria de la ocupación de cada pista.
+ * Guarda, para cada pista, los intervalos [inicio, fin) de sus reservas ordenados por inicio, de
+ * modo que comprobar si un horario está libre cuesta O(log n) en lugar de recorrer y construir las
+ * reservas del día. El índice se carga desde la tabla {@code Reserva} al arrancar y
+ * {@code ReservasDAO} lo mantiene al insertar, modificar y cancelar reservas. A la vez mantiene un
+ * {@link MapaOcupacion} con los mismos intervalos, para buscar franjas libres sin recorrerlos.
+ */
+public final class IndiceOcupacionPistas {
+
+    /**
+     * Instancia única del índice, compartida por todos los DAO de reservas.
+     */
+    private static final IndiceOcupacionPistas INSTANCIA = new IndiceOcupacionPistas();
+
+    /**
+     * Intervalos ocupados de cada pista, indexados por el ID de la pista.
+     */
+    private final Map<Integer, OcupacionPista> pistas = new ConcurrentHashMap<>();
+
+    /**
+     * Intervalo de cada reserva indexado por su ID, para poder quitarla o moverla.
+     */
+    private final Map<Integer, Intervalo> reservas = new ConcurrentHashMap<>();
+
+    /**
+     * Ocupación de las pistas por bloques de media hora, con las mismas reservas que el índice.
+     */
+    private final MapaOcupacion mapa = new MapaOcupacion();
+
+    /**
+     * Indica si el índice ya se ha cargado desde la base de datos.
+     */
+    private volatile boolean cargado = false;
+
+    /**
+     * Constructor privado del índice.
+     */
+    private IndiceOcupacionPistas() {
+    }
+
+    /**
+     * Obtiene el índice de ocupación compartido.
+     *
+     * @return El índice de ocupación de las pistas.
+     */
+    public static IndiceOcupacionPistas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica si el índice ya se ha cargado desde la base de datos.
+     *
+     * @return true si el índice está cargado; false en caso contrario.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Marca el índice como cargado, una vez registradas las reservas existentes.
+     */
+    public void marcarCargado() {
+        this.cargado = true;
+    }
+
+    /**
+     * Vacía el índice y lo marca como no cargado.
+     */
+    public void vaciar() {
+        pistas.clear();
+        reservas.clear();
+        mapa.vaciar();
+        cargado = false;
+    }
+
+    /**
+     * Comprueba si una pista está libre en el intervalo [fechaHora, fechaHora + duracionMin).
+     *
+     * @param idPista            El ID de la pista.
+     * @param fechaHora          La fecha y hora de inicio.
+     * @param duracionMin        La duración en minutos.
+     * @param idReservaExcluida  El ID de una reserva que no se tiene en cuenta (la que se está modificando), o -1.
+     * @return true si ninguna otra reserva de la pista se solapa con el intervalo; false en caso contrario.
+     */
+    public boolean estaLibre(int idPista, LocalDateTime fechaHora, int duracionMin, int idReservaExcluida) {
+        OcupacionPista ocupacion = pistas.get(idPista);
+        if (ocupacion == null) {
+            return true;
+        }
+        long inicio = Reloj.aMilisegundos(fechaHora);
+        return ocupacion.buscarSolape(inicio, inicio + duracionMin * 60_000L, idReservaExcluida) == null;
+    }
+
+    /**
+     * Registra la ocupación de una reserva. Si la reserva ya estaba registrada se mueve al nuevo intervalo.
+     *
+     * @param idReserva   El ID de la reserva.
+     * @param idPista     El ID de la pista.
+     * @param fechaHora   La fecha y hora de inicio.
+     * @param duracionMin La duración en minutos.
+     */
+    public void registrar(int idReserva, int idPista, LocalDateTime fechaHora, int duracionMin) {
+        long inicio = Reloj.aMilisegundos(fechaHora);
+        Intervalo intervalo = new Intervalo(idReserva, idPista, inicio, inicio + duracionMin * 60_000L);
+        Intervalo anterior = reservas.put(idReserva, intervalo);
+        if (anterior != null) {
+            pistas.get(anterior.idPista).quitar(anterior);
+            mapa.quitar(anterior.idPista, anterior.inicio, anterior.fin);
+        }
+        pistas.computeIfAbsent(idPista, id -> new OcupacionPista()).anadir(intervalo);
+        mapa.anadir(idPista, intervalo.inicio, intervalo.fin);
+    }
+
+    /**
+     * Quita la ocupación de una reserva.
+     *
+     * @param idReserva El ID de la reserva.
+     */
+    public void quitar(int idReserva) {
+        Intervalo intervalo = reservas.remove(idReserva);
+        if (intervalo != null) {
+            pistas.get(intervalo.idPista).quitar(intervalo);
+            mapa.quitar(intervalo.idPista, intervalo.inicio, intervalo.fin);
+        }
+    }
+
+    /**
+     * Obtiene el mapa de bits con la ocupación de las reservas registradas.
+     *
+     * @return El mapa de ocupación del índice.
+     */
+    public MapaOcupacion getMapa() {
+        return mapa;
+    }
+
+    /**
+     * Obtiene el número de reservas registradas en el índice.
+     *
+     * @return Número de reservas registradas.
+     */
+    public int getNumeroReservas() {
+        return reservas.size();
+    }
+
+    /**
+     * Intervalos ocupados de una pista.
+     */
+    private static final class OcupacionPista {
+
+        /**
+         * Intervalos ordenados por inicio (y por ID de reserva si empiezan a la vez).
+         */
+        private final TreeSet<Intervalo> intervalos = new TreeSet<>(
+                Comparator.comparingLong((Intervalo i) -> i.inicio).thenComparingInt(i -> i.idReserva));
+
+        /**
+         * Duración del intervalo más largo registrado en la pista, en milisegundos. Limita
+         * hacia atrás la búsqueda de intervalos que pueden solaparse con uno dado.
+         */
+        private long duracionMaxima = 0;
+
+        /**
+         * Añade un intervalo.
+         *
+         * @param intervalo El intervalo a añadir.
+         */
+        synchronized void anadir(Intervalo intervalo) {
+            intervalos.add(intervalo);
+            duracionMaxima = Math.max(duracionMaxima, intervalo.fin - intervalo.inicio);
+        }
+
+        /**
+         * Quita un intervalo.
+         *
+         * @param intervalo El intervalo a quitar.
+         */
+        synchronized void quitar(Intervalo intervalo) {
+            intervalos.remove(intervalo);
+        }
+
+        /**
+         * Busca un intervalo que se solape con [inicio, fin). Solo se recorren los intervalos que
+         * empiezan entre {@code inicio - duracionMaxima} y {@code fin}, que son los únicos que
+         * pueden solaparse.
+         *
+         * @param inicio            Inicio del intervalo, en milisegundos.
+         * @param fin               Fin del intervalo (excluido), en milisegundos.
+         * @param idReservaExcluida ID de la reserva que no se tiene en cuenta, o -1.
+         * @return El primer intervalo que se solapa, o null si no hay ninguno.
+         */
+        synchronized Intervalo buscarSolape(long inicio, long fin, int idReservaExcluida) {
+            Intervalo desde = new Intervalo(Integer.MIN_VALUE, 0, inicio - duracionMaxima, 0);
+            Intervalo hasta = new Intervalo(Integer.MIN_VALUE, 0, fin, 0);
+            for (Intervalo intervalo : intervalos.subSet(desde, true, hasta, false)) {
+                if (intervalo.fin > inicio && intervalo.idReserva != idReservaExcluida) {
+                    return intervalo;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Intervalo [inicio, fin) ocupado por una reserva.
+     */
+    private static final class Intervalo {
+
+        /**
+         * ID de la reserva.
+         */
+        private final int idReserva;
+
+        /**
+         * ID de la pista.
+         */
+        private final int idPista;
+
+        /**
+         * Inicio del intervalo, en milisegundos.
+         */
+        private final long inicio;
+
+        /**
+         * Fin del intervalo (excluido), en milisegundos.
+         */
+        private final long fin;
+
+        /**
+         * Constructor del intervalo.
+         *
+         * @param idReserva ID de la reserva.
+         * @param idPista   ID de la pista.
+         * @param inicio    Inicio del intervalo, en milisegundos.
+         * @param fin       Fin del intervalo (excluido), en milisegundos.
+         */
+        Intervalo(int idReserva, int idPista, long inicio, long fin) {
+            this.idReserva = idReserva;
+            this.idPista = idPista;
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package es.uco.pw.data.cache;
+
+import es.uco.pw.business.common.Reloj;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapa de bits con la ocupación de cada pista, día a día, en bloques de 30 minutos.
+ * Los bloques van desde la apertura a las 9:00 hasta las 22:30, cuando termina una reserva de
+ * 120 minutos que empieza a las 20:30, la última hora permitida; así un día entero cabe en un
+ * {@code int} y saber si una franja está libre es una operación de bits. Un bloque está ocupado
+ * si alguna reserva lo toca aunque sea en parte, de modo que el mapa nunca da por libre un
+ * horario ocupado. Para poder quitar reservas, cada bloque cuenta cuántas lo ocupan.
+ */
+public final class MapaOcupacion {
+
+    /**
+     * Duración de un bloque, en minutos.
+     */
+    public static final int MINUTOS_BLOQUE = 30;
+
+    /**
+     * Bloques de cada día, de las 9:00 a las 22:30.
+     */
+    public static final int BLOQUES_POR_DIA = 27;
+
+    /**
+     * Último bloque en el que puede empezar una reserva, el de las 20:30.
+     */
+    public static final int ULTIMO_BLOQUE_INICIO = 23;
+
+    /**
+     * Hora del primer bloque de cada día.
+     */
+    private static final int HORA_APERTURA = 9;
+
+    /**
+     * Duración de un bloque, en milisegundos.
+     */
+    private static final long MS_BLOQUE = MINUTOS_BLOQUE * 60_000L;
+
+    /**
+     * Días ocupados de cada pista, indexados por el ID de la pista.
+     */
+    private final Map<Integer, DiasPista> pistas = new ConcurrentHashMap<>();
+
+    /**
+     * Marca como ocupado el intervalo [inicio, fin) de una pista.
+     *
+     * @param idPista El ID de la pista.
+     * @param inicio  Inicio del intervalo, en milisegundos.
+     * @param fin     Fin del intervalo (excluido), en milisegundos.
+     */
+    public void anadir(int idPista, long inicio, long fin) {
+        pistas.computeIfAbsent(idPista, id -> new DiasPista()).cambiar(inicio, fin, 1);
+    }
+
+    /**
+     * Quita la ocupación de un intervalo añadido antes con {@link #anadir(int, long, long)}.
+     *
+     * @param idPista El ID de la pista.
+     * @param inicio  Inicio del intervalo, en milisegundos.
+     * @param fin     Fin del intervalo (excluido), en milisegundos.
+     */
+    public void quitar(int idPista, long inicio, long fin) {
+        DiasPista dias = pistas.get(idPista);
+        if (dias != null) {
+            dias.cambiar(inicio, fin, -1);
+        }
+    }
+
+    /**
+     * Vacía el mapa.
+     */
+    public void vaciar() {
+        pistas.clear();
+    }
+
+    /**
+     * Obtiene los bloques ocupados de una pista en varios días seguidos.
+     *
+     * @param idPista   El ID de la pista.
+     * @param primerDia El primer día.
+     * @param dias      El número de días.
+     * @return Para cada día, un entero cuyo bit {@code i} indica si el bloque {@code i} está ocupado.
+     */
+    public int[] getOcupacion(int idPista, LocalDate primerDia, int dias) {
+        DiasPista ocupacion = pistas.get(idPista);
+        return ocupacion == null ? new int[dias] : ocupacion.copiar(primerDia.toEpochDay(), dias);
+    }
+
+    /**
+     * Indica si los bloques de una franja están libres en la ocupación de un día.
+     *
+     * @param ocupacion   La ocupación del día, como la devuelve {@link #getOcupacion(int, LocalDate, int)}.
+     * @param bloque      El bloque en el que empieza la franja.
+     * @param numBloques  El número de bloques de la franja.
+     * @return true si ningún bloque de la franja está ocupado.
+     */
+    public static boolean estaLibre(int ocupacion, int bloque, int numBloques) {
+        int mascara = ((1 << numBloques) - 1) << bloque;
+        return (ocupacion & mascara) == 0;
+    }
+
+    /**
+     * Obtiene el instante en que empieza un bloque de un día, en la zona horaria del reloj de la aplicación.
+     *
+     * @param dia    El día.
+     * @param bloque El número de bloque.
+     * @return El inicio del bloque, en milisegundos.
+     */
+    public static long inicioBloque(LocalDate dia, int bloque) {
+        return aperturaDia(dia) + bloque * MS_BLOQUE;
+    }
+
+    /**
+     * Obtiene el instante de apertura de un día, en la zona horaria del reloj de la aplicación.
+     *
+     * @param dia El día.
+     * @return Las 9:00 del día, en milisegundos.
+     */
+    private static long aperturaDia(LocalDate dia) {
+        return Reloj.aMilisegundos(dia.atTime(HORA_APERTURA, 0));
+    }
+
+    /**
+     * Bloques ocupados de cada día de una pista.
+     */
+    private static final class DiasPista {
+
+        /**
+         * Ocupación de cada día con algún bloque ocupado, indexada por el número de día desde 1970.
+         */
+        private final Map<Long, Dia> dias = new HashMap<>();
+
+        /**
+         * Suma un valor a los bloques que toca un intervalo.
+         *
+         * @param inicio Inicio del intervalo, en milisegundos.
+         * @param fin    Fin del intervalo (excluido), en milisegundos.
+         * @param cambio 1 para añadir el intervalo y -1 para quitarlo.
+         */
+        synchronized void cambiar(long inicio, long fin, int cambio) {
+            if (fin <= inicio) {
+                return;
+            }
+            LocalDate primero = Reloj.diaDe(inicio);
+            LocalDate ultimo = Reloj.diaDe(fin - 1);
+            for (LocalDate dia = primero; !dia.isAfter(ultimo); dia = dia.plusDays(1)) {
+                long apertura = aperturaDia(dia);
+                long desde = Math.max(inicio, apertura);
+                long hasta = Math.min(fin, apertura + BLOQUES_POR_DIA * MS_BLOQUE);
+                if (desde >= hasta) {
+                    continue;
+                }
+                int primerBloque = (int) ((desde - apertura) / MS_BLOQUE);
+                int ultimoBloque = (int) ((hasta - apertura - 1) / MS_BLOQUE);
+
+                long clave = dia.toEpochDay();
+                Dia ocupacion = dias.computeIfAbsent(clave, d -> new Dia());
+                for (int bloque = primerBloque; bloque <= ultimoBloque; bloque++) {
+                    ocupacion.cambiar(bloque, cambio);
+                }
+                if (ocupacion.bits == 0) {
+                    dias.remove(clave);
+                }
+            }
+        }
+
+        /**
+         * Copia la ocupación de varios días seguidos.
+         *
+         * @param primerDia El primer día, como número de día desde 1970.
+         * @param numDias   El número de días.
+         * @return La ocupación de cada día.
+         */
+        synchronized int[] copiar(long primerDia, int numDias) {
+            int[] ocupacion = new int[numDias];
+            for (int i = 0; i < numDias; i++) {
+                Dia dia = dias.get(primerDia + i);
+                if (dia != null) {
+                    ocupacion[i] = dia.bits;
+                }
+            }
+            return ocupacion;
+        }
+    }
+
+    /**
+     * Bloques ocupados de un día, con el número de reservas que ocupa cada uno.
+     */
+    private static final class Dia {
+
+        /**
+         * Número de reservas que ocupan cada bloque.
+         */
+        private final short[] reservas = new short[BLOQUES_POR_DIA];
+
+        /**
+         * Bloques ocupados por al menos una reserva, un bit por bloque.
+         */
+        private int bits;
+
+        /**
+         * Suma un valor a un bloque y actualiza su bit.
+         *
+         * @param bloque El número de bloque.
+         * @param cambio 1 o -1.
+         */
+        void cambiar(int bloque, int cambio) {
+            reservas[bloque] += cambio;
+            if (reservas[bloque] > 0) {
+                bits |= 1 << bloque;
+            } else {
+                reservas[bloque] = 0;
+                bits &= ~(1 << bloque);
+            }
+        }
+    }
+}
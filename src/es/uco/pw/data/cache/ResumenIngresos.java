@@ -0,0 +1,443 @@
+package es.uco.pw.data.cache;
+
+import es.uco.pw.business.common.Reloj;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Ingresos de las reservas acumulados por día, pista, tipo de reserva y modalidad (individual o
+ * con bono), a partir de las columnas {@code precio} y {@code descuento} de cada reserva.
+ * <p>
+ * Los repositorios de reservas lo mantienen al guardar, modificar y eliminar reservas: cada cambio
+ * resta lo que aportaba la reserva y suma lo que aporta ahora, así que las consultas recorren solo
+ * los acumulados del rango pedido y su coste no depende del número de reservas. Los importes se
+ * guardan en céntimos para que sumar y restar no acumule errores de redondeo.
+ */
+public final class ResumenIngresos {
+
+    /**
+     * Tipos de reserva según los jugadores que incluye.
+     */
+    public enum TipoReserva {
+        INFANTIL, FAMILIAR, ADULTO;
+
+        /**
+         * Obtiene el tipo de una reserva a partir de sus jugadores, con el mismo criterio con que
+         * se guarda la fila de su tipo.
+         *
+         * @param numeroAdultos El número de adultos, o null si la reserva es infantil.
+         * @param numeroNinos   El número de niños, o null si la reserva es de adultos.
+         * @return El tipo de la reserva, o null si no tiene jugadores.
+         */
+        public static TipoReserva de(Integer numeroAdultos, Integer numeroNinos) {
+            if (numeroNinos != null) {
+                return numeroAdultos == null ? INFANTIL : FAMILIAR;
+            }
+            return numeroAdultos != null ? ADULTO : null;
+        }
+    }
+
+    /**
+     * Modalidad de pago de una reserva.
+     */
+    public enum Modalidad {
+        INDIVIDUAL, BONO
+    }
+
+    /**
+     * Ingresos de un conjunto de reservas.
+     */
+    public static final class Acumulado {
+
+        /**
+         * Número de reservas.
+         */
+        private long reservas;
+
+        /**
+         * Suma de los precios, en céntimos.
+         */
+        private long brutoCentimos;
+
+        /**
+         * Suma de los descuentos aplicados, en céntimos.
+         */
+        private long descuentoCentimos;
+
+        /**
+         * Suma a este acumulado reservas y sus importes, o los resta si son negativos.
+         *
+         * @param reservas          Las reservas.
+         * @param brutoCentimos     Sus precios, en céntimos.
+         * @param descuentoCentimos Sus descuentos, en céntimos.
+         */
+        private void sumar(long reservas, long brutoCentimos, long descuentoCentimos) {
+            this.reservas += reservas;
+            this.brutoCentimos += brutoCentimos;
+            this.descuentoCentimos += descuentoCentimos;
+        }
+
+        /**
+         * Suma a este acumulado otro acumulado.
+         *
+         * @param otro El acumulado a sumar.
+         */
+        private void sumar(Acumulado otro) {
+            sumar(otro.reservas, otro.brutoCentimos, otro.descuentoCentimos);
+        }
+
+        /**
+         * Obtiene el número de reservas.
+         *
+         * @return Las reservas acumuladas.
+         */
+        public long getReservas() {
+            return reservas;
+        }
+
+        /**
+         * Obtiene la suma de los precios, antes de descuentos.
+         *
+         * @return El importe bruto, en euros.
+         */
+        public double getBruto() {
+            return brutoCentimos / 100.0;
+        }
+
+        /**
+         * Obtiene la suma de los descuentos aplicados.
+         *
+         * @return Los descuentos, en euros.
+         */
+        public double getDescuentos() {
+            return descuentoCentimos / 100.0;
+        }
+
+        /**
+         * Obtiene lo cobrado, es decir, los precios menos los descuentos.
+         *
+         * @return El importe neto, en euros.
+         */
+        public double getNeto() {
+            return (brutoCentimos - descuentoCentimos) / 100.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d reservas, %.2f € brutos, %.2f € de descuento, %.2f € netos",
+                    reservas, getBruto(), getDescuentos(), getNeto());
+        }
+    }
+
+    /**
+     * Pista, tipo y modalidad de un acumulado diario.
+     */
+    private static final class Clave {
+
+        /**
+         * ID de la pista.
+         */
+        private final int idPista;
+
+        /**
+         * Tipo de las reservas.
+         */
+        private final TipoReserva tipo;
+
+        /**
+         * Modalidad de las reservas.
+         */
+        private final Modalidad modalidad;
+
+        /**
+         * Constructor de la clave.
+         *
+         * @param idPista   El ID de la pista.
+         * @param tipo      El tipo de las reservas.
+         * @param modalidad La modalidad de las reservas.
+         */
+        private Clave(int idPista, TipoReserva tipo, Modalidad modalidad) {
+            this.idPista = idPista;
+            this.tipo = tipo;
+            this.modalidad = modalidad;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return idPista == otra.idPista && tipo == otra.tipo && modalidad == otra.modalidad;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idPista, tipo, modalidad);
+        }
+    }
+
+    /**
+     * Lo que aporta una reserva a los acumulados, para poder restarlo al cambiarla.
+     */
+    private static final class Aportacion {
+
+        /**
+         * Día de la reserva.
+         */
+        private final LocalDate dia;
+
+        /**
+         * Pista, tipo y modalidad de la reserva.
+         */
+        private final Clave clave;
+
+        /**
+         * Precio, en céntimos.
+         */
+        private final long brutoCentimos;
+
+        /**
+         * Descuento aplicado, en céntimos.
+         */
+        private final long descuentoCentimos;
+
+        /**
+         * Constructor de la aportación.
+         *
+         * @param dia               El día de la reserva.
+         * @param clave             La pista, el tipo y la modalidad.
+         * @param brutoCentimos     El precio, en céntimos.
+         * @param descuentoCentimos El descuento, en céntimos.
+         */
+        private Aportacion(LocalDate dia, Clave clave, long brutoCentimos, long descuentoCentimos) {
+            this.dia = dia;
+            this.clave = clave;
+            this.brutoCentimos = brutoCentimos;
+            this.descuentoCentimos = descuentoCentimos;
+        }
+    }
+
+    /**
+     * Acumulados de cada día, por pista, tipo y modalidad.
+     */
+    private final NavigableMap<LocalDate, Map<Clave, Acumulado>> porDia = new TreeMap<>();
+
+    /**
+     * Aportación de cada reserva registrada, indexada por su ID.
+     */
+    private final Map<Integer, Aportacion> aportaciones = new HashMap<>();
+
+    /**
+     * Indica si ya se han registrado las reservas que existían antes de crear el resumen.
+     */
+    private volatile boolean cargado = false;
+
+    /**
+     * Indica si ya se han registrado las reservas existentes.
+     *
+     * @return true si el resumen está cargado.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Marca el resumen como cargado, una vez registradas las reservas existentes.
+     */
+    public void marcarCargado() {
+        this.cargado = true;
+    }
+
+    /**
+     * Vacía el resumen y lo marca como no cargado.
+     */
+    public synchronized void vaciar() {
+        porDia.clear();
+        aportaciones.clear();
+        cargado = false;
+    }
+
+    /**
+     * Registra los ingresos de una reserva. Si la reserva ya estaba registrada, antes se resta lo
+     * que aportaba.
+     *
+     * @param idReserva El ID de la reserva.
+     * @param idPista   El ID de la pista.
+     * @param fechaHora La fecha y hora de inicio, en milisegundos.
+     * @param precio    El precio de la reserva, sin descuento.
+     * @param descuento El descuento aplicado, como fracción del precio.
+     * @param tipo      El tipo de la reserva.
+     * @param modalidad La modalidad de la reserva.
+     */
+    public synchronized void registrar(int idReserva, int idPista, long fechaHora, float precio, float descuento,
+                                       TipoReserva tipo, Modalidad modalidad) {
+        quitar(idReserva);
+        LocalDate dia = Reloj.diaDe(fechaHora);
+        long brutoCentimos = Math.round(precio * 100.0);
+        long descuentoCentimos = Math.round(precio * (double) descuento * 100.0);
+        Aportacion aportacion = new Aportacion(dia, new Clave(idPista, tipo, modalidad), brutoCentimos, descuentoCentimos);
+        aportaciones.put(idReserva, aportacion);
+        acumular(aportacion, 1);
+    }
+
+    /**
+     * Cambia los ingresos de una reserva ya registrada, conservando su modalidad, que no cambia
+     * al modificar la reserva. Si la reserva no está registrada no se hace nada: sus ingresos se
+     * leerán con el resto al cargar el resumen.
+     *
+     * @param idReserva El ID de la reserva.
+     * @param idPista   El nuevo ID de la pista.
+     * @param fechaHora La nueva fecha y hora de inicio, en milisegundos.
+     * @param precio    El nuevo precio, sin descuento.
+     * @param descuento El nuevo descuento, como fracción del precio.
+     * @param tipo      El nuevo tipo de la reserva.
+     */
+    public synchronized void modificar(int idReserva, int idPista, long fechaHora, float precio, float descuento,
+                                       TipoReserva tipo) {
+        Aportacion anterior = aportaciones.get(idReserva);
+        if (anterior != null) {
+            registrar(idReserva, idPista, fechaHora, precio, descuento, tipo, anterior.clave.modalidad);
+        }
+    }
+
+    /**
+     * Resta los ingresos de una reserva.
+     *
+     * @param idReserva El ID de la reserva.
+     */
+    public synchronized void quitar(int idReserva) {
+        Aportacion aportacion = aportaciones.remove(idReserva);
+        if (aportacion != null) {
+            acumular(aportacion, -1);
+        }
+    }
+
+    /**
+     * Obtiene los ingresos de cada día de un rango.
+     *
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, incluido.
+     * @return Los ingresos de los días con reservas, ordenados por día.
+     */
+    public synchronized SortedMap<LocalDate, Acumulado> porDia(LocalDate desde, LocalDate hasta) {
+        SortedMap<LocalDate, Acumulado> resultado = new TreeMap<>();
+        for (Map.Entry<LocalDate, Map<Clave, Acumulado>> dia : porDia.subMap(desde, true, hasta, true).entrySet()) {
+            Acumulado total = new Acumulado();
+            for (Acumulado acumulado : dia.getValue().values()) {
+                total.sumar(acumulado);
+            }
+            resultado.put(dia.getKey(), total);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene los ingresos de cada pista en un rango de días.
+     *
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, incluido.
+     * @return Los ingresos de las pistas con reservas, ordenados por ID de pista.
+     */
+    public synchronized SortedMap<Integer, Acumulado> porPista(LocalDate desde, LocalDate hasta) {
+        return agrupar(desde, hasta, clave -> clave.idPista, new TreeMap<>());
+    }
+
+    /**
+     * Obtiene los ingresos de cada tipo de reserva en un rango de días.
+     *
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, incluido.
+     * @return Los ingresos de los tipos con reservas.
+     */
+    public synchronized Map<TipoReserva, Acumulado> porTipo(LocalDate desde, LocalDate hasta) {
+        return agrupar(desde, hasta, clave -> clave.tipo, new EnumMap<>(TipoReserva.class));
+    }
+
+    /**
+     * Obtiene los ingresos de las reservas individuales y de las de bono en un rango de días.
+     *
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, incluido.
+     * @return Los ingresos de cada modalidad con reservas.
+     */
+    public synchronized Map<Modalidad, Acumulado> porModalidad(LocalDate desde, LocalDate hasta) {
+        return agrupar(desde, hasta, clave -> clave.modalidad, new EnumMap<>(Modalidad.class));
+    }
+
+    /**
+     * Obtiene los ingresos totales de un rango de días.
+     *
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, incluido.
+     * @return Los ingresos del rango.
+     */
+    public synchronized Acumulado total(LocalDate desde, LocalDate hasta) {
+        Acumulado total = new Acumulado();
+        for (Map<Clave, Acumulado> dia : porDia.subMap(desde, true, hasta, true).values()) {
+            for (Acumulado acumulado : dia.values()) {
+                total.sumar(acumulado);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el número de acumulados guardados, que es lo que recorre como mucho una consulta.
+     *
+     * @return Los acumulados de todos los días.
+     */
+    public synchronized int getAcumulados() {
+        int total = 0;
+        for (Map<Clave, Acumulado> dia : porDia.values()) {
+            total += dia.size();
+        }
+        return total;
+    }
+
+    /**
+     * Agrupa los acumulados de un rango de días por una parte de su clave.
+     *
+     * @param <K>     El tipo de la parte de la clave.
+     * @param <M>     El tipo del mapa de destino.
+     * @param desde   El primer día, incluido.
+     * @param hasta   El último día, incluido.
+     * @param parte   La función que obtiene la parte de la clave.
+     * @param destino El mapa donde se agrupan los acumulados.
+     * @return El mapa de destino.
+     */
+    private <K, M extends Map<K, Acumulado>> M agrupar(LocalDate desde, LocalDate hasta, Function<Clave, K> parte, M destino) {
+        for (Map<Clave, Acumulado> dia : porDia.subMap(desde, true, hasta, true).values()) {
+            for (Map.Entry<Clave, Acumulado> entrada : dia.entrySet()) {
+                destino.computeIfAbsent(parte.apply(entrada.getKey()), k -> new Acumulado()).sumar(entrada.getValue());
+            }
+        }
+        return destino;
+    }
+
+    /**
+     * Suma o resta una aportación en su acumulado, quitando los acumulados que se quedan sin reservas.
+     *
+     * @param aportacion La aportación.
+     * @param signo      1 para sumarla y -1 para restarla.
+     */
+    private void acumular(Aportacion aportacion, int signo) {
+        Map<Clave, Acumulado> dia = porDia.computeIfAbsent(aportacion.dia, d -> new HashMap<>());
+        Acumulado acumulado = dia.computeIfAbsent(aportacion.clave, c -> new Acumulado());
+        acumulado.sumar(signo, signo * aportacion.brutoCentimos, signo * aportacion.descuentoCentimos);
+        if (acumulado.reservas == 0) {
+            dia.remove(aportacion.clave);
+            if (dia.isEmpty()) {
+                porDia.remove(aportacion.dia);
+            }
+        }
+    }
+}
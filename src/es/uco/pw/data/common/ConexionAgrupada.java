@@ -0,0 +1,714 @@
+package es.uco.pw.data.common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conexión física gestionada por {@link PoolConexiones}.
+ * Guarda los datos necesarios para la gestión del pool (momento del préstamo, inactividad,
+ * pila de llamadas del préstamo) y crea, en cada préstamo, una vista de la conexión cuyo
+ * {@code close()} la devuelve al pool en lugar de cerrarla.
+ * Además mantiene una caché LRU de sentencias preparadas indexada por el nombre de la consulta
+ * en {@link RegistroConsultas}: las sentencias se reutilizan entre préstamos y solo se cierran
+ * al salir de la caché o al cerrarse la conexión física. Las sentencias entregadas se miden en
+ * {@link EstadisticasConsultas} con la clave de su consulta.
+ */
+class ConexionAgrupada {
+
+    /**
+     * Conexión real con la base de datos.
+     */
+    private final Connection fisica;
+
+    /**
+     * Sentencias abiertas a través de la vista actual, que se cierran al devolver la conexión.
+     */
+    private final List<Statement> sentenciasAbiertas = new ArrayList<>();
+
+    /**
+     * Número máximo de sentencias preparadas en caché (0 desactiva la caché).
+     */
+    private final int tamanoCacheSentencias;
+
+    /**
+     * Sentencias preparadas en caché, en orden de uso (la menos usada recientemente al principio).
+     */
+    private final LinkedHashMap<String, SentenciaCacheada> cacheSentencias = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Momento (en milisegundos) del último préstamo o devolución.
+     */
+    private volatile long ultimoUso = System.currentTimeMillis();
+
+    /**
+     * Pila de llamadas capturada en el préstamo actual, o null si no se captura.
+     */
+    private volatile Throwable pilaPrestamo;
+
+    /**
+     * Indica si ya se ha avisado de una posible fuga en el préstamo actual.
+     */
+    private final AtomicBoolean fugaNotificada = new AtomicBoolean(false);
+
+    /**
+     * Constructor que envuelve una conexión física recién abierta.
+     *
+     * @param fisica                La conexión real con la base de datos.
+     * @param tamanoCacheSentencias Número máximo de sentencias preparadas en caché (0 la desactiva).
+     */
+    ConexionAgrupada(Connection fisica, int tamanoCacheSentencias) {
+        this.fisica = fisica;
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+    }
+
+    /**
+     * Obtiene la conexión física.
+     *
+     * @return La conexión real con la base de datos.
+     */
+    Connection getFisica() {
+        return fisica;
+    }
+
+    /**
+     * Registra el préstamo de la conexión.
+     *
+     * @param pila La pila de llamadas del punto del préstamo, o null.
+     */
+    void marcarPrestada(Throwable pila) {
+        this.pilaPrestamo = pila;
+        this.fugaNotificada.set(false);
+        this.ultimoUso = System.currentTimeMillis();
+    }
+
+    /**
+     * Registra que la conexión queda libre.
+     */
+    void marcarLibre() {
+        this.pilaPrestamo = null;
+        this.ultimoUso = System.currentTimeMillis();
+    }
+
+    /**
+     * Obtiene el tiempo que la conexión lleva libre.
+     *
+     * @return Milisegundos desde la última devolución.
+     */
+    long getInactividadMs() {
+        return System.currentTimeMillis() - ultimoUso;
+    }
+
+    /**
+     * Obtiene el tiempo que la conexión lleva prestada.
+     *
+     * @return Milisegundos desde el préstamo actual.
+     */
+    long getTiempoPrestadaMs() {
+        return System.currentTimeMillis() - ultimoUso;
+    }
+
+    /**
+     * Obtiene la pila de llamadas del préstamo actual.
+     *
+     * @return La pila capturada, o null si no se captura.
+     */
+    Throwable getPilaPrestamo() {
+        return pilaPrestamo;
+    }
+
+    /**
+     * Marca la fuga del préstamo actual como notificada.
+     *
+     * @return true si es la primera vez que se notifica; false si ya se había notificado.
+     */
+    boolean marcarFugaNotificada() {
+        return fugaNotificada.compareAndSet(false, true);
+    }
+
+    /**
+     * Deja la conexión lista para el siguiente préstamo: cierra las sentencias pendientes,
+     * deshace la transacción abierta y restablece el modo autocommit.
+     *
+     * @return true si la conexión puede reutilizarse; false si debe cerrarse.
+     */
+    boolean restablecer() {
+        try {
+            synchronized (sentenciasAbiertas) {
+                for (Statement st : sentenciasAbiertas) {
+                    try {
+                        st.close();
+                    } catch (SQLException e) {
+                        // La sentencia ya no es utilizable; se ignora
+                    }
+                }
+                sentenciasAbiertas.clear();
+            }
+            synchronized (cacheSentencias) {
+                for (SentenciaCacheada entrada : cacheSentencias.values()) {
+                    entrada.enUso = false;
+                }
+            }
+            if (fisica.isClosed()) {
+                return false;
+            }
+            if (!fisica.getAutoCommit()) {
+                fisica.rollback();
+                fisica.setAutoCommit(true);
+            }
+            marcarLibre();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cierra la conexión física junto con las sentencias de su caché.
+     */
+    void cerrarFisica() {
+        synchronized (cacheSentencias) {
+            for (SentenciaCacheada entrada : cacheSentencias.values()) {
+                cerrarSentencia(entrada.sentencia);
+            }
+            cacheSentencias.clear();
+        }
+        try {
+            if (!fisica.isClosed()) {
+                fisica.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error while trying to close the connection.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Crea la vista de la conexión que se entrega en un préstamo.
+     *
+     * @param pool             El pool al que se devuelve la conexión al cerrarla.
+     * @param adquisicionNanos Lo que se tardó en obtener la conexión, en nanosegundos.
+     * @return Una {@link Connection} que delega en la conexión física.
+     */
+    Connection crearVista(PoolConexiones pool, long adquisicionNanos) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new Vista(pool, adquisicionNanos));
+    }
+
+    /**
+     * Manejador de la vista prestada. Cada préstamo tiene su propia vista, de modo que una
+     * referencia antigua no puede utilizar la conexión después de haberla devuelto.
+     */
+    private class Vista implements InvocationHandler {
+
+        /**
+         * Pool al que se devuelve la conexión.
+         */
+        private final PoolConexiones pool;
+
+        /**
+         * Indica si la vista ya se ha cerrado.
+         */
+        private final AtomicBoolean cerrada = new AtomicBoolean(false);
+
+        /**
+         * Tiempo que se tardó en obtener la conexión de este préstamo, en nanosegundos.
+         */
+        private final long adquisicionNanos;
+
+        /**
+         * Indica si el tiempo de obtención ya se ha atribuido a la primera consulta ejecutada.
+         */
+        private final AtomicBoolean adquisicionAtribuida = new AtomicBoolean(false);
+
+        /**
+         * Constructor de la vista.
+         *
+         * @param pool             Pool al que se devuelve la conexión.
+         * @param adquisicionNanos Tiempo que se tardó en obtener la conexión, en nanosegundos.
+         */
+        Vista(PoolConexiones pool, long adquisicionNanos) {
+            this.pool = pool;
+            this.adquisicionNanos = adquisicionNanos;
+        }
+
+        /**
+         * Atribuye el tiempo de obtención de la conexión a la primera consulta que se ejecuta con ella.
+         *
+         * @param clave La clave de la consulta ejecutada.
+         */
+        void atribuirAdquisicion(String clave) {
+            if (adquisicionAtribuida.compareAndSet(false, true)) {
+                EstadisticasConsultas.getInstancia().atribuirAdquisicion(clave, adquisicionNanos);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    if (cerrada.compareAndSet(false, true)) {
+                        pool.devolver(ConexionAgrupada.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return cerrada.get() || fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Conexión del pool [" + fisica + "]";
+                default:
+                    break;
+            }
+            if (cerrada.get()) {
+                throw new SQLException("La conexión ya se ha devuelto al pool.");
+            }
+            // Las sentencias preparadas se identifican por la clave de su consulta
+            String sql = null;
+            String clave = null;
+            if (metodo.getName().startsWith("prepare") && args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+                clave = RegistroConsultas.getInstancia().getClave(sql);
+            }
+            if (clave != null && tamanoCacheSentencias > 0 && metodo.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                PreparedStatement cacheada = prepararCacheada(args.length == 1 ? clave : clave + "#" + args[1], clave, sql, metodo, args, this);
+                if (cacheada != null) {
+                    return cacheada;
+                }
+            }
+            if (sql != null && clave == null) {
+                clave = EstadisticasConsultas.SIN_CLAVE;
+            }
+            Object resultado;
+            try {
+                resultado = metodo.invoke(fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof Statement) {
+                synchronized (sentenciasAbiertas) {
+                    sentenciasAbiertas.add((Statement) resultado);
+                }
+                return crearVistaSentencia((Statement) resultado, metodo.getReturnType(), null, clave, sql, this);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Obtiene de la caché la sentencia preparada de una consulta, preparándola si no está.
+     * Si la sentencia de la consulta ya está en uso en este préstamo (por ejemplo, en consultas
+     * anidadas) se devuelve null para que se prepare una sentencia aparte, fuera de la caché.
+     *
+     * @param claveCache La clave de la sentencia en la caché.
+     * @param clave      La clave de la consulta en {@link RegistroConsultas}.
+     * @param sql        El SQL de la consulta.
+     * @param metodo     El método {@code prepareStatement} invocado.
+     * @param args       Los argumentos del método.
+     * @param vista      La vista del préstamo actual.
+     * @return La sentencia preparada, o null si la de la caché está en uso.
+     * @throws Throwable Si la sentencia no se puede preparar.
+     */
+    private PreparedStatement prepararCacheada(String claveCache, String clave, String sql, Method metodo, Object[] args, Vista vista) throws Throwable {
+        synchronized (cacheSentencias) {
+            SentenciaCacheada entrada = cacheSentencias.get(claveCache);
+            if (entrada != null) {
+                if (entrada.enUso) {
+                    return null;
+                }
+                entrada.restablecer();
+                entrada.enUso = true;
+                vista.pool.registrarAciertoCache();
+            } else {
+                PreparedStatement sentencia;
+                try {
+                    sentencia = (PreparedStatement) metodo.invoke(fisica, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                try {
+                    entrada = new SentenciaCacheada(sentencia);
+                } catch (SQLException e) {
+                    cerrarSentencia(sentencia);
+                    throw e;
+                }
+                entrada.enUso = true;
+                cacheSentencias.put(claveCache, entrada);
+                vista.pool.registrarFalloCache();
+                expulsarSobrantes();
+            }
+            return (PreparedStatement) crearVistaSentencia(entrada.sentencia, PreparedStatement.class, entrada, clave, sql, vista);
+        }
+    }
+
+    /**
+     * Cierra las sentencias menos usadas recientemente mientras la caché supere su tamaño.
+     * Las sentencias en uso no se expulsan; la caché se ajusta en la siguiente inserción.
+     */
+    private void expulsarSobrantes() {
+        Iterator<SentenciaCacheada> it = cacheSentencias.values().iterator();
+        while (cacheSentencias.size() > tamanoCacheSentencias && it.hasNext()) {
+            SentenciaCacheada entrada = it.next();
+            if (!entrada.enUso) {
+                it.remove();
+                cerrarSentencia(entrada.sentencia);
+            }
+        }
+    }
+
+    /**
+     * Cierra una sentencia ignorando los errores, ya que no va a volver a utilizarse.
+     *
+     * @param sentencia La sentencia a cerrar.
+     */
+    private static void cerrarSentencia(Statement sentencia) {
+        try {
+            sentencia.close();
+        } catch (SQLException e) {
+            // La sentencia ya no es utilizable; se ignora
+        }
+    }
+
+    /**
+     * Envuelve una sentencia para contabilizar y medir sus ejecuciones y, si procede de la caché,
+     * devolverla a la caché al cerrarla.
+     *
+     * @param sentencia La sentencia real.
+     * @param tipo      La interfaz que devuelve el método que creó la sentencia.
+     * @param entrada   La entrada de la caché de la sentencia, o null si no está en caché.
+     * @param clave     La clave de la consulta, o null si se sabrá al ejecutar un SQL.
+     * @param sql       El SQL de la sentencia preparada, o null si no está preparada.
+     * @param vista     La vista del préstamo en el que se obtuvo la sentencia.
+     * @return La sentencia envuelta.
+     */
+    private Object crearVistaSentencia(Statement sentencia, Class<?> tipo, SentenciaCacheada entrada, String clave, String sql, Vista vista) {
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { tipo },
+                new VistaSentencia(sentencia, entrada, clave, sql, vista));
+    }
+
+    /**
+     * Sentencia preparada guardada en la caché de la conexión.
+     */
+    private static class SentenciaCacheada {
+
+        /**
+         * La sentencia real.
+         */
+        private final PreparedStatement sentencia;
+
+        /**
+         * Número máximo de filas con el que se preparó la sentencia.
+         */
+        private final int maxFilas;
+
+        /**
+         * Tamaño de lote con el que se preparó la sentencia.
+         */
+        private final int tamanoLote;
+
+        /**
+         * Tiempo máximo de ejecución, en segundos, con el que se preparó la sentencia.
+         */
+        private final int tiempoMaximo;
+
+        /**
+         * Indica si la sentencia está prestada en el préstamo actual de la conexión.
+         */
+        private boolean enUso;
+
+        /**
+         * Constructor de la entrada, que guarda los ajustes iniciales de la sentencia.
+         *
+         * @param sentencia La sentencia real.
+         * @throws SQLException Si no se pueden leer los ajustes de la sentencia.
+         */
+        SentenciaCacheada(PreparedStatement sentencia) throws SQLException {
+            this.sentencia = sentencia;
+            this.maxFilas = sentencia.getMaxRows();
+            this.tamanoLote = sentencia.getFetchSize();
+            this.tiempoMaximo = sentencia.getQueryTimeout();
+        }
+
+        /**
+         * Deja la sentencia como se preparó antes de volver a entregarla: sin parámetros ni lote
+         * y con el número máximo de filas, el tamaño de lote y el tiempo máximo iniciales, para que
+         * los ajustes de quien la usó antes (por ejemplo, el límite de una página) no se apliquen
+         * a la siguiente consulta.
+         *
+         * @throws SQLException Si no se puede restablecer la sentencia.
+         */
+        void restablecer() throws SQLException {
+            sentencia.clearParameters();
+            sentencia.clearBatch();
+            if (sentencia.getMaxRows() != maxFilas) {
+                sentencia.setMaxRows(maxFilas);
+            }
+            if (sentencia.getFetchSize() != tamanoLote) {
+                sentencia.setFetchSize(tamanoLote);
+            }
+            if (sentencia.getQueryTimeout() != tiempoMaximo) {
+                sentencia.setQueryTimeout(tiempoMaximo);
+            }
+        }
+    }
+
+    /**
+     * Manejador de las sentencias entregadas por la vista de la conexión. Contabiliza y mide las
+     * ejecuciones, cuenta las filas de los resultados y, para las sentencias de la caché,
+     * convierte {@code close()} en la devolución de la sentencia a la caché.
+     */
+    private class VistaSentencia implements InvocationHandler {
+
+        /**
+         * La sentencia real.
+         */
+        private final Statement sentencia;
+
+        /**
+         * La entrada de la caché, o null si la sentencia no está en caché.
+         */
+        private final SentenciaCacheada entrada;
+
+        /**
+         * La vista del préstamo en el que se obtuvo la sentencia.
+         */
+        private final Vista vista;
+
+        /**
+         * La clave de la consulta preparada, o null si la sentencia recibe el SQL al ejecutarse.
+         */
+        private final String clave;
+
+        /**
+         * El SQL de la sentencia preparada, o null.
+         */
+        private final String sql;
+
+        /**
+         * Tipos de los parámetros asignados, por posición, para el registro de consultas lentas;
+         * null si no se registran.
+         */
+        private final List<String> parametros;
+
+        /**
+         * Clave de la última consulta ejecutada, para contar las filas de {@code getResultSet()}.
+         */
+        private String ultimaClave;
+
+        /**
+         * Indica si la sentencia de la caché ya se ha devuelto.
+         */
+        private boolean cerrada = false;
+
+        /**
+         * Constructor del manejador.
+         *
+         * @param sentencia La sentencia real.
+         * @param entrada   La entrada de la caché, o null.
+         * @param clave     La clave de la consulta, o null.
+         * @param sql       El SQL de la sentencia preparada, o null.
+         * @param vista     La vista del préstamo.
+         */
+        VistaSentencia(Statement sentencia, SentenciaCacheada entrada, String clave, String sql, Vista vista) {
+            this.sentencia = sentencia;
+            this.entrada = entrada;
+            this.clave = clave;
+            this.sql = sql;
+            this.vista = vista;
+            this.parametros = sql != null && EstadisticasConsultas.getInstancia().registraLentas() ? new ArrayList<>() : null;
+            this.ultimaClave = clave;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (entrada != null) {
+                switch (nombre) {
+                    case "close":
+                        if (!cerrada && !vista.cerrada.get()) {
+                            synchronized (cacheSentencias) {
+                                entrada.enUso = false;
+                            }
+                        }
+                        cerrada = true;
+                        return null;
+                    case "isClosed":
+                        return cerrada || vista.cerrada.get();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (cerrada || vista.cerrada.get()) {
+                    throw new SQLException("La sentencia ya se ha cerrado.");
+                }
+            }
+            EstadisticasConsultas estadisticas = EstadisticasConsultas.getInstancia();
+            if (nombre.startsWith("execute")) {
+                vista.pool.registrarEjecucion();
+                if (estadisticas.isActivas()) {
+                    return ejecutarMidiendo(metodo, args, estadisticas);
+                }
+            } else if (parametros != null) {
+                anotarParametro(nombre, args);
+            }
+            Object resultado = invocar(metodo, args);
+            if (resultado instanceof ResultSet && nombre.equals("getResultSet") && estadisticas.isActivas() && ultimaClave != null) {
+                return contarFilas((ResultSet) resultado, estadisticas.contadorFilas(ultimaClave));
+            }
+            return resultado;
+        }
+
+        /**
+         * Ejecuta la sentencia midiendo su duración y anota la ejecución en las estadísticas.
+         *
+         * @param metodo       El método {@code execute...} invocado.
+         * @param args         Los argumentos del método.
+         * @param estadisticas Las estadísticas de las consultas.
+         * @return El resultado, con las filas contadas si es un {@link ResultSet}.
+         * @throws Throwable Si la ejecución falla.
+         */
+        private Object ejecutarMidiendo(Method metodo, Object[] args, EstadisticasConsultas estadisticas) throws Throwable {
+            String sqlEjecutado = sql;
+            String claveEjecutada = clave;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                // Sentencia sin preparar: el SQL llega al ejecutarla
+                sqlEjecutado = (String) args[0];
+                claveEjecutada = RegistroConsultas.getInstancia().getClave(sqlEjecutado);
+            }
+            if (claveEjecutada == null) {
+                claveEjecutada = EstadisticasConsultas.SIN_CLAVE;
+            }
+            ultimaClave = claveEjecutada;
+            vista.atribuirAdquisicion(claveEjecutada);
+
+            long inicio = System.nanoTime();
+            Object resultado = null;
+            boolean error = true;
+            try {
+                resultado = invocar(metodo, args);
+                error = false;
+            } finally {
+                estadisticas.registrarEjecucion(claveEjecutada, sqlEjecutado, System.nanoTime() - inicio,
+                        filasModificadas(resultado), error, parametros == null ? null : new ArrayList<>(parametros));
+            }
+            if (resultado instanceof ResultSet) {
+                return contarFilas((ResultSet) resultado, estadisticas.contadorFilas(claveEjecutada));
+            }
+            return resultado;
+        }
+
+        /**
+         * Anota el tipo de un parámetro asignado con un {@code set...} de la sentencia preparada,
+         * sin guardar su valor.
+         *
+         * @param nombre El nombre del método invocado.
+         * @param args   Los argumentos del método.
+         */
+        private void anotarParametro(String nombre, Object[] args) {
+            if (nombre.equals("clearParameters")) {
+                parametros.clear();
+                return;
+            }
+            if (!nombre.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int posicion = (Integer) args[0];
+            if (posicion < 1 || posicion > 1000) {
+                return;
+            }
+            while (parametros.size() < posicion) {
+                parametros.add("?");
+            }
+            String tipo = nombre.equals("setNull") || args[1] == null ? "null" : args[1].getClass().getSimpleName();
+            parametros.set(posicion - 1, tipo);
+        }
+
+        /**
+         * Invoca un método en la sentencia real.
+         *
+         * @param metodo El método.
+         * @param args   Los argumentos.
+         * @return El resultado del método.
+         * @throws Throwable La excepción que lance el método.
+         */
+        private Object invocar(Method metodo, Object[] args) throws Throwable {
+            try {
+                return metodo.invoke(sentencia, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Obtiene las filas modificadas a partir del resultado de una ejecución.
+     *
+     * @param resultado El resultado de {@code executeUpdate} o {@code executeBatch}, o cualquier otro.
+     * @return El número de filas modificadas, o 0 si el resultado no lo indica.
+     */
+    private static long filasModificadas(Object resultado) {
+        if (resultado instanceof Integer || resultado instanceof Long) {
+            return Math.max(0, ((Number) resultado).longValue());
+        }
+        long filas = 0;
+        if (resultado instanceof int[]) {
+            for (int n : (int[]) resultado) {
+                filas += Math.max(0, n);
+            }
+        } else if (resultado instanceof long[]) {
+            for (long n : (long[]) resultado) {
+                filas += Math.max(0, n);
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Envuelve un resultado para sumar a las estadísticas cada fila que se lee.
+     *
+     * @param resultado El resultado real.
+     * @param filas     El contador de filas de la consulta.
+     * @return El resultado envuelto.
+     */
+    private static ResultSet contarFilas(ResultSet resultado, LongAdder filas) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    Object valor;
+                    try {
+                        valor = metodo.invoke(resultado, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (valor == Boolean.TRUE && metodo.getName().equals("next")) {
+                        filas.increment();
+                    }
+                    return valor;
+                });
+    }
+}
@@ -0,0 +1,172 @@
+package es.uco.pw.data.common;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Configuración inmutable de la aplicación.
+ * El archivo {@code config.properties} se lee una única vez, la primera vez que se pide la
+ * configuración, y se comparte entre todos los componentes que la necesitan. Con la propiedad
+ * del sistema {@code configuracion} se puede leer otro archivo en su lugar.
+ */
+public final class Configuracion {
+
+    /**
+     * Nombre del archivo de configuración.
+     */
+    public static final String ARCHIVO_CONFIGURACION = "config.properties";
+
+    /**
+     * Propiedad del sistema que indica otro archivo de configuración.
+     */
+    public static final String PROPIEDAD_ARCHIVO = "configuracion";
+
+    /**
+     * Archivo del que se leyeron las propiedades.
+     */
+    private final String archivo;
+
+    /**
+     * Propiedades leídas. No se modifican después de construir la configuración.
+     */
+    private final Properties propiedades;
+
+    /**
+     * Constructor privado que copia las propiedades leídas.
+     *
+     * @param archivo El archivo del que se leyeron las propiedades.
+     * @param prop    Las propiedades leídas del archivo de configuración.
+     */
+    private Configuracion(String archivo, Properties prop) {
+        this.archivo = archivo;
+        this.propiedades = new Properties();
+        this.propiedades.putAll(prop);
+    }
+
+    /**
+     * Contenedor de la instancia única, que se crea al acceder a él por primera vez.
+     */
+    private static final class Contenedor {
+
+        /**
+         * Instancia única de la configuración.
+         */
+        private static final Configuracion INSTANCIA = crear();
+
+        /**
+         * Lee el archivo indicado con {@link #PROPIEDAD_ARCHIVO} o, si no se indica ninguno,
+         * {@link #ARCHIVO_CONFIGURACION}.
+         *
+         * @return La configuración leída.
+         */
+        private static Configuracion crear() {
+            String archivo = System.getProperty(PROPIEDAD_ARCHIVO, ARCHIVO_CONFIGURACION);
+            return new Configuracion(archivo, cargarConfiguracion(archivo));
+        }
+    }
+
+    /**
+     * Obtiene la configuración, leyéndola la primera vez que se pide.
+     *
+     * @return La configuración de la aplicación.
+     */
+    public static Configuracion getInstancia() {
+        return Contenedor.INSTANCIA;
+    }
+
+    /**
+     * Lee un archivo de configuración.
+     *
+     * @param archivo La ruta del archivo.
+     * @return Las propiedades leídas, vacías si el archivo no se pudo leer.
+     */
+    public static Properties cargarConfiguracion(String archivo) {
+        Properties prop = new Properties();
+        try (InputStream entrada = new FileInputStream(archivo)) {
+            prop.load(entrada);
+        } catch (IOException e) {
+            System.err.println("Error al leer '" + archivo + "'.");
+            e.printStackTrace();
+        }
+        return prop;
+    }
+
+    /**
+     * Obtiene el archivo del que se leyó la configuración.
+     *
+     * @return La ruta del archivo.
+     */
+    public String getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * Obtiene el valor de una propiedad.
+     *
+     * @param clave La clave de la propiedad.
+     * @return El valor de la propiedad, o null si no está definida.
+     */
+    public String getPropiedad(String clave) {
+        return propiedades.getProperty(clave);
+    }
+
+    /**
+     * Obtiene el valor de una propiedad o un valor por defecto.
+     *
+     * @param clave      La clave de la propiedad.
+     * @param porDefecto El valor que se devuelve si la propiedad no está definida.
+     * @return El valor de la propiedad o el valor por defecto.
+     */
+    public String getPropiedad(String clave, String porDefecto) {
+        return propiedades.getProperty(clave, porDefecto);
+    }
+
+    /**
+     * Obtiene el valor entero de una propiedad.
+     *
+     * @param clave      La clave de la propiedad.
+     * @param porDefecto El valor que se devuelve si la propiedad no está definida.
+     * @return El valor de la propiedad como entero.
+     * @throws IllegalStateException Si el valor no es un número entero.
+     */
+    public int getEntero(String clave, int porDefecto) {
+        return (int) getLargo(clave, porDefecto);
+    }
+
+    /**
+     * Obtiene el valor numérico de una propiedad.
+     *
+     * @param clave      La clave de la propiedad.
+     * @param porDefecto El valor que se devuelve si la propiedad no está definida.
+     * @return El valor de la propiedad como long.
+     * @throws IllegalStateException Si el valor no es un número entero.
+     */
+    public long getLargo(String clave, long porDefecto) {
+        String valor = propiedades.getProperty(clave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("La propiedad '" + clave + "' de " + archivo + " no es un número: " + valor, e);
+        }
+    }
+
+    /**
+     * Obtiene el valor booleano de una propiedad.
+     *
+     * @param clave      La clave de la propiedad.
+     * @param porDefecto El valor que se devuelve si la propiedad no está definida.
+     * @return El valor de la propiedad como booleano.
+     */
+    public boolean getBooleano(String clave, boolean porDefecto) {
+        String valor = propiedades.getProperty(clave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return porDefecto;
+        }
+        return Boolean.parseBoolean(valor.trim());
+    }
+}
@@ -0,0 +1,307 @@
+package es.uco.pw.data.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Estadísticas de las sentencias SQL ejecutadas con las conexiones de {@link PoolConexiones},
+ * agrupadas por la clave de la consulta en {@code sql.properties}. Para cada clave se cuentan las
+ * ejecuciones, los errores y las filas leídas o modificadas, se lleva un histograma de la duración
+ * de las ejecuciones y se anota cuánto se tardó en obtener la conexión en los préstamos que la
+ * usaron como primera sentencia.
+ * <p>
+ * Las ejecuciones que superan {@code consultas.umbralLentaMs} se escriben en la salida de errores
+ * con su clave, su duración y el SQL, pero sin los valores de los parámetros, de los que solo se
+ * muestra el tipo. Con {@code consultas.estadisticas=false} no se mide nada.
+ */
+public final class EstadisticasConsultas {
+
+    /**
+     * Clave con la que se agrupan las sentencias cuyo SQL no está en {@code sql.properties}.
+     */
+    public static final String SIN_CLAVE = "(sin clave)";
+
+    /**
+     * Textos entre comillas simples, que se ocultan en el registro de consultas lentas.
+     */
+    private static final Pattern LITERALES = Pattern.compile("'(?:[^']|'')*'");
+
+    /**
+     * Instancia única de las estadísticas, compartida por todas las conexiones del pool.
+     */
+    private static final EstadisticasConsultas INSTANCIA = new EstadisticasConsultas();
+
+    /**
+     * Indica si se miden las sentencias.
+     */
+    private final boolean activas;
+
+    /**
+     * Duración a partir de la cual una ejecución se registra como lenta, en nanosegundos; 0 no registra ninguna.
+     */
+    private final long umbralLentaNanos;
+
+    /**
+     * Métricas de cada consulta, indexadas por su clave.
+     */
+    private final Map<String, Metricas> metricas = new ConcurrentHashMap<>();
+
+    /**
+     * Tiempo de obtención de todas las conexiones prestadas, con espera incluida.
+     */
+    private final HistogramaLatencias adquisicion = new HistogramaLatencias();
+
+    /**
+     * Ejecuciones registradas como lentas.
+     */
+    private final LongAdder lentas = new LongAdder();
+
+    /**
+     * Constructor privado que lee la configuración.
+     */
+    private EstadisticasConsultas() {
+        Configuracion config = Configuracion.getInstancia();
+        this.activas = config.getBooleano("consultas.estadisticas", true);
+        this.umbralLentaNanos = Math.max(0, config.getLargo("consultas.umbralLentaMs", 200)) * 1_000_000L;
+    }
+
+    /**
+     * Obtiene las estadísticas de las consultas.
+     *
+     * @return Las estadísticas compartidas.
+     */
+    public static EstadisticasConsultas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica si se miden las sentencias.
+     *
+     * @return true si las estadísticas están activas.
+     */
+    public boolean isActivas() {
+        return activas;
+    }
+
+    /**
+     * Indica si hay que anotar los tipos de los parámetros para el registro de consultas lentas.
+     *
+     * @return true si se registran las consultas lentas.
+     */
+    boolean registraLentas() {
+        return activas && umbralLentaNanos > 0;
+    }
+
+    /**
+     * Anota lo que se tardó en obtener una conexión del pool.
+     *
+     * @param nanos El tiempo de obtención, en nanosegundos.
+     */
+    void registrarAdquisicion(long nanos) {
+        if (activas) {
+            adquisicion.registrarNanos(nanos);
+        }
+    }
+
+    /**
+     * Atribuye a una consulta el tiempo de obtención de la conexión en la que fue la primera sentencia.
+     *
+     * @param clave La clave de la consulta.
+     * @param nanos El tiempo de obtención, en nanosegundos.
+     */
+    void atribuirAdquisicion(String clave, long nanos) {
+        if (activas) {
+            metricasDe(clave).adquisicion.registrarNanos(nanos);
+        }
+    }
+
+    /**
+     * Anota la ejecución de una sentencia y, si es lenta, la escribe en la salida de errores.
+     *
+     * @param clave       La clave de la consulta.
+     * @param sql         El SQL ejecutado.
+     * @param nanos       La duración de la ejecución, en nanosegundos.
+     * @param filas       Las filas modificadas (las leídas se suman después en {@link #contadorFilas}).
+     * @param error       Indica si la ejecución falló.
+     * @param parametros  Los tipos de los parámetros, o null si no se han anotado.
+     */
+    void registrarEjecucion(String clave, String sql, long nanos, long filas, boolean error, List<String> parametros) {
+        Metricas m = metricasDe(clave);
+        m.latencias.registrarNanos(nanos);
+        if (filas > 0) {
+            m.filas.add(filas);
+        }
+        if (error) {
+            m.errores.increment();
+        }
+        if (umbralLentaNanos > 0 && nanos >= umbralLentaNanos) {
+            lentas.increment();
+            System.err.println(String.format("Consulta lenta [%s] %.1f ms%s: %s%s", clave, nanos / 1e6,
+                    error ? " (con error)" : "", ocultarLiterales(sql),
+                    parametros == null || parametros.isEmpty() ? "" : " | parámetros: " + parametros));
+        }
+    }
+
+    /**
+     * Obtiene el contador de filas de una consulta, al que se suma cada fila leída de sus resultados.
+     *
+     * @param clave La clave de la consulta.
+     * @return El contador de filas.
+     */
+    LongAdder contadorFilas(String clave) {
+        return metricasDe(clave).filas;
+    }
+
+    /**
+     * Obtiene las claves de las consultas ejecutadas alguna vez.
+     *
+     * @return Las claves, en orden alfabético.
+     */
+    public Set<String> getClaves() {
+        return Collections.unmodifiableSet(new TreeSet<>(metricas.keySet()));
+    }
+
+    /**
+     * Obtiene el histograma de duración de las ejecuciones de una consulta.
+     *
+     * @param clave La clave de la consulta.
+     * @return El histograma, o null si la consulta no se ha ejecutado.
+     */
+    public HistogramaLatencias getLatencias(String clave) {
+        Metricas m = metricas.get(clave);
+        return m == null ? null : m.latencias;
+    }
+
+    /**
+     * Obtiene el número de errores de una consulta.
+     *
+     * @param clave La clave de la consulta.
+     * @return Las ejecuciones que fallaron.
+     */
+    public long getErrores(String clave) {
+        Metricas m = metricas.get(clave);
+        return m == null ? 0 : m.errores.sum();
+    }
+
+    /**
+     * Obtiene las filas leídas o modificadas por una consulta.
+     *
+     * @param clave La clave de la consulta.
+     * @return El total de filas.
+     */
+    public long getFilas(String clave) {
+        Metricas m = metricas.get(clave);
+        return m == null ? 0 : m.filas.sum();
+    }
+
+    /**
+     * Obtiene el histograma del tiempo de obtención de las conexiones prestadas.
+     *
+     * @return El histograma de todos los préstamos.
+     */
+    public HistogramaLatencias getAdquisicion() {
+        return adquisicion;
+    }
+
+    /**
+     * Obtiene el número de ejecuciones registradas como lentas.
+     *
+     * @return Las consultas lentas.
+     */
+    public long getConsultasLentas() {
+        return lentas.sum();
+    }
+
+    /**
+     * Pone a cero todas las estadísticas.
+     */
+    public void reiniciar() {
+        metricas.clear();
+        adquisicion.reiniciar();
+        lentas.reset();
+    }
+
+    /**
+     * Resume las estadísticas en una tabla, con las consultas que más tiempo total han ocupado
+     * primero y los tiempos en milisegundos.
+     *
+     * @return El informe de las consultas.
+     */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Obtención de conexiones: ").append(adquisicion).append('\n');
+        sb.append("Consultas lentas (más de ").append(umbralLentaNanos / 1_000_000).append(" ms): ").append(lentas.sum()).append('\n');
+        sb.append(String.format("%-40s %8s %6s %9s %9s %9s %9s %9s %9s %11s%n", "Consulta", "Ejec.", "Error", "Filas",
+                "Media", "p50", "p95", "p99", "Máxima", "Adq. media"));
+
+        List<Map.Entry<String, Metricas>> entradas = new ArrayList<>(metricas.entrySet());
+        entradas.sort(Comparator.comparingDouble((Map.Entry<String, Metricas> e) ->
+                e.getValue().latencias.getMedia() * e.getValue().latencias.getTotal()).reversed());
+        for (Map.Entry<String, Metricas> entrada : entradas) {
+            Metricas m = entrada.getValue();
+            HistogramaLatencias h = m.latencias;
+            sb.append(String.format("%-40s %8d %6d %9d %9.3f %9.3f %9.3f %9.3f %9.3f %11.3f%n", entrada.getKey(),
+                    h.getTotal(), m.errores.sum(), m.filas.sum(), h.getMedia() / 1e3, h.percentil(0.50) / 1e3,
+                    h.percentil(0.95) / 1e3, h.percentil(0.99) / 1e3, h.getMaxima() / 1e3, m.adquisicion.getMedia() / 1e3));
+        }
+        if (entradas.isEmpty()) {
+            sb.append("No se ha ejecutado ninguna consulta.\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene las métricas de una consulta, creándolas la primera vez.
+     *
+     * @param clave La clave de la consulta.
+     * @return Sus métricas.
+     */
+    private Metricas metricasDe(String clave) {
+        return metricas.computeIfAbsent(clave, c -> new Metricas());
+    }
+
+    /**
+     * Sustituye los textos entre comillas del SQL por {@code '?'}, para no escribir datos de los
+     * jugadores en el registro; las consultas de {@code sql.properties} ya usan parámetros.
+     *
+     * @param sql El SQL.
+     * @return El SQL sin textos literales.
+     */
+    private static String ocultarLiterales(String sql) {
+        return sql == null ? "" : LITERALES.matcher(sql).replaceAll("'?'");
+    }
+
+    /**
+     * Métricas acumuladas de una consulta.
+     */
+    private static final class Metricas {
+
+        /**
+         * Duración de las ejecuciones.
+         */
+        private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+        /**
+         * Tiempo de obtención de las conexiones en las que la consulta fue la primera sentencia.
+         */
+        private final HistogramaLatencias adquisicion = new HistogramaLatencias();
+
+        /**
+         * Filas leídas o modificadas.
+         */
+        private final LongAdder filas = new LongAdder();
+
+        /**
+         * Ejecuciones que fallaron.
+         */
+        private final LongAdder errores = new LongAdder();
+    }
+}
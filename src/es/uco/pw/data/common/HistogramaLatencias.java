@@ -0,0 +1,202 @@
+package es.uco.pw.data.common;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en microsegundos que pueden registrar muchos hilos a la vez sin
+ * bloquearse. Cada potencia de dos se divide en 8 intervalos iguales, así que cualquier percentil
+ * se conoce con un error relativo menor del 12,5 % usando una memoria fija, sea cual sea el número
+ * de medidas. Las latencias de más de {@code 2^36} microsegundos (unas 19 horas) se cuentan en el
+ * último intervalo.
+ */
+public final class HistogramaLatencias {
+
+    /**
+     * Bits que dividen cada potencia de dos en intervalos.
+     */
+    private static final int BITS_SUBINTERVALO = 3;
+
+    /**
+     * Intervalos de cada potencia de dos.
+     */
+    private static final int SUBINTERVALOS = 1 << BITS_SUBINTERVALO;
+
+    /**
+     * Mayor potencia de dos que se distingue.
+     */
+    private static final int EXPONENTE_MAXIMO = 36;
+
+    /**
+     * Número total de intervalos.
+     */
+    private static final int NUM_INTERVALOS = (EXPONENTE_MAXIMO - BITS_SUBINTERVALO + 2) * SUBINTERVALOS;
+
+    /**
+     * Medidas de cada intervalo.
+     */
+    private final LongAdder[] intervalos = new LongAdder[NUM_INTERVALOS];
+
+    /**
+     * Número de medidas.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Suma de todas las latencias, en microsegundos.
+     */
+    private final LongAdder suma = new LongAdder();
+
+    /**
+     * Mayor latencia registrada, en microsegundos.
+     */
+    private final LongAccumulator maxima = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Crea un histograma vacío.
+     */
+    public HistogramaLatencias() {
+        for (int i = 0; i < NUM_INTERVALOS; i++) {
+            intervalos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra una latencia medida con {@link System#nanoTime()}.
+     *
+     * @param nanos La latencia, en nanosegundos.
+     */
+    public void registrarNanos(long nanos) {
+        registrar(nanos / 1_000);
+    }
+
+    /**
+     * Registra una latencia.
+     *
+     * @param micros La latencia, en microsegundos. Los valores negativos cuentan como 0.
+     */
+    public void registrar(long micros) {
+        long valor = Math.max(0, micros);
+        intervalos[indice(valor)].increment();
+        total.increment();
+        suma.add(valor);
+        maxima.accumulate(valor);
+    }
+
+    /**
+     * Obtiene el número de medidas.
+     *
+     * @return Las medidas registradas.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Obtiene la latencia media.
+     *
+     * @return La media en microsegundos, o 0 si no hay medidas.
+     */
+    public double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0.0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * Obtiene la mayor latencia registrada.
+     *
+     * @return La latencia máxima, en microsegundos.
+     */
+    public long getMaxima() {
+        return maxima.get();
+    }
+
+    /**
+     * Estima un percentil: devuelve el límite superior del intervalo en el que cae, sin pasar de la
+     * latencia máxima registrada.
+     *
+     * @param fraccion El percentil, entre 0 y 1 (0.99 para el percentil 99).
+     * @return La latencia del percentil en microsegundos, o 0 si no hay medidas.
+     */
+    public long percentil(double fraccion) {
+        long[] cuentas = new long[NUM_INTERVALOS];
+        long n = 0;
+        for (int i = 0; i < NUM_INTERVALOS; i++) {
+            cuentas[i] = intervalos[i].sum();
+            n += cuentas[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, fraccion)) * n));
+        long acumuladas = 0;
+        for (int i = 0; i < NUM_INTERVALOS; i++) {
+            acumuladas += cuentas[i];
+            if (acumuladas >= objetivo) {
+                return Math.min(limiteSuperior(i), maxima.get());
+            }
+        }
+        return maxima.get();
+    }
+
+    /**
+     * Pone el histograma a cero. Las medidas registradas mientras se reinicia pueden perderse.
+     */
+    public void reiniciar() {
+        for (LongAdder intervalo : intervalos) {
+            intervalo.reset();
+        }
+        total.reset();
+        suma.reset();
+        maxima.reset();
+    }
+
+    /**
+     * Resume el histograma en una línea.
+     *
+     * @return El número de medidas, la media, los percentiles 50, 95 y 99 y la máxima, en milisegundos.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d medidas, media %.3f ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, máxima %.3f ms",
+                getTotal(), getMedia() / 1e3, percentil(0.50) / 1e3, percentil(0.95) / 1e3,
+                percentil(0.99) / 1e3, getMaxima() / 1e3);
+    }
+
+    /**
+     * Obtiene el intervalo de una latencia. Los valores menores de 8 tienen un intervalo propio;
+     * el resto se reparten en 8 intervalos por cada potencia de dos.
+     *
+     * @param micros La latencia, en microsegundos.
+     * @return El índice del intervalo.
+     */
+    private static int indice(long micros) {
+        if (micros < SUBINTERVALOS) {
+            return (int) micros;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponente > EXPONENTE_MAXIMO) {
+            return NUM_INTERVALOS - 1;
+        }
+        int subintervalo = (int) ((micros >>> (exponente - BITS_SUBINTERVALO)) & (SUBINTERVALOS - 1));
+        return (exponente - BITS_SUBINTERVALO + 1) * SUBINTERVALOS + subintervalo;
+    }
+
+    /**
+     * Obtiene la mayor latencia que cae en un intervalo.
+     *
+     * @param indice El índice del intervalo.
+     * @return El límite superior del intervalo, en microsegundos.
+     */
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBINTERVALOS) {
+            return indice;
+        }
+        if (indice == NUM_INTERVALOS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponente = indice / SUBINTERVALOS + BITS_SUBINTERVALO - 1;
+        int subintervalo = indice % SUBINTERVALOS;
+        return ((long) (SUBINTERVALOS + subintervalo + 1) << (exponente - BITS_SUBINTERVALO)) - 1;
+    }
+}
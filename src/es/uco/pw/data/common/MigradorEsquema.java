@@ -0,0 +1,328 @@
+package es.uco.pw.data.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Crea y actualiza el esquema de la base de datos a partir de migraciones numeradas cuyas
+ * sentencias están en {@code sql.properties}. La tabla {@code VersionEsquema} guarda las
+ * migraciones aplicadas, de modo que cada ejecución solo aplica las que faltan.
+ * <p>
+ * Cada paso se puede repetir sin efecto: las tablas se crean con {@code IF NOT EXISTS} y un
+ * índice no se crea si la tabla ya tiene otro que empiece por las mismas columnas, aunque se
+ * llame de otra forma. Así una migración interrumpida se completa en la siguiente ejecución y el
+ * migrador se puede lanzar sobre una base de datos creada a mano.
+ * <p>
+ * Uso: {@code java es.uco.pw.data.common.MigradorEsquema}
+ */
+public class MigradorEsquema {
+
+    /**
+     * Sentencia de una migración: crea una tabla o añade un índice.
+     */
+    private static final class Paso {
+
+        /**
+         * Clave de la sentencia en {@code sql.properties}.
+         */
+        private final String clave;
+
+        /**
+         * Tabla del índice, o null si el paso crea una tabla.
+         */
+        private final String tabla;
+
+        /**
+         * Columnas del índice, en orden.
+         */
+        private final List<String> columnas;
+
+        /**
+         * Constructor del paso.
+         *
+         * @param clave    La clave de la sentencia.
+         * @param tabla    La tabla del índice, o null.
+         * @param columnas Las columnas del índice.
+         */
+        private Paso(String clave, String tabla, List<String> columnas) {
+            this.clave = clave;
+            this.tabla = tabla;
+            this.columnas = columnas;
+        }
+
+        /**
+         * Crea un paso que crea una tabla con {@code CREATE TABLE IF NOT EXISTS}.
+         *
+         * @param clave La clave de la sentencia.
+         * @return El paso.
+         */
+        private static Paso tabla(String clave) {
+            return new Paso(clave, null, Collections.emptyList());
+        }
+
+        /**
+         * Crea un paso que añade un índice si la tabla no tiene ya uno equivalente.
+         *
+         * @param clave    La clave de la sentencia.
+         * @param tabla    La tabla del índice.
+         * @param columnas Las columnas del índice, en orden.
+         * @return El paso.
+         */
+        private static Paso indice(String clave, String tabla, String... columnas) {
+            return new Paso(clave, tabla, Arrays.asList(columnas));
+        }
+    }
+
+    /**
+     * Migración numerada del esquema.
+     */
+    private static final class Migracion {
+
+        /**
+         * Número de versión que alcanza el esquema al aplicarla.
+         */
+        private final int version;
+
+        /**
+         * Descripción que se guarda en {@code VersionEsquema}.
+         */
+        private final String descripcion;
+
+        /**
+         * Pasos de la migración, en orden.
+         */
+        private final List<Paso> pasos;
+
+        /**
+         * Constructor de la migración.
+         *
+         * @param version     El número de versión.
+         * @param descripcion La descripción.
+         * @param pasos       Los pasos, en orden.
+         */
+        private Migracion(int version, String descripcion, Paso... pasos) {
+            this.version = version;
+            this.descripcion = descripcion;
+            this.pasos = Arrays.asList(pasos);
+        }
+    }
+
+    /**
+     * Migraciones del esquema, por versión creciente. Una migración publicada no se modifica: los
+     * cambios posteriores van en una versión nueva.
+     */
+    private static final List<Migracion> MIGRACIONES = Arrays.asList(
+            new Migracion(1, "Tablas de jugadores, pistas, materiales, bonos y reservas",
+                    Paso.tabla("crearTablaJugador"),
+                    Paso.tabla("crearTablaPista"),
+                    Paso.tabla("crearTablaMaterial"),
+                    Paso.tabla("crearTablaBono"),
+                    Paso.tabla("crearTablaReserva"),
+                    Paso.tabla("crearTablaReservaFamiliar"),
+                    Paso.tabla("crearTablaReservaAdulto"),
+                    Paso.tabla("crearTablaReservaInfantil")),
+            new Migracion(2, "Índices de las consultas de los DAO",
+                    Paso.indice("crearIndiceJugadorCorreo", "Jugador", "correo"),
+                    Paso.indice("crearIndicePistaNombre", "Pista", "nombre"),
+                    Paso.indice("crearIndiceMaterialPistaTipo", "Material", "idPista", "tipo"),
+                    Paso.indice("crearIndiceBonoJugadorCaducidad", "Bono", "idJugador", "fechaCaducidad"),
+                    Paso.indice("crearIndiceReservaJugadorPistaFecha", "Reserva", "idJugador", "idPista", "fechaHora"),
+                    Paso.indice("crearIndiceReservaPistaFecha", "Reserva", "idPista", "fechaHora"),
+                    Paso.indice("crearIndiceReservaFecha", "Reserva", "fechaHora")),
+            new Migracion(3, "Archivo de reservas pasadas particionado por meses",
+                    Paso.tabla("crearReservaArchivada")));
+
+    /**
+     * Claves de {@code sql.properties} que utiliza el migrador.
+     */
+    public static final List<String> CONSULTAS_REQUERIDAS = consultasRequeridas();
+
+    /**
+     * Registro con las consultas SQL de la aplicación.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
+    /**
+     * Reúne las claves de las sentencias de control y de todos los pasos.
+     *
+     * @return Las claves, sin repetir.
+     */
+    private static List<String> consultasRequeridas() {
+        List<String> claves = new ArrayList<>(Arrays.asList("crearTablaVersionEsquema",
+                "consultarVersionEsquema", "registrarVersionEsquema", "listarIndicesTabla"));
+        for (Migracion migracion : MIGRACIONES) {
+            for (Paso paso : migracion.pasos) {
+                if (!claves.contains(paso.clave)) {
+                    claves.add(paso.clave);
+                }
+            }
+        }
+        return Collections.unmodifiableList(claves);
+    }
+
+    /**
+     * Punto de entrada para migrar el esquema de la base de datos de config.properties a mano.
+     *
+     * @param args Los argumentos de línea de comandos (no utilizados).
+     */
+    public static void main(String[] args) {
+        MigradorEsquema migrador = new MigradorEsquema();
+        int antes = migrador.getVersionActual();
+        int despues = migrador.migrar();
+        System.out.println(antes == despues
+                ? "El esquema ya está en la versión " + despues + "."
+                : "Esquema migrado de la versión " + antes + " a la " + despues + ".");
+    }
+
+    /**
+     * Obtiene la versión en que está el esquema de la base de datos.
+     *
+     * @return La última migración aplicada, o 0 si no se ha aplicado ninguna.
+     * @throws IllegalStateException Si no se puede leer la versión.
+     */
+    public int getVersionActual() {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+        try {
+            return leerVersion(con);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Error al leer la versión del esquema: " + e.getMessage(), e);
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Aplica, en orden, las migraciones posteriores a la versión del esquema. Cada migración se
+     * registra al terminar todos sus pasos; si una falla, las siguientes no se aplican.
+     *
+     * @return La versión en que queda el esquema.
+     * @throws IllegalStateException Si falta alguna sentencia o falla alguna migración.
+     */
+    public int migrar() {
+        consultas.validar(CONSULTAS_REQUERIDAS);
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+        int version = 0;
+        try {
+            version = leerVersion(con);
+            for (Migracion migracion : MIGRACIONES) {
+                if (migracion.version <= version) {
+                    continue;
+                }
+                aplicar(con, migracion);
+                version = migracion.version;
+                System.out.println("Esquema en la versión " + version + ": " + migracion.descripcion + ".");
+            }
+            return version;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Error al migrar el esquema desde la versión " + version + ": " + e.getMessage(), e);
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Crea la tabla de versiones si no existe y lee la última versión aplicada.
+     *
+     * @param con La conexión.
+     * @return La versión del esquema, o 0 si no se ha aplicado ninguna migración.
+     * @throws SQLException Si falla la consulta.
+     */
+    private int leerVersion(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate(consultas.getConsulta("crearTablaVersionEsquema"));
+            try (ResultSet rs = st.executeQuery(consultas.getConsulta("consultarVersionEsquema"))) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Ejecuta los pasos de una migración y la registra en {@code VersionEsquema}. Las sentencias
+     * DDL de MySQL confirman por sí mismas, así que no se agrupan en una transacción.
+     *
+     * @param con       La conexión.
+     * @param migracion La migración.
+     * @throws SQLException Si falla algún paso.
+     */
+    private void aplicar(Connection con, Migracion migracion) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            for (Paso paso : migracion.pasos) {
+                if (paso.tabla != null && existeIndice(con, paso.tabla, paso.columnas)) {
+                    continue;
+                }
+                st.executeUpdate(consultas.getConsulta(paso.clave));
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("registrarVersionEsquema"))) {
+            ps.setInt(1, migracion.version);
+            ps.setString(2, migracion.descripcion);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Comprueba si una tabla tiene un índice cuyas primeras columnas son las indicadas, en el
+     * mismo orden. Ese índice sirve a las mismas consultas, así que no hace falta otro.
+     *
+     * @param con      La conexión.
+     * @param tabla    La tabla.
+     * @param columnas Las columnas buscadas, en orden.
+     * @return true si la tabla ya tiene un índice equivalente; false en caso contrario.
+     * @throws SQLException Si falla la consulta.
+     */
+    private boolean existeIndice(Connection con, String tabla, List<String> columnas) throws SQLException {
+        Map<String, List<String>> indices = new LinkedHashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarIndicesTabla"))) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    indices.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+        for (List<String> existentes : indices.values()) {
+            if (empiezaPor(existentes, columnas)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba si una lista de columnas empieza por otra, sin distinguir mayúsculas.
+     *
+     * @param columnas Las columnas de un índice existente.
+     * @param prefijo  Las columnas buscadas.
+     * @return true si {@code columnas} empieza por {@code prefijo}.
+     */
+    private static boolean empiezaPor(List<String> columnas, List<String> prefijo) {
+        if (columnas.size() < prefijo.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefijo.size(); i++) {
+            if (!columnas.get(i).equalsIgnoreCase(prefijo.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
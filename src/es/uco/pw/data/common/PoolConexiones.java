@@ -0,0 +1,476 @@
+package es.uco.pw.data.common;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones reutilizables con la base de datos.
+ * Mantiene un número mínimo de conexiones abiertas, limita el número máximo de conexiones simultáneas,
+ * cierra las conexiones inactivas, valida cada conexión antes de prestarla y avisa de las conexiones
+ * que llevan demasiado tiempo prestadas, mostrando la pila de llamadas del punto donde se pidieron.
+ * La configuración se toma de {@link Configuracion}.
+ */
+public final class PoolConexiones {
+
+    /**
+     * Driver JDBC utilizado si la configuración no indica otro.
+     */
+    private static final String DRIVER_POR_DEFECTO = "com.mysql.jdbc.Driver";
+
+    /**
+     * Instancia única del pool, creada la primera vez que se pide una conexión.
+     */
+    private static volatile PoolConexiones instancia;
+
+    /**
+     * URL de la base de datos.
+     */
+    private final String url;
+
+    /**
+     * Usuario de la base de datos.
+     */
+    private final String usuario;
+
+    /**
+     * Contraseña de la base de datos.
+     */
+    private final String password;
+
+    /**
+     * Número mínimo de conexiones que se mantienen abiertas.
+     */
+    private final int tamanoMinimo;
+
+    /**
+     * Número máximo de conexiones abiertas a la vez.
+     */
+    private final int tamanoMaximo;
+
+    /**
+     * Tiempo máximo de espera para obtener una conexión, en milisegundos.
+     */
+    private final long esperaMaximaMs;
+
+    /**
+     * Tiempo de inactividad tras el que se cierra una conexión sobrante, en milisegundos.
+     */
+    private final long inactividadMaximaMs;
+
+    /**
+     * Tiempo de inactividad a partir del cual se valida la conexión antes de prestarla, en milisegundos.
+     */
+    private final long validarTrasInactividadMs;
+
+    /**
+     * Tiempo que puede estar prestada una conexión antes de considerarse una posible fuga, en milisegundos.
+     */
+    private final long umbralFugaMs;
+
+    /**
+     * Indica si se guarda la pila de llamadas del punto donde se pide cada conexión.
+     */
+    private final boolean capturarPila;
+
+    /**
+     * Consulta utilizada para comprobar que una conexión sigue viva.
+     */
+    private final String consultaValidacion;
+
+    /**
+     * Número máximo de sentencias preparadas en la caché de cada conexión (0 la desactiva).
+     */
+    private final int tamanoCacheSentencias;
+
+    /**
+     * Indica si se piden al driver sentencias preparadas en el servidor.
+     */
+    private final boolean sentenciasEnServidor;
+
+    /**
+     * Conexiones libres, la más reciente al principio.
+     */
+    private final LinkedBlockingDeque<ConexionAgrupada> inactivas = new LinkedBlockingDeque<>();
+
+    /**
+     * Conexiones prestadas actualmente.
+     */
+    private final Set<ConexionAgrupada> prestadas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Permisos que limitan el número de conexiones prestadas a la vez.
+     */
+    private final Semaphore permisos;
+
+    /**
+     * Número total de conexiones físicas abiertas (libres y prestadas).
+     */
+    private final AtomicInteger totalAbiertas = new AtomicInteger();
+
+    /**
+     * Número de sentencias ejecutadas con las conexiones del pool (idas y vueltas a la base de datos).
+     */
+    private final LongAdder sentenciasEjecutadas = new LongAdder();
+
+    /**
+     * Número de sentencias preparadas que se han reutilizado de la caché de una conexión.
+     */
+    private final LongAdder aciertosCacheSentencias = new LongAdder();
+
+    /**
+     * Número de sentencias preparadas que no estaban en la caché y se han tenido que preparar.
+     */
+    private final LongAdder fallosCacheSentencias = new LongAdder();
+
+    /**
+     * Tarea periódica de mantenimiento (inactividad, mínimo de conexiones y fugas).
+     */
+    private final ScheduledExecutorService mantenimiento;
+
+    /**
+     * Indica si el pool se ha cerrado.
+     */
+    private volatile boolean cerrado = false;
+
+    /**
+     * Constructor privado que crea el pool a partir de las propiedades de configuración.
+     *
+     * @param config Configuración con la conexión y los parámetros del pool.
+     */
+    private PoolConexiones(Configuracion config) {
+        this.url = config.getPropiedad("url");
+        this.usuario = config.getPropiedad("user");
+        this.password = config.getPropiedad("password");
+        this.tamanoMinimo = config.getEntero("pool.tamanoMinimo", 2);
+        this.tamanoMaximo = config.getEntero("pool.tamanoMaximo", 10);
+        this.esperaMaximaMs = config.getLargo("pool.esperaMaximaMs", 10000);
+        this.inactividadMaximaMs = config.getLargo("pool.inactividadMaximaMs", 300000);
+        this.validarTrasInactividadMs = config.getLargo("pool.validarTrasInactividadMs", 1000);
+        this.umbralFugaMs = config.getLargo("pool.umbralFugaMs", 60000);
+        this.capturarPila = config.getBooleano("pool.capturarPila", true);
+        this.consultaValidacion = config.getPropiedad("pool.consultaValidacion", "SELECT 1");
+        this.tamanoCacheSentencias = config.getEntero("pool.tamanoCacheSentencias", 32);
+        this.sentenciasEnServidor = config.getBooleano("pool.sentenciasEnServidor", true);
+        this.permisos = new Semaphore(tamanoMaximo, true);
+
+        if (tamanoMinimo < 0 || tamanoMaximo <= 0 || tamanoMinimo > tamanoMaximo) {
+            throw new IllegalArgumentException("Tamaños de pool no válidos: mínimo " + tamanoMinimo + ", máximo " + tamanoMaximo);
+        }
+
+        String driver = config.getPropiedad("driver", DRIVER_POR_DEFECTO);
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            System.err.println("JDBC Driver not found.");
+            e.printStackTrace();
+        }
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-conexiones-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = config.getLargo("pool.periodoMantenimientoMs", 30000);
+        this.mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "pool-conexiones-cierre"));
+    }
+
+    /**
+     * Obtiene la instancia única del pool, creándola y leyendo la configuración la primera vez.
+     *
+     * @return El pool de conexiones.
+     */
+    public static PoolConexiones getInstancia() {
+        PoolConexiones pool = instancia;
+        if (pool == null) {
+            synchronized (PoolConexiones.class) {
+                pool = instancia;
+                if (pool == null) {
+                    pool = new PoolConexiones(Configuracion.getInstancia());
+                    pool.rellenarMinimo();
+                    instancia = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Presta una conexión del pool. La conexión debe cerrarse con {@link Connection#close()}
+     * para devolverla al pool.
+     *
+     * @return Una conexión válida con la base de datos.
+     * @throws SQLException Si el pool está cerrado, se agota el tiempo de espera o no se puede abrir la conexión.
+     */
+    public Connection prestarConexion() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No hay conexiones libres tras esperar " + esperaMaximaMs + " ms (máximo " + tamanoMaximo + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión.", e);
+        }
+
+        try {
+            ConexionAgrupada conexion = obtenerConexionValida();
+            conexion.marcarPrestada(capturarPila ? new Throwable("Conexión prestada en:") : null);
+            prestadas.add(conexion);
+            long adquisicion = System.nanoTime() - inicio;
+            EstadisticasConsultas.getInstancia().registrarAdquisicion(adquisicion);
+            return conexion.crearVista(this, adquisicion);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtiene una conexión libre que responda a la validación o abre una nueva.
+     *
+     * @return La conexión física lista para prestarse.
+     * @throws SQLException Si no se puede abrir una conexión nueva.
+     */
+    private ConexionAgrupada obtenerConexionValida() throws SQLException {
+        ConexionAgrupada conexion;
+        while ((conexion = inactivas.pollFirst()) != null) {
+            if (conexion.getInactividadMs() < validarTrasInactividadMs || esValida(conexion)) {
+                return conexion;
+            }
+            destruir(conexion);
+        }
+        return abrirConexion();
+    }
+
+    /**
+     * Comprueba que una conexión sigue viva ejecutando la consulta de validación.
+     *
+     * @param conexion La conexión a validar.
+     * @return true si la conexión responde; false en caso contrario.
+     */
+    private boolean esValida(ConexionAgrupada conexion) {
+        try (Statement st = conexion.getFisica().createStatement()) {
+            st.execute(consultaValidacion);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre una nueva conexión física con la base de datos.
+     *
+     * @return La nueva conexión.
+     * @throws SQLException Si la conexión no se puede establecer.
+     */
+    private ConexionAgrupada abrirConexion() throws SQLException {
+        Properties propiedades = new Properties();
+        if (usuario != null) {
+            propiedades.setProperty("user", usuario);
+        }
+        if (password != null) {
+            propiedades.setProperty("password", password);
+        }
+        if (sentenciasEnServidor) {
+            // Las sentencias de la caché se preparan una vez en el servidor y se reutilizan
+            propiedades.setProperty("useServerPrepStmts", "true");
+        }
+        // Un lote de INSERT se envía como un único INSERT de varias filas en lugar de uno por fila;
+        // los IDs generados se siguen devolviendo en el orden de las filas
+        propiedades.setProperty("rewriteBatchedStatements", "true");
+        Connection fisica = DriverManager.getConnection(url, propiedades);
+        totalAbiertas.incrementAndGet();
+        return new ConexionAgrupada(fisica, tamanoCacheSentencias);
+    }
+
+    /**
+     * Devuelve al pool una conexión prestada. Si la conexión ha quedado inservible se cierra.
+     *
+     * @param conexion La conexión devuelta.
+     */
+    void devolver(ConexionAgrupada conexion) {
+        if (!prestadas.remove(conexion)) {
+            return;
+        }
+        try {
+            if (cerrado || !conexion.restablecer()) {
+                destruir(conexion);
+            } else {
+                inactivas.offerFirst(conexion);
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra una conexión física y la descuenta del total.
+     *
+     * @param conexion La conexión a cerrar.
+     */
+    private void destruir(ConexionAgrupada conexion) {
+        totalAbiertas.decrementAndGet();
+        conexion.cerrarFisica();
+    }
+
+    /**
+     * Abre conexiones hasta alcanzar el tamaño mínimo configurado.
+     */
+    private void rellenarMinimo() {
+        while (!cerrado && totalAbiertas.get() < tamanoMinimo) {
+            try {
+                ConexionAgrupada conexion = abrirConexion();
+                conexion.marcarLibre();
+                inactivas.offerLast(conexion);
+            } catch (SQLException e) {
+                System.err.println("Connection to MySQL has failed!");
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tarea periódica: cierra las conexiones sobrantes inactivas, repone el mínimo
+     * y avisa de las conexiones prestadas durante más tiempo del umbral de fuga.
+     */
+    private void mantener() {
+        try {
+            List<ConexionAgrupada> candidatas = new ArrayList<>(inactivas);
+            for (ConexionAgrupada conexion : candidatas) {
+                if (totalAbiertas.get() <= tamanoMinimo) {
+                    break;
+                }
+                if (conexion.getInactividadMs() > inactividadMaximaMs && inactivas.remove(conexion)) {
+                    destruir(conexion);
+                }
+            }
+            rellenarMinimo();
+
+            for (ConexionAgrupada conexion : prestadas) {
+                if (conexion.getTiempoPrestadaMs() > umbralFugaMs && conexion.marcarFugaNotificada()) {
+                    System.err.println("Posible fuga de conexión: lleva " + conexion.getTiempoPrestadaMs() + " ms prestada sin devolverse al pool.");
+                    if (conexion.getPilaPrestamo() != null) {
+                        conexion.getPilaPrestamo().printStackTrace();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres. Las conexiones prestadas se cierran al devolverse.
+     */
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionAgrupada conexion;
+        while ((conexion = inactivas.pollFirst()) != null) {
+            destruir(conexion);
+        }
+    }
+
+    /**
+     * Obtiene el número de conexiones prestadas en este momento.
+     *
+     * @return Número de conexiones prestadas.
+     */
+    public int getConexionesPrestadas() {
+        return prestadas.size();
+    }
+
+    /**
+     * Obtiene el número de conexiones libres en este momento.
+     *
+     * @return Número de conexiones libres.
+     */
+    public int getConexionesInactivas() {
+        return inactivas.size();
+    }
+
+    /**
+     * Obtiene el número total de conexiones físicas abiertas.
+     *
+     * @return Número de conexiones abiertas.
+     */
+    public int getConexionesAbiertas() {
+        return totalAbiertas.get();
+    }
+
+    /**
+     * Contabiliza la ejecución de una sentencia.
+     */
+    void registrarEjecucion() {
+        sentenciasEjecutadas.increment();
+    }
+
+    /**
+     * Obtiene el número de sentencias ejecutadas desde que se creó el pool.
+     *
+     * @return Número de sentencias ejecutadas.
+     */
+    public long getSentenciasEjecutadas() {
+        return sentenciasEjecutadas.sum();
+    }
+
+    /**
+     * Contabiliza una sentencia preparada reutilizada de la caché.
+     */
+    void registrarAciertoCache() {
+        aciertosCacheSentencias.increment();
+    }
+
+    /**
+     * Contabiliza una sentencia preparada que no estaba en la caché.
+     */
+    void registrarFalloCache() {
+        fallosCacheSentencias.increment();
+    }
+
+    /**
+     * Obtiene el número de sentencias preparadas reutilizadas de la caché.
+     *
+     * @return Número de aciertos de la caché de sentencias.
+     */
+    public long getAciertosCacheSentencias() {
+        return aciertosCacheSentencias.sum();
+    }
+
+    /**
+     * Obtiene el número de sentencias preparadas que no estaban en la caché.
+     *
+     * @return Número de fallos de la caché de sentencias.
+     */
+    public long getFallosCacheSentencias() {
+        return fallosCacheSentencias.sum();
+    }
+
+    /**
+     * Obtiene el número máximo de conexiones del pool.
+     *
+     * @return Tamaño máximo del pool.
+     */
+    public int getTamanoMaximo() {
+        return tamanoMaximo;
+    }
+}
@@ -0,0 +1,143 @@
+package es.uco.pw.data.common;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Registro inmutable de las consultas SQL de la aplicación.
+ * El archivo {@code sql.properties} se lee una única vez, la primera vez que se pide el registro,
+ * y todas las instancias de los DAO comparten las mismas consultas, de modo que crear un DAO
+ * no implica leer ningún archivo.
+ */
+public final class RegistroConsultas {
+
+    /**
+     * Nombre del archivo con las consultas SQL.
+     */
+    private static final String ARCHIVO_CONSULTAS = "sql.properties";
+
+    /**
+     * Consultas SQL indexadas por su clave.
+     */
+    private final Map<String, String> consultas;
+
+    /**
+     * Claves de las consultas indexadas por su texto SQL, para identificar las sentencias preparadas.
+     */
+    private final Map<String, String> clavesPorSql;
+
+    /**
+     * Constructor privado que copia las consultas leídas.
+     *
+     * @param prop Las propiedades leídas del archivo de consultas.
+     */
+    private RegistroConsultas(Properties prop) {
+        Map<String, String> mapa = new HashMap<>();
+        Map<String, String> inverso = new HashMap<>();
+        for (String clave : prop.stringPropertyNames()) {
+            String sql = prop.getProperty(clave).trim();
+            mapa.put(clave, sql);
+            inverso.put(sql, clave);
+        }
+        this.consultas = Collections.unmodifiableMap(mapa);
+        this.clavesPorSql = Collections.unmodifiableMap(inverso);
+    }
+
+    /**
+     * Contenedor de la instancia única, que se crea al acceder a él por primera vez.
+     */
+    private static final class Contenedor {
+
+        /**
+         * Instancia única del registro.
+         */
+        private static final RegistroConsultas INSTANCIA = new RegistroConsultas(cargarConsultas());
+    }
+
+    /**
+     * Obtiene el registro de consultas, leyéndolo la primera vez que se pide.
+     *
+     * @return El registro de consultas.
+     */
+    public static RegistroConsultas getInstancia() {
+        return Contenedor.INSTANCIA;
+    }
+
+    /**
+     * Lee el archivo {@code sql.properties}.
+     *
+     * @return Las propiedades leídas, vacías si el archivo no se pudo leer.
+     */
+    private static Properties cargarConsultas() {
+        Properties prop = new Properties();
+        try (InputStream entrada = new FileInputStream(ARCHIVO_CONSULTAS)) {
+            prop.load(entrada);
+        } catch (IOException e) {
+            System.err.println("Error al leer '" + ARCHIVO_CONSULTAS + "'.");
+            e.printStackTrace();
+        }
+        return prop;
+    }
+
+    /**
+     * Obtiene una consulta por su clave.
+     *
+     * @param clave La clave de la consulta en {@code sql.properties}.
+     * @return La consulta SQL.
+     * @throws IllegalStateException Si la consulta no está definida.
+     */
+    public String getConsulta(String clave) {
+        String sql = consultas.get(clave);
+        if (sql == null || sql.isEmpty()) {
+            throw new IllegalStateException("La consulta '" + clave + "' no está definida en " + ARCHIVO_CONSULTAS + ".");
+        }
+        return sql;
+    }
+
+    /**
+     * Obtiene la clave de una consulta a partir de su texto SQL.
+     *
+     * @param sql El texto SQL de la consulta.
+     * @return La clave de la consulta, o null si el texto no corresponde a ninguna consulta registrada.
+     */
+    public String getClave(String sql) {
+        return clavesPorSql.get(sql);
+    }
+
+    /**
+     * Indica si una consulta está definida.
+     *
+     * @param clave La clave de la consulta.
+     * @return true si la consulta existe y no está vacía; false en caso contrario.
+     */
+    public boolean contiene(String clave) {
+        String sql = consultas.get(clave);
+        return sql != null && !sql.isEmpty();
+    }
+
+    /**
+     * Comprueba que todas las consultas indicadas están definidas.
+     *
+     * @param claves Las claves de las consultas que se utilizan.
+     * @throws IllegalStateException Si falta alguna consulta, indicando todas las que faltan.
+     */
+    public void validar(Collection<String> claves) {
+        List<String> ausentes = new ArrayList<>();
+        for (String clave : claves) {
+            if (!contiene(clave)) {
+                ausentes.add(clave);
+            }
+        }
+        if (!ausentes.isEmpty()) {
+            throw new IllegalStateException("Faltan consultas en " + ARCHIVO_CONSULTAS + ": " + ausentes);
+        }
+    }
+}
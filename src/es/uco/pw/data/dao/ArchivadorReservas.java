@@ -0,0 +1,117 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.repositorio.RepositorioReservas;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tarea que archiva las reservas que empezaron hace más de {@code archivo.horizonteDias} días.
+ * Las reservas archivadas salen de las tablas e índices que se recorren al reservar y al
+ * consultar las reservas futuras, de modo que esas operaciones no se hacen más lentas a medida
+ * que se acumula el historial; los informes de ocupación, las consultas por rango de fechas y
+ * los ingresos las siguen incluyendo.
+ * <p>
+ * Se puede lanzar a mano con {@link #archivar()} o programar con {@link #programar()} para que
+ * se repita cada {@code archivo.periodoHoras} horas en un hilo en segundo plano.
+ */
+public class ArchivadorReservas {
+
+    /**
+     * Repositorio cuyas reservas se archivan.
+     */
+    private final RepositorioReservas reservas;
+
+    /**
+     * Días que una reserva pasada permanece entre las activas antes de archivarse.
+     */
+    private final int horizonteDias;
+
+    /**
+     * Horas entre dos archivados programados; 0 para archivar solo a mano.
+     */
+    private final long periodoHoras;
+
+    /**
+     * Hilo que repite el archivado, o null si no se ha programado.
+     */
+    private ScheduledExecutorService programador;
+
+    /**
+     * Constructor del archivador, que lee de la configuración el horizonte y el periodo.
+     *
+     * @param reservas El repositorio de reservas del motor de datos.
+     * @throws IllegalArgumentException Si el horizonte configurado es menor que un día.
+     */
+    public ArchivadorReservas(RepositorioReservas reservas) {
+        Configuracion config = Configuracion.getInstancia();
+        this.reservas = reservas;
+        this.horizonteDias = config.getEntero("archivo.horizonteDias", 365);
+        this.periodoHoras = config.getLargo("archivo.periodoHoras", 24);
+        if (horizonteDias < 1) {
+            throw new IllegalArgumentException("archivo.horizonteDias debe ser al menos 1: " + horizonteDias);
+        }
+    }
+
+    /**
+     * Obtiene el primer día cuyas reservas no se archivan.
+     *
+     * @return El día siguiente al último que se archiva.
+     */
+    public LocalDate getLimite() {
+        return Reloj.hoy().minusDays(horizonteDias);
+    }
+
+    /**
+     * Archiva las reservas que empiezan antes del día límite.
+     *
+     * @return El número de reservas archivadas.
+     * @throws IllegalStateException Si no se pueden archivar las reservas.
+     */
+    public int archivar() {
+        return reservas.archivarReservas(getLimite().atStartOfDay());
+    }
+
+    /**
+     * Programa el archivado para que se repita cada {@code archivo.periodoHoras} horas, empezando
+     * un minuto después, para no competir con la carga inicial. No hace nada si el periodo es 0 o
+     * si ya estaba programado.
+     */
+    public synchronized void programar() {
+        if (periodoHoras <= 0 || programador != null) {
+            return;
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "archivador-reservas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::archivarProgramado, TimeUnit.MINUTES.toMillis(1),
+                TimeUnit.HOURS.toMillis(periodoHoras), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancela el archivado programado, si lo hay.
+     */
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+
+    /**
+     * Ejecución programada del archivado: un fallo se anota y se reintenta en el siguiente periodo.
+     */
+    private void archivarProgramado() {
+        try {
+            archivar();
+        } catch (RuntimeException e) {
+            System.err.println("No se pudieron archivar las reservas anteriores al " + getLimite() + ": " + e.getMessage());
+        }
+    }
+}
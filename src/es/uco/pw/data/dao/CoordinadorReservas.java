@@ -0,0 +1,390 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.data.common.Configuracion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coordinador que serializa, pista a pista, las escrituras de reservas de la aplicación.
+ * Cada pista se asigna a uno de los {@code reservas.cerrojosPistas} cerrojos según su ID, de modo
+ * que las reservas, modificaciones y cancelaciones de una misma pista se hacen de una en una
+ * (comprobar que el horario está libre y guardar pasan a ser un único paso), mientras que las de
+ * pistas con distinto cerrojo avanzan en paralelo. Cuando una operación afecta a varias pistas,
+ * sus cerrojos se toman siempre en orden creciente para que dos operaciones no se bloqueen entre sí.
+ * <p>
+ * Los cerrojos solo coordinan los hilos de este proceso; otra instancia de la aplicación sobre la
+ * misma base de datos no los ve. Para cada pista se lleva la cuenta de cuántas veces se ha
+ * bloqueado, cuántas tuvo que esperar y cuánto tiempo se esperó y se retuvo el cerrojo.
+ */
+public final class CoordinadorReservas {
+
+    /**
+     * Instancia única del coordinador, compartida por todos los DAO de reservas.
+     */
+    private static final CoordinadorReservas INSTANCIA = new CoordinadorReservas();
+
+    /**
+     * Cerrojos entre los que se reparten las pistas.
+     */
+    private final ReentrantLock[] cerrojos;
+
+    /**
+     * Contadores de contención de cada pista, indexados por su ID.
+     */
+    private final Map<Integer, Contadores> contadores = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor privado que lee de la configuración el número de cerrojos.
+     */
+    private CoordinadorReservas() {
+        int numeroCerrojos = Math.max(1, Configuracion.getInstancia().getEntero("reservas.cerrojosPistas", 64));
+        this.cerrojos = new ReentrantLock[numeroCerrojos];
+        for (int i = 0; i < numeroCerrojos; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Obtiene el coordinador de reservas compartido.
+     *
+     * @return El coordinador de reservas.
+     */
+    public static CoordinadorReservas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Bloquea las pistas indicadas hasta que se cierre el bloqueo devuelto, que debe cerrarse en un
+     * bloque finally justo después de obtenerlo (el cuerpo protegido no usa el bloqueo, así que un
+     * try-with-resources daría un aviso de recurso sin usar). Las pistas repetidas o que comparten
+     * cerrojo se bloquean una sola vez.
+     *
+     * @param idsPista Los IDs de las pistas afectadas por la operación.
+     * @return El bloqueo de las pistas.
+     */
+    public Bloqueo bloquear(int... idsPista) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        List<Contadores> afectados = new ArrayList<>();
+        for (int idPista : idsPista) {
+            indices.add(Math.floorMod(idPista, cerrojos.length));
+            Contadores pista = contadores.computeIfAbsent(idPista, id -> new Contadores());
+            if (!afectados.contains(pista)) {
+                afectados.add(pista);
+            }
+        }
+
+        List<ReentrantLock> tomados = new ArrayList<>(indices.size());
+        long inicio = System.nanoTime();
+        boolean huboEspera = false;
+        try {
+            for (int indice : indices) {
+                ReentrantLock cerrojo = cerrojos[indice];
+                if (!cerrojo.tryLock()) {
+                    huboEspera = true;
+                    cerrojo.lock();
+                }
+                tomados.add(cerrojo);
+            }
+        } catch (RuntimeException | Error e) {
+            liberar(tomados);
+            throw e;
+        }
+
+        long bloqueado = System.nanoTime();
+        for (Contadores pista : afectados) {
+            pista.registrarAdquisicion(huboEspera, bloqueado - inicio);
+        }
+        return new Bloqueo(tomados, afectados, bloqueado);
+    }
+
+    /**
+     * Obtiene las estadísticas de contención de las pistas que se han bloqueado alguna vez.
+     *
+     * @return Las estadísticas de cada pista, ordenadas por su ID.
+     */
+    public List<EstadisticasPista> getEstadisticas() {
+        List<EstadisticasPista> estadisticas = new ArrayList<>();
+        for (int idPista : new TreeSet<>(contadores.keySet())) {
+            estadisticas.add(contadores.get(idPista).instantanea(idPista));
+        }
+        return estadisticas;
+    }
+
+    /**
+     * Pone a cero las estadísticas de todas las pistas.
+     */
+    public void reiniciarEstadisticas() {
+        contadores.clear();
+    }
+
+    /**
+     * Obtiene el número de cerrojos entre los que se reparten las pistas.
+     *
+     * @return El número de cerrojos.
+     */
+    public int getNumeroCerrojos() {
+        return cerrojos.length;
+    }
+
+    /**
+     * Libera, en orden inverso, los cerrojos tomados.
+     *
+     * @param tomados Los cerrojos tomados, en el orden en que se tomaron.
+     */
+    private static void liberar(List<ReentrantLock> tomados) {
+        for (int i = tomados.size() - 1; i >= 0; i--) {
+            tomados.get(i).unlock();
+        }
+    }
+
+    /**
+     * Bloqueo de una o varias pistas, que se libera al cerrarlo.
+     */
+    public static final class Bloqueo implements AutoCloseable {
+
+        /**
+         * Cerrojos tomados, en el orden en que se tomaron.
+         */
+        private final List<ReentrantLock> tomados;
+
+        /**
+         * Contadores de las pistas bloqueadas.
+         */
+        private final List<Contadores> pistas;
+
+        /**
+         * Momento en que se obtuvieron todos los cerrojos, en nanosegundos.
+         */
+        private final long inicio;
+
+        /**
+         * Indica si el bloqueo ya se ha liberado.
+         */
+        private boolean cerrado = false;
+
+        /**
+         * Constructor del bloqueo.
+         *
+         * @param tomados Cerrojos tomados.
+         * @param pistas  Contadores de las pistas bloqueadas.
+         * @param inicio  Momento en que se obtuvieron los cerrojos, en nanosegundos.
+         */
+        private Bloqueo(List<ReentrantLock> tomados, List<Contadores> pistas, long inicio) {
+            this.tomados = tomados;
+            this.pistas = pistas;
+            this.inicio = inicio;
+        }
+
+        /**
+         * Libera las pistas y anota cuánto tiempo han estado bloqueadas. Cerrarlo más de una vez no
+         * tiene efecto.
+         */
+        @Override
+        public void close() {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            long retencion = System.nanoTime() - inicio;
+            liberar(tomados);
+            for (Contadores pista : pistas) {
+                pista.retencionNanos.add(retencion);
+            }
+        }
+    }
+
+    /**
+     * Contadores acumulados de una pista, que pueden actualizar varios hilos a la vez.
+     */
+    private static final class Contadores {
+
+        /**
+         * Veces que se ha bloqueado la pista.
+         */
+        private final LongAdder adquisiciones = new LongAdder();
+
+        /**
+         * Veces que el cerrojo estaba ocupado y hubo que esperar.
+         */
+        private final LongAdder esperas = new LongAdder();
+
+        /**
+         * Tiempo total de espera por el cerrojo, en nanosegundos.
+         */
+        private final LongAdder esperaNanos = new LongAdder();
+
+        /**
+         * Mayor espera por el cerrojo, en nanosegundos.
+         */
+        private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Tiempo total con la pista bloqueada, en nanosegundos.
+         */
+        private final LongAdder retencionNanos = new LongAdder();
+
+        /**
+         * Anota que se ha bloqueado la pista.
+         *
+         * @param huboEspera Indica si algún cerrojo estaba ocupado.
+         * @param espera     Tiempo que se tardó en obtener los cerrojos, en nanosegundos.
+         */
+        private void registrarAdquisicion(boolean huboEspera, long espera) {
+            adquisiciones.increment();
+            if (huboEspera) {
+                esperas.increment();
+                esperaNanos.add(espera);
+                esperaMaximaNanos.accumulate(espera);
+            }
+        }
+
+        /**
+         * Copia los valores actuales de los contadores.
+         *
+         * @param idPista El ID de la pista.
+         * @return Las estadísticas de la pista.
+         */
+        private EstadisticasPista instantanea(int idPista) {
+            return new EstadisticasPista(idPista, adquisiciones.sum(), esperas.sum(), esperaNanos.sum(),
+                    esperaMaximaNanos.get(), retencionNanos.sum());
+        }
+    }
+
+    /**
+     * Estadísticas de contención de una pista en un momento dado.
+     */
+    public static final class EstadisticasPista {
+
+        /**
+         * ID de la pista.
+         */
+        private final int idPista;
+
+        /**
+         * Veces que se ha bloqueado la pista.
+         */
+        private final long adquisiciones;
+
+        /**
+         * Veces que hubo que esperar al cerrojo.
+         */
+        private final long esperas;
+
+        /**
+         * Tiempo total de espera, en nanosegundos.
+         */
+        private final long esperaNanos;
+
+        /**
+         * Mayor espera, en nanosegundos.
+         */
+        private final long esperaMaximaNanos;
+
+        /**
+         * Tiempo total con la pista bloqueada, en nanosegundos.
+         */
+        private final long retencionNanos;
+
+        /**
+         * Constructor de las estadísticas.
+         *
+         * @param idPista           ID de la pista.
+         * @param adquisiciones     Veces que se ha bloqueado la pista.
+         * @param esperas           Veces que hubo que esperar.
+         * @param esperaNanos       Tiempo total de espera, en nanosegundos.
+         * @param esperaMaximaNanos Mayor espera, en nanosegundos.
+         * @param retencionNanos    Tiempo total con la pista bloqueada, en nanosegundos.
+         */
+        private EstadisticasPista(int idPista, long adquisiciones, long esperas, long esperaNanos,
+                                  long esperaMaximaNanos, long retencionNanos) {
+            this.idPista = idPista;
+            this.adquisiciones = adquisiciones;
+            this.esperas = esperas;
+            this.esperaNanos = esperaNanos;
+            this.esperaMaximaNanos = esperaMaximaNanos;
+            this.retencionNanos = retencionNanos;
+        }
+
+        /**
+         * Obtiene el ID de la pista.
+         *
+         * @return El ID de la pista.
+         */
+        public int getIdPista() {
+            return idPista;
+        }
+
+        /**
+         * Obtiene las veces que se ha bloqueado la pista.
+         *
+         * @return El número de bloqueos.
+         */
+        public long getAdquisiciones() {
+            return adquisiciones;
+        }
+
+        /**
+         * Obtiene las veces que el cerrojo de la pista estaba ocupado.
+         *
+         * @return El número de esperas.
+         */
+        public long getEsperas() {
+            return esperas;
+        }
+
+        /**
+         * Obtiene el tiempo total de espera por el cerrojo.
+         *
+         * @return La espera total, en nanosegundos.
+         */
+        public long getEsperaNanos() {
+            return esperaNanos;
+        }
+
+        /**
+         * Obtiene la mayor espera por el cerrojo.
+         *
+         * @return La espera máxima, en nanosegundos.
+         */
+        public long getEsperaMaximaNanos() {
+            return esperaMaximaNanos;
+        }
+
+        /**
+         * Obtiene el tiempo total con la pista bloqueada.
+         *
+         * @return La retención total, en nanosegundos.
+         */
+        public long getRetencionNanos() {
+            return retencionNanos;
+        }
+
+        /**
+         * Obtiene la proporción de bloqueos que tuvieron que esperar.
+         *
+         * @return Un valor entre 0 y 1.
+         */
+        public double getTasaContencion() {
+            return adquisiciones == 0 ? 0.0 : (double) esperas / adquisiciones;
+        }
+
+        /**
+         * Resume las estadísticas en una línea, con los tiempos en milisegundos.
+         *
+         * @return El resumen de la pista.
+         */
+        @Override
+        public String toString() {
+            return String.format("Pista %d: %d bloqueos, %d esperas (%.1f%%), espera total %.3f ms, máxima %.3f ms, retenida %.3f ms",
+                    idPista, adquisiciones, esperas, getTasaContencion() * 100,
+                    esperaNanos / 1e6, esperaMaximaNanos / 1e6, retencionNanos / 1e6);
+        }
+    }
+}
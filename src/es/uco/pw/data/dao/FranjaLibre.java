@@ -0,0 +1,95 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.common.FormatosFecha;
+import es.uco.pw.business.pista.PistaDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Horario libre encontrado por {@link ReservasDAO#buscarFranjasLibres}: una pista, una hora de
+ * inicio y una duración que se pueden reservar tal cual.
+ */
+public final class FranjaLibre {
+
+    /**
+     * Pista libre.
+     */
+    private final PistaDTO pista;
+
+    /**
+     * Fecha y hora de inicio de la franja.
+     */
+    private final LocalDateTime fechaHora;
+
+    /**
+     * Duración de la franja, en minutos.
+     */
+    private final int duracionMinutos;
+
+    /**
+     * Precio de la franja, sin descuentos.
+     */
+    private final float precio;
+
+    /**
+     * Constructor de la franja.
+     *
+     * @param pista           La pista libre.
+     * @param fechaHora       La fecha y hora de inicio.
+     * @param duracionMinutos La duración, en minutos.
+     * @param precio          El precio sin descuentos.
+     */
+    FranjaLibre(PistaDTO pista, LocalDateTime fechaHora, int duracionMinutos, float precio) {
+        this.pista = pista;
+        this.fechaHora = fechaHora;
+        this.duracionMinutos = duracionMinutos;
+        this.precio = precio;
+    }
+
+    /**
+     * Obtiene la pista libre.
+     *
+     * @return La pista.
+     */
+    public PistaDTO getPista() {
+        return pista;
+    }
+
+    /**
+     * Obtiene la fecha y hora de inicio de la franja.
+     *
+     * @return La fecha y hora de inicio.
+     */
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+
+    /**
+     * Obtiene la duración de la franja.
+     *
+     * @return La duración, en minutos.
+     */
+    public int getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
+    /**
+     * Obtiene el precio de la franja, sin descuentos.
+     *
+     * @return El precio.
+     */
+    public float getPrecio() {
+        return precio;
+    }
+
+    /**
+     * Devuelve la franja en una línea.
+     *
+     * @return Cadena con la hora, la pista, la duración y el precio.
+     */
+    @Override
+    public String toString() {
+        return FormatosFecha.FECHA_HORA.format(fechaHora) + " - Pista " + pista.getIdPista()
+                + " (" + pista.getNombrePista() + "), " + duracionMinutos + " minutos, " + precio + " €";
+    }
+}
@@ -0,0 +1,508 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.data.cache.MapaOcupacion;
+import es.uco.pw.data.repositorio.GrupoOcupacion;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ocupación de las pistas creada por {@link ReservasDAO#generarInformeOcupacion}: para cada pista,
+ * día y bloque de 30 minutos entre las 9:00 y las 22:30, los minutos que estuvo reservada. A
+ * partir de ella se obtienen la ocupación media de cada pista, de cada tamaño de pista y de cada
+ * franja horaria, se exporta a CSV y se dibuja un mapa de calor para la consola.
+ * <p>
+ * Los bloques son los de {@link MapaOcupacion}, pero aquí cuentan los minutos reservados y no solo
+ * si el bloque está tocado, de modo que una reserva de 10:15 a 11:15 ocupa medio bloque de las
+ * 10:00, el de las 10:30 entero y medio de las 11:00.
+ */
+public final class InformeOcupacion {
+
+    /**
+     * Caracteres del mapa de calor, de libre a ocupado por completo.
+     */
+    private static final String NIVELES = " .:-=+*#%@";
+
+    /**
+     * Minuto del día en que empieza el primer bloque, las 9:00.
+     */
+    private static final int MINUTO_APERTURA = 9 * 60;
+
+    /**
+     * Minutos de cada bloque.
+     */
+    private static final int MINUTOS_BLOQUE = MapaOcupacion.MINUTOS_BLOQUE;
+
+    /**
+     * Bloques de cada día.
+     */
+    private static final int BLOQUES = MapaOcupacion.BLOQUES_POR_DIA;
+
+    /**
+     * Idioma de los nombres de los días de la semana.
+     */
+    private static final Locale IDIOMA = new Locale("es", "ES");
+
+    /**
+     * Ocupación de un bloque con tres decimales para cada número de minutos reservados. Junto con
+     * {@link #HORAS} se calcula una sola vez para no formatear números en cada fila del CSV.
+     */
+    private static final String[] TEXTO_FRACCION = new String[MINUTOS_BLOQUE + 1];
+
+    /**
+     * Hora de inicio de cada bloque, como {@code HH:mm}.
+     */
+    private static final String[] HORAS = new String[BLOQUES];
+
+    static {
+        for (int b = 0; b < BLOQUES; b++) {
+            int minuto = MINUTO_APERTURA + b * MINUTOS_BLOQUE;
+            HORAS[b] = String.format("%02d:%02d", minuto / 60, minuto % 60);
+        }
+        for (int m = 0; m <= MINUTOS_BLOQUE; m++) {
+            TEXTO_FRACCION[m] = String.format(Locale.ROOT, "%.3f", fraccion(m, 1));
+        }
+    }
+
+    /**
+     * Primer día del informe.
+     */
+    private final LocalDate primerDia;
+
+    /**
+     * Número de días del informe.
+     */
+    private final int dias;
+
+    /**
+     * Pistas del informe, ordenadas por ID.
+     */
+    private final List<PistaDTO> pistas;
+
+    /**
+     * Posición de cada pista en {@link #pistas}, indexada por su ID.
+     */
+    private final Map<Integer, Integer> posiciones = new HashMap<>();
+
+    /**
+     * Minutos reservados de cada pista, por día y bloque: el bloque {@code b} del día {@code d}
+     * está en la posición {@code d * BLOQUES + b}.
+     */
+    private final int[][] minutos;
+
+    /**
+     * Reservas contadas en el informe.
+     */
+    private long reservas = 0;
+
+    /**
+     * Reservas de pistas que ya no existen, que no se cuentan.
+     */
+    private long reservasSinPista = 0;
+
+    /**
+     * Crea un informe vacío.
+     *
+     * @param primerDia El primer día del informe.
+     * @param dias      El número de días.
+     * @param pistas    Las pistas del informe.
+     */
+    InformeOcupacion(LocalDate primerDia, int dias, List<PistaDTO> pistas) {
+        this.primerDia = primerDia;
+        this.dias = dias;
+        this.pistas = new ArrayList<>(pistas);
+        this.pistas.sort(Comparator.comparingInt(PistaDTO::getIdPista));
+        this.minutos = new int[this.pistas.size()][dias * BLOQUES];
+        for (int i = 0; i < this.pistas.size(); i++) {
+            posiciones.put(this.pistas.get(i).getIdPista(), i);
+        }
+    }
+
+    /**
+     * Suma al informe un grupo de reservas, repartiendo sus minutos entre los bloques que cubren.
+     * Los minutos fuera del horario de los bloques no se cuentan.
+     *
+     * @param grupo El grupo de reservas.
+     */
+    void acumular(GrupoOcupacion grupo) {
+        Integer posicion = posiciones.get(grupo.getIdPista());
+        if (posicion == null) {
+            reservasSinPista += grupo.getReservas();
+            return;
+        }
+        long dia = grupo.getDia().toEpochDay() - primerDia.toEpochDay();
+        if (dia < 0 || dia >= dias) {
+            return;
+        }
+        reservas += grupo.getReservas();
+
+        int inicio = grupo.getMinutoInicio() - MINUTO_APERTURA;
+        int fin = inicio + grupo.getDuracionMinutos();
+        int[] minutosPista = minutos[posicion];
+        int base = (int) dia * BLOQUES;
+        int ultimo = Math.min(BLOQUES - 1, Math.floorDiv(fin - 1, MINUTOS_BLOQUE));
+        for (int bloque = Math.max(0, Math.floorDiv(inicio, MINUTOS_BLOQUE)); bloque <= ultimo; bloque++) {
+            int solape = Math.min(fin, (bloque + 1) * MINUTOS_BLOQUE) - Math.max(inicio, bloque * MINUTOS_BLOQUE);
+            minutosPista[base + bloque] += solape * grupo.getReservas();
+        }
+    }
+
+    /**
+     * Obtiene el primer día del informe.
+     *
+     * @return El primer día.
+     */
+    public LocalDate getPrimerDia() {
+        return primerDia;
+    }
+
+    /**
+     * Obtiene el número de días del informe.
+     *
+     * @return Los días, contando el primero y el último.
+     */
+    public int getDias() {
+        return dias;
+    }
+
+    /**
+     * Obtiene las pistas del informe.
+     *
+     * @return Las pistas, ordenadas por ID.
+     */
+    public List<PistaDTO> getPistas() {
+        return new ArrayList<>(pistas);
+    }
+
+    /**
+     * Obtiene el número de reservas contadas.
+     *
+     * @return Las reservas del intervalo en pistas existentes.
+     */
+    public long getReservas() {
+        return reservas;
+    }
+
+    /**
+     * Obtiene el número de reservas de pistas que ya no existen, que no se han contado.
+     *
+     * @return Las reservas sin pista.
+     */
+    public long getReservasSinPista() {
+        return reservasSinPista;
+    }
+
+    /**
+     * Obtiene la ocupación de un bloque de una pista.
+     *
+     * @param idPista El ID de la pista.
+     * @param dia     El día.
+     * @param bloque  El bloque, de 0 (9:00) a {@code MapaOcupacion.BLOQUES_POR_DIA - 1} (22:00).
+     * @return La fracción del bloque reservada, entre 0 y 1.
+     * @throws IllegalArgumentException Si la pista, el día o el bloque no están en el informe.
+     */
+    public double getOcupacion(int idPista, LocalDate dia, int bloque) {
+        long d = dia.toEpochDay() - primerDia.toEpochDay();
+        if (d < 0 || d >= dias || bloque < 0 || bloque >= BLOQUES) {
+            throw new IllegalArgumentException("El día o el bloque están fuera del informe.");
+        }
+        return fraccion(minutos[posicion(idPista)][(int) d * BLOQUES + bloque], 1);
+    }
+
+    /**
+     * Obtiene la ocupación media de una pista en todo el intervalo.
+     *
+     * @param idPista El ID de la pista.
+     * @return La fracción de su horario reservada, entre 0 y 1.
+     * @throws IllegalArgumentException Si la pista no está en el informe.
+     */
+    public double getOcupacionPista(int idPista) {
+        long total = 0;
+        for (int m : minutos[posicion(idPista)]) {
+            total += m;
+        }
+        return fraccion(total, (long) dias * BLOQUES);
+    }
+
+    /**
+     * Obtiene la ocupación media de las pistas de cada tamaño.
+     *
+     * @return La fracción del horario reservada, para cada tamaño con alguna pista.
+     */
+    public Map<TamanoPista, Double> getOcupacionPorTamano() {
+        Map<TamanoPista, Double> ocupacion = new EnumMap<>(TamanoPista.class);
+        for (TamanoPista tamano : TamanoPista.values()) {
+            if (contarPistas(tamano) > 0) {
+                double suma = 0;
+                for (double valor : getOcupacionPorBloque(tamano)) {
+                    suma += valor;
+                }
+                ocupacion.put(tamano, suma / BLOQUES);
+            }
+        }
+        return ocupacion;
+    }
+
+    /**
+     * Obtiene la ocupación media de cada franja horaria a lo largo del intervalo.
+     *
+     * @param tamano El tamaño de las pistas que se cuentan, o null para contarlas todas.
+     * @return Para cada bloque del día, la fracción reservada entre 0 y 1.
+     */
+    public double[] getOcupacionPorBloque(TamanoPista tamano) {
+        long[] suma = new long[BLOQUES];
+        int contadas = 0;
+        for (int i = 0; i < pistas.size(); i++) {
+            if (tamano == null || pistas.get(i).getPista() == tamano) {
+                contadas++;
+                sumarPorBloque(minutos[i], suma, null);
+            }
+        }
+        double[] ocupacion = new double[BLOQUES];
+        for (int b = 0; b < BLOQUES; b++) {
+            ocupacion[b] = fraccion(suma[b], (long) contadas * dias);
+        }
+        return ocupacion;
+    }
+
+    /**
+     * Escribe la ocupación en formato CSV, con una fila por pista, día y bloque y los decimales
+     * con punto.
+     *
+     * @param salida Donde se escribe el CSV.
+     * @throws IOException Si no se puede escribir.
+     */
+    public void escribirCsv(Appendable salida) throws IOException {
+        salida.append("idPista,pista,tamano,fecha,hora,minutosOcupados,ocupacion\n");
+        StringBuilder fila = new StringBuilder(96);
+        for (int i = 0; i < pistas.size(); i++) {
+            PistaDTO pista = pistas.get(i);
+            String comunes = pista.getIdPista() + "," + textoCsv(pista.getNombrePista()) + "," + pista.getPista() + ",";
+            for (int d = 0; d < dias; d++) {
+                String fecha = primerDia.plusDays(d).toString();
+                for (int b = 0; b < BLOQUES; b++) {
+                    int m = minutos[i][d * BLOQUES + b];
+                    fila.setLength(0);
+                    fila.append(comunes).append(fecha).append(',').append(horaBloque(b)).append(',').append(m).append(',')
+                        .append(TEXTO_FRACCION[Math.min(m, MINUTOS_BLOQUE)]).append('\n');
+                    salida.append(fila);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dibuja la ocupación media por franja horaria de cada pista, de cada tamaño de pista y de
+     * cada día de la semana, con un carácter más denso cuanto más ocupada está la franja.
+     *
+     * @return El mapa de calor, listo para imprimirlo en la consola.
+     */
+    public String mapaDeCalor() {
+        List<String> etiquetas = new ArrayList<>();
+        List<double[]> filas = new ArrayList<>();
+        List<Double> medias = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Ocupación del %s al %s (%d días, %d reservas)%n", primerDia,
+                primerDia.plusDays(dias - 1L), dias, reservas));
+        sb.append("Escala, de libre a completa: '").append(NIVELES).append("'\n");
+
+        for (int i = 0; i < pistas.size(); i++) {
+            PistaDTO pista = pistas.get(i);
+            long[] suma = new long[BLOQUES];
+            sumarPorBloque(minutos[i], suma, null);
+            etiquetas.add(pista.getNombrePista() + " (" + pista.getPista() + ")");
+            filas.add(fracciones(suma, dias));
+            medias.add(getOcupacionPista(pista.getIdPista()));
+        }
+        dibujar(sb, "Por pista", etiquetas, filas, medias);
+
+        etiquetas.clear();
+        filas.clear();
+        medias.clear();
+        for (Map.Entry<TamanoPista, Double> entrada : getOcupacionPorTamano().entrySet()) {
+            etiquetas.add(entrada.getKey().toString());
+            filas.add(getOcupacionPorBloque(entrada.getKey()));
+            medias.add(entrada.getValue());
+        }
+        dibujar(sb, "Por tamaño de pista", etiquetas, filas, medias);
+
+        etiquetas.clear();
+        filas.clear();
+        medias.clear();
+        for (DayOfWeek diaSemana : DayOfWeek.values()) {
+            long[] suma = new long[BLOQUES];
+            for (int[] minutosPista : minutos) {
+                sumarPorBloque(minutosPista, suma, diaSemana);
+            }
+            long veces = (long) contarDias(diaSemana) * pistas.size();
+            double[] fila = fracciones(suma, veces);
+            double media = 0;
+            for (double valor : fila) {
+                media += valor;
+            }
+            etiquetas.add(diaSemana.getDisplayName(TextStyle.FULL, IDIOMA));
+            filas.add(fila);
+            medias.add(media / BLOQUES);
+        }
+        dibujar(sb, "Por día de la semana", etiquetas, filas, medias);
+        if (reservasSinPista > 0) {
+            sb.append(reservasSinPista).append(" reservas de pistas que ya no existen no se han contado.\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene la hora a la que empieza un bloque.
+     *
+     * @param bloque El bloque.
+     * @return La hora, como {@code HH:mm}.
+     */
+    public static String horaBloque(int bloque) {
+        return HORAS[bloque];
+    }
+
+    /**
+     * Añade al mapa de calor una tabla con una fila por elemento y una columna de dos caracteres
+     * por bloque, encabezada por las horas en punto.
+     *
+     * @param sb        El texto en construcción.
+     * @param titulo    El título de la tabla.
+     * @param etiquetas El nombre de cada fila.
+     * @param filas     La ocupación de cada bloque de cada fila.
+     * @param medias    La ocupación media de cada fila.
+     */
+    private static void dibujar(StringBuilder sb, String titulo, List<String> etiquetas, List<double[]> filas, List<Double> medias) {
+        int ancho = titulo.length();
+        for (String etiqueta : etiquetas) {
+            ancho = Math.max(ancho, etiqueta.length());
+        }
+        sb.append('\n').append(String.format("%-" + ancho + "s ", titulo));
+        for (int b = 0; b < BLOQUES; b += 2) {
+            sb.append(String.format("%-4s", horaBloque(b).substring(0, 2)));
+        }
+        sb.append('\n');
+        for (int i = 0; i < etiquetas.size(); i++) {
+            sb.append(String.format("%-" + ancho + "s ", etiquetas.get(i)));
+            for (double valor : filas.get(i)) {
+                char nivel = NIVELES.charAt((int) Math.ceil(valor * (NIVELES.length() - 1)));
+                sb.append(nivel).append(nivel);
+            }
+            sb.append(String.format(" %5.1f %%%n", medias.get(i) * 100));
+        }
+    }
+
+    /**
+     * Suma los minutos de cada bloque de una pista a lo largo de los días.
+     *
+     * @param minutosPista Los minutos de la pista, por día y bloque.
+     * @param suma         Las sumas de cada bloque, que se incrementan.
+     * @param diaSemana    El día de la semana que se suma, o null para sumar todos los días.
+     */
+    private void sumarPorBloque(int[] minutosPista, long[] suma, DayOfWeek diaSemana) {
+        int primero = primerDia.getDayOfWeek().getValue() - 1;
+        for (int d = 0; d < dias; d++) {
+            if (diaSemana != null && (primero + d) % 7 != diaSemana.getValue() - 1) {
+                continue;
+            }
+            int base = d * BLOQUES;
+            for (int b = 0; b < BLOQUES; b++) {
+                suma[b] += minutosPista[base + b];
+            }
+        }
+    }
+
+    /**
+     * Cuenta los días del informe que caen en un día de la semana.
+     *
+     * @param diaSemana El día de la semana.
+     * @return Las veces que aparece en el intervalo.
+     */
+    private int contarDias(DayOfWeek diaSemana) {
+        int desfase = Math.floorMod(diaSemana.getValue() - primerDia.getDayOfWeek().getValue(), 7);
+        return desfase >= dias ? 0 : (dias - desfase + 6) / 7;
+    }
+
+    /**
+     * Cuenta las pistas de un tamaño.
+     *
+     * @param tamano El tamaño.
+     * @return El número de pistas del informe con ese tamaño.
+     */
+    private int contarPistas(TamanoPista tamano) {
+        int contadas = 0;
+        for (PistaDTO pista : pistas) {
+            if (pista.getPista() == tamano) {
+                contadas++;
+            }
+        }
+        return contadas;
+    }
+
+    /**
+     * Convierte las sumas de minutos de cada bloque en fracciones de ocupación.
+     *
+     * @param suma    Los minutos reservados de cada bloque.
+     * @param bloques Las veces que se ha sumado cada bloque.
+     * @return La fracción reservada de cada bloque.
+     */
+    private static double[] fracciones(long[] suma, long bloques) {
+        double[] resultado = new double[suma.length];
+        for (int b = 0; b < suma.length; b++) {
+            resultado[b] = fraccion(suma[b], bloques);
+        }
+        return resultado;
+    }
+
+    /**
+     * Calcula la fracción reservada de varios bloques.
+     *
+     * @param minutosReservados Los minutos reservados.
+     * @param bloques           El número de bloques.
+     * @return La fracción, entre 0 y 1, o 0 si no hay bloques.
+     */
+    private static double fraccion(long minutosReservados, long bloques) {
+        return bloques == 0 ? 0.0 : Math.min(1.0, (double) minutosReservados / (bloques * MINUTOS_BLOQUE));
+    }
+
+    /**
+     * Obtiene la posición de una pista en el informe.
+     *
+     * @param idPista El ID de la pista.
+     * @return Su posición.
+     * @throws IllegalArgumentException Si la pista no está en el informe.
+     */
+    private int posicion(int idPista) {
+        Integer posicion = posiciones.get(idPista);
+        if (posicion == null) {
+            throw new IllegalArgumentException("La pista " + idPista + " no está en el informe.");
+        }
+        return posicion;
+    }
+
+    /**
+     * Escribe un texto como campo CSV, entre comillas si contiene comas, comillas o saltos de línea.
+     *
+     * @param texto El texto.
+     * @return El campo CSV.
+     */
+    private static String textoCsv(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
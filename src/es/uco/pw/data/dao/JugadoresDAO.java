@@ -1,11 +1,14 @@
 package es.uco.pw.data.dao;
 
-import java.util.Date;
-import java.io.*;
 import java.sql.*;
-import java.text.SimpleDateFormat;
-import java.util.Properties;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import es.uco.pw.data.cache.CacheJugadores;
 import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.business.common.Reloj;
 import es.uco.pw.business.jugador.JugadorDTO;
 
 
@@ -14,31 +17,37 @@ import es.uco.pw.business.jugador.JugadorDTO;
  * alta, baja, modificación, y almacenamiento de jugadores.
  * Implementa el patrón Singleton para garantizar una única instancia del gestor.
  */
-public class JugadoresDAO {
+public class JugadoresDAO implements RepositorioJugadores {
 
     /**
-     * Conexión activa con la base de datos.
+     * Claves de {@code sql.properties} que utiliza este DAO, comprobadas al arrancar la aplicación.
      */
-    private Connection con;
+    public static final List<String> CONSULTAS_REQUERIDAS = List.of(
+            "actualizarFechaInscripcion",
+            "actualizarInfo",
+            "altaJugador",
+            "buscarJugadorInscritoPorCorreo",
+            "buscarJugadorPorId",
+            "consultaExistenciaPorCorreo",
+            "desactivarCuenta",
+            "listarJugadoresActivos",
+            "reactivarCuenta",
+            "verificarCorreo");
+
+    /**
+     * Registro compartido con las consultas SQL.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
     /**
-     * Propiedades que contienen las consultas SQL cargadas desde el archivo `sql.properties`.
+     * Caché compartida de jugadores por correo e ID.
      */
-    private Properties prop;
+    private final CacheJugadores cacheJugadores = CacheJugadores.getInstancia();
 
     /**
-     * Constructor que carga las propiedades SQL desde el archivo `sql.properties`.
+     * Constructor del DAO. Las consultas se toman del registro compartido, por lo que no lee ningún archivo.
      */
     public JugadoresDAO() {
-        prop = new Properties();
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("sql.properties"));
-            prop.load(reader);
-            reader.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
     }
 
     /**
@@ -47,11 +56,12 @@ public class JugadoresDAO {
      * @param nuevoJugador El nuevo jugador a registrar.
      * @return Mensaje indicando el resultado de la operación.
      */
+    @Override
     public String altaJugador(JugadorDTO nuevoJugador) {
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
         try {
-            PreparedStatement psExistencia = (PreparedStatement) con.prepareStatement(prop.getProperty("consultaExistenciaPorCorreo"));
+            PreparedStatement psExistencia = con.prepareStatement(consultas.getConsulta("consultaExistenciaPorCorreo"));
             psExistencia.setString(1, nuevoJugador.getCorreoElectronico());
             ResultSet rs = psExistencia.executeQuery();
 
@@ -60,18 +70,18 @@ public class JugadoresDAO {
                 if (cuentaActiva) {
                     return "Error: El correo ya está registrado y en uso";
                 } else {
-                    PreparedStatement psReactivar = (PreparedStatement) con.prepareStatement(prop.getProperty("reactivarCuenta"));
+                    PreparedStatement psReactivar = con.prepareStatement(consultas.getConsulta("reactivarCuenta"));
                     psReactivar.setString(1, nuevoJugador.getNombreApellidos());
-                    psReactivar.setDate(2, new java.sql.Date(nuevoJugador.getFechaNacimiento().getTime()));
+                    psReactivar.setDate(2, java.sql.Date.valueOf(nuevoJugador.getFechaNacimiento()));
                     psReactivar.setNull(3, java.sql.Types.DATE); // Fecha de inscripción como NULL
                     psReactivar.setString(4, nuevoJugador.getCorreoElectronico());
                     psReactivar.executeUpdate();
                     return "Cuenta reactivada y datos actualizados con éxito";
                 }
             } else {
-                PreparedStatement psAlta = (PreparedStatement) con.prepareStatement(prop.getProperty("altaJugador"));
+                PreparedStatement psAlta = con.prepareStatement(consultas.getConsulta("altaJugador"));
                 psAlta.setString(1, nuevoJugador.getNombreApellidos());
-                psAlta.setDate(2, new java.sql.Date(nuevoJugador.getFechaNacimiento().getTime()));
+                psAlta.setDate(2, java.sql.Date.valueOf(nuevoJugador.getFechaNacimiento()));
                 psAlta.setNull(3, java.sql.Types.DATE); // Fecha de inscripción como NULL
                 psAlta.setString(4, nuevoJugador.getCorreoElectronico());
                 int cuentaActivaValor = nuevoJugador.isCuentaActiva() ? 1 : 0;
@@ -83,6 +93,7 @@ public class JugadoresDAO {
             e.printStackTrace();
             return "Error en la Base de Datos: " + e.getMessage();
         } finally {
+            cacheJugadores.invalidar(nuevoJugador.getCorreoElectronico());
             if (con != null) {
                 try {
                     con.close();
@@ -99,11 +110,12 @@ public class JugadoresDAO {
      * @param correoElectronico El correo del jugador a dar de baja.
      * @return Mensaje indicando el resultado de la operación.
      */
+    @Override
     public String bajaJugador(String correoElectronico) {
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
         try {
-            PreparedStatement psExistencia = (PreparedStatement) con.prepareStatement(prop.getProperty("consultaExistenciaPorCorreo"));
+            PreparedStatement psExistencia = con.prepareStatement(consultas.getConsulta("consultaExistenciaPorCorreo"));
             psExistencia.setString(1, correoElectronico);
             ResultSet rs = psExistencia.executeQuery();
 
@@ -112,7 +124,7 @@ public class JugadoresDAO {
                 if (!cuentaActiva) {
                     return "Error: El jugador ya está dado de baja";
                 } else {
-                    PreparedStatement psBaja = (PreparedStatement) con.prepareStatement(prop.getProperty("desactivarCuenta"));
+                    PreparedStatement psBaja = con.prepareStatement(consultas.getConsulta("desactivarCuenta"));
                     psBaja.setString(1, correoElectronico);
                     int filasActualizadas = psBaja.executeUpdate();
                     if (filasActualizadas > 0) {
@@ -128,6 +140,7 @@ public class JugadoresDAO {
             e.printStackTrace();
             return "Error en la Base de Datos: " + e.getMessage();
         } finally {
+            cacheJugadores.invalidar(correoElectronico);
             try {
                 if (con != null) con.close();
             } catch (SQLException e) {
@@ -145,11 +158,12 @@ public class JugadoresDAO {
      * @param nuevoCorreo           Nuevo correo del jugador.
      * @return Mensaje indicando el resultado de la operación.
      */
-    public String modificarJugador(String correoElectronico, String nuevoNombre, Date nuevaFechaNacimiento, String nuevoCorreo) {
+    @Override
+    public String modificarJugador(String correoElectronico, String nuevoNombre, LocalDate nuevaFechaNacimiento, String nuevoCorreo) {
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
         try {
-            PreparedStatement psExistencia = (PreparedStatement) con.prepareStatement(prop.getProperty("consultaExistenciaPorCorreo"));
+            PreparedStatement psExistencia = con.prepareStatement(consultas.getConsulta("consultaExistenciaPorCorreo"));
             psExistencia.setString(1, correoElectronico);
             ResultSet rs = psExistencia.executeQuery();
 
@@ -162,7 +176,7 @@ public class JugadoresDAO {
                 }
             }
 
-            PreparedStatement psVerificarCorreo = (PreparedStatement) con.prepareStatement(prop.getProperty("verificarCorreo"));
+            PreparedStatement psVerificarCorreo = con.prepareStatement(consultas.getConsulta("verificarCorreo"));
             psVerificarCorreo.setString(1, nuevoCorreo);
             psVerificarCorreo.setString(2, correoElectronico);
             ResultSet rsCorreo = psVerificarCorreo.executeQuery();
@@ -171,9 +185,9 @@ public class JugadoresDAO {
                 return "Error: El nuevo correo ya está en uso por otro jugador.";
             }
 
-            PreparedStatement psModificar = (PreparedStatement) con.prepareStatement(prop.getProperty("actualizarInfo"));
+            PreparedStatement psModificar = con.prepareStatement(consultas.getConsulta("actualizarInfo"));
             psModificar.setString(1, nuevoNombre);
-            psModificar.setDate(2, new java.sql.Date(nuevaFechaNacimiento.getTime()));
+            psModificar.setDate(2, java.sql.Date.valueOf(nuevaFechaNacimiento));
             psModificar.setString(3, nuevoCorreo);
             psModificar.setString(4, correoElectronico);
 
@@ -187,6 +201,8 @@ public class JugadoresDAO {
             e.printStackTrace();
             return "Error en la Base de Datos: " + e.getMessage();
         } finally {
+            cacheJugadores.invalidar(correoElectronico);
+            cacheJugadores.invalidar(nuevoCorreo);
             try {
                 if (con != null) con.close();
             } catch (SQLException e) {
@@ -196,39 +212,35 @@ public class JugadoresDAO {
     }
 
     /**
-     * Lista todos los jugadores activos en el sistema.
+     * Obtiene una página de jugadores activos, ordenados por ID, a partir del ID dado.
+     * La consulta solo lee las columnas del jugador y como mucho una página de filas.
      *
-     * @return Cadena con la lista de jugadores activos o un mensaje si no hay jugadores activos.
+     * @param despuesDeId  ID del último jugador de la página anterior, o 0 para la primera página.
+     * @param tamanoPagina Número máximo de jugadores de la página.
+     * @return Los jugadores activos de la página.
+     * @throws IllegalArgumentException Si el tamaño de página no es positivo.
+     * @throws IllegalStateException Si ocurre un error en la base de datos.
      */
-    public String listarJugadores() {
+    @Override
+    public List<JugadorDTO> listarJugadoresActivos(int despuesDeId, int tamanoPagina) {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo.");
+        }
+        List<JugadorDTO> pagina = new ArrayList<>();
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
-        StringBuilder resultado = new StringBuilder("Listando jugadores activos:\n");
-        boolean hayJugadoresActivos = false;
+        Connection con = connection.getConnection();
 
-        try {
-            PreparedStatement ps = (PreparedStatement) con.prepareStatement("SELECT * FROM Jugador WHERE cuentaActiva = 1");
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                hayJugadoresActivos = true;
-                resultado.append("ID: ").append(rs.getInt("idJugador")).append("\n")
-                         .append("Nombre: ").append(rs.getString("nombreApellidos")).append("\n")
-                         .append("Fecha de Nacimiento: ").append(new SimpleDateFormat("dd/MM/yyyy").format(rs.getDate("fechaNacimiento"))).append("\n")
-                         .append("Fecha de Inscripción: ").append(rs.getDate("fechaInscripcion") != null ?
-                             new SimpleDateFormat("dd/MM/yyyy").format(rs.getDate("fechaInscripcion")) : "No inscrito").append("\n")
-                         .append("Correo Electrónico: ").append(rs.getString("correo")).append("\n")
-                         .append("----------------------------------\n");
-            }
-
-            if (!hayJugadoresActivos) {
-                return "No hay jugadores activos en la base de datos.";
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarJugadoresActivos"))) {
+            ps.setInt(1, despuesDeId);
+            ps.setInt(2, tamanoPagina);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    pagina.add(leerJugador(rs));
+                }
             }
-
-            return resultado.toString();
         } catch (SQLException e) {
             e.printStackTrace();
-            return "Error en la Base de Datos: " + e.getMessage();
+            throw new IllegalStateException("Error en la Base de Datos: " + e.getMessage(), e);
         } finally {
             try {
                 if (con != null) con.close();
@@ -236,31 +248,34 @@ public class JugadoresDAO {
                 e.printStackTrace();
             }
         }
+        return pagina;
     }
 
     /**
-     * Busca un jugador en la base de datos por su ID.
+     * Busca un jugador por su ID, primero en la caché y, si no está, en la base de datos.
      *
      * @param idJugador El ID del jugador a buscar.
      * @return Un objeto JugadorDTO con los datos del jugador si se encuentra, o null si no existe.
      */
+    @Override
     public JugadorDTO buscarJugadorPorId(int idJugador) {
+        JugadorDTO enCache = cacheJugadores.buscarPorId(idJugador);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        long generacion = cacheJugadores.getGeneracion();
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
 
         try {
-            PreparedStatement ps = (PreparedStatement) con.prepareStatement(prop.getProperty("buscarJugadorPorId"));
+            PreparedStatement ps = con.prepareStatement(consultas.getConsulta("buscarJugadorPorId"));
             ps.setInt(1, idJugador);
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
-                JugadorDTO jugador = new JugadorDTO();
-                jugador.setIdJugador(rs.getInt("idJugador"));
-                jugador.setNombreApellidos(rs.getString("nombreApellidos"));
-                jugador.setFechaNacimiento(rs.getDate("fechaNacimiento"));
-                jugador.setFechaInscripcion(rs.getDate("fechaInscripcion"));
-                jugador.setCorreoElectronico(rs.getString("correo"));
-                jugador.setCuentaActiva(rs.getInt("cuentaActiva") == 1);
+                JugadorDTO jugador = leerJugador(rs);
+                cacheJugadores.guardar(jugador, generacion);
                 return jugador;
             }
         } catch (SQLException e) {
@@ -276,30 +291,34 @@ public class JugadoresDAO {
     }
 
     /**
-     * Busca un jugador en la base de datos por su correo electrónico.
+     * Busca un jugador por su correo electrónico. Los jugadores encontrados y los correos que no
+     * existen se recuerdan en la caché, de modo que repetir la búsqueda no consulta la base de datos.
      *
      * @param correoElectronico El correo electrónico del jugador a buscar.
      * @return Un objeto JugadorDTO con los datos del jugador si se encuentra, o null si no existe.
      */
+    @Override
     public JugadorDTO buscarJugadorPorCorreo(String correoElectronico) {
+        CacheJugadores.Busqueda busqueda = cacheJugadores.buscarPorCorreo(correoElectronico);
+        if (busqueda.isResuelta()) {
+            return busqueda.getJugador();
+        }
+
+        long generacion = cacheJugadores.getGeneracion();
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
 
         try {
-            PreparedStatement ps = (PreparedStatement) con.prepareStatement(prop.getProperty("buscarJugadorInscritoPorCorreo"));
+            PreparedStatement ps = con.prepareStatement(consultas.getConsulta("buscarJugadorInscritoPorCorreo"));
             ps.setString(1, correoElectronico);
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
-                JugadorDTO jugador = new JugadorDTO();
-                jugador.setIdJugador(rs.getInt("idJugador"));
-                jugador.setNombreApellidos(rs.getString("nombreApellidos"));
-                jugador.setFechaNacimiento(rs.getDate("fechaNacimiento"));
-                jugador.setFechaInscripcion(rs.getDate("fechaInscripcion"));
-                jugador.setCorreoElectronico(rs.getString("correo"));
-                jugador.setCuentaActiva(rs.getInt("cuentaActiva") == 1);
+                JugadorDTO jugador = leerJugador(rs);
+                cacheJugadores.guardar(jugador, generacion);
                 return jugador;
             }
+            cacheJugadores.guardarDesconocido(correoElectronico, generacion);
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -311,6 +330,34 @@ public class JugadoresDAO {
         }
         return null;
     }
+
+    /**
+     * Construye un jugador a partir de la fila actual de una consulta de jugadores.
+     *
+     * @param rs El ResultSet posicionado en la fila del jugador.
+     * @return El jugador leído.
+     * @throws SQLException Si falta alguna columna.
+     */
+    private JugadorDTO leerJugador(ResultSet rs) throws SQLException {
+        JugadorDTO jugador = new JugadorDTO();
+        jugador.setIdJugador(rs.getInt("idJugador"));
+        jugador.setNombreApellidos(rs.getString("nombreApellidos"));
+        jugador.setFechaNacimiento(rs.getDate("fechaNacimiento").toLocalDate());
+        java.sql.Date fechaInscripcion = rs.getDate("fechaInscripcion");
+        jugador.setFechaInscripcion(fechaInscripcion != null ? fechaInscripcion.toLocalDate() : null);
+        jugador.setCorreoElectronico(rs.getString("correo"));
+        jugador.setCuentaActiva(rs.getInt("cuentaActiva") == 1);
+        return jugador;
+    }
+
+    /**
+     * Olvida lo que la caché sabe de un jugador, tras modificarlo dentro de otra transacción.
+     *
+     * @param correoElectronico El correo del jugador modificado.
+     */
+    void invalidarJugador(String correoElectronico) {
+        cacheJugadores.invalidar(correoElectronico);
+    }
     
 	/**
 	 * Actualiza la fecha de inscripción de un jugador en la base de datos.
@@ -318,19 +365,18 @@ public class JugadoresDAO {
 	 * @param correoElectronico El correo del jugador cuya fecha de inscripción se actualizará.
 	 * @return Mensaje indicando el resultado de la operación.
 	 */
+    @Override
     public String actualizarFechaInscripcion(String correoElectronico) {
         DBConnection connection = new DBConnection();
-        con = (Connection) connection.getConnection();
+        Connection con = connection.getConnection();
         try {
-            PreparedStatement psActualizarFecha = (PreparedStatement) con.prepareStatement(prop.getProperty("actualizarFechaInscripcion"));
-            psActualizarFecha.setDate(1, new java.sql.Date(new Date().getTime()));
-            psActualizarFecha.setString(2, correoElectronico);
-            psActualizarFecha.executeUpdate();
+            actualizarFechaInscripcion(con, correoElectronico);
             return "Fecha de inscripción actualizada con éxito.";
         } catch (SQLException e) {
             e.printStackTrace();
             return "Error en la Base de Datos: " + e.getMessage();
         } finally {
+            cacheJugadores.invalidar(correoElectronico);
             if (con != null) {
                 try {
                     con.close();
@@ -340,4 +386,21 @@ public class JugadoresDAO {
             }
         }
     }
+
+    /**
+     * Actualiza la fecha de inscripción de un jugador con una conexión ya abierta, de modo que
+     * la actualización forme parte de la transacción de quien la llama. Quien llama debe invocar
+     * {@link #invalidarJugador(String)} cuando termine la transacción.
+     *
+     * @param con               La conexión con la base de datos.
+     * @param correoElectronico El correo del jugador cuya fecha de inscripción se actualizará.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    void actualizarFechaInscripcion(Connection con, String correoElectronico) throws SQLException {
+        try (PreparedStatement psActualizarFecha = con.prepareStatement(consultas.getConsulta("actualizarFechaInscripcion"))) {
+            psActualizarFecha.setDate(1, java.sql.Date.valueOf(Reloj.hoy()));
+            psActualizarFecha.setString(2, correoElectronico);
+            psActualizarFecha.executeUpdate();
+        }
+    }
 }
@@ -6,45 +6,55 @@ import es.uco.pw.business.material.MaterialDTO;
 import es.uco.pw.business.material.TipoMaterial;
 import es.uco.pw.business.pista.PistaDTO;
 import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.data.cache.CachePistas;
 import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.metricas.MetricasReservas;
+import es.uco.pw.data.metricas.MetricasReservas.Operacion;
+import es.uco.pw.data.repositorio.RepositorioPistas;
 import java.util.*;
-import java.io.*;
 import java.sql.*;
 
 /**
  * Clase que gestiona las pistas y materiales del sistema.
  * Implementa el patrón Singleton para asegurar que solo haya una instancia de esta clase.
  */
-public class PistasDAO {
+public class PistasDAO implements RepositorioPistas {
 
-	
-	/**
-	 * Conexión actual con la base de datos.
-	 */
-    private java.sql.Connection con;
 
-	/**
-	 * Propiedades con las consultas SQL necesarias para el funcionamiento del DAO.
-	 */
-	private Properties prop;
+    /**
+     * Consultas de pistas y materiales que deben existir en {@code sql.properties}.
+     */
+    public static final List<String> CONSULTAS_REQUERIDAS = List.of(
+            "asociarMaterialAPista",
+            "buscarMaterialPorId",
+            "buscarPistaPorNombre",
+            "contarMaterialesPorTipo",
+            "crearMaterial",
+            "crearPista",
+            "listarCatalogoPistas",
+            "obtenerEstadoMaterial",
+            "reservarMaterial");
+
+    /**
+     * Registro compartido con las consultas SQL.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
+    /**
+     * Caché compartida del catálogo de pistas, de la que se sirven todas las lecturas de pistas.
+     */
+    private final CachePistas cachePistas = CachePistas.getInstancia();
+
+    /**
+     * Registro en el que se anotan las llamadas y los tiempos de las operaciones con materiales.
+     */
+    private final MetricasReservas metricas = MetricasReservas.getInstancia();
 
     /**
-     * Constructor privado para evitar la instanciación directa.
-     * Inicializa las listas de pistas y materiales y carga las rutas de los ficheros.
+     * Constructor vacío: las consultas de pistas y materiales se obtienen de {@link RegistroConsultas}.
      */
     public PistasDAO() {
-        prop = new Properties();
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("sql.properties"));
-            prop.load(reader);
-            reader.close();
-        } catch (FileNotFoundException e) {
-            System.err.println("Archivo 'sql.properties' no encontrado.");
-            e.printStackTrace();
-        } catch (IOException e) {
-            System.err.println("Error al leer 'sql.properties'.");
-            e.printStackTrace();
-        }
     }
 
     /**
@@ -57,14 +67,15 @@ public class PistasDAO {
      * @param maxJugadores Número máximo de jugadores en la pista.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
+    @Override
     public void crearPista(String nombre, boolean disponible, boolean exterior, TamanoPista pista, int maxJugadores) throws SQLException {
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
         PistaDTO pistaE = buscarPistaPorNombre(nombre);
         if (pistaE != null) {
             throw new IllegalArgumentException("Ya existe una pista con el nombre especificado.");
         }
-        String sql = prop.getProperty("crearPista");
+        String sql = consultas.getConsulta("crearPista");
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
         try {
             PreparedStatement ps = con.prepareStatement(sql);
             ps.setString(1, nombre);
@@ -76,6 +87,7 @@ public class PistasDAO {
             ps.close();
         } finally {
             conexion.closeConnection();
+            cachePistas.invalidar();
         }
     }
 
@@ -88,62 +100,33 @@ public class PistasDAO {
      * @param estado       Estado del nuevo material.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
+    @Override
     public void crearMaterial(int idMaterial, TipoMaterial tipo, boolean usoExterior, EstadoMaterial estado) throws SQLException {
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        MaterialDTO materialExistente = buscarMaterialPorId(idMaterial);
-        if (materialExistente != null) {
-            throw new IllegalArgumentException("Ya existe un material con el ID especificado.");
-        }
-        String sql = "INSERT INTO Material (idMaterial, tipo, usoExterior, estado) VALUES (?, ?, ?, ?)";
+        long inicio = System.nanoTime();
+        boolean creado = false;
         try {
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setInt(1, idMaterial);
-            ps.setString(2, tipo.name());
-            ps.setBoolean(3, usoExterior);
-            ps.setString(4, estado.name());
-            ps.executeUpdate();
-            ps.close();
+            MaterialDTO materialExistente = buscarMaterialPorId(idMaterial);
+            if (materialExistente != null) {
+                throw new IllegalArgumentException("Ya existe un material con el ID especificado.");
+            }
+            String sql = consultas.getConsulta("crearMaterial");
+            DBConnection conexion = new DBConnection();
+            Connection con = conexion.getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setInt(1, idMaterial);
+                ps.setString(2, tipo.name());
+                ps.setBoolean(3, usoExterior);
+                ps.setString(4, estado.name());
+                ps.executeUpdate();
+                ps.close();
+                creado = true;
+            } finally {
+                conexion.closeConnection();
+                cachePistas.invalidar();
+            }
         } finally {
-            conexion.closeConnection();
-        }
-    }
-
-    /**
-     * Excepción personalizada para indicar que un elemento no fue encontrado.
-     */
-    public class ElementoNoEncontradoException extends Exception {
-    	/**
-    	 * Identificador para la serialización de la clase.
-    	 */
-        private static final long serialVersionUID = 1L;
-
-        /**
-         * Constructor que acepta un mensaje.
-         * 
-         * @param message Mensaje de la excepción.
-         */
-        public ElementoNoEncontradoException(String message) {
-            super(message);
-        }
-    }
-
-    /**
-     * Excepción personalizada para errores en la asociación de materiales.
-     */
-    public class AsociacionMaterialException extends Exception {
-    	/**
-    	 * Identificador para la serialización de la clase.
-    	 */
-        private static final long serialVersionUID = 1L;
-
-        /**
-         * Constructor que acepta un mensaje.
-         * 
-         * @param message Mensaje de la excepción.
-         */
-        public AsociacionMaterialException(String message) {
-            super(message);
+            metricas.registrar(Operacion.CREACION_MATERIAL, inicio, creado);
         }
     }
 
@@ -158,18 +141,43 @@ public class PistasDAO {
  *   *  @throws AsociacionMaterialException Si la pista no está disponible, el material no está en buen estado, 
  *   *          el material ya está reservado, o si no se cumplen las condiciones para la asociación.
      */
+    @Override
     public boolean asociarMaterialAPista(String nombrePista, int idMaterial) throws SQLException, ElementoNoEncontradoException, AsociacionMaterialException {
+        long inicio = System.nanoTime();
+        boolean asociado = false;
         DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
+        Connection con = conexion.getConnection();
+        try {
+            asociado = asociarMaterialAPista(con, nombrePista, idMaterial);
+            return asociado;
+        } finally {
+            conexion.closeConnection();
+            cachePistas.invalidar();
+            metricas.registrar(Operacion.ASOCIACION_MATERIAL, inicio, asociado);
+        }
+    }
+
+    /**
+     * Asocia un material a una pista disponible utilizando la conexión indicada.
+     *
+     * @param con         La conexión con la base de datos.
+     * @param nombrePista El nombre de la pista a la que se quiere asociar el material.
+     * @param idMaterial  El ID del material a asociar.
+     * @return {@code true} si la asociación se realizó con éxito.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws ElementoNoEncontradoException Si la pista o el material no se encuentran en la base de datos.
+     * @throws AsociacionMaterialException Si no se cumplen las condiciones para la asociación.
+     */
+    private boolean asociarMaterialAPista(Connection con, String nombrePista, int idMaterial) throws SQLException, ElementoNoEncontradoException, AsociacionMaterialException {
         
         // Consulta para buscar la pista por nombre
-        String buscarPistaPorNombre = prop.getProperty("buscarPistaPorNombre");
+        String buscarPistaPorNombre = consultas.getConsulta("buscarPistaPorNombre");
         // Consulta para obtener el estado del material
-        String obtenerEstadoMaterial = "SELECT idMaterial, tipo, usoExterior, estado FROM Material WHERE idMaterial = ?";
+        String obtenerEstadoMaterial = consultas.getConsulta("obtenerEstadoMaterial");
         // Consulta para asociar el material a la pista
-        String asociarMaterialAPista = prop.getProperty("asociarMaterialAPista");
+        String asociarMaterialAPista = consultas.getConsulta("asociarMaterialAPista");
         // Consulta para actualizar el estado del material
-        String actualizarEstadoMaterial = "UPDATE Material SET estado = 'RESERVADO' WHERE idMaterial = ?";
+        String actualizarEstadoMaterial = consultas.getConsulta("reservarMaterial");
 
         // Buscar la pista por nombre primero y verificar disponibilidad
         try (PreparedStatement psBuscar = con.prepareStatement(buscarPistaPorNombre)) {
@@ -210,7 +218,7 @@ public class PistasDAO {
                 }
 
                 // Verificar el número de materiales ya asociados a la pista
-                String verificarMateriales = "SELECT tipo, COUNT(*) AS cantidad FROM Material WHERE idPista = ? GROUP BY tipo";
+                String verificarMateriales = consultas.getConsulta("contarMaterialesPorTipo");
                 try (PreparedStatement psVerificar = con.prepareStatement(verificarMateriales)) {
                     psVerificar.setInt(1, idPista);
                     ResultSet rsVerificar = psVerificar.executeQuery();
@@ -272,8 +280,8 @@ public class PistasDAO {
      */
     private PistaDTO buscarPistaPorNombre(String nombrePista) throws SQLException {
         DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        String sql = prop.getProperty("buscarPistaPorNombre");
+        Connection con = conexion.getConnection();
+        String sql = consultas.getConsulta("buscarPistaPorNombre");
         try (PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, nombrePista);
             try (ResultSet rs = ps.executeQuery()) {
@@ -285,6 +293,8 @@ public class PistasDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
         }
         return null;
     }
@@ -298,8 +308,8 @@ public class PistasDAO {
      */
     private MaterialDTO buscarMaterialPorId(int idMaterial) throws SQLException {
         DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        String sql = prop.getProperty("buscarMaterialPorId");
+        Connection con = conexion.getConnection();
+        String sql = consultas.getConsulta("buscarMaterialPorId");
         try (PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, idMaterial);
             try (ResultSet rs = ps.executeQuery()) {
@@ -310,72 +320,57 @@ public class PistasDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
         }
         return null;
     }
 
     /**
-     * Método para buscar todas las pistas disponibles.
-     * 
-     * @return Lista de pistas disponibles.
-     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * Obtiene el catálogo de pistas de la caché, cargándolo con una única consulta si no hay una
+     * instantánea vigente. Solo un hilo carga el catálogo a la vez; el resto espera y reutiliza la carga.
+     *
+     * @return El catálogo de pistas, o null si no se pudo cargar.
      */
-    public List<PistaDTO> buscarPistasDisponibles() throws SQLException {
-        List<PistaDTO> pistas = new ArrayList<>();
-        DBConnection conexion = new DBConnection();
-        this.con = (java.sql.Connection) conexion.getConnection();
-        if (this.con == null) {
-            System.err.println("Error: No se pudo obtener la conexión a la base de datos.");
-            return pistas;
+    private CachePistas.Catalogo obtenerCatalogo() {
+        CachePistas.Catalogo catalogo = cachePistas.obtener();
+        if (catalogo != null) {
+            return catalogo;
         }
-        if (this.prop == null) {
-            System.err.println("Error: Las propiedades 'prop' no están inicializadas.");
-            return pistas;
-        }
-        String sql = prop.getProperty("buscarPistasDisponibles");
-        if (sql == null || sql.isEmpty()) {
-            System.err.println("Error: La consulta SQL para 'buscarPistasDisponibles' no está definida o está vacía.");
-            return pistas;
-        }
-        try (PreparedStatement ps = this.con.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                pistas.add(new PistaDTO(
-                    rs.getString("nombre"),
-                    rs.getBoolean("disponible"),
-                    rs.getBoolean("exterior"),
-                    TamanoPista.valueOf(rs.getString("tamanoPista")),
-                    rs.getInt("maxJugadores")
-                ));
+        synchronized (cachePistas) {
+            catalogo = cachePistas.getVigente();
+            if (catalogo != null) {
+                return catalogo;
             }
-        } catch (SQLException e) {
-            System.err.println("Error al ejecutar la consulta de pistas disponibles.");
-            e.printStackTrace();
+            long version = cachePistas.getVersion();
+            List<PistaDTO> pistas = cargarCatalogo();
+            return pistas == null ? null : cachePistas.publicar(version, pistas);
         }
-        return pistas;
     }
 
     /**
-     * Método para listar todas las pistas no disponibles.
-     * 
-     * @return Lista de pistas no disponibles.
-     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * Carga todas las pistas con sus materiales de la base de datos.
+     *
+     * @return Las pistas ordenadas por ID, o null si se produce un error.
      */
-    public List<PistaDTO> listarPistasNoDisponibles() throws SQLException {
-        List<PistaDTO> pistas = new ArrayList<>();
+    private List<PistaDTO> cargarCatalogo() {
         DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        String sql = prop.getProperty("listarPistasNoDisponibles");
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            System.err.println("Error: No se pudo obtener la conexión a la base de datos.");
+            return null;
+        }
+        String sql = consultas.getConsulta("listarCatalogoPistas");
         try (PreparedStatement ps = con.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
-            Map<Integer, PistaDTO> mapaPistas = new HashMap<>();
+            Map<Integer, PistaDTO> mapaPistas = new LinkedHashMap<>();
             while (rs.next()) {
                 int idPista = rs.getInt("idPista");
-                String nombrePista = rs.getString("nombre");
-                if (!mapaPistas.containsKey(idPista)) {
-                    PistaDTO pista = new PistaDTO(
+                PistaDTO pista = mapaPistas.get(idPista);
+                if (pista == null) {
+                    pista = new PistaDTO(
                         idPista,
-                        nombrePista,
+                        rs.getString("nombre"),
                         rs.getBoolean("disponible"),
                         rs.getBoolean("exterior"),
                         TamanoPista.valueOf(rs.getString("tamanoPista")),
@@ -383,23 +378,69 @@ public class PistasDAO {
                     );
                     mapaPistas.put(idPista, pista);
                 }
-                PistaDTO pista = mapaPistas.get(idPista);
                 int idMaterial = rs.getInt("idMaterial");
                 if (idMaterial != 0) {
-                    TipoMaterial tipo = TipoMaterial.valueOf(rs.getString("tipo"));
+                    TipoMaterial tipo = TipoMaterial.valueOf(rs.getString("tipoMaterial"));
                     EstadoMaterial estado = EstadoMaterial.valueOf(rs.getString("estado"));
-                    MaterialDTO material = new MaterialDTO(
-                        idMaterial,
-                        tipo,
-                        rs.getBoolean("usoExterior"),
-                        estado
-                    );
-                    pista.getMateriales().add(material);
+                    pista.getMateriales().add(new MaterialDTO(idMaterial, tipo, rs.getBoolean("usoExterior"), estado));
                 }
             }
-            pistas.addAll(mapaPistas.values());
+            return new ArrayList<>(mapaPistas.values());
         } catch (SQLException e) {
+            System.err.println("Error al cargar el catálogo de pistas.");
             e.printStackTrace();
+            return null;
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Invalida el catálogo de pistas en memoria, para que la siguiente lectura lo cargue de nuevo.
+     * Solo es necesario si las pistas o los materiales se modifican fuera de este DAO.
+     */
+    public void invalidarCatalogo() {
+        cachePistas.invalidar();
+    }
+
+    /**
+     * Método para buscar todas las pistas disponibles.
+     * 
+     * @return Lista de pistas disponibles.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    @Override
+    public List<PistaDTO> buscarPistasDisponibles() throws SQLException {
+        List<PistaDTO> pistas = new ArrayList<>();
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        if (catalogo == null) {
+            return pistas;
+        }
+        for (PistaDTO pista : catalogo.getPistas()) {
+            if (pista.isDisponible()) {
+                pistas.add(pista);
+            }
+        }
+        return pistas;
+    }
+
+    /**
+     * Método para listar todas las pistas no disponibles.
+     * 
+     * @return Lista de pistas no disponibles.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    @Override
+    public List<PistaDTO> listarPistasNoDisponibles() throws SQLException {
+        List<PistaDTO> pistas = new ArrayList<>();
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        if (catalogo == null) {
+            return pistas;
+        }
+        for (PistaDTO pista : catalogo.getPistas()) {
+            if (!pista.isDisponible()) {
+                pistas.add(pista);
+            }
         }
         return pistas;
     }
@@ -412,57 +453,18 @@ public class PistasDAO {
      * @return Lista de pistas disponibles que cumplen con los criterios dados.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
+    @Override
     public List<PistaDTO> buscarPistasDisponibles(int numJugadores, TamanoPista tipoPista) throws SQLException {
         List<PistaDTO> pistasFiltradas = new ArrayList<>();
-        Map<Integer, PistaDTO> mapaPistas = new HashMap<>();
-        DBConnection conexion = new DBConnection();
-        this.con = conexion.getConnection();
-        if (this.con == null) {
-            System.err.println("Error: No se pudo obtener la conexión a la base de datos.");
-            return pistasFiltradas;
-        }
-        if (this.prop == null) {
-            System.err.println("Error: Las propiedades 'prop' no están inicializadas.");
-            return pistasFiltradas;
-        }
-        String sql = this.prop.getProperty("buscarPistasDisponibles");
-        if (sql == null || sql.isEmpty()) {
-            System.err.println("Error: La consulta SQL para 'buscarPistasDisponibles' no está definida o está vacía.");
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        if (catalogo == null) {
             return pistasFiltradas;
         }
-        try (PreparedStatement ps = this.con.prepareStatement(sql)) {
-            ps.setInt(1, numJugadores);
-            ps.setString(2, tipoPista.name());
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int idPista = rs.getInt("idPista");
-                    if (!mapaPistas.containsKey(idPista)) {
-                        PistaDTO pista = new PistaDTO(
-                            rs.getString("nombre"),
-                            rs.getBoolean("disponible"),
-                            rs.getBoolean("exterior"),
-                            TamanoPista.valueOf(rs.getString("tamanoPista")),
-                            rs.getInt("maxJugadores")
-                        );
-                        pista.setIdPista(idPista);
-                        mapaPistas.put(idPista, pista);
-                    }
-                    PistaDTO pista = mapaPistas.get(idPista);
-                    int idMaterial = rs.getInt("idMaterial");
-                    if (idMaterial != 0) {
-                        TipoMaterial tipo = TipoMaterial.valueOf(rs.getString("tipoMaterial"));
-                        boolean usoExterior = rs.getBoolean("usoExterior");
-                        EstadoMaterial estado = EstadoMaterial.valueOf(rs.getString("estado"));
-                        MaterialDTO material = new MaterialDTO(idMaterial, tipo, usoExterior, estado);
-                        pista.getMateriales().add(material);
-                    }
-                }
+        for (PistaDTO pista : catalogo.getPistas(tipoPista)) {
+            if (pista.isDisponible() && pista.getMax_jugadores() >= numJugadores) {
+                pistasFiltradas.add(pista);
             }
-        } catch (SQLException e) {
-            System.err.println("Error al ejecutar la consulta de pistas disponibles.");
-            e.printStackTrace();
         }
-        pistasFiltradas.addAll(mapaPistas.values());
         return pistasFiltradas;
     }
 
@@ -474,69 +476,22 @@ public class PistasDAO {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      * @throws IllegalArgumentException Si el tipo de reserva no es válido.
      */
+    @Override
     public List<PistaDTO> listarPistasDisponibles(String tipoReserva) throws SQLException {
+        // Tamaños de pista admitidos según el tipo de reserva
+        List<TamanoPista> tamanos = RepositorioPistas.tamanosAdmitidos(tipoReserva);
+
         List<PistaDTO> pistas = new ArrayList<>();
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        
-        String sql = prop.getProperty("listarPistasDisponibles");
-        if (sql == null || sql.isEmpty()) {
-            System.err.println("Error: La consulta SQL para 'listarPistasDisponibles' no está definida o está vacía.");
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        if (catalogo == null) {
             return pistas;
         }
-        
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            // Configurar el tipo de pista según el tipo de reserva
-            switch (tipoReserva.toLowerCase()) {
-                case "infantil":
-                    ps.setString(1, "MINIBASKET");
-                    ps.setString(2, "MINIBASKET"); // Para mantener la consulta con dos parámetros
-                    break;
-                case "familiar":
-                    ps.setString(1, "MINIBASKET");
-                    ps.setString(2, "_3VS3");
-                    break;
-                case "adulto":
-                    ps.setString(1, "ADULTOS");
-                    ps.setString(2, "ADULTOS"); // Para mantener la consulta con dos parámetros
-                    break;
-                default:
-                    throw new IllegalArgumentException("Tipo de reserva no válido: " + tipoReserva);
-            }
-
-            try (ResultSet rs = ps.executeQuery()) {
-                Map<Integer, PistaDTO> mapaPistas = new HashMap<>();
-                while (rs.next()) {
-                    int idPista = rs.getInt("idPista");
-                    if (!mapaPistas.containsKey(idPista)) {
-                        PistaDTO pista = new PistaDTO(
-                            idPista,
-                            rs.getString("nombre"),
-                            rs.getBoolean("disponible"),
-                            rs.getBoolean("exterior"),
-                            TamanoPista.valueOf(rs.getString("tamanoPista")),
-                            rs.getInt("maxJugadores")
-                        );
-                        mapaPistas.put(idPista, pista);
-                    }
-                    PistaDTO pista = mapaPistas.get(idPista);
-                    int idMaterial = rs.getInt("idMaterial");
-                    if (idMaterial != 0) {
-                        TipoMaterial tipo = TipoMaterial.valueOf(rs.getString("tipo"));
-                        EstadoMaterial estado = EstadoMaterial.valueOf(rs.getString("estado"));
-                        MaterialDTO material = new MaterialDTO(
-                            idMaterial,
-                            tipo,
-                            rs.getBoolean("usoExterior"),
-                            estado
-                        );
-                        pista.getMateriales().add(material);
-                    }
+        for (TamanoPista tamano : tamanos) {
+            for (PistaDTO pista : catalogo.getPistas(tamano)) {
+                if (pista.isDisponible()) {
+                    pistas.add(pista);
                 }
-                pistas.addAll(mapaPistas.values());
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return pistas;
     }
@@ -548,43 +503,10 @@ public class PistasDAO {
      * @return Lista de pistas con sus detalles.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
+    @Override
     public List<PistaDTO> listarPistas() throws SQLException {
-        List<PistaDTO> pistas = new ArrayList<>();
-        String sql = this.prop.getProperty("listarPistas");
-        if (sql == null || sql.isEmpty()) {
-            System.err.println("Error: La consulta SQL para 'listarPistas' no está definida o está vacía.");
-            return pistas;
-        }
-        if (this.prop == null) {
-            System.err.println("Error: Las propiedades 'prop' no están inicializadas.");
-            return pistas;
-        }
-        if (this.con == null) {
-            DBConnection conexion = new DBConnection();
-            this.con = conexion.getConnection();
-            if (this.con == null) {
-                System.err.println("Error: No se pudo obtener la conexión a la base de datos.");
-                return pistas;
-            }
-        }
-        try (PreparedStatement ps = this.con.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                PistaDTO pista = new PistaDTO(
-                    rs.getString("nombre"),
-                    rs.getBoolean("disponible"),
-                    rs.getBoolean("exterior"),
-                    TamanoPista.valueOf(rs.getString("tamanoPista")),
-                    rs.getInt("maxJugadores")
-                );
-                pista.setIdPista(rs.getInt("idPista"));
-                pistas.add(pista);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al ejecutar la consulta de listar pistas.");
-            e.printStackTrace();
-        }
-        return pistas;
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        return catalogo == null ? new ArrayList<>() : catalogo.getPistas();
     }
 
     /**
@@ -594,25 +516,9 @@ public class PistasDAO {
      * @return La pista correspondiente al ID dado, o null si no se encuentra.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
+    @Override
     public PistaDTO buscarPistaPorId(int idPista) throws SQLException {
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        String sql = prop.getProperty("buscarPistaPorId");
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idPista);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return new PistaDTO(
-                        rs.getInt("idPista"), rs.getString("nombre"),
-                        rs.getBoolean("disponible"), rs.getBoolean("exterior"),
-                        TamanoPista.valueOf(rs.getString("tamanoPista")),
-                        rs.getInt("maxJugadores")
-                    );
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+        CachePistas.Catalogo catalogo = obtenerCatalogo();
+        return catalogo == null ? null : catalogo.getPista(idPista);
     }
 }
@@ -0,0 +1,1731 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.reserva.*;
+import es.uco.pw.data.cache.IndiceOcupacionPistas;
+import es.uco.pw.data.cache.MapaOcupacion;
+import es.uco.pw.data.cache.ResumenIngresos;
+import es.uco.pw.data.cache.ResumenIngresos.Modalidad;
+import es.uco.pw.data.cache.ResumenIngresos.TipoReserva;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.repositorio.GrupoOcupacion;
+import es.uco.pw.data.repositorio.PosicionReserva;
+import es.uco.pw.data.repositorio.RepositorioBonos;
+import es.uco.pw.data.repositorio.RepositorioBonos.SesionBonoOcupadaException;
+import es.uco.pw.data.repositorio.RepositorioReservas;
+import es.uco.pw.data.repositorio.RepositorioReservas.PistaOcupadaException;
+import es.uco.pw.data.repositorio.TiemposReserva;
+
+import java.util.*;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Almacenamiento de las reservas y los bonos en la base de datos: tablas {@code Reserva},
+ * {@code ReservaFamiliar}, {@code ReservaAdulto}, {@code ReservaInfantil} y {@code Bono}, y
+ * {@code ReservaArchivada} para las reservas pasadas que se han archivado.
+ * Mantiene también el índice de ocupación de las pistas, de modo que saber si un horario está
+ * libre no cuesta ninguna consulta, y el resumen de ingresos, para no leer todas las reservas al
+ * calcular lo recaudado. Las reglas de negocio de las reservas están en {@link ReservasDAO}.
+ */
+public class ReservasBonosDAO implements RepositorioReservas, RepositorioBonos {
+
+    /**
+     * Consultas de reservas y bonos que deben existir en {@code sql.properties}.
+     */
+    public static final List<String> CONSULTAS_REQUERIDAS = List.of(
+            "actualizarReserva",
+            "agruparOcupacionReservas",
+            "archivarReservas",
+            "archivarReservasAdulto",
+            "archivarReservasFamiliar",
+            "archivarReservasInfantil",
+            "actualizarSesionesBono",
+            "actualizarSesionesBonoDecrementar",
+            "asignarSesionBono",
+            "bloquearReservasPista",
+            "buscarReservaBase",
+            "consultarReservasFuturas",
+            "consultarReservasPorRangoDeFechasYPista",
+            "copiarReservasArchivo",
+            "crearParticionArchivo",
+            "eliminarReserva",
+            "eliminarReservaAdulto",
+            "eliminarReservaFamiliar",
+            "eliminarReservaInfantil",
+            "encontrarReserva",
+            "encontrarReservaPorIdBono",
+            "insertarBono",
+            "insertarReserva",
+            "insertarReservaAdulto",
+            "insertarReservaFamiliar",
+            "insertarReservaInfantil",
+            "listarIngresosReservas",
+            "listarOcupacionReservas",
+            "listarParticionesArchivo",
+            "listarReservasArchivables",
+            "obtenerBono",
+            "obtenerBonoPorJugador",
+            "primeraReservaArchivable",
+            "recorrerReservasFuturas");
+
+    /**
+     * Registro compartido con las consultas SQL.
+     */
+    private final RegistroConsultas consultas = RegistroConsultas.getInstancia();
+
+    /**
+     * DAO de jugadores, con el que la fecha de inscripción se actualiza dentro de la transacción de la reserva.
+     */
+    private final JugadoresDAO jugadoresDAO;
+
+    /**
+     * Índice compartido con la ocupación de cada pista, para detectar reservas solapadas.
+     */
+    private final IndiceOcupacionPistas indiceOcupacion = IndiceOcupacionPistas.getInstancia();
+
+    /**
+     * Ingresos acumulados de las reservas de la base de datos. Como el índice de ocupación, es
+     * uno solo para todos los DAO, que escriben en las mismas tablas.
+     */
+    private static final ResumenIngresos INGRESOS = new ResumenIngresos();
+
+    /**
+     * Días antes del inicio de un horario en que puede empezar una reserva que se solape con él.
+     * Las reservas empiezan y terminan el mismo día, así que basta con uno.
+     */
+    private static final int DIAS_SOLAPE = 1;
+
+    /**
+     * Partición de la tabla de archivo que recibe las reservas posteriores al último mes archivado.
+     */
+    private static final String PARTICION_FUTURO = "pFuturo";
+
+    /**
+     * Nombre de la partición de cada mes en la tabla de archivo.
+     */
+    private static final DateTimeFormatter NOMBRE_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    /**
+     * Tiempos de la última reserva realizada por cada hilo.
+     */
+    private final ThreadLocal<TiemposReserva> ultimosTiempos = new ThreadLocal<>();
+
+    /**
+     * Filas que se piden al servidor en cada ida y vuelta al recorrer reservas con un cursor.
+     * {@link Integer#MIN_VALUE} pide al driver de MySQL que lea las filas de una en una.
+     */
+    private final int tamanoLote;
+
+    /**
+     * Constructor del DAO de reservas y bonos. No abre conexiones; solo lee de la configuración
+     * el tamaño de lote de los cursores.
+     * <p>
+     * El driver de MySQL solo pide las filas por lotes si la url incluye {@code useCursorFetch=true};
+     * sin esa opción ignora el tamaño de lote y carga el resultado entero en memoria. En ese caso,
+     * o si el tamaño es negativo, el cursor lee las filas de una en una.
+     *
+     * @param jugadoresDAO El DAO de jugadores del mismo motor de datos.
+     */
+    public ReservasBonosDAO(JugadoresDAO jugadoresDAO) {
+        this.jugadoresDAO = jugadoresDAO;
+        Configuracion config = Configuracion.getInstancia();
+        int lote = config.getEntero("reservas.tamanoLote", 500);
+        boolean cursorServidor = config.getPropiedad("url", "").toLowerCase().contains("usecursorfetch=true");
+        this.tamanoLote = lote < 0 || (lote > 0 && !cursorServidor) ? Integer.MIN_VALUE : lote;
+    }
+
+    /**
+     * Inserta una reserva familiar en la base de datos.
+     *
+     * @param con           La conexión con la base de datos.
+     * @param idReserva     El ID de la reserva.
+     * @param numeroAdultos El número de adultos en la reserva.
+     * @param numeroNinos   El número de niños en la reserva.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void insertarReservaFamiliar(Connection con, int idReserva, int numeroAdultos, int numeroNinos) throws SQLException {
+        String sql = consultas.getConsulta("insertarReservaFamiliar");
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idReserva);
+            ps.setInt(2, numeroAdultos);
+            ps.setInt(3, numeroNinos);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta una reserva de adultos en la base de datos.
+     *
+     * @param con           La conexión con la base de datos.
+     * @param idReserva     El ID de la reserva.
+     * @param numeroAdultos El número de adultos en la reserva.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void insertarReservaAdulto(Connection con, int idReserva, int numeroAdultos) throws SQLException {
+        String sql = consultas.getConsulta("insertarReservaAdulto");
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idReserva);
+            ps.setInt(2, numeroAdultos);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta una reserva infantil en la base de datos.
+     *
+     * @param con           La conexión con la base de datos.
+     * @param idReserva   El ID de la reserva.
+     * @param numeroNinos El número de niños en la reserva.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void insertarReservaInfantil(Connection con, int idReserva, int numeroNinos) throws SQLException {
+        String sql = consultas.getConsulta("insertarReservaInfantil");
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idReserva);
+            ps.setInt(2, numeroNinos);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta una reserva específica en la base de datos según su tipo.
+     *
+     * @param tipoReserva   El tipo de reserva (familiar, adulto o infantil).
+     * @param idReserva     El ID de la reserva.
+     * @param numeroAdultos El número de adultos en la reserva (opcional).
+     * @param numeroNinos   El número de niños en la reserva (opcional).
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     */
+    public void insertarReservaEspecifica(String tipoReserva, int idReserva, Integer numeroAdultos, Integer numeroNinos) throws SQLException {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        try {
+            switch (tipoReserva.toLowerCase()) {
+                case "familiar":
+                    insertarReservaFamiliar(con, idReserva, numeroAdultos, numeroNinos);
+                    break;
+                case "adulto":
+                    insertarReservaAdulto(con, idReserva, numeroAdultos);
+                    break;
+                case "infantil":
+                    insertarReservaInfantil(con, idReserva, numeroNinos);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tipo de reserva no válido: " + tipoReserva);
+            }
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Realiza una reserva en una única transacción: crea el bono si es nuevo, inserta la reserva y
+     * su tipo, consume una sesión del bono y actualiza la fecha de inscripción del jugador si aún no
+     * la tiene. Todas las fases usan la misma conexión y se confirman con un único commit; si alguna
+     * falla se deshacen todas. Los tiempos de cada fase quedan en {@link #getUltimosTiempos()}.
+     * <p>
+     * La sesión de un bono existente se asigna al final, con un UPDATE condicionado al número de
+     * sesiones leído: así el bloqueo de la fila del bono dura lo menos posible y dos reservas
+     * simultáneas del mismo bono no pueden quedarse con la misma sesión. La que llega tarde no
+     * actualiza ninguna fila, se deshace y lanza {@link SesionBonoOcupadaException}.
+     *
+     * @param reservaDTO La reserva a insertar.
+     * @param jugadorDTO El jugador cuya fecha de inscripción se actualiza si es necesario, o null.
+     * @param bonoNuevo  Indica si el bono de la reserva se crea en esta misma transacción.
+     * @return El ID de la reserva generada, o -1 si falla.
+     * @throws SesionBonoOcupadaException Si el bono ha cambiado desde que se leyó o no le quedan sesiones.
+     */
+    @Override
+    public int realizarReserva(ReservaDTO reservaDTO, JugadorDTO jugadorDTO, boolean bonoNuevo) {
+        long inicio = System.nanoTime();
+        long tiempoBonoNuevo = 0;
+        long tiempoSesionBono = 0;
+        long tiempoInscripcion = 0;
+        boolean inscripcionActualizada = false;
+        Bono bono = reservaDTO instanceof ReservaBono ? ((ReservaBono) reservaDTO).getBono() : null;
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            return -1;
+        }
+
+        try {
+            con.setAutoCommit(false);
+            long marca = System.nanoTime();
+            long tiempoConexion = marca - inicio;
+
+            int numeroSesion = 0;
+            if (bono != null && bonoNuevo) {
+                // El bono nuevo se crea con la sesión de esta reserva ya consumida
+                numeroSesion = 1;
+                insertarBono(con, bono, numeroSesion);
+                tiempoBonoNuevo = System.nanoTime() - marca;
+                marca = System.nanoTime();
+            }
+
+            bloquearHorario(con, reservaDTO.getIdPista(), reservaDTO.getFechaHora(), reservaDTO.getDuracionMinutos(), -1);
+            int idReserva = insertarReservaBase(con, reservaDTO);
+            long tiempoReserva = System.nanoTime() - marca;
+            marca = System.nanoTime();
+
+            insertarReservaTipo(con, idReserva, reservaDTO);
+            long tiempoTipo = System.nanoTime() - marca;
+            marca = System.nanoTime();
+
+            if (bono != null && !bonoNuevo) {
+                numeroSesion = asignarSesionBono(con, bono);
+                tiempoSesionBono = System.nanoTime() - marca;
+                marca = System.nanoTime();
+            }
+
+            if (jugadorDTO != null && jugadorDTO.getFechaInscripcion() == null) {
+                jugadoresDAO.actualizarFechaInscripcion(con, jugadorDTO.getCorreoElectronico());
+                inscripcionActualizada = true;
+                tiempoInscripcion = System.nanoTime() - marca;
+                marca = System.nanoTime();
+            }
+
+            con.commit();
+            long fin = System.nanoTime();
+            if (inscripcionActualizada) {
+                jugadoresDAO.invalidarJugador(jugadorDTO.getCorreoElectronico());
+            }
+            ultimosTiempos.set(new TiemposReserva(tiempoConexion, tiempoBonoNuevo, tiempoReserva, tiempoTipo,
+                    tiempoSesionBono, tiempoInscripcion, fin - marca, fin - inicio));
+
+            reservaDTO.setIdReserva(idReserva);
+            if (bono != null) {
+                ((ReservaBono) reservaDTO).setNumeroSesion(numeroSesion);
+                bono.setSesionesRestantes(5 - numeroSesion);
+            }
+            indiceOcupacion.registrar(idReserva, reservaDTO.getIdPista(), reservaDTO.getFechaHora(), reservaDTO.getDuracionMinutos());
+            registrarIngresos(reservaDTO);
+            return idReserva;
+        } catch (SQLException e) {
+            deshacer(con);
+            e.printStackTrace();
+            return -1;
+        } catch (RuntimeException e) {
+            deshacer(con);
+            throw e;
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Obtiene los tiempos de cada fase de la última reserva realizada por el hilo actual.
+     *
+     * @return Los tiempos de la última reserva, o null si el hilo aún no ha realizado ninguna.
+     */
+    @Override
+    public TiemposReserva getUltimosTiempos() {
+        return ultimosTiempos.get();
+    }
+
+    /**
+     * Comprueba en la base de datos, dentro de la transacción de la conexión, que ninguna otra
+     * reserva de la pista se solapa con un horario. Ver {@link #bloquearHorarios}.
+     *
+     * @param con               La conexión, con la transacción abierta.
+     * @param idPista           El ID de la pista.
+     * @param inicio            La fecha y hora de inicio.
+     * @param duracionMinutos   La duración en minutos.
+     * @param idReservaExcluida El ID de la reserva que se está modificando, o -1.
+     * @throws SQLException Si falla la consulta.
+     * @throws PistaOcupadaException Si otra reserva de la pista se solapa con el horario.
+     */
+    private void bloquearHorario(Connection con, int idPista, LocalDateTime inicio, int duracionMinutos, int idReservaExcluida) throws SQLException {
+        bloquearHorarios(con, idPista, new LocalDateTime[] {inicio}, new int[] {duracionMinutos}, idReservaExcluida);
+    }
+
+    /**
+     * Comprueba en la base de datos, dentro de la transacción de la conexión, que ninguna otra
+     * reserva de la pista se solapa con los horarios indicados. El índice de ocupación solo ve las
+     * reservas de este proceso; esta comprobación ve también las que haya guardado otro proceso
+     * (por ejemplo, la API y la consola a la vez).
+     * <p>
+     * Las reservas de la pista que empiezan entre un día antes del primer horario y el final del
+     * último se leen con {@code FOR UPDATE}, que con InnoDB bloquea esas filas y los huecos entre
+     * ellas en el índice (idPista, fechaHora) hasta el commit: otra transacción que quiera reservar
+     * la misma pista en ese intervalo espera a que esta termine y ve después su reserva. Si dos
+     * transacciones se bloquean mutuamente, MySQL deshace una de ellas con un error.
+     * Las reservas solapadas que se encuentran se registran en el índice de ocupación, para que la
+     * comprobación previa las tenga en cuenta en adelante.
+     *
+     * @param con               La conexión, con la transacción abierta.
+     * @param idPista           El ID de la pista.
+     * @param inicios           La fecha y hora de inicio de cada horario.
+     * @param duraciones        La duración en minutos de cada horario, en el mismo orden.
+     * @param idReservaExcluida El ID de la reserva que se está modificando, o -1.
+     * @throws SQLException Si falla la consulta.
+     * @throws PistaOcupadaException Si otra reserva de la pista se solapa con alguno de los horarios.
+     */
+    private void bloquearHorarios(Connection con, int idPista, LocalDateTime[] inicios, int[] duraciones, int idReservaExcluida) throws SQLException {
+        LocalDateTime desde = inicios[0];
+        LocalDateTime hasta = inicios[0].plusMinutes(duraciones[0]);
+        for (int i = 1; i < inicios.length; i++) {
+            LocalDateTime fin = inicios[i].plusMinutes(duraciones[i]);
+            desde = inicios[i].isBefore(desde) ? inicios[i] : desde;
+            hasta = fin.isAfter(hasta) ? fin : hasta;
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("bloquearReservasPista"))) {
+            ps.setInt(1, idPista);
+            ps.setTimestamp(2, Timestamp.valueOf(desde.minusDays(DIAS_SOLAPE)));
+            ps.setTimestamp(3, Timestamp.valueOf(hasta));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int idReserva = rs.getInt("idReserva");
+                    if (idReserva == idReservaExcluida) {
+                        continue;
+                    }
+                    LocalDateTime inicioExistente = rs.getTimestamp("fechaHora").toLocalDateTime();
+                    int duracionExistente = rs.getInt("duracionMin");
+                    LocalDateTime finExistente = inicioExistente.plusMinutes(duracionExistente);
+                    for (int i = 0; i < inicios.length; i++) {
+                        if (inicioExistente.isBefore(inicios[i].plusMinutes(duraciones[i])) && inicios[i].isBefore(finExistente)) {
+                            indiceOcupacion.registrar(idReserva, idPista, inicioExistente, duracionExistente);
+                            throw new PistaOcupadaException("La pista ya está reservada en ese horario.");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deshace la transacción abierta en una conexión.
+     *
+     * @param con La conexión con la transacción abierta.
+     */
+    private void deshacer(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Inserta la fila de la reserva en la tabla {@code Reserva}.
+     *
+     * @param con        La conexión con la base de datos.
+     * @param reservaDTO La reserva a insertar.
+     * @return El ID de la reserva generada.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL o no se obtiene el ID generado.
+     */
+    private int insertarReservaBase(Connection con, ReservaDTO reservaDTO) throws SQLException {
+        String sql = consultas.getConsulta("insertarReserva");
+        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            asignarParametrosReserva(ps, reservaDTO);
+            ps.executeUpdate();
+
+            // Obtener el ID de reserva generado
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("No se obtuvo el ID de la reserva insertada.");
+    }
+
+    /**
+     * Asigna los parámetros de la consulta {@code insertarReserva}.
+     *
+     * @param ps         La sentencia preparada de la consulta.
+     * @param reservaDTO La reserva a insertar.
+     * @throws SQLException Si no se puede asignar algún parámetro.
+     */
+    private void asignarParametrosReserva(PreparedStatement ps, ReservaDTO reservaDTO) throws SQLException {
+        ps.setInt(1, reservaDTO.getIdUsuario());
+        ps.setInt(2, reservaDTO.getIdPista());
+        ps.setTimestamp(3, Timestamp.valueOf(reservaDTO.getFechaHora()));
+        ps.setInt(4, reservaDTO.getDuracionMinutos());
+        ps.setFloat(5, reservaDTO.getPrecio());
+        ps.setFloat(6, reservaDTO.getDescuento());
+        ps.setObject(7, reservaDTO instanceof ReservaBono ? ((ReservaBono) reservaDTO).getBono().getIdBono() : null);
+    }
+
+    /**
+     * Inserta la fila del tipo de reserva (familiar, adulto o infantil) en su tabla.
+     *
+     * @param con        La conexión con la base de datos.
+     * @param idReserva  El ID de la reserva.
+     * @param reservaDTO La reserva, individual o de bono, que contiene la reserva específica.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void insertarReservaTipo(Connection con, int idReserva, ReservaDTO reservaDTO) throws SQLException {
+        ReservaDTO reservaEspecifica = obtenerReservaEspecifica(reservaDTO);
+        if (reservaEspecifica instanceof ReservaFamiliar) {
+            insertarReservaFamiliar(con, idReserva, ((ReservaFamiliar) reservaEspecifica).getNumeroAdultos(), ((ReservaFamiliar) reservaEspecifica).getNumeroNinos());
+        } else if (reservaEspecifica instanceof ReservaAdulto) {
+            insertarReservaAdulto(con, idReserva, ((ReservaAdulto) reservaEspecifica).getNumeroAdultos());
+        } else if (reservaEspecifica instanceof ReservaInfantil) {
+            insertarReservaInfantil(con, idReserva, ((ReservaInfantil) reservaEspecifica).getNumeroNinos());
+        }
+    }
+
+    /**
+     * Obtiene la reserva específica (familiar, adulto o infantil) de una reserva individual o de bono.
+     *
+     * @param reservaDTO La reserva individual o de bono.
+     * @return La reserva específica, o null si la reserva no tiene ninguna.
+     */
+    private ReservaDTO obtenerReservaEspecifica(ReservaDTO reservaDTO) {
+        if (reservaDTO instanceof ReservaIndividual) {
+            return ((ReservaIndividual) reservaDTO).getReservaEspecifica();
+        } else if (reservaDTO instanceof ReservaBono) {
+            return ((ReservaBono) reservaDTO).getReservaEspecifica();
+        }
+        return null;
+    }
+
+    /**
+     * Suma al resumen de ingresos una reserva recién guardada.
+     *
+     * @param reservaDTO La reserva, ya con su ID.
+     */
+    private void registrarIngresos(ReservaDTO reservaDTO) {
+        ReservaDTO reservaEspecifica = obtenerReservaEspecifica(reservaDTO);
+        TipoReserva tipo = null;
+        if (reservaEspecifica instanceof ReservaFamiliar) {
+            tipo = TipoReserva.FAMILIAR;
+        } else if (reservaEspecifica instanceof ReservaAdulto) {
+            tipo = TipoReserva.ADULTO;
+        } else if (reservaEspecifica instanceof ReservaInfantil) {
+            tipo = TipoReserva.INFANTIL;
+        }
+        INGRESOS.registrar(reservaDTO.getIdReserva(), reservaDTO.getIdPista(), Reloj.aMilisegundos(reservaDTO.getFechaHora()),
+                reservaDTO.getPrecio(), reservaDTO.getDescuento(), tipo,
+                reservaDTO instanceof ReservaBono ? Modalidad.BONO : Modalidad.INDIVIDUAL);
+    }
+
+    /**
+     * Asigna la siguiente sesión de un bono comparando con las sesiones con que se leyó: el
+     * UPDATE solo modifica la fila si el bono sigue teniendo las mismas sesiones usadas.
+     *
+     * @param con  La conexión con la base de datos.
+     * @param bono El bono tal como se leyó.
+     * @return El número de la sesión asignada, de 1 a 5.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     * @throws SesionBonoOcupadaException Si el bono ha cambiado desde que se leyó o ya no le quedan sesiones.
+     */
+    private int asignarSesionBono(Connection con, Bono bono) throws SQLException {
+        int sesionesUsadas = 5 - bono.getSesionesRestantes();
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("asignarSesionBono"))) {
+            ps.setInt(1, bono.getIdBono());
+            ps.setInt(2, sesionesUsadas);
+            if (ps.executeUpdate() == 0) {
+                throw new SesionBonoOcupadaException("La sesión " + (sesionesUsadas + 1) + " del bono "
+                        + bono.getIdBono() + " ya no está disponible.");
+            }
+        }
+        return sesionesUsadas + 1;
+    }
+
+    /**
+     * Obtiene un bono por su ID.
+     *
+	 * @param idBono El ID del bono a obtener.
+	 * @return El bono obtenido o null si no se encuentra.
+     */
+    @Override
+    public Bono obtenerBono(int idBono) {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+        try {
+            return obtenerBono(con, idBono);
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Obtiene un bono por su ID utilizando una conexión ya abierta.
+     *
+     * @param con    La conexión con la base de datos.
+     * @param idBono El ID del bono a obtener.
+     * @return El bono obtenido o null si no se encuentra.
+     */
+    private Bono obtenerBono(Connection con, int idBono) {
+        Bono bono = null;
+        String sql = consultas.getConsulta("obtenerBono");
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idBono);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    bono = new Bono();
+                    bono.setIdBono(idBono);
+                    bono.setIdUsuario(rs.getInt("idJugador"));
+
+                    // La tabla guarda las sesiones usadas y la caducidad ya calculada
+                    int numeroSesion = rs.getInt("numeroSesion");
+                    bono.setSesionesRestantes(5 - numeroSesion);
+                    bono.setFechaCaducidad(rs.getDate("fechaCaducidad").toLocalDate());
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return bono;
+    }
+
+    /**
+     * Guarda un bono nuevo con su propia conexión y le asigna el ID generado.
+     *
+     * @param bono El bono a guardar.
+     */
+    @Override
+    public void insertarBono(Bono bono) {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        try {
+            insertarBono(con, bono, 0);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Inserta un bono en la base de datos y le asigna el ID generado.
+     *
+     * @param con            La conexión con la base de datos.
+     * @param bono           El bono a insertar.
+     * @param sesionesUsadas Las sesiones que el bono tiene ya consumidas al crearlo.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void insertarBono(Connection con, Bono bono, int sesionesUsadas) throws SQLException {
+        String sql = consultas.getConsulta("insertarBono");
+
+        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            // Configurar los parámetros de la consulta
+            ps.setInt(1, bono.getIdUsuario()); // Asignar el idUsuario (idJugador)
+            ps.setInt(2, sesionesUsadas); // Sesiones ya consumidas
+            ps.setDate(3, java.sql.Date.valueOf(bono.getFechaCaducidad())); // Fecha de caducidad
+
+            ps.executeUpdate();
+
+            // Obtener el `idBono` generado automáticamente por la base de datos
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    bono.setIdBono(rs.getInt(1)); // Asignar el idBono generado automáticamente
+                }
+            }
+        }
+    }
+
+    /**
+     * Actualiza una reserva con nueva información, incluyendo la fecha, duración, precio,
+     * descuento, pista y tipo de reserva (infantil, familiar o adulto).
+     *
+     * @param idReserva             El ID de la reserva a actualizar.
+     * @param nuevaFechaHora        La nueva fecha y hora de la reserva.
+     * @param nuevaDuracionMinutos  La nueva duración de la reserva en minutos.
+     * @param nuevoPrecio           El nuevo precio de la reserva.
+     * @param nuevoDescuento        El nuevo descuento aplicado a la reserva.
+     * @param nuevaIdPista          El ID de la nueva pista asociada a la reserva.
+     * @param numeroAdultos         El nuevo número de adultos (solo para reservas familiares o de adultos).
+     * @param numeroNinos           El nuevo número de niños (solo para reservas familiares o infantiles).
+     *
+     * <p>La fila de {@code Reserva} se actualiza y la fila del tipo se sustituye, porque el tipo
+     * puede cambiar: se borra de las tres tablas de tipo y se inserta en la que corresponde:
+     * - Si solo se especifica el número de niños, en la tabla de reservas infantiles.
+     * - Si se especifican tanto el número de adultos como de niños, en la tabla de reservas familiares.
+     * - Si solo se especifica el número de adultos, en la tabla de reservas de adultos.
+     * Todo se hace en una única transacción.
+     * </p>
+     */
+    @Override
+    public void actualizarReserva(int idReserva, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, float nuevoPrecio, float nuevoDescuento, int nuevaIdPista, Integer numeroAdultos, Integer numeroNinos) {
+        String sqlActualizarReserva = consultas.getConsulta("actualizarReserva");
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+
+        try {
+            con.setAutoCommit(false);
+
+            // Comprobar en la base de datos que el nuevo horario sigue libre en la nueva pista
+            bloquearHorario(con, nuevaIdPista, nuevaFechaHora, nuevaDuracionMinutos, idReserva);
+
+            // Actualizar la tabla principal `Reserva`
+            try (PreparedStatement ps = con.prepareStatement(sqlActualizarReserva)) {
+                ps.setTimestamp(1, Timestamp.valueOf(nuevaFechaHora));  // Fecha y hora
+                ps.setInt(2, nuevaDuracionMinutos);  // Duración
+                ps.setFloat(3, nuevoPrecio);  // Precio
+                ps.setFloat(4, nuevoDescuento);  // Descuento
+                ps.setInt(5, nuevaIdPista);  // Pista
+                ps.setInt(6, idReserva);  // ID de reserva
+
+                int filasActualizadas = ps.executeUpdate();
+                if (filasActualizadas == 0) {
+                    throw new IllegalStateException("No se pudo actualizar la reserva principal con ID: " + idReserva);
+                }
+            }
+
+            // Sustituir la fila del tipo de reserva, que puede haber cambiado
+            eliminarReservaEspecifica(con, idReserva);
+            if (numeroNinos != null && numeroAdultos == null) {  // Infantil
+                insertarReservaInfantil(con, idReserva, numeroNinos);
+            } else if (numeroNinos != null && numeroAdultos != null) {  // Familiar
+                insertarReservaFamiliar(con, idReserva, numeroAdultos, numeroNinos);
+            } else if (numeroAdultos != null && numeroNinos == null) {  // Adulto
+                insertarReservaAdulto(con, idReserva, numeroAdultos);
+            }
+
+            con.commit();
+        } catch (SQLException e) {
+            deshacer(con);
+            e.printStackTrace();
+            throw new IllegalStateException("Error al actualizar la reserva: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deshacer(con);
+            throw e;
+        } finally {
+            conexion.closeConnection();
+        }
+        indiceOcupacion.registrar(idReserva, nuevaIdPista, nuevaFechaHora, nuevaDuracionMinutos);
+        INGRESOS.modificar(idReserva, nuevaIdPista, Reloj.aMilisegundos(nuevaFechaHora), nuevoPrecio, nuevoDescuento,
+                TipoReserva.de(numeroAdultos, numeroNinos));
+    }
+
+    /**
+     * Actualiza las sesiones restantes de un bono.
+     *
+     * @param idBono El ID del bono a actualizar.
+     * @throws IllegalStateException Si no se puede actualizar el bono.
+     */
+    @Override
+    public void actualizarSesionesBono(int idBono) {
+        String sql = consultas.getConsulta("actualizarSesionesBono");
+
+        DBConnection conexion = new DBConnection();
+        try (Connection con = conexion.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idBono);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Error al actualizar las sesiones del bono: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decrementa las sesiones utilizadas de un bono.
+     *
+     * @param idBono El ID del bono a actualizar.
+     * @throws IllegalStateException Si no se puede actualizar el bono.
+     */
+    @Override
+    public void decrementarSesionesBono(int idBono) {
+        String sql = consultas.getConsulta("actualizarSesionesBonoDecrementar");
+
+        DBConnection conexion = new DBConnection();
+        try (Connection con = conexion.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idBono);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Error al devolver las sesiones del bono: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Elimina una reserva de la base de datos. La fila del tipo se borra antes que la de
+     * {@code Reserva}, a la que apunta su clave ajena, y ambas en la misma transacción.
+     *
+     * @param idReserva El ID de la reserva a eliminar.
+     * @throws IllegalStateException Si la reserva no existe o no se puede eliminar.
+     */
+    @Override
+    public void eliminarReserva(int idReserva) {
+        cancelarReserva(idReserva, null);
+    }
+
+    /**
+     * Cancela una reserva en una única transacción: borra la fila de su tipo, después la de
+     * {@code Reserva} y, si es de bono, devuelve la sesión al bono. Los índices en memoria solo se
+     * actualizan si la transacción se confirma.
+     *
+     * @param idReserva El ID de la reserva a cancelar.
+     * @param idBono    El ID del bono de la reserva, o null si no es de bono.
+     * @throws IllegalStateException Si la reserva no existe o no se puede cancelar.
+     */
+    @Override
+    public void cancelarReserva(int idReserva, Integer idBono) {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+
+        try {
+            con.setAutoCommit(false);
+
+            eliminarReservaEspecifica(con, idReserva);
+            try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("eliminarReserva"))) {
+                ps.setInt(1, idReserva);
+                if (ps.executeUpdate() == 0) {
+                    throw new IllegalStateException("No se encontró la reserva con ID: " + idReserva);
+                }
+            }
+            if (idBono != null) {
+                try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("actualizarSesionesBonoDecrementar"))) {
+                    ps.setInt(1, idBono);
+                    ps.executeUpdate();
+                }
+            }
+
+            con.commit();
+        } catch (SQLException e) {
+            deshacer(con);
+            e.printStackTrace();
+            throw new IllegalStateException("Error al cancelar la reserva: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deshacer(con);
+            throw e;
+        } finally {
+            conexion.closeConnection();
+        }
+        indiceOcupacion.quitar(idReserva);
+        INGRESOS.quitar(idReserva);
+    }
+
+    /**
+     * Elimina una reserva específica en las tablas correspondientes.
+     *
+     * @param idReserva El ID de la reserva a eliminar.
+     */
+    public void eliminarReservaEspecifica(int idReserva) {
+        DBConnection conexion = new DBConnection();
+
+        try (Connection con = conexion.getConnection()) {
+            eliminarReservaEspecifica(con, idReserva);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Elimina la fila del tipo de una reserva de las tablas familiar, adulto e infantil,
+     * utilizando una conexión ya abierta.
+     *
+     * @param con       La conexión con la base de datos.
+     * @param idReserva El ID de la reserva.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    private void eliminarReservaEspecifica(Connection con, int idReserva) throws SQLException {
+        String sqlEliminarReservaInfantil = consultas.getConsulta("eliminarReservaInfantil");
+        String sqlEliminarReservaFamiliar = consultas.getConsulta("eliminarReservaFamiliar");
+        String sqlEliminarReservaAdulto = consultas.getConsulta("eliminarReservaAdulto");
+
+        try (PreparedStatement psInfantil = con.prepareStatement(sqlEliminarReservaInfantil)) {
+            psInfantil.setInt(1, idReserva);
+            psInfantil.executeUpdate();
+        }
+        try (PreparedStatement psFamiliar = con.prepareStatement(sqlEliminarReservaFamiliar)) {
+            psFamiliar.setInt(1, idReserva);
+            psFamiliar.executeUpdate();
+        }
+        try (PreparedStatement psAdulto = con.prepareStatement(sqlEliminarReservaAdulto)) {
+            psAdulto.setInt(1, idReserva);
+            psAdulto.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta un lote de reservas individuales en una única transacción. Las filas de {@code Reserva}
+     * se envían en un lote y sus IDs generados se asignan a las reservas en el mismo orden; después
+     * se envía un lote por cada tabla de tipo de reserva y se actualiza la fecha de inscripción de
+     * los jugadores que aún no la tienen.
+     *
+     * @param reservas  Las reservas validadas.
+     * @param jugadores El jugador de cada reserva, en el mismo orden.
+     * @return null si el lote se insertó, o el mensaje de error si se deshizo.
+     */
+    @Override
+    public String insertarReservas(List<ReservaDTO> reservas, List<JugadorDTO> jugadores) {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            return "Error al establecer la conexión con la base de datos.";
+        }
+
+        try {
+            con.setAutoCommit(false);
+
+            // Comprobar los solapes en la base de datos pista a pista, en orden de ID para que dos cargas no se bloqueen entre sí
+            Map<Integer, List<ReservaDTO>> porPista = new TreeMap<>();
+            for (ReservaDTO reservaDTO : reservas) {
+                porPista.computeIfAbsent(reservaDTO.getIdPista(), id -> new ArrayList<>()).add(reservaDTO);
+            }
+            for (Map.Entry<Integer, List<ReservaDTO>> pista : porPista.entrySet()) {
+                List<ReservaDTO> dePista = pista.getValue();
+                LocalDateTime[] inicios = new LocalDateTime[dePista.size()];
+                int[] duraciones = new int[dePista.size()];
+                for (int i = 0; i < inicios.length; i++) {
+                    inicios[i] = dePista.get(i).getFechaHora();
+                    duraciones[i] = dePista.get(i).getDuracionMinutos();
+                }
+                bloquearHorarios(con, pista.getKey(), inicios, duraciones, -1);
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("insertarReserva"), Statement.RETURN_GENERATED_KEYS)) {
+                for (ReservaDTO reservaDTO : reservas) {
+                    asignarParametrosReserva(ps, reservaDTO);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                int asignados = 0;
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (asignados < reservas.size() && rs.next()) {
+                        reservas.get(asignados++).setIdReserva(rs.getInt(1));
+                    }
+                }
+                if (asignados != reservas.size()) {
+                    throw new SQLException("Se obtuvieron " + asignados + " IDs para " + reservas.size() + " reservas.");
+                }
+            }
+
+            try (PreparedStatement psFamiliar = con.prepareStatement(consultas.getConsulta("insertarReservaFamiliar"));
+                 PreparedStatement psAdulto = con.prepareStatement(consultas.getConsulta("insertarReservaAdulto"));
+                 PreparedStatement psInfantil = con.prepareStatement(consultas.getConsulta("insertarReservaInfantil"))) {
+                int familiares = 0, adultos = 0, infantiles = 0;
+                for (ReservaDTO reservaDTO : reservas) {
+                    ReservaDTO reservaEspecifica = obtenerReservaEspecifica(reservaDTO);
+                    if (reservaEspecifica instanceof ReservaFamiliar) {
+                        psFamiliar.setInt(1, reservaDTO.getIdReserva());
+                        psFamiliar.setInt(2, ((ReservaFamiliar) reservaEspecifica).getNumeroAdultos());
+                        psFamiliar.setInt(3, ((ReservaFamiliar) reservaEspecifica).getNumeroNinos());
+                        psFamiliar.addBatch();
+                        familiares++;
+                    } else if (reservaEspecifica instanceof ReservaAdulto) {
+                        psAdulto.setInt(1, reservaDTO.getIdReserva());
+                        psAdulto.setInt(2, ((ReservaAdulto) reservaEspecifica).getNumeroAdultos());
+                        psAdulto.addBatch();
+                        adultos++;
+                    } else if (reservaEspecifica instanceof ReservaInfantil) {
+                        psInfantil.setInt(1, reservaDTO.getIdReserva());
+                        psInfantil.setInt(2, ((ReservaInfantil) reservaEspecifica).getNumeroNinos());
+                        psInfantil.addBatch();
+                        infantiles++;
+                    }
+                }
+                if (familiares > 0) {
+                    psFamiliar.executeBatch();
+                }
+                if (adultos > 0) {
+                    psAdulto.executeBatch();
+                }
+                if (infantiles > 0) {
+                    psInfantil.executeBatch();
+                }
+            }
+
+            // Fecha de inscripción de los jugadores que aún no la tienen, una vez por jugador
+            Set<String> inscritos = new HashSet<>();
+            for (JugadorDTO jugadorDTO : jugadores) {
+                if (jugadorDTO.getFechaInscripcion() == null && inscritos.add(jugadorDTO.getCorreoElectronico())) {
+                    jugadoresDAO.actualizarFechaInscripcion(con, jugadorDTO.getCorreoElectronico());
+                }
+            }
+
+            con.commit();
+        } catch (SQLException e) {
+            deshacer(con);
+            e.printStackTrace();
+            for (ReservaDTO reservaDTO : reservas) {
+                reservaDTO.setIdReserva(0);
+            }
+            return "Error en la base de datos: " + e.getMessage();
+        } catch (PistaOcupadaException e) {
+            deshacer(con);
+            return e.getMessage();
+        } finally {
+            conexion.closeConnection();
+        }
+
+        for (ReservaDTO reservaDTO : reservas) {
+            indiceOcupacion.registrar(reservaDTO.getIdReserva(), reservaDTO.getIdPista(), reservaDTO.getFechaHora(), reservaDTO.getDuracionMinutos());
+            registrarIngresos(reservaDTO);
+        }
+        for (JugadorDTO jugadorDTO : jugadores) {
+            if (jugadorDTO.getFechaInscripcion() == null) {
+                jugadoresDAO.invalidarJugador(jugadorDTO.getCorreoElectronico());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consulta las reservas futuras.
+     *
+     * @return Una lista de reservas futuras.
+     */
+    @Override
+    public List<ReservaDTO> consultarReservasFuturas() {
+        List<ReservaDTO> reservasFuturas = new ArrayList<>();
+        LocalDateTime fechaActual = Reloj.ahora();
+        String sql = consultas.getConsulta("consultarReservasFuturas");
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(fechaActual));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ReservaDTO reservaDTO = hidratarReserva(rs, null);
+                    if (reservaDTO != null) {
+                        reservasFuturas.add(reservaDTO);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
+        }
+
+        return reservasFuturas;
+    }
+
+    /**
+     * Recorre las reservas futuras con un cursor de solo avance, sin cargarlas todas: se piden al
+     * servidor en lotes de {@code reservas.tamanoLote} filas y cada reserva se construye al consumirla.
+     * La página siguiente se pide por clave (fechaHora, idReserva), de modo que el servidor empieza a
+     * leer en el índice justo tras la última reserva devuelta. El cursor y la conexión se liberan al
+     * agotar el flujo o al cerrarlo.
+     *
+     * @param despuesDe Posición de la última reserva leída, o null para empezar por la primera.
+     * @param limite    Número máximo de reservas, o 0 para no poner límite.
+     * @return Las reservas futuras, ordenadas por fecha y después por ID.
+     * @throws IllegalStateException Si no se puede abrir el cursor.
+     */
+    @Override
+    public Stream<ReservaDTO> recorrerReservasFuturas(PosicionReserva despuesDe, int limite) {
+        PosicionReserva desde = PosicionReserva.siguienteA(despuesDe, Reloj.milisegundos());
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = con.prepareStatement(consultas.getConsulta("recorrerReservasFuturas"),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(tamanoLote);
+            if (limite > 0) {
+                ps.setMaxRows(limite);
+            }
+            Timestamp fechaHora = Timestamp.valueOf(desde.getFechaHora());
+            ps.setTimestamp(1, fechaHora);
+            ps.setTimestamp(2, fechaHora);
+            ps.setInt(3, desde.getIdReserva());
+            CursorReservas cursor = new CursorReservas(conexion, ps, ps.executeQuery());
+            return StreamSupport.stream(cursor, false).onClose(cursor::cerrar);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                if (ps != null) {
+                    ps.close();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            conexion.closeConnection();
+            throw new IllegalStateException("Error al consultar las reservas futuras: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Consulta las reservas de una pista que empiezan entre dos instantes, ambos incluidos.
+     *
+     * @param fechaInicio El primer instante.
+     * @param fechaFin El último instante.
+     * @param idPistaConsulta El id de la pista para consultar las reservas.
+     * @return Una lista de reservas de la pista en ese intervalo, ordenadas por fecha.
+     */
+    @Override
+    public List<ReservaDTO> consultarReservasPorRangosDeFechaYPista(LocalDateTime fechaInicio, LocalDateTime fechaFin, int idPistaConsulta) {
+        List<ReservaDTO> reservasPorFecha = new ArrayList<>();
+        String sql = consultas.getConsulta("consultarReservasPorRangoDeFechasYPista");
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            // Los mismos parámetros para las reservas activas y para las archivadas
+            for (int i = 0; i < 6; i += 3) {
+                ps.setTimestamp(i + 1, Timestamp.valueOf(fechaInicio));
+                ps.setTimestamp(i + 2, Timestamp.valueOf(fechaFin));
+                ps.setInt(i + 3, idPistaConsulta);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ReservaDTO reservaDTO = hidratarReserva(rs, null);
+                    if (reservaDTO != null) {
+                        reservasPorFecha.add(reservaDTO);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
+        }
+
+        return reservasPorFecha;
+    }
+
+    /**
+     * Agrupa las reservas de un intervalo, activas y archivadas, por pista, día, minuto de inicio y
+     * duración con una sola consulta, que solo devuelve esas columnas y el número de reservas de
+     * cada grupo.
+     *
+     * @param desde El primer instante, incluido.
+     * @param hasta El último instante, excluido.
+     * @return Los grupos de reservas.
+     * @throws IllegalStateException Si no se pueden leer las reservas.
+     */
+    @Override
+    public List<GrupoOcupacion> agruparOcupacion(LocalDateTime desde, LocalDateTime hasta) {
+        List<GrupoOcupacion> grupos = new ArrayList<>();
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("agruparOcupacionReservas"))) {
+            for (int i = 0; i < 4; i += 2) {
+                ps.setTimestamp(i + 1, Timestamp.valueOf(desde));
+                ps.setTimestamp(i + 2, Timestamp.valueOf(hasta));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    grupos.add(new GrupoOcupacion(rs.getInt("idPista"), rs.getDate("dia").toLocalDate(),
+                            rs.getInt("minutoInicio"), rs.getInt("duracionMin"), rs.getInt("reservas")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Error al agrupar la ocupación de las pistas: " + e.getMessage(), e);
+        } finally {
+            conexion.closeConnection();
+        }
+        return grupos;
+    }
+
+    /**
+     * Encuentra una reserva completa en función del idJugador, idPista y fechaHora.
+     *
+     * @param idJugador El ID del jugador.
+     * @param idPista El ID de la pista.
+     * @param fechaHora La fecha y hora de la reserva.
+     * @return La instancia completa de ReservaDTO según el tipo (Infantil, Familiar o Adulto),
+     *         o null si no se encuentra la reserva.
+     */
+    @Override
+    public ReservaDTO encontrarReserva(int idJugador, int idPista, LocalDateTime fechaHora) {
+        ReservaDTO reservaDTO = null;
+        String sqlBaseReserva = consultas.getConsulta("encontrarReserva");
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
+            ps.setInt(1, idJugador);
+            ps.setInt(2, idPista);
+            ps.setTimestamp(3, Timestamp.valueOf(fechaHora));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    reservaDTO = hidratarReserva(rs, null);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
+        }
+
+        return reservaDTO;
+    }
+
+    /**
+     * Construye una reserva completa a partir de una fila de las consultas de lectura de
+     * reservas, que combinan en una sola fila la reserva, su tipo (familiar, adulto o
+     * infantil) y su bono. Así cada reserva listada cuesta una única fila del mismo
+     * {@link ResultSet}, sin consultas adicionales por tipo ni por bono.
+     *
+     * @param rs    El ResultSet situado en la fila de la reserva.
+     * @param bono  El bono ya conocido de la reserva, o null para construirlo con los datos de la fila.
+     * @return La instancia de ReservaDTO según el tipo, o null si la reserva no tiene tipo asociado.
+     * @throws SQLException Si ocurre un error al leer la fila.
+     */
+    private ReservaDTO hidratarReserva(ResultSet rs, Bono bono) throws SQLException {
+        int idReserva = rs.getInt("idReserva");
+        int idJugador = rs.getInt("idJugador");
+        int idPista = rs.getInt("idPista");
+        LocalDateTime fechaHora = rs.getTimestamp("fechaHora").toLocalDateTime();
+        int duracionMin = rs.getInt("duracionMin");
+        float precio = rs.getFloat("precio");
+        float descuento = rs.getFloat("descuento");
+        int idBono = rs.getInt("idBono");
+        boolean conBono = !rs.wasNull();
+        int numeroSesion = rs.getInt("numeroSesion");
+
+        if (conBono && bono == null) {
+            bono = new Bono();
+            bono.setIdBono(idBono);
+            bono.setIdUsuario(rs.getInt("idJugadorBono"));
+            bono.setSesionesRestantes(5 - numeroSesion);
+            bono.setFechaCaducidad(rs.getDate("fechaCaducidad").toLocalDate());
+        }
+
+        // Seleccionar la fábrica según el tipo de reserva (con o sin bono)
+        ReservaFactory reservaFactory = conBono ? new ReservaBonoFactory() : new ReservaIndividualFactory();
+        ReservaDTO reservaDTO = null;
+
+        rs.getInt("idReservaFamiliar");
+        if (!rs.wasNull()) {
+            int numeroAdultos = rs.getInt("numAdultosFamiliar");
+            int numeroNinos = rs.getInt("numNinosFamiliar");
+            reservaDTO = conBono
+                    ? reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, bono, numeroSesion)
+                    : reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos);
+        }
+
+        // Si no es familiar, comprobar si es de adultos
+        if (reservaDTO == null) {
+            rs.getInt("idReservaAdulto");
+            if (!rs.wasNull()) {
+                int numeroAdultos = rs.getInt("numAdultosAdulto");
+                reservaDTO = conBono
+                        ? reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, bono, numeroSesion)
+                        : reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos);
+            }
+        }
+
+        // Si no es familiar ni de adultos, comprobar si es infantil
+        if (reservaDTO == null) {
+            rs.getInt("idReservaInfantil");
+            if (!rs.wasNull()) {
+                int numeroNinos = rs.getInt("numNinosInfantil");
+                reservaDTO = conBono
+                        ? reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos, bono, numeroSesion)
+                        : reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos);
+            }
+        }
+
+        if (reservaDTO == null) {
+            return null;
+        }
+
+        // Asignar precio y descuento a la reserva
+        reservaDTO.setIdReserva(idReserva);
+        reservaDTO.setPrecio(precio);
+        reservaDTO.setDescuento(descuento);
+        return reservaDTO;
+    }
+
+    /**
+     * Comprueba en el índice de ocupación si una pista está libre, cargándolo antes si aún no se ha cargado.
+     *
+     * @param idPista           El ID de la pista.
+     * @param fechaHora         La fecha y hora de inicio.
+     * @param duracionMinutos   La duración en minutos.
+     * @param idReservaExcluida El ID de la reserva que se está modificando, o -1 si es una reserva nueva.
+     * @return true si ninguna otra reserva de la pista se solapa con el horario.
+     */
+    @Override
+    public boolean estaLibre(int idPista, LocalDateTime fechaHora, int duracionMinutos, int idReservaExcluida) {
+        if (!indiceOcupacion.estaCargado()) {
+            cargarOcupacion();
+        }
+        return indiceOcupacion.estaLibre(idPista, fechaHora, duracionMinutos, idReservaExcluida);
+    }
+
+    /**
+     * Carga en el índice de ocupación las reservas que aún no han terminado. Solo se carga una vez;
+     * después el índice se mantiene al insertar, modificar y cancelar reservas.
+     */
+    @Override
+    public void cargarOcupacion() {
+        synchronized (indiceOcupacion) {
+            if (indiceOcupacion.estaCargado()) {
+                return;
+            }
+            // Se incluyen las reservas del último día para contar las que empezaron antes y siguen en curso
+            LocalDateTime desde = Reloj.ahora().minusDays(1);
+            DBConnection conexion = new DBConnection();
+            Connection con = conexion.getConnection();
+            if (con == null) {
+                throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+            }
+            try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarOcupacionReservas"))) {
+                ps.setTimestamp(1, Timestamp.valueOf(desde));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        indiceOcupacion.registrar(rs.getInt("idReserva"), rs.getInt("idPista"),
+                                rs.getTimestamp("fechaHora").toLocalDateTime(), rs.getInt("duracionMin"));
+                    }
+                }
+                indiceOcupacion.marcarCargado();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Error al cargar la ocupación de las pistas: " + e.getMessage(), e);
+            } finally {
+                conexion.closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Obtiene la ocupación por bloques del índice de ocupación, que se carga con {@link #cargarOcupacion()}.
+     *
+     * @return El mapa de ocupación de las pistas.
+     */
+    @Override
+    public MapaOcupacion getMapaOcupacion() {
+        return indiceOcupacion.getMapa();
+    }
+
+    /**
+     * Obtiene el resumen de ingresos. La primera vez lee el precio, el descuento, el tipo y el
+     * bono de todas las reservas de la base de datos, también de las archivadas; después solo se
+     * actualiza con los cambios. Archivar una reserva no cambia los ingresos.
+     *
+     * @return El resumen de ingresos de las reservas.
+     * @throws IllegalStateException Si no se pueden leer las reservas.
+     */
+    @Override
+    public ResumenIngresos getResumenIngresos() {
+        if (INGRESOS.estaCargado()) {
+            return INGRESOS;
+        }
+        synchronized (INGRESOS) {
+            if (INGRESOS.estaCargado()) {
+                return INGRESOS;
+            }
+            DBConnection conexion = new DBConnection();
+            Connection con = conexion.getConnection();
+            if (con == null) {
+                throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+            }
+            try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarIngresosReservas"));
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rs.getInt("idBono");
+                    Modalidad modalidad = rs.wasNull() ? Modalidad.INDIVIDUAL : Modalidad.BONO;
+                    int adultos = rs.getInt("numAdultos");
+                    Integer numeroAdultos = rs.wasNull() ? null : adultos;
+                    int ninos = rs.getInt("numNinos");
+                    Integer numeroNinos = rs.wasNull() ? null : ninos;
+                    TipoReserva tipo = TipoReserva.de(numeroAdultos, numeroNinos);
+                    INGRESOS.registrar(rs.getInt("idReserva"), rs.getInt("idPista"), Reloj.aMilisegundos(rs.getTimestamp("fechaHora").toLocalDateTime()),
+                            rs.getFloat("precio"), rs.getFloat("descuento"), tipo, modalidad);
+                }
+                INGRESOS.marcarCargado();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Error al cargar los ingresos de las reservas: " + e.getMessage(), e);
+            } finally {
+                conexion.closeConnection();
+            }
+        }
+        return INGRESOS;
+    }
+
+    /**
+     * Mueve a {@code ReservaArchivada} las reservas que empiezan antes de un instante, mes a mes.
+     * Antes de cada mes se crea su partición en el archivo si aún no existe, y después sus
+     * reservas se copian y se borran de las tablas de reservas en una misma transacción. Las
+     * reservas archivadas dejan de estar en el índice de ocupación pero no en los ingresos.
+     *
+     * @param antesDe El instante hasta el que se archiva, excluido.
+     * @return El número de reservas archivadas.
+     * @throws IllegalStateException Si no se puede mover algún mes; los meses anteriores quedan
+     *                               archivados.
+     */
+    @Override
+    public int archivarReservas(LocalDateTime antesDe) {
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+        if (con == null) {
+            throw new IllegalStateException("Error al establecer la conexión con la base de datos.");
+        }
+
+        int archivadas = 0;
+        try {
+            java.sql.Timestamp primera = null;
+            try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("primeraReservaArchivable"))) {
+                ps.setTimestamp(1, Timestamp.valueOf(antesDe));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        primera = rs.getTimestamp(1);
+                    }
+                }
+            }
+            if (primera == null) {
+                return 0;
+            }
+
+            con.setAutoCommit(false);
+            YearMonth ultimaParticion = leerUltimaParticion(con);
+            YearMonth mes = YearMonth.from(primera.toLocalDateTime());
+            LocalDateTime inicio = mes.atDay(1).atStartOfDay();
+            while (inicio.isBefore(antesDe)) {
+                LocalDateTime siguiente = mes.plusMonths(1).atDay(1).atStartOfDay();
+                if (ultimaParticion == null || mes.isAfter(ultimaParticion)) {
+                    crearParticion(con, mes);
+                    ultimaParticion = mes;
+                }
+                archivadas += archivarIntervalo(con, inicio, siguiente.isBefore(antesDe) ? siguiente : antesDe);
+                mes = mes.plusMonths(1);
+                inicio = siguiente;
+            }
+            return archivadas;
+        } catch (SQLException e) {
+            deshacer(con);
+            e.printStackTrace();
+            throw new IllegalStateException("Error al archivar las reservas (" + archivadas + " ya archivadas): "
+                    + e.getMessage(), e);
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    /**
+     * Copia al archivo y borra de las tablas de reservas las reservas de un intervalo, y confirma
+     * la transacción. Debe llamarse con la confirmación automática desactivada.
+     *
+     * @param con    La conexión con la base de datos.
+     * @param inicio El primer instante, incluido.
+     * @param fin    El último instante, excluido.
+     * @return El número de reservas archivadas.
+     * @throws SQLException Si falla alguna sentencia o no se copian todas las reservas.
+     */
+    private int archivarIntervalo(Connection con, LocalDateTime inicio, LocalDateTime fin) throws SQLException {
+        java.sql.Timestamp desde = Timestamp.valueOf(inicio);
+        java.sql.Timestamp hasta = Timestamp.valueOf(fin);
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarReservasArchivables"))) {
+            ps.setTimestamp(1, desde);
+            ps.setTimestamp(2, hasta);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("idReserva"));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            con.commit();
+            return 0;
+        }
+
+        int copiadas = ejecutarEnIntervalo(con, "copiarReservasArchivo", desde, hasta);
+        if (copiadas != ids.size()) {
+            throw new SQLException("Se copiaron al archivo " + copiadas + " de " + ids.size() + " reservas.");
+        }
+        ejecutarEnIntervalo(con, "archivarReservasFamiliar", desde, hasta);
+        ejecutarEnIntervalo(con, "archivarReservasAdulto", desde, hasta);
+        ejecutarEnIntervalo(con, "archivarReservasInfantil", desde, hasta);
+        ejecutarEnIntervalo(con, "archivarReservas", desde, hasta);
+        con.commit();
+
+        for (Integer idReserva : ids) {
+            indiceOcupacion.quitar(idReserva);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Ejecuta una sentencia de modificación cuyos dos parámetros son los extremos de un intervalo.
+     *
+     * @param con   La conexión con la base de datos.
+     * @param clave La clave de la sentencia en {@code sql.properties}.
+     * @param desde El primer instante, incluido.
+     * @param hasta El último instante, excluido.
+     * @return El número de filas afectadas.
+     * @throws SQLException Si ocurre un error al ejecutar la sentencia.
+     */
+    private int ejecutarEnIntervalo(Connection con, String clave, java.sql.Timestamp desde, java.sql.Timestamp hasta) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta(clave))) {
+            ps.setTimestamp(1, desde);
+            ps.setTimestamp(2, hasta);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Obtiene el último mes que tiene su propia partición en la tabla de archivo.
+     *
+     * @param con La conexión con la base de datos.
+     * @return El último mes con partición, o null si solo existe la partición de las fechas posteriores.
+     * @throws SQLException Si ocurre un error al leer las particiones.
+     */
+    private YearMonth leerUltimaParticion(Connection con) throws SQLException {
+        YearMonth ultima = null;
+        try (PreparedStatement ps = con.prepareStatement(consultas.getConsulta("listarParticionesArchivo"));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String nombre = rs.getString("PARTITION_NAME");
+                if (nombre != null && !nombre.equals(PARTICION_FUTURO)) {
+                    YearMonth mes = YearMonth.parse(nombre, NOMBRE_PARTICION);
+                    if (ultima == null || mes.isAfter(ultima)) {
+                        ultima = mes;
+                    }
+                }
+            }
+        }
+        return ultima;
+    }
+
+    /**
+     * Crea la partición de un mes en la tabla de archivo, separándola de la partición de las
+     * fechas posteriores. Como toda sentencia de definición de datos, confirma la transacción.
+     *
+     * @param con La conexión con la base de datos.
+     * @param mes El mes, posterior al de la última partición.
+     * @throws SQLException Si ocurre un error al modificar la tabla.
+     */
+    private void crearParticion(Connection con, YearMonth mes) throws SQLException {
+        LocalDate limite = mes.plusMonths(1).atDay(1);
+        String sql = String.format(consultas.getConsulta("crearParticionArchivo"), mes.format(NOMBRE_PARTICION), limite);
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Obtiene un bono asociado a un jugador por su ID.
+     *
+     * @param idJugador El ID del jugador.
+     * @return El bono asociado, o null si no se encuentra.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    @Override
+    public Bono obtenerBonoPorJugador(int idJugador) throws SQLException {
+        Bono bono = null;
+        String sql = consultas.getConsulta("obtenerBonoPorJugador");
+
+        // Abrir la conexión a la base de datos
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        if (con == null) {
+            throw new SQLException("Error: No se pudo establecer la conexión a la base de datos.");
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idJugador);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    bono = new Bono();
+                    bono.setIdBono(rs.getInt("idBono"));
+                    bono.setIdUsuario(idJugador);
+
+                    // Recuperar numeroSesion y calcular sesionesRestantes
+                    int numeroSesion = rs.getInt("numeroSesion");
+                    bono.setSesionesRestantes(5 - numeroSesion);
+
+                    bono.setFechaCaducidad(rs.getDate("fechaCaducidad").toLocalDate());
+                }
+            }
+        } finally {
+            if (con != null) {
+                con.close();
+            }
+        }
+
+        return bono;
+    }
+
+    /**
+     * Obtiene una reserva por su ID.
+     *
+     * @param idReserva El ID de la reserva a buscar.
+     * @return La instancia de ReservaDTO encontrada, o null si no existe.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     */
+    @Override
+    public ReservaDTO obtenerReservaPorId(int idReserva) throws SQLException {
+        ReservaDTO reservaDTO = null;
+        String sqlBaseReserva = consultas.getConsulta("buscarReservaBase");
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        if (con == null) {
+            throw new SQLException("Error: No se pudo establecer la conexión a la base de datos.");
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
+            ps.setInt(1, idReserva);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    reservaDTO = hidratarReserva(rs, null);
+                }
+            }
+        } finally {
+            conexion.closeConnection();
+        }
+
+        return reservaDTO;
+    }
+
+    /**
+     * Obtiene una reserva asociada a un bono y un usuario.
+     *
+     * @param idUsuario El ID del usuario.
+     * @param bono El bono asociado.
+     * @return La reserva encontrada, o null si no existe.
+     */
+    @Override
+    public ReservaDTO obtenerReservaPorIdBono(int idUsuario, Bono bono) {
+        ReservaDTO reservaDTO = null;
+        String sqlBaseReserva = consultas.getConsulta("encontrarReservaPorIdBono");
+
+        DBConnection conexion = new DBConnection();
+        Connection con = conexion.getConnection();
+
+        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
+            ps.setInt(1, idUsuario);
+            ps.setInt(2, bono.getIdBono());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    reservaDTO = hidratarReserva(rs, bono);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            conexion.closeConnection();
+        }
+
+        return reservaDTO;
+    }
+
+    /**
+     * Cursor de solo avance sobre las filas de una consulta de reservas, que construye cada reserva
+     * al pedirla y devuelve la conexión al pool en cuanto se agota, falla o se cierra.
+     */
+    private final class CursorReservas extends Spliterators.AbstractSpliterator<ReservaDTO> {
+
+        /**
+         * Conexión prestada para el cursor.
+         */
+        private final DBConnection conexion;
+
+        /**
+         * Sentencia del cursor.
+         */
+        private final PreparedStatement ps;
+
+        /**
+         * Filas del cursor.
+         */
+        private final ResultSet rs;
+
+        /**
+         * Indica si el cursor ya se ha cerrado.
+         */
+        private boolean cerrado = false;
+
+        /**
+         * Constructor del cursor.
+         *
+         * @param conexion La conexión prestada.
+         * @param ps       La sentencia ejecutada.
+         * @param rs       Las filas de la sentencia.
+         */
+        CursorReservas(DBConnection conexion, PreparedStatement ps, ResultSet rs) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conexion = conexion;
+            this.ps = ps;
+            this.rs = rs;
+        }
+
+        /**
+         * Pasa la siguiente reserva, saltando las filas sin tipo, o cierra el cursor si no quedan más.
+         *
+         * @param accion La acción que recibe la reserva.
+         * @return true si se ha pasado una reserva.
+         * @throws IllegalStateException Si falla la lectura de una fila.
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super ReservaDTO> accion) {
+            if (cerrado) {
+                return false;
+            }
+            try {
+                while (rs.next()) {
+                    ReservaDTO reservaDTO = hidratarReserva(rs, null);
+                    if (reservaDTO != null) {
+                        accion.accept(reservaDTO);
+                        return true;
+                    }
+                }
+            } catch (SQLException e) {
+                cerrar();
+                throw new IllegalStateException("Error al leer las reservas futuras: " + e.getMessage(), e);
+            }
+            cerrar();
+            return false;
+        }
+
+        /**
+         * Cierra las filas y la sentencia y devuelve la conexión. Cerrarlo más de una vez no tiene efecto.
+         */
+        void cerrar() {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            // Se cierran las filas, la sentencia y, después, se devuelve la conexión
+            try {
+                try {
+                    rs.close();
+                } finally {
+                    ps.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } finally {
+                conexion.closeConnection();
+            }
+        }
+    }
+}
@@ -1,195 +1,144 @@
 package es.uco.pw.data.dao;
 
+import es.uco.pw.business.common.Reloj;
 import es.uco.pw.business.jugador.JugadorDTO;
 import es.uco.pw.business.pista.PistaDTO;
 import es.uco.pw.business.pista.TamanoPista;
 import es.uco.pw.business.reserva.*;
-import es.uco.pw.data.common.DBConnection;
+import es.uco.pw.data.cache.MapaOcupacion;
+import es.uco.pw.data.cache.ResumenIngresos;
+import es.uco.pw.data.metricas.MetricasReservas;
+import es.uco.pw.data.metricas.MetricasReservas.Operacion;
+import es.uco.pw.data.metricas.MetricasReservas.Validacion;
+import es.uco.pw.data.repositorio.GrupoOcupacion;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.PosicionReserva;
+import es.uco.pw.data.repositorio.RepositorioBonos;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+import es.uco.pw.data.repositorio.RepositorioReservas;
+import es.uco.pw.data.repositorio.TiemposReserva;
 
 import java.util.*;
-import java.io.*;
 
-import java.sql.*;
-import java.util.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Clase que gestiona las reservas de pistas de baloncesto, incluyendo la carga y
- * almacenamiento de reservas en ficheros, así como la gestión de jugadores y pistas.
+ * Clase que gestiona las reservas de pistas de baloncesto: valida y realiza reservas individuales
+ * y con bono, las modifica, las cancela y las consulta. Los datos se leen y se guardan a través de
+ * los repositorios del {@link MotorDatos}, de modo que las mismas reglas sirven tanto con la base
+ * de datos como con el motor en memoria. Las operaciones que escriben reservas se hacen con las
+ * pistas afectadas bloqueadas en el {@link CoordinadorReservas}, así que dos reservas de la misma
+ * pista no pueden validar el mismo horario libre a la vez.
  */
 public class ReservasDAO {
-	/**
-	 * Conexión actual con la base de datos.
-	 */
-	private Connection con;
 
-	/**
-	 * Propiedades con las consultas SQL necesarias para el funcionamiento del DAO.
-	 */
-	private Properties prop;
+    /**
+     * Veces que se intenta una reserva con bono cuando otra reserva simultánea consume la misma
+     * sesión del bono.
+     */
+    private static final int INTENTOS_SESION_BONO = 5;
 
+    /**
+     * Número máximo de días de un informe de ocupación, unos tres años.
+     */
+    private static final int DIAS_MAXIMOS_INFORME = 1096;
 
     /**
-     * Constructor que inicializa la conexión a la base de datos y carga las propiedades SQL.
+     * Cerrojos que serializan, por jugador, la creación de bonos nuevos, para que dos reservas
+     * simultáneas de un jugador sin bono no creen dos bonos. Las reservas con un bono existente
+     * no los usan.
      */
-    public ReservasDAO() {
-        prop = new Properties();
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("sql.properties"));
-            prop.load(reader);
-            reader.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private static final Object[] CERROJOS_BONO_NUEVO = new Object[64];
+
+    static {
+        for (int i = 0; i < CERROJOS_BONO_NUEVO.length; i++) {
+            CERROJOS_BONO_NUEVO[i] = new Object();
         }
     }
 
     /**
-     * Busca un jugador por su ID utilizando JugadoresDAO.
-     *
-     * @param idJugador El ID del jugador a buscar.
-     * @return El jugador encontrado o null si no se encuentra.
+     * Repositorio de jugadores utilizado para consultar y actualizar los jugadores de las reservas.
      */
-    public static JugadorDTO buscarJugadorPorId(int idJugador) {
-        JugadoresDAO jugadoresDAO = new JugadoresDAO();
-        return jugadoresDAO.buscarJugadorPorId(idJugador);
-    }
+    private final RepositorioJugadores jugadores;
 
     /**
-     * Inserta una reserva familiar en la base de datos.
-     *
-     * @param idReserva     El ID de la reserva.
-     * @param numeroAdultos El número de adultos en la reserva.
-     * @param numeroNinos   El número de niños en la reserva.
-     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     * Repositorio de pistas utilizado para consultar las pistas de las reservas.
      */
-    private void insertarReservaFamiliar(int idReserva, int numeroAdultos, int numeroNinos) throws SQLException {
-        String sql = prop.getProperty("insertarReservaFamiliar");
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idReserva);
-            ps.setInt(2, numeroAdultos);
-            ps.setInt(3, numeroNinos);
-            ps.executeUpdate();
-        }
-    }
+    private final RepositorioPistas pistas;
 
     /**
-     * Inserta una reserva de adultos en la base de datos.
-     *
-     * @param idReserva     El ID de la reserva.
-     * @param numeroAdultos El número de adultos en la reserva.
-     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     * Repositorio en el que se guardan las reservas y que conoce la ocupación de las pistas.
      */
-    private void insertarReservaAdulto(int idReserva, int numeroAdultos) throws SQLException {
-        String sql = prop.getProperty("insertarReservaAdulto");
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idReserva);
-            ps.setInt(2, numeroAdultos);
-            ps.executeUpdate();
-        }
+    private final RepositorioReservas reservas;
+
+    /**
+     * Repositorio de los bonos de las reservas con bono.
+     */
+    private final RepositorioBonos bonos;
+
+    /**
+     * Coordinador que serializa las escrituras de reservas de cada pista.
+     */
+    private final CoordinadorReservas coordinador = CoordinadorReservas.getInstancia();
+
+    /**
+     * Registro en el que se anotan las llamadas, los tiempos y los rechazos de las reservas.
+     */
+    private final MetricasReservas metricas = MetricasReservas.getInstancia();
+
+    /**
+     * Constructor del DAO de reservas con el motor de datos elegido en config.properties.
+     * No lee ningún archivo ni abre conexiones.
+     */
+    public ReservasDAO() {
+        this(MotorDatos.getInstancia());
     }
 
     /**
-     * Inserta una reserva infantil en la base de datos.
+     * Constructor del DAO de reservas sobre un motor de datos concreto.
      *
-     * @param idReserva   El ID de la reserva.
-     * @param numeroNinos El número de niños en la reserva.
-     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
+     * @param motor El motor con los repositorios de jugadores, pistas, reservas y bonos.
      */
-    private void insertarReservaInfantil(int idReserva, int numeroNinos) throws SQLException {
-        String sql = prop.getProperty("insertarReservaInfantil");
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idReserva);
-            ps.setInt(2, numeroNinos);
-            ps.executeUpdate();
-        }
+    public ReservasDAO(MotorDatos motor) {
+        this.jugadores = motor.getJugadores();
+        this.pistas = motor.getPistas();
+        this.reservas = motor.getReservas();
+        this.bonos = motor.getBonos();
     }
-    
+
     /**
-     * Inserta una reserva específica en la base de datos según su tipo.
+     * Busca un jugador por su ID utilizando JugadoresDAO.
      *
-     * @param tipoReserva   El tipo de reserva (familiar, adulto o infantil).
-     * @param idReserva     El ID de la reserva.
-     * @param numeroAdultos El número de adultos en la reserva (opcional).
-     * @param numeroNinos   El número de niños en la reserva (opcional).
-     * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
-     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     * @param idJugador El ID del jugador a buscar.
+     * @return El jugador encontrado o null si no se encuentra.
      */
-    public void insertarReservaEspecifica(String tipoReserva, int idReserva, Integer numeroAdultos, Integer numeroNinos) throws SQLException {
-        if (con == null || con.isClosed()) {
-            DBConnection conexion = new DBConnection();
-            con = (Connection) conexion.getConnection(); // Inicializar conexión global
-        }
-        switch (tipoReserva.toLowerCase()) {
-            case "familiar":
-                insertarReservaFamiliar(idReserva, numeroAdultos, numeroNinos);
-                break;
-            case "adulto":
-                insertarReservaAdulto(idReserva, numeroAdultos);
-                break;
-            case "infantil":
-                insertarReservaInfantil(idReserva, numeroNinos);
-                break;
-            default:
-                throw new IllegalArgumentException("Tipo de reserva no válido: " + tipoReserva);
-        }
+    public JugadorDTO buscarJugadorPorId(int idJugador) {
+        return jugadores.buscarJugadorPorId(idJugador);
     }
 
-
     /**
-     * Inserta una nueva reserva en la base de datos.
+     * Guarda una nueva reserva, ya validada. La reserva y su tipo se guardan de forma atómica.
      *
      * @param reservaDTO La reserva a insertar.
      * @return El ID de la reserva generada, o -1 si falla.
      */
     public int insertarReserva(ReservaDTO reservaDTO) {
-        int idReserva = -1;
-        String sql = prop.getProperty("insertarReserva");
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-
-        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            // Inserción en la tabla `Reserva`
-            ps.setInt(1, reservaDTO.getIdUsuario());
-            ps.setInt(2, reservaDTO.getIdPista());
-            ps.setTimestamp(3, new java.sql.Timestamp(reservaDTO.getFechaHora().getTime()));
-            ps.setInt(4, reservaDTO.getDuracionMinutos());
-            ps.setFloat(5, reservaDTO.getPrecio());
-            ps.setFloat(6, reservaDTO.getDescuento());
-            ps.setObject(7, reservaDTO instanceof ReservaBono ? ((ReservaBono) reservaDTO).getBono().getIdBono() : null);
-            ps.executeUpdate();
-
-            // Obtener el ID de reserva generado
-            try (ResultSet rs = (ResultSet) ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    idReserva = rs.getInt(1);
-                }
-            }
-
-            // Insertar en la tabla específica según el tipo de reserva
-            if (idReserva != -1) {
-                ReservaDTO reservaEspecifica = null;
-                if (reservaDTO instanceof ReservaIndividual) {
-                    reservaEspecifica = ((ReservaIndividual) reservaDTO).getReservaEspecifica();
-                } else if (reservaDTO instanceof ReservaBono) {
-                    reservaEspecifica = ((ReservaBono) reservaDTO).getReservaEspecifica();
-                }
-
-                if (reservaEspecifica != null) {
-                    if (reservaEspecifica instanceof ReservaFamiliar) {
-                        insertarReservaFamiliar(idReserva, ((ReservaFamiliar) reservaEspecifica).getNumeroAdultos(), ((ReservaFamiliar) reservaEspecifica).getNumeroNinos());
-                    } else if (reservaEspecifica instanceof ReservaAdulto) {
-                        insertarReservaAdulto(idReserva, ((ReservaAdulto) reservaEspecifica).getNumeroAdultos());
-                    } else if (reservaEspecifica instanceof ReservaInfantil) {
-                        insertarReservaInfantil(idReserva, ((ReservaInfantil) reservaEspecifica).getNumeroNinos());
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        return reservas.realizarReserva(reservaDTO, null, false);
+    }
 
-        return idReserva;
+    /**
+     * Obtiene los tiempos de cada fase de la última reserva realizada por el hilo actual.
+     *
+     * @return Los tiempos de la última reserva, o null si el hilo aún no ha realizado ninguna.
+     */
+    public TiemposReserva getUltimosTiempos() {
+        return reservas.getUltimosTiempos();
     }
 
     /**
@@ -199,34 +148,7 @@ public class ReservasDAO {
 	 * @return El bono obtenido o null si no se encuentra.
      */
     public Bono obtenerBono(int idBono) {
-        Bono bono = null;
-        String sql = prop.getProperty("obtenerBono");
-
-        try {
-            if (con == null || con.isClosed()) {
-                DBConnection conexion = new DBConnection();
-                con = (Connection) conexion.getConnection();
-            }
-        } catch (SQLException e) {
-            throw new IllegalStateException("Error al verificar o reestablecer la conexión con la base de datos.", e);
-        }
-
-
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idBono);
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                if (rs.next()) {
-                    int idJugador = rs.getInt("idJugador");
-                    int numeroSesion = rs.getInt("numeroSesion");
-                    Date fechaCaducidad = rs.getDate("fechaCaducidad");
-                    bono = new Bono(idBono, idJugador, numeroSesion, fechaCaducidad);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return bono;
+        return bonos.obtenerBono(idBono);
     }
 
     /**
@@ -236,57 +158,30 @@ public class ReservasDAO {
      * @return El bono creado.
      */
     public Bono crearNuevoBono(int idUsuario) {
+        Bono bono = prepararNuevoBono(idUsuario);
+        bonos.insertarBono(bono);
+        return bono;
+    }
+
+    /**
+     * Prepara un bono nuevo para un jugador, sin guardarlo todavía.
+     *
+     * @param idUsuario El ID del usuario que recibirá el bono.
+     * @return El bono con sus 5 sesiones y su fecha de caducidad.
+     */
+    private Bono prepararNuevoBono(int idUsuario) {
         Bono bono = new Bono();
         bono.setIdUsuario(idUsuario);
         bono.setSesionesRestantes(5); // Inicializamos con 5 sesiones restantes
 
-        Date fechaPrimeraReserva = new Date(); // Fecha de creación como fecha de la primera reserva
+        LocalDate fechaPrimeraReserva = Reloj.hoy(); // Fecha de creación como fecha de la primera reserva
         bono.setFechaCaducidad(bono.calcularFechaCaducidad(fechaPrimeraReserva)); // Calcular la fecha de caducidad
-
-        String sql = prop.getProperty("insertarBono");
-
-        // Abrir conexión
-        DBConnection conexion = new DBConnection();
-        Connection con = (Connection) conexion.getConnection();
-
-        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            // Configurar los parámetros de la consulta
-            ps.setInt(1, idUsuario); // Asignar el idUsuario (idJugador)
-            ps.setInt(2, 0); // Inicializar numeroSesion a 0
-            ps.setDate(3, new java.sql.Date(bono.getFechaCaducidad().getTime())); // Fecha de caducidad
-
-            ps.executeUpdate();
-
-            // Obtener el `idBono` generado automáticamente por la base de datos
-            try (ResultSet rs = (ResultSet) ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    bono.setIdBono(rs.getInt(1)); // Asignar el idBono generado automáticamente
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            // Cerrar conexión
-            try {
-                if (con != null && !con.isClosed()) {
-                    con.close();
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
         return bono;
     }
 
-
-
-
-    
-    
     /**
-     * Actualiza una reserva en la base de datos con nueva información, incluyendo la fecha, duración, precio, 
-     * descuento, y tipo de reserva (infantil, familiar o adulto).
+     * Actualiza una reserva con nueva información, incluyendo la fecha, duración, precio, 
+     * descuento, y tipo de reserva (infantil, familiar o adulto), que puede cambiar.
      *
      * @param idReserva             El ID de la reserva a actualizar.
      * @param nuevaFechaHora        La nueva fecha y hora de la reserva.
@@ -296,150 +191,39 @@ public class ReservasDAO {
      * @param nuevaIdPista          El ID de la nueva pista asociada a la reserva.
      * @param numeroAdultos         El nuevo número de adultos para la reserva (solo para reservas familiares o de adultos).
      * @param numeroNinos           El nuevo número de niños para la reserva (solo para reservas familiares o infantiles).
-     *
-     *
-     * <p>La función utiliza sentencias SQL preparadas para asegurar la actualización correcta y segura de los datos.
-     * Dependiendo de los parámetros proporcionados, se actualizan las tablas correspondientes:
-     * - Si solo se especifica el número de niños, se actualiza la tabla de reservas infantiles.
-     * - Si se especifican tanto el número de adultos como de niños, se actualiza la tabla de reservas familiares.
-     * - Si solo se especifica el número de adultos, se actualiza la tabla de reservas de adultos.
-     * </p>
+     * @throws IllegalStateException Si la reserva no existe o no se puede actualizar.
      */
-    public void actualizarReserva(int idReserva, Date nuevaFechaHora, int nuevaDuracionMinutos, float nuevoPrecio, float nuevoDescuento, int nuevaIdPista, Integer numeroAdultos, Integer numeroNinos) {
-        String sqlActualizarReserva = prop.getProperty("actualizarReserva");
-        String sqlActualizarReservaInfantil = prop.getProperty("actualizarReservaInfantil");
-        String sqlActualizarReservaFamiliar = prop.getProperty("actualizarReservaFamiliar");
-        String sqlActualizarReservaAdulto = prop.getProperty("actualizarReservaAdulto");
-
-        DBConnection conexion = new DBConnection();
-        try (Connection con = (Connection) conexion.getConnection()) {  // Usa try-with-resources para cerrar automáticamente la conexión
-
-            // Actualizar la tabla principal `Reserva`
-            try (PreparedStatement ps = con.prepareStatement(sqlActualizarReserva)) {
-                ps.setTimestamp(1, new java.sql.Timestamp(nuevaFechaHora.getTime()));  // Fecha y hora
-                ps.setInt(2, nuevaDuracionMinutos);  // Duración
-                ps.setFloat(3, nuevoPrecio);  // Precio
-                ps.setFloat(4, nuevoDescuento);  // Descuento
-                ps.setInt(5, nuevaIdPista);  // Pista
-                ps.setInt(6, idReserva);  // ID de reserva
-
-                int filasActualizadas = ps.executeUpdate();
-                if (filasActualizadas == 0) {
-                    throw new IllegalStateException("No se pudo actualizar la reserva principal con ID: " + idReserva);
-                }
-            }
-
-            // Actualizar tabla específica según el tipo de reserva
-            if (numeroNinos != null && numeroAdultos == null) {  // Infantil
-                try (PreparedStatement psInfantil = con.prepareStatement(sqlActualizarReservaInfantil)) {
-                    psInfantil.setInt(1, numeroNinos);
-                    psInfantil.setInt(2, idReserva);
-                    psInfantil.executeUpdate();
-                }
-            } else if (numeroNinos != null && numeroAdultos != null) {  // Familiar
-                try (PreparedStatement psFamiliar = con.prepareStatement(sqlActualizarReservaFamiliar)) {
-                    psFamiliar.setInt(1, numeroAdultos);
-                    psFamiliar.setInt(2, numeroNinos);
-                    psFamiliar.setInt(3, idReserva);
-                    psFamiliar.executeUpdate();
-                }
-            } else if (numeroAdultos != null && numeroNinos == null) {  // Adulto
-                try (PreparedStatement psAdulto = con.prepareStatement(sqlActualizarReservaAdulto)) {
-                    psAdulto.setInt(1, numeroAdultos);
-                    psAdulto.setInt(2, idReserva);
-                    psAdulto.executeUpdate();
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new IllegalStateException("Error al actualizar la reserva: " + e.getMessage(), e);
-        }
+    public void actualizarReserva(int idReserva, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, float nuevoPrecio, float nuevoDescuento, int nuevaIdPista, Integer numeroAdultos, Integer numeroNinos) {
+        reservas.actualizarReserva(idReserva, nuevaFechaHora, nuevaDuracionMinutos, nuevoPrecio, nuevoDescuento, nuevaIdPista, numeroAdultos, numeroNinos);
     }
 
-
     /**
      * Actualiza las sesiones restantes de un bono.
      *
      * @param idBono El ID del bono a actualizar.
+     * @throws IllegalStateException Si no se puede actualizar el bono.
      */
     public void actualizarSesionesBono(int idBono) {
-        String sql = prop.getProperty("actualizarSesionesBono");
-
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idBono);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        bonos.actualizarSesionesBono(idBono);
     }
-    
+
     /**
      * Decrementa las sesiones utilizadas de un bono.
      *
      * @param idBono El ID del bono a actualizar.
+     * @throws IllegalStateException Si no se puede actualizar el bono.
      */
     public void decrementarSesionesBono(int idBono) {
-        String sql = prop.getProperty("actualizarSesionesBonoDecrementar");
-
-        DBConnection conexion = new DBConnection();
-        try (Connection con = (Connection) conexion.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idBono);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        bonos.decrementarSesionesBono(idBono);
     }
 
-
     /**
-     * Elimina una reserva de la base de datos.
+     * Elimina una reserva y su tipo.
      *
      * @param idReserva El ID de la reserva a eliminar.
      */
     public void eliminarReserva(int idReserva) {
-        String sqlEliminarReserva = prop.getProperty("eliminarReserva");
-        DBConnection conexion = new DBConnection();
-
-        try (Connection con = (Connection) conexion.getConnection()) {
-            try (PreparedStatement ps = con.prepareStatement(sqlEliminarReserva)) {
-                ps.setInt(1, idReserva);
-                ps.executeUpdate();
-            }
-            eliminarReservaEspecifica(idReserva);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Elimina una reserva específica en las tablas correspondientes.
-     *
-     * @param idReserva El ID de la reserva a eliminar.
-     */
-    public void eliminarReservaEspecifica(int idReserva) {
-        String sqlEliminarReservaInfantil = prop.getProperty("eliminarReservaInfantil");
-        String sqlEliminarReservaFamiliar = prop.getProperty("eliminarReservaFamiliar");
-        String sqlEliminarReservaAdulto = prop.getProperty("eliminarReservaAdulto");
-
-        DBConnection conexion = new DBConnection();
-
-        try (Connection con = (Connection) conexion.getConnection()) {
-            try (PreparedStatement psInfantil = con.prepareStatement(sqlEliminarReservaInfantil)) {
-                psInfantil.setInt(1, idReserva);
-                psInfantil.executeUpdate();
-            }
-            try (PreparedStatement psFamiliar = con.prepareStatement(sqlEliminarReservaFamiliar)) {
-                psFamiliar.setInt(1, idReserva);
-                psFamiliar.executeUpdate();
-            }
-            try (PreparedStatement psAdulto = con.prepareStatement(sqlEliminarReservaAdulto)) {
-                psAdulto.setInt(1, idReserva);
-                psAdulto.executeUpdate();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        reservas.eliminarReserva(idReserva);
     }
 
     /**
@@ -454,7 +238,33 @@ public class ReservasDAO {
      * @return El ID de la reserva creada.
      * @throws IllegalArgumentException Si la cuenta del jugador no está activa, si los parámetros son inválidos, o si la pista no cumple las condiciones para el tipo de reserva.
      */
-    public int hacerReservaIndividual(JugadorDTO jugadorDTO, Date fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
+    public int hacerReservaIndividual(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
+        long inicio = System.nanoTime();
+        int idReserva = -1;
+        CoordinadorReservas.Bloqueo bloqueo = coordinador.bloquear(pistaDTO.getIdPista());
+        try {
+            ReservaDTO reservaDTO = crearReservaIndividual(jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos);
+            idReserva = reservas.realizarReserva(reservaDTO, jugadorDTO, false);
+            return idReserva;
+        } finally {
+            bloqueo.close();
+            metricas.registrar(Operacion.RESERVA_INDIVIDUAL, inicio, idReserva != -1);
+        }
+    }
+
+    /**
+     * Valida los datos de una reserva individual y crea la reserva, sin guardarla.
+     *
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos incluidos en la reserva.
+     * @param numeroNinos     El número de niños incluidos en la reserva.
+     * @return La reserva individual con su descuento por antigüedad.
+     * @throws IllegalArgumentException Si la cuenta del jugador no está activa, si los parámetros son inválidos o si la pista está ocupada.
+     */
+    private ReservaDTO crearReservaIndividual(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
         if (!jugadorDTO.isCuentaActiva()) {
             throw new IllegalArgumentException("La cuenta del jugador no está activa.");
         }
@@ -462,6 +272,7 @@ public class ReservasDAO {
         // Validaciones comunes
         validarFechaHora(fechaHora);
         validarMaximoJugadores(pistaDTO, numeroAdultos, numeroNinos);
+        validarPistaLibre(pistaDTO.getIdPista(), fechaHora, duracionMinutos, -1);
         String tipoReserva = determinarTipoReserva(numeroAdultos, numeroNinos);
 
         // Validaciones exclusivas y creación de la reserva
@@ -485,8 +296,101 @@ public class ReservasDAO {
         }
 
         reservaDTO.setDescuento(descuentoAntiguedad);
-        actualizarFechaInscripcionSiEsNecesario(jugadorDTO);
-        return insertarReserva(reservaDTO);
+        return reservaDTO;
+    }
+
+    /**
+     * Realiza en bloque un conjunto de reservas individuales, por ejemplo el calendario de una liga.
+     * Primero se validan todas las solicitudes (cuenta activa, horario, número de jugadores, tipo de
+     * pista y solapes, tanto con las reservas existentes como entre las propias solicitudes); después
+     * las válidas se guardan de una vez; con la base de datos, en una única transacción con
+     * sentencias por lotes, de modo que la carga cuesta unas pocas idas y vueltas en lugar de varias por reserva.
+     * Todas las pistas de la carga quedan bloqueadas desde la validación hasta el guardado.
+     *
+     * @param solicitudes Las reservas a realizar.
+     * @return El resultado de cada solicitud, en el mismo orden en que se recibieron.
+     */
+    public List<ResultadoReserva> hacerReservasIndividuales(List<SolicitudReserva> solicitudes) {
+        int[] idsPista = new int[solicitudes.size()];
+        for (int i = 0; i < idsPista.length; i++) {
+            idsPista[i] = solicitudes.get(i).getPistaDTO().getIdPista();
+        }
+        CoordinadorReservas.Bloqueo bloqueo = coordinador.bloquear(idsPista);
+        try {
+            return guardarSolicitudes(solicitudes);
+        } finally {
+            bloqueo.close();
+        }
+    }
+
+    /**
+     * Valida y guarda las solicitudes de una carga masiva, con sus pistas ya bloqueadas.
+     *
+     * @param solicitudes Las reservas a realizar.
+     * @return El resultado de cada solicitud, en el mismo orden en que se recibieron.
+     */
+    private List<ResultadoReserva> guardarSolicitudes(List<SolicitudReserva> solicitudes) {
+        ResultadoReserva[] resultados = new ResultadoReserva[solicitudes.size()];
+        List<Integer> indicesValidos = new ArrayList<>();
+        List<ReservaDTO> reservasValidas = new ArrayList<>();
+        Map<Integer, List<ReservaDTO>> aceptadasPorPista = new HashMap<>();
+
+        for (int i = 0; i < solicitudes.size(); i++) {
+            SolicitudReserva solicitud = solicitudes.get(i);
+            try {
+                ReservaDTO reservaDTO = validarSolicitud(solicitud, aceptadasPorPista);
+                aceptadasPorPista.computeIfAbsent(reservaDTO.getIdPista(), id -> new ArrayList<>()).add(reservaDTO);
+                indicesValidos.add(i);
+                reservasValidas.add(reservaDTO);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = new ResultadoReserva(i, -1, e.getMessage());
+            }
+        }
+
+        if (!reservasValidas.isEmpty()) {
+            List<JugadorDTO> jugadoresValidos = new ArrayList<>();
+            for (int indice : indicesValidos) {
+                jugadoresValidos.add(solicitudes.get(indice).getJugadorDTO());
+            }
+            String error = reservas.insertarReservas(reservasValidas, jugadoresValidos);
+            for (int j = 0; j < indicesValidos.size(); j++) {
+                int indice = indicesValidos.get(j);
+                resultados[indice] = error == null
+                        ? new ResultadoReserva(indice, reservasValidas.get(j).getIdReserva(), null)
+                        : new ResultadoReserva(indice, -1, error);
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Valida una solicitud de una carga masiva y crea su reserva, sin guardarla.
+     *
+     * @param solicitud         La solicitud a validar.
+     * @param aceptadasPorPista Las reservas de la misma carga ya aceptadas, agrupadas por pista.
+     * @return La reserva individual de la solicitud.
+     * @throws IllegalArgumentException Si la solicitud no es válida o se solapa con otra reserva.
+     */
+    private ReservaDTO validarSolicitud(SolicitudReserva solicitud, Map<Integer, List<ReservaDTO>> aceptadasPorPista) {
+        PistaDTO pistaDTO = solicitud.getPistaDTO();
+        String tipoReserva = determinarTipoReserva(solicitud.getNumeroAdultos(), solicitud.getNumeroNinos());
+        if (!cumpleCondicionesTipoReserva(pistaDTO, tipoReserva)) {
+            throw new IllegalArgumentException("La pista no cumple las condiciones para una reserva " + tipoReserva + ".");
+        }
+
+        ReservaDTO reservaDTO = crearReservaIndividual(solicitud.getJugadorDTO(), solicitud.getFechaHora(),
+                solicitud.getDuracionMinutos(), pistaDTO, solicitud.getNumeroAdultos(), solicitud.getNumeroNinos());
+
+        // Las reservas de la misma carga aún no están guardadas, así que el repositorio no las ve
+        LocalDateTime inicio = reservaDTO.getFechaHora();
+        LocalDateTime fin = inicio.plusMinutes(reservaDTO.getDuracionMinutos());
+        for (ReservaDTO aceptada : aceptadasPorPista.getOrDefault(pistaDTO.getIdPista(), Collections.emptyList())) {
+            LocalDateTime inicioAceptada = aceptada.getFechaHora();
+            if (inicioAceptada.isBefore(fin) && inicio.isBefore(inicioAceptada.plusMinutes(aceptada.getDuracionMinutos()))) {
+                throw new IllegalArgumentException("La pista ya está reservada en ese horario por otra solicitud de la carga.");
+            }
+        }
+        return reservaDTO;
     }
 
     /**
@@ -501,59 +405,126 @@ public class ReservasDAO {
      * @return {@code true} si la reserva se realiza correctamente, {@code false} en caso contrario.
      * @throws IllegalArgumentException Si la cuenta del jugador no está activa, si los parámetros son inválidos, o si la pista no cumple las condiciones para el tipo de reserva.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
-     * @throws IllegalStateException Si no se puede crear un bono válido para el jugador.
+     * @throws IllegalStateException Si no se puede crear un bono válido para el jugador o si otras
+     *         reservas simultáneas le quitan la sesión del bono en todos los intentos.
      */
-    public boolean hacerReservaBono(JugadorDTO jugadorDTO, Date fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) throws SQLException {
+    public boolean hacerReservaBono(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) throws SQLException {
+        long inicio = System.nanoTime();
+        boolean realizada = false;
+        try {
+            realizada = realizarReservaBono(jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos);
+            if (realizada) {
+                metricas.registrarSesionConsumida();
+            }
+            return realizada;
+        } finally {
+            metricas.registrar(Operacion.RESERVA_BONO, inicio, realizada);
+        }
+    }
+
+    /**
+     * Valida y guarda una reserva con bono, consumiendo una sesión del bono del jugador o de uno
+     * nuevo si no tiene ninguno utilizable.
+     *
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos incluidos en la reserva.
+     * @param numeroNinos     El número de niños incluidos en la reserva.
+     * @return {@code true} si la reserva se ha guardado.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private boolean realizarReservaBono(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) throws SQLException {
         if (!jugadorDTO.isCuentaActiva()) {
             throw new IllegalArgumentException("La cuenta del jugador no está activa.");
         }
 
-        // Validación de fecha y hora
-        validarFechaHora(fechaHora);
-
-        // Obtener bono asociado o crear uno nuevo si no existe
-        Bono bono = obtenerBonoPorJugador(jugadorDTO.getIdJugador());
-        if (bono == null || bono.estaCaducado() || bono.getSesionesRestantes() <= 0) {
-            bono = crearNuevoBono(jugadorDTO.getIdJugador());
-        }
+        CoordinadorReservas.Bloqueo bloqueo = coordinador.bloquear(pistaDTO.getIdPista());
+        try {
+            // Validación de fecha y hora y de que la pista esté libre
+            validarFechaHora(fechaHora);
+            validarPistaLibre(pistaDTO.getIdPista(), fechaHora, duracionMinutos, -1);
+
+            // Validación de condiciones de la pista
+            String tipoReserva = determinarTipoReserva(numeroAdultos, numeroNinos);
+            if (!cumpleCondicionesTipoReserva(pistaDTO, tipoReserva)) {
+                throw new IllegalArgumentException("La pista seleccionada no es válida para el tipo de reserva '" + tipoReserva + "'.");
+            }
 
-        if (bono == null || bono.estaCaducado() || bono.getSesionesRestantes() <= 0) {
-            throw new IllegalStateException("No se pudo crear un bono válido.");
+            // La sesión del bono se asigna de forma optimista: si otra reserva simultánea la consume
+            // antes, se vuelve a leer el bono (o se prepara uno nuevo si se ha agotado) y se reintenta
+            int idJugador = jugadorDTO.getIdJugador();
+            for (int intento = 1; ; intento++) {
+                try {
+                    Bono bono = obtenerBonoPorJugador(idJugador);
+                    if (esBonoUtilizable(bono)) {
+                        ReservaDTO reservaDTO = crearReservaBono(tipoReserva, jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos, bono);
+                        // Insertar la reserva y consumir la sesión del bono en una única transacción
+                        return reservas.realizarReserva(reservaDTO, jugadorDTO, false) != -1;
+                    }
+                    synchronized (CERROJOS_BONO_NUEVO[Math.floorMod(idJugador, CERROJOS_BONO_NUEVO.length)]) {
+                        // Otra reserva del jugador puede haber creado el bono mientras se esperaba
+                        if (!esBonoUtilizable(obtenerBonoPorJugador(idJugador))) {
+                            Bono bonoNuevo = prepararNuevoBono(idJugador);
+                            if (!esBonoUtilizable(bonoNuevo)) {
+                                throw new IllegalStateException("No se pudo crear un bono válido.");
+                            }
+                            ReservaDTO reservaDTO = crearReservaBono(tipoReserva, jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos, bonoNuevo);
+                            return reservas.realizarReserva(reservaDTO, jugadorDTO, true) != -1;
+                        }
+                    }
+                } catch (RepositorioBonos.SesionBonoOcupadaException e) {
+                    if (intento >= INTENTOS_SESION_BONO) {
+                        throw new IllegalStateException("No se pudo asignar una sesión del bono tras "
+                                + INTENTOS_SESION_BONO + " intentos: " + e.getMessage(), e);
+                    }
+                }
+            }
+        } finally {
+            bloqueo.close();
         }
+    }
 
-        // Calcular número de sesión
-        int numeroSesion = 5 - bono.getSesionesRestantes();
+    /**
+     * Comprueba si un bono puede usarse para una reserva nueva.
+     *
+     * @param bono El bono, o null.
+     * @return true si existe, no ha caducado y le quedan sesiones.
+     */
+    private static boolean esBonoUtilizable(Bono bono) {
+        return bono != null && !bono.estaCaducado() && bono.getSesionesRestantes() > 0;
+    }
 
-        // Validación de condiciones de la pista
-        String tipoReserva = determinarTipoReserva(numeroAdultos, numeroNinos);
-        if (!cumpleCondicionesTipoReserva(pistaDTO, tipoReserva)) {
-            throw new IllegalArgumentException("La pista seleccionada no es válida para el tipo de reserva '" + tipoReserva + "'.");
-        }
+    /**
+     * Crea con la fábrica de bonos la reserva que consumirá la siguiente sesión de un bono.
+     *
+     * @param tipoReserva     El tipo de reserva (infantil, familiar o adulto).
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos.
+     * @param numeroNinos     El número de niños.
+     * @param bono            El bono tal como se ha leído, o el nuevo bono todavía sin guardar.
+     * @return La reserva creada.
+     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     */
+    private ReservaDTO crearReservaBono(String tipoReserva, JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos, Bono bono) {
+        // Número de la sesión que se espera consumir; el repositorio lo confirma al guardar
+        int numeroSesion = 5 - bono.getSesionesRestantes() + 1;
 
-        // Crear reserva usando la fábrica
         ReservaFactory reservaFactory = new ReservaBonoFactory();
-        ReservaDTO reservaDTO;
         switch (tipoReserva.toLowerCase()) {
             case "infantil":
-                reservaDTO = reservaFactory.crearReservaInfantil(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroNinos, bono, numeroSesion);
-                break;
+                return reservaFactory.crearReservaInfantil(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroNinos, bono, numeroSesion);
             case "familiar":
-                reservaDTO = reservaFactory.crearReservaFamiliar(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroAdultos, numeroNinos, bono, numeroSesion);
-                break;
+                return reservaFactory.crearReservaFamiliar(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroAdultos, numeroNinos, bono, numeroSesion);
             case "adulto":
-                reservaDTO = reservaFactory.crearReservaAdulto(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroAdultos, bono, numeroSesion);
-                break;
+                return reservaFactory.crearReservaAdulto(jugadorDTO.getIdJugador(), fechaHora, duracionMinutos, pistaDTO.getIdPista(), numeroAdultos, bono, numeroSesion);
             default:
                 throw new IllegalArgumentException("Tipo de reserva no válido: " + tipoReserva);
         }
-
-        // Insertar la reserva en la base de datos
-        int idReserva = insertarReserva(reservaDTO);
-        reservaDTO.setIdReserva(idReserva);
-
-        // Actualizar sesiones restantes del bono
-        actualizarSesionesBono(bono.getIdBono());
-        return true;
     }
 
     /**
@@ -570,81 +541,56 @@ public class ReservasDAO {
      * @param bono El bono a utilizar en la nueva reserva, si aplica.
      * @param numeroSesion El número de la sesión del bono, si aplica.
      * @throws IllegalArgumentException Si no se encuentra la reserva, si no se puede modificar, si la pista no es válida o si los parámetros son inválidos.
-     * @throws IllegalStateException Si ocurre un error al actualizar la base de datos.
+     * @throws IllegalStateException Si ocurre un error al guardar la reserva modificada.
      */
-    public void modificarReserva(JugadorDTO jugadorDTO, PistaDTO pistaOriginal, Date fechaHoraOriginal, PistaDTO nuevaPista, Date nuevaFechaHora, int nuevaDuracionMinutos, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
-        // Buscar la reserva existente en la base de datos
-        ReservaDTO reservaExistente = encontrarReserva(jugadorDTO.getIdJugador(), pistaOriginal.getIdPista(), fechaHoraOriginal);
-
-        if (reservaExistente == null) {
-            throw new IllegalArgumentException("No se encontró la reserva original para modificar.");
-        }
-
-        // Verificar si puede modificarse
-        if (!puedeModificarseOCancelarse(reservaExistente)) {
-            throw new IllegalArgumentException("No se puede modificar la reserva, ya está dentro de las 24h antes de la hora de inicio.");
-        }
-
-        // Validar la nueva fecha y hora
-        validarFechaHora(nuevaFechaHora);
+    public void modificarReserva(JugadorDTO jugadorDTO, PistaDTO pistaOriginal, LocalDateTime fechaHoraOriginal, PistaDTO nuevaPista, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, int numeroAdultos, int numeroNinos, Bono bono, int numeroSesion) {
+        long inicio = System.nanoTime();
+        boolean modificada = false;
+        // Se bloquean la pista original y la nueva para que nadie ocupe el horario mientras se mueve la reserva
+        CoordinadorReservas.Bloqueo bloqueo = coordinador.bloquear(pistaOriginal.getIdPista(), nuevaPista.getIdPista());
+        try {
+            // Buscar la reserva existente
+            ReservaDTO reservaExistente = encontrarReserva(jugadorDTO.getIdJugador(), pistaOriginal.getIdPista(), fechaHoraOriginal);
 
-        // Determinar el nuevo tipo de reserva basado en los parámetros
-        String nuevoTipoReserva = determinarTipoReserva(numeroAdultos, numeroNinos);
+            if (reservaExistente == null) {
+                throw new IllegalArgumentException("No se encontró la reserva original para modificar.");
+            }
 
-        // Validar si la nueva pista cumple las condiciones para el tipo de reserva
-        if (!cumpleCondicionesTipoReserva(nuevaPista, nuevoTipoReserva)) {
-            throw new IllegalArgumentException("La pista seleccionada no es válida para el tipo de reserva '" + nuevoTipoReserva + "'.");
-        }
+            // Verificar si puede modificarse
+            if (!puedeModificarseOCancelarse(reservaExistente)) {
+                throw new IllegalArgumentException("No se puede modificar la reserva, ya está dentro de las 24h antes de la hora de inicio.");
+            }
 
-        // Validar el número máximo de jugadores en la nueva pista
-        validarMaximoJugadores(nuevaPista, numeroAdultos, numeroNinos);
-
-        // Calcular el nuevo precio
-        float nuevoPrecio = ReservaDTO.calcularPrecio(nuevaDuracionMinutos, reservaExistente.getDescuento());
-
-        // Actualizar los datos comunes de la reserva en la tabla principal
-        actualizarReserva(reservaExistente.getIdReserva(), nuevaFechaHora, nuevaDuracionMinutos, nuevoPrecio, reservaExistente.getDescuento(), nuevaPista.getIdPista(), 
-                          nuevoTipoReserva.equals("familiar") || nuevoTipoReserva.equals("adulto") ? numeroAdultos : null, 
-                          nuevoTipoReserva.equals("familiar") || nuevoTipoReserva.equals("infantil") ? numeroNinos : null);
-
-	        switch (nuevoTipoReserva.toLowerCase()) {
-	        case "familiar":
-	            try {
-	                eliminarReservaEspecifica(reservaExistente.getIdReserva());
-	                insertarReservaFamiliar(reservaExistente.getIdReserva(), numeroAdultos, numeroNinos);
-	            } catch (SQLException e) {
-	                throw new IllegalStateException("Error al actualizar la reserva como Familiar: " + e.getMessage(), e);
-	            }
-	            break;
-	
-	        case "adulto":
-	            try {
-	                eliminarReservaEspecifica(reservaExistente.getIdReserva());
-	                insertarReservaAdulto(reservaExistente.getIdReserva(), numeroAdultos);
-	            } catch (SQLException e) {
-	                throw new IllegalStateException("Error al actualizar la reserva como Adulto: " + e.getMessage(), e);
-	            }
-	            break;
-	
-	        case "infantil":
-	            try {
-	                eliminarReservaEspecifica(reservaExistente.getIdReserva());
-	                insertarReservaInfantil(reservaExistente.getIdReserva(), numeroNinos);
-	            } catch (SQLException e) {
-	                throw new IllegalStateException("Error al actualizar la reserva como Infantil: " + e.getMessage(), e);
-	            }
-	            break;
-	
-	        default:
-	            throw new IllegalArgumentException("Tipo de reserva no válido: " + nuevoTipoReserva);
-	    }
+            // Validar la nueva fecha y hora
+            validarFechaHora(nuevaFechaHora);
 
-    }
+            // Determinar el nuevo tipo de reserva basado en los parámetros
+            String nuevoTipoReserva = determinarTipoReserva(numeroAdultos, numeroNinos);
 
+            // Validar si la nueva pista cumple las condiciones para el tipo de reserva
+            if (!cumpleCondicionesTipoReserva(nuevaPista, nuevoTipoReserva)) {
+                throw new IllegalArgumentException("La pista seleccionada no es válida para el tipo de reserva '" + nuevoTipoReserva + "'.");
+            }
 
+            // Validar el número máximo de jugadores en la nueva pista
+            validarMaximoJugadores(nuevaPista, numeroAdultos, numeroNinos);
 
+            // Validar que la nueva pista esté libre, sin contar la propia reserva
+            validarPistaLibre(nuevaPista.getIdPista(), nuevaFechaHora, nuevaDuracionMinutos, reservaExistente.getIdReserva());
 
+            // Calcular el nuevo precio; como al crear la reserva, el descuento se guarda aparte
+            float nuevoPrecio = ReservaDTO.calcularPrecio(nuevaDuracionMinutos, 0);
 
+            // Actualizar la reserva y su tipo, que puede haber cambiado
+            actualizarReserva(reservaExistente.getIdReserva(), nuevaFechaHora, nuevaDuracionMinutos, nuevoPrecio, reservaExistente.getDescuento(), nuevaPista.getIdPista(), 
+                              nuevoTipoReserva.equals("familiar") || nuevoTipoReserva.equals("adulto") ? numeroAdultos : null, 
+                              nuevoTipoReserva.equals("familiar") || nuevoTipoReserva.equals("infantil") ? numeroNinos : null);
+            modificada = true;
+        } finally {
+            bloqueo.close();
+            metricas.registrar(Operacion.MODIFICACION, inicio, modificada);
+        }
+    }
 
     /**
      * Cancela una reserva existente.
@@ -653,31 +599,40 @@ public class ReservasDAO {
      * @param pistaDTO La pista de la reserva a cancelar.
      * @param fechaHora La fecha y hora de la reserva a cancelar.
      * @throws IllegalArgumentException Si la cuenta del jugador no está activa, si no se encuentra la reserva, o si no se puede cancelar la reserva.
+     * @throws IllegalStateException Si falla la eliminación de la reserva; en ese caso no se devuelve la sesión del bono.
      */
-    public void cancelarReserva(JugadorDTO jugadorDTO, PistaDTO pistaDTO, Date fechaHora) {
+    public void cancelarReserva(JugadorDTO jugadorDTO, PistaDTO pistaDTO, LocalDateTime fechaHora) {
+        long inicio = System.nanoTime();
+        boolean cancelada = false;
         if (!jugadorDTO.isCuentaActiva()) {
+            metricas.registrar(Operacion.CANCELACION, inicio, false);
             throw new IllegalArgumentException("La cuenta del jugador no está activa.");
         }
 
-        ReservasDAO reservasDAO = new ReservasDAO();
-        
-        // Buscar la reserva en la base de datos
-        ReservaDTO reservaDTO = reservasDAO.encontrarReserva(jugadorDTO.getIdJugador(), pistaDTO.getIdPista(), fechaHora);
+        CoordinadorReservas.Bloqueo bloqueo = coordinador.bloquear(pistaDTO.getIdPista());
+        try {
+            // Buscar la reserva
+            ReservaDTO reservaDTO = encontrarReserva(jugadorDTO.getIdJugador(), pistaDTO.getIdPista(), fechaHora);
 
-        if (reservaDTO == null) {
-            throw new IllegalArgumentException("Reserva no encontrada.");
-        }
+            if (reservaDTO == null) {
+                throw new IllegalArgumentException("Reserva no encontrada.");
+            }
 
-        // Verificar si la reserva puede cancelarse
-        if (!puedeModificarseOCancelarse(reservaDTO)) {
-            throw new IllegalArgumentException("No se puede cancelar la reserva, ya está dentro de las 24h antes de la hora de inicio.");
-        }
+            // Verificar si la reserva puede cancelarse
+            if (!puedeModificarseOCancelarse(reservaDTO)) {
+                throw new IllegalArgumentException("No se puede cancelar la reserva, ya está dentro de las 24h antes de la hora de inicio.");
+            }
 
-        // Eliminar la reserva de la base de datos
-        reservasDAO.eliminarReserva(reservaDTO.getIdReserva());
-        if (reservaDTO instanceof ReservaBono) {
-            ReservaBono reservaBono = (ReservaBono) reservaDTO;
-            decrementarSesionesBono(reservaBono.getBono().getIdBono());
+            // Eliminar la reserva y devolver la sesión al bono, todo o nada
+            Integer idBono = reservaDTO instanceof ReservaBono ? ((ReservaBono) reservaDTO).getBono().getIdBono() : null;
+            reservas.cancelarReserva(reservaDTO.getIdReserva(), idBono);
+            if (idBono != null) {
+                metricas.registrarSesionDevuelta();
+            }
+            cancelada = true;
+        } finally {
+            bloqueo.close();
+            metricas.registrar(Operacion.CANCELACION, inicio, cancelada);
         }
     }
 
@@ -687,229 +642,181 @@ public class ReservasDAO {
      * @return Una lista de reservas futuras.
      */
     public List<ReservaDTO> consultarReservasFuturas() {
-        List<ReservaDTO> reservasFuturas = new ArrayList<>();
-        Date fechaActual = new Date();
-        String sql = prop.getProperty("consultarReservasFuturas");
-
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setTimestamp(1, new java.sql.Timestamp(fechaActual.getTime()));
-
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                while (rs.next()) {
-                    int idReserva = rs.getInt("idReserva");
-                    int idJugador = rs.getInt("idJugador");
-                    int idPista = rs.getInt("idPista");
-                    Date fechaHora = rs.getTimestamp("fechaHora");
-                    int duracionMin = rs.getInt("duracionMin");
-                    float precio = rs.getFloat("precio");
-                    float descuento = rs.getFloat("descuento");
-                    Integer idBono = rs.getObject("idBono") != null ? rs.getInt("idBono") : null;
-                    Integer numeroSesion = rs.getObject("numeroSesion") != null ? rs.getInt("numeroSesion") : null;
-
-                    ReservaFactory reservaFactory = (idBono != null) ? new ReservaBonoFactory() : new ReservaIndividualFactory();
-                    ReservaDTO reservaDTO = null;
-
-                    // Consulta para determinar si es una ReservaFamiliar
-                    String sqlFamiliar = prop.getProperty("buscarReservaFamiliar");
-                    try (PreparedStatement psFamiliar = con.prepareStatement(sqlFamiliar)) {
-                        psFamiliar.setInt(1, idReserva);
-                        try (ResultSet rsFamiliar = (ResultSet) psFamiliar.executeQuery()) {
-                            if (rsFamiliar.next()) {
-                                int numeroAdultos = rsFamiliar.getInt("numAdultos");
-                                int numeroNinos = rsFamiliar.getInt("numNinos");
-                                reservaDTO = (idBono != null)
-                                        ? reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                        : reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos);
-                            }
-                        }
-                    }
+        return reservas.consultarReservasFuturas();
+    }
 
-                    // Consulta para determinar si es una ReservaAdulto
-                    if (reservaDTO == null) { // Solo si aún no se ha asignado
-                        String sqlAdulto = prop.getProperty("buscarReservaAdulto");
-                        try (PreparedStatement psAdulto = con.prepareStatement(sqlAdulto)) {
-                            psAdulto.setInt(1, idReserva);
-                            try (ResultSet rsAdulto = (ResultSet) psAdulto.executeQuery()) {
-                                if (rsAdulto.next()) {
-                                    int numeroAdultos = rsAdulto.getInt("numAdultos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos);
-                                }
-                            }
-                        }
-                    }
+    /**
+     * Recorre las reservas futuras a medida que se consumen, sin cargarlas todas en memoria.
+     * El flujo debe cerrarse, por ejemplo con un try-with-resources, para liberar el cursor y la
+     * conexión si se deja de leer antes del final.
+     *
+     * @param despuesDe Posición de la última reserva ya leída, o null para empezar por la primera.
+     * @param limite    Número máximo de reservas, o 0 para no poner límite.
+     * @return Las reservas futuras, ordenadas por fecha y después por ID.
+     * @throws IllegalStateException Si no se pueden leer las reservas.
+     */
+    public Stream<ReservaDTO> recorrerReservasFuturas(PosicionReserva despuesDe, int limite) {
+        return reservas.recorrerReservasFuturas(despuesDe, limite);
+    }
 
-                    // Consulta para determinar si es una ReservaInfantil
-                    if (reservaDTO == null) { // Solo si aún no se ha asignado
-                        String sqlInfantil = prop.getProperty("buscarReservaInfantil");
-                        try (PreparedStatement psInfantil = con.prepareStatement(sqlInfantil)) {
-                            psInfantil.setInt(1, idReserva);
-                            try (ResultSet rsInfantil = (ResultSet) psInfantil.executeQuery()) {
-                                if (rsInfantil.next()) {
-                                    int numeroNinos = rsInfantil.getInt("numNinos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos);
-                                }
-                            }
-                        }
-                    }
-                    if(reservaDTO != null)
-                    {
-                    // Asignar precio y descuento a la reserva
-                    reservaDTO.setIdReserva(idReserva);
-                    reservaDTO.setPrecio(precio);
-                    reservaDTO.setDescuento(descuento);
-
-                    reservasFuturas.add(reservaDTO);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (con != null) con.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+    /**
+     * Obtiene una página de reservas futuras. Para pedir la siguiente se pasa la posición de la
+     * última reserva de la página, con {@link PosicionReserva#de(ReservaDTO)}.
+     *
+     * @param despuesDe    Posición de la última reserva de la página anterior, o null para la primera página.
+     * @param tamanoPagina Número máximo de reservas de la página.
+     * @return Las reservas de la página; si hay menos que {@code tamanoPagina}, es la última.
+     * @throws IllegalArgumentException Si el tamaño de página no es positivo.
+     * @throws IllegalStateException Si no se pueden leer las reservas.
+     */
+    public List<ReservaDTO> consultarPaginaReservasFuturas(PosicionReserva despuesDe, int tamanoPagina) {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo.");
+        }
+        try (Stream<ReservaDTO> pagina = reservas.recorrerReservasFuturas(despuesDe, tamanoPagina)) {
+            return pagina.collect(Collectors.toList());
         }
-
-        return reservasFuturas;
     }
 
-
-
     /**
      * Consulta las reservas para un día específico y una pista específica.
      *
-     * @param fechaInicio Fecha inicio para consultar reservas.
-     * @param fechaFin Fecha fin para consultar reservas..
+     * @param fechaInicio Primer día para consultar reservas, desde las 0:00.
+     * @param fechaFin Último día para consultar reservas, incluido entero.
      * @param idPistaConsulta El id de la pista para consultar las reservas.
      * @return Una lista de reservas para el día y la pista especificados.
      */
+    public List<ReservaDTO> consultarReservasPorRangosDeFechaYPista(LocalDate fechaInicio, LocalDate fechaFin, int idPistaConsulta) {
+        // Ajustar las fechas de inicio y fin a días completos
+        return reservas.consultarReservasPorRangosDeFechaYPista(fechaInicio.atStartOfDay(), fechaFin.atTime(LocalTime.MAX), idPistaConsulta);
+    }
 
-    public List<ReservaDTO> consultarReservasPorRangosDeFechaYPista(Date fechaInicio, Date fechaFin, int idPistaConsulta) {
-        List<ReservaDTO> reservasPorFecha = new ArrayList<>();
-        String sql = prop.getProperty("consultarReservasPorRangoDeFechasYPista");
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-
-        // Ajustar las fechas de inicio y fin
-        Calendar calInicio = Calendar.getInstance();
-        calInicio.setTime(fechaInicio);
-        calInicio.set(Calendar.HOUR_OF_DAY, 0);
-        calInicio.set(Calendar.MINUTE, 0);
-        calInicio.set(Calendar.SECOND, 0);
-        calInicio.set(Calendar.MILLISECOND, 0);
-        Date fechaInicioAjustada = calInicio.getTime();
-
-        Calendar calFin = Calendar.getInstance();
-        calFin.setTime(fechaFin);
-        calFin.set(Calendar.HOUR_OF_DAY, 23);
-        calFin.set(Calendar.MINUTE, 59);
-        calFin.set(Calendar.SECOND, 59);
-        calFin.set(Calendar.MILLISECOND, 999);
-        Date fechaFinAjustada = calFin.getTime();
-
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setTimestamp(1, new java.sql.Timestamp(fechaInicioAjustada.getTime()));
-            ps.setTimestamp(2, new java.sql.Timestamp(fechaFinAjustada.getTime()));
-            ps.setInt(3, idPistaConsulta);
-
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                while (rs.next()) {
-                    int idReserva = rs.getInt("idReserva");
-                    int idJugador = rs.getInt("idJugador");
-                    int idPista = rs.getInt("idPista");
-                    Date fechaHora = rs.getTimestamp("fechaHora");
-                    int duracionMin = rs.getInt("duracionMin");
-                    float precio = rs.getFloat("precio");
-                    float descuento = rs.getFloat("descuento");
-                    Integer idBono = rs.getObject("idBono") != null ? rs.getInt("idBono") : null;
-                    Integer numeroSesion = rs.getObject("numeroSesion") != null ? rs.getInt("numeroSesion") : null;
-
-                    // Crear la fábrica adecuada
-                    ReservaFactory reservaFactory = (idBono != null) ? new ReservaBonoFactory() : new ReservaIndividualFactory();
-                    ReservaDTO reservaDTO = null;
-
-                    // Verificar el tipo de reserva en la base de datos
-                    String sqlFamiliar = prop.getProperty("buscarReservaFamiliar");
-                    try (PreparedStatement psFamiliar = con.prepareStatement(sqlFamiliar)) {
-                        psFamiliar.setInt(1, idReserva);
-                        try (ResultSet rsFamiliar = (ResultSet) psFamiliar.executeQuery()) {
-                            if (rsFamiliar.next()) {
-                                int numeroAdultos = rsFamiliar.getInt("numAdultos");
-                                int numeroNinos = rsFamiliar.getInt("numNinos");
-                                reservaDTO = (idBono != null)
-                                        ? reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                        : reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos);
-                            }
-                        }
-                    }
+    /**
+     * Busca los primeros horarios libres, por orden de hora y después de pista, en los que se puede
+     * reservar una pista durante un tiempo dado. Se prueban los inicios en punto y a y media entre
+     * las 9:00 y las 20:30, a partir de las 6 horas de antelación mínima, sobre el mapa de bits de
+     * ocupación del repositorio, así que no se lee ninguna reserva y el coste depende del número
+     * de días y pistas, no del de reservas. Las franjas no se bloquean: si otro jugador reserva una
+     * antes, la reserva posterior falla como cualquier solape.
+     *
+     * @param desde           Momento a partir del cual buscar.
+     * @param hasta           Último momento en el que puede empezar la franja.
+     * @param duracionMinutos La duración de la reserva: 60, 90 o 120 minutos.
+     * @param tamano          El tamaño de pista buscado, o null para cualquiera.
+     * @param exterior        true para pistas exteriores, false para interiores o null para ambas.
+     * @param numJugadores    El número de jugadores que debe admitir la pista.
+     * @param maximo          El número máximo de franjas a devolver.
+     * @return Las franjas libres encontradas, como mucho {@code maximo}.
+     * @throws IllegalArgumentException Si la duración no es válida o el máximo no es positivo.
+     */
+    public List<FranjaLibre> buscarFranjasLibres(LocalDateTime desde, LocalDateTime hasta, int duracionMinutos, TamanoPista tamano, Boolean exterior, int numJugadores, int maximo) {
+        float precio = ReservaDTO.calcularPrecio(duracionMinutos, 0);
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("El número de franjas a buscar debe ser positivo.");
+        }
 
-                    // Si no es familiar, verificar si es adulto
-                    if (reservaDTO == null) {
-                        String sqlAdulto = prop.getProperty("buscarReservaAdulto");
-                        try (PreparedStatement psAdulto = con.prepareStatement(sqlAdulto)) {
-                            psAdulto.setInt(1, idReserva);
-                            try (ResultSet rsAdulto = (ResultSet) psAdulto.executeQuery()) {
-                                if (rsAdulto.next()) {
-                                    int numeroAdultos = rsAdulto.getInt("numAdultos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos);
-                                }
-                            }
-                        }
-                    }
+        List<PistaDTO> candidatas = new ArrayList<>();
+        try {
+            for (PistaDTO pista : pistas.listarPistas()) {
+                if (pista.isDisponible() && (tamano == null || pista.getPista() == tamano)
+                        && (exterior == null || pista.isExterior() == exterior)
+                        && pista.getMax_jugadores() >= numJugadores) {
+                    candidatas.add(pista);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
 
-                    // Si no es familiar ni adulto, verificar si es infantil
-                    if (reservaDTO == null) {
-                        String sqlInfantil = prop.getProperty("buscarReservaInfantil");
-                        try (PreparedStatement psInfantil = con.prepareStatement(sqlInfantil)) {
-                            psInfantil.setInt(1, idReserva);
-                            try (ResultSet rsInfantil = (ResultSet) psInfantil.executeQuery()) {
-                                if (rsInfantil.next()) {
-                                    int numeroNinos = rsInfantil.getInt("numNinos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos);
-                                }
-                            }
-                        }
-                    }
+        long primerInicio = Math.max(Reloj.aMilisegundos(desde), Reloj.milisegundos() + 6 * 60 * 60 * 1000L);
+        long ultimoInicio = Reloj.aMilisegundos(hasta);
+        List<FranjaLibre> franjas = new ArrayList<>();
+        if (candidatas.isEmpty() || primerInicio > ultimoInicio) {
+            return franjas;
+        }
 
-                    if(reservaDTO != null)
-                    {
-                    // Asignar precio y descuento a la reserva
-                    reservaDTO.setIdReserva(idReserva);
-                    reservaDTO.setPrecio(precio);
-                    reservaDTO.setDescuento(descuento);
+        LocalDate primerDia = Reloj.diaDe(primerInicio);
+        int dias = (int) (Reloj.diaDe(ultimoInicio).toEpochDay() - primerDia.toEpochDay()) + 1;
+        int numBloques = duracionMinutos / MapaOcupacion.MINUTOS_BLOQUE;
 
-                    // Agregar la reserva a la lista de resultados
-                    reservasPorFecha.add(reservaDTO);
+        reservas.cargarOcupacion();
+        MapaOcupacion mapa = reservas.getMapaOcupacion();
+        int[][] ocupacion = new int[candidatas.size()][];
+        for (int i = 0; i < candidatas.size(); i++) {
+            ocupacion[i] = mapa.getOcupacion(candidatas.get(i).getIdPista(), primerDia, dias);
+        }
+
+        for (int dia = 0; dia < dias; dia++) {
+            LocalDate fecha = primerDia.plusDays(dia);
+            for (int bloque = 0; bloque <= MapaOcupacion.ULTIMO_BLOQUE_INICIO; bloque++) {
+                long inicio = MapaOcupacion.inicioBloque(fecha, bloque);
+                if (inicio < primerInicio) {
+                    continue;
+                }
+                if (inicio > ultimoInicio) {
+                    return franjas;
+                }
+                for (int i = 0; i < candidatas.size(); i++) {
+                    if (MapaOcupacion.estaLibre(ocupacion[i][dia], bloque, numBloques)) {
+                        franjas.add(new FranjaLibre(candidatas.get(i), Reloj.deMilisegundos(inicio), duracionMinutos, precio));
+                        if (franjas.size() == maximo) {
+                            return franjas;
+                        }
                     }
                 }
             }
+        }
+        return franjas;
+    }
+
+    /**
+     * Calcula la ocupación de todas las pistas, día a día y por bloques de 30 minutos, entre dos
+     * días. Las reservas no se leen una a una: el repositorio las devuelve agrupadas por pista,
+     * día, hora de inicio y duración (con la base de datos, en una sola consulta con GROUP BY) y
+     * cada grupo se reparte entre los bloques que ocupa, así que un año de reservas se resume en
+     * una sola pasada.
+     *
+     * @param primerDia El primer día del informe.
+     * @param ultimoDia El último día del informe, incluido.
+     * @return La ocupación de las pistas.
+     * @throws IllegalArgumentException Si el último día es anterior al primero o el intervalo es de más de tres años.
+     * @throws IllegalStateException Si no se pueden leer las pistas o las reservas.
+     */
+    public InformeOcupacion generarInformeOcupacion(LocalDate primerDia, LocalDate ultimoDia) {
+        long dias = ultimoDia.toEpochDay() - primerDia.toEpochDay() + 1;
+        if (dias <= 0) {
+            throw new IllegalArgumentException("El último día del informe no puede ser anterior al primero.");
+        }
+        if (dias > DIAS_MAXIMOS_INFORME) {
+            throw new IllegalArgumentException("El informe no puede abarcar más de " + DIAS_MAXIMOS_INFORME + " días.");
+        }
+
+        List<PistaDTO> todas;
+        try {
+            todas = pistas.listarPistas();
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (con != null) con.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            throw new IllegalStateException("No se pudieron leer las pistas: " + e.getMessage(), e);
         }
+        InformeOcupacion informe = new InformeOcupacion(primerDia, (int) dias, todas);
 
-        return reservasPorFecha;
+        for (GrupoOcupacion grupo : reservas.agruparOcupacion(primerDia.atStartOfDay(), ultimoDia.plusDays(1).atStartOfDay())) {
+            informe.acumular(grupo);
+        }
+        return informe;
     }
 
-
+    /**
+     * Obtiene los ingresos de las reservas acumulados por día, pista, tipo de reserva y
+     * modalidad. El repositorio los mantiene con cada reserva hecha, modificada o cancelada, de
+     * modo que consultar un rango no recorre sus reservas sino solo sus acumulados diarios.
+     *
+     * @return El resumen de ingresos.
+     * @throws IllegalStateException Si no se pueden leer las reservas existentes.
+     */
+    public ResumenIngresos obtenerResumenIngresos() {
+        return reservas.getResumenIngresos();
+    }
 
     /**
      * Obtiene una reserva completa usando el patrón Factory.
@@ -919,95 +826,12 @@ public class ReservasDAO {
      *         o null si no se encuentra la reserva.
      */
     public ReservaDTO obtenerReservaCompleta(int idReserva) {
-        String sqlBaseReserva = prop.getProperty("buscarReservaBase");
-        DBConnection conexion = new DBConnection();
-        con = (Connection) conexion.getConnection();
-        
-        try (PreparedStatement psBase = con.prepareStatement(sqlBaseReserva)) {
-            psBase.setInt(1, idReserva);
-
-            try (ResultSet rsBase = (ResultSet) psBase.executeQuery()) {
-                if (rsBase.next()) {
-                    // Datos básicos de la reserva
-                    int idJugador = rsBase.getInt("idJugador");
-                    Date fechaHora = rsBase.getTimestamp("fechaHora");
-                    int duracionMin = rsBase.getInt("duracionMin");
-                    int idPista = rsBase.getInt("idPista");
-                    float precio = rsBase.getFloat("precio");
-                    float descuento = rsBase.getFloat("descuento");
-                    Integer idBono = rsBase.getObject("idBono") != null ? rsBase.getInt("idBono") : null;
-                    Integer numeroSesion = rsBase.getObject("numeroSesion") != null ? rsBase.getInt("numeroSesion") : null;
-
-                    // Seleccionar la fábrica según el tipo de reserva (con o sin bono)
-                    ReservaFactory reservaFactory = (idBono != null) ? new ReservaBonoFactory() : new ReservaIndividualFactory();
-                    ReservaDTO reservaDTO = null;
-
-                    // Verificar si es una ReservaFamiliar
-                    String sqlFamiliar = prop.getProperty("buscarReservaFamiliar");
-                    try (PreparedStatement psFamiliar = con.prepareStatement(sqlFamiliar)) {
-                        psFamiliar.setInt(1, idReserva);
-                        try (ResultSet rsFamiliar = (ResultSet) psFamiliar.executeQuery()) {
-                            if (rsFamiliar.next()) {
-                                int numeroAdultos = rsFamiliar.getInt("numAdultos");
-                                int numeroNinos = rsFamiliar.getInt("numNinos");
-                                reservaDTO = (idBono != null)
-                                        ? reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                        : reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos);
-                            }
-                        }
-                    }
-
-                    // Verificar si es una ReservaAdulto, si no se encontró como familiar
-                    if (reservaDTO == null) {
-                        String sqlAdulto = prop.getProperty("buscarReservaAdulto");
-                        try (PreparedStatement psAdulto = con.prepareStatement(sqlAdulto)) {
-                            psAdulto.setInt(1, idReserva);
-                            try (ResultSet rsAdulto = (ResultSet) psAdulto.executeQuery()) {
-                                if (rsAdulto.next()) {
-                                    int numeroAdultos = rsAdulto.getInt("numAdultos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos);
-                                }
-                            }
-                        }
-                    }
-
-                    // Verificar si es una ReservaInfantil, si no se encontró como familiar o adulto
-                    if (reservaDTO == null) {
-                        String sqlInfantil = prop.getProperty("buscarReservaInfantil");
-                        try (PreparedStatement psInfantil = con.prepareStatement(sqlInfantil)) {
-                            psInfantil.setInt(1, idReserva);
-                            try (ResultSet rsInfantil = (ResultSet) psInfantil.executeQuery()) {
-                                if (rsInfantil.next()) {
-                                    int numeroNinos = rsInfantil.getInt("numNinos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos);
-                                }
-                            }
-                        }
-                    }
-
-                    // Asignar precio y descuento a la reserva
-                    reservaDTO.setIdReserva(idReserva);
-                    reservaDTO.setPrecio(precio);
-                    reservaDTO.setDescuento(descuento);
-
-                    return reservaDTO;
-                }
-            }
+        try {
+            return reservas.obtenerReservaPorId(idReserva);
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (con != null) con.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            return null;
         }
-
-        return null;
     }
 
     /**
@@ -1019,99 +843,8 @@ public class ReservasDAO {
      * @return La instancia completa de ReservaDTO según el tipo (Infantil, Familiar o Adulto),
      *         o null si no se encuentra la reserva.
      */
-    public ReservaDTO encontrarReserva(int idJugador, int idPista, Date fechaHora) {
-        ReservaDTO reservaDTO = null;
-        String sqlBaseReserva = prop.getProperty("encontrarReserva");
-
-        DBConnection conexion = new DBConnection();
-        Connection con = (Connection) conexion.getConnection();
-
-        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
-            ps.setInt(1, idJugador);
-            ps.setInt(2, idPista);
-            ps.setTimestamp(3, new java.sql.Timestamp(fechaHora.getTime()));
-
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                if (rs.next()) {
-                    // datos comunes de la reserva
-                    int idReserva = rs.getInt("idReserva");
-                    int duracionMin = rs.getInt("duracionMin");
-                    float precio = rs.getFloat("precio");
-                    float descuento = rs.getFloat("descuento");
-                    Integer idBono = rs.getObject("idBono") != null ? rs.getInt("idBono") : null;
-                    Integer numeroSesion = (idBono != null && rs.getObject("numeroSesion") != null) ? rs.getInt("numeroSesion") : null;
-
-                    // Crear la instancia de la fábrica adecuada
-                    ReservaFactory reservaFactory = (idBono != null) ? new ReservaBonoFactory() : new ReservaIndividualFactory();
-
-                    // Intentar identificar la reserva como familiar
-                    String sqlFamiliar = prop.getProperty("buscarReservaFamiliar");
-                    try (PreparedStatement psFamiliar = con.prepareStatement(sqlFamiliar)) {
-                        psFamiliar.setInt(1, idReserva);
-                        try (ResultSet rsFamiliar = (ResultSet)psFamiliar.executeQuery()) {
-                            if (rsFamiliar.next()) {
-                                int numeroAdultos = rsFamiliar.getInt("numAdultos");
-                                int numeroNinos = rsFamiliar.getInt("numNinos");
-                                reservaDTO = (idBono != null)
-                                        ? reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                        : reservaFactory.crearReservaFamiliar(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos);
-                            }
-                        }
-                    }
-
-                    // Si no es familiar, intentar identificar como adulto
-                    if (reservaDTO == null) {
-                        String sqlAdulto = prop.getProperty("buscarReservaAdulto");
-                        try (PreparedStatement psAdulto = con.prepareStatement(sqlAdulto)) {
-                            psAdulto.setInt(1, idReserva);
-                            try (ResultSet rsAdulto = (ResultSet) psAdulto.executeQuery()) {
-                                if (rsAdulto.next()) {
-                                    int numeroAdultos = rsAdulto.getInt("numAdultos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaAdulto(idJugador, fechaHora, duracionMin, idPista, numeroAdultos);
-                                }
-                            }
-                        }
-                    }
-
-                    // Si no es ni familiar ni adulto, intentar identificar como infantil
-                    if (reservaDTO == null) {
-                        String sqlInfantil = prop.getProperty("buscarReservaInfantil");
-                        try (PreparedStatement psInfantil = con.prepareStatement(sqlInfantil)) {
-                            psInfantil.setInt(1, idReserva);
-                            try (ResultSet rsInfantil = (ResultSet) psInfantil.executeQuery()) {
-                                if (rsInfantil.next()) {
-                                    int numeroNinos = rsInfantil.getInt("numNinos");
-                                    reservaDTO = (idBono != null)
-                                            ? reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos, obtenerBono(idBono), numeroSesion)
-                                            : reservaFactory.crearReservaInfantil(idJugador, fechaHora, duracionMin, idPista, numeroNinos);
-                                }
-                            }
-                        }
-                    }
-
-                    if (reservaDTO == null) {
-                        return null;
-                    }
-
-                    // Asignar precio y descuento a la reserva
-                    reservaDTO.setIdReserva(idReserva);
-                    reservaDTO.setPrecio(precio);
-                    reservaDTO.setDescuento(descuento);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (con != null) con.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
-        return reservaDTO;
+    public ReservaDTO encontrarReserva(int idJugador, int idPista, LocalDateTime fechaHora) {
+        return reservas.encontrarReserva(idJugador, idPista, fechaHora);
     }
 
     /**
@@ -1122,16 +855,24 @@ public class ReservasDAO {
      * @return true si la pista cumple las condiciones; false en caso contrario.
      */
     private boolean cumpleCondicionesTipoReserva(PistaDTO pistaDTO, String tipoReserva) {
+        boolean cumple;
         switch (tipoReserva.toLowerCase()) {
             case "infantil":
-                return pistaDTO.getPista() == TamanoPista.MINIBASKET;
+                cumple = pistaDTO.getPista() == TamanoPista.MINIBASKET;
+                break;
             case "familiar":
-                return pistaDTO.getPista() == TamanoPista.MINIBASKET || pistaDTO.getPista() == TamanoPista._3VS3;
+                cumple = pistaDTO.getPista() == TamanoPista.MINIBASKET || pistaDTO.getPista() == TamanoPista._3VS3;
+                break;
             case "adulto":
-                return pistaDTO.getPista() == TamanoPista.ADULTOS;
+                cumple = pistaDTO.getPista() == TamanoPista.ADULTOS;
+                break;
             default:
-                return false;
+                cumple = false;
+        }
+        if (!cumple) {
+            metricas.registrarRechazo(Validacion.TIPO_RESERVA);
         }
+        return cumple;
     }
 
     /**
@@ -1153,37 +894,54 @@ public class ReservasDAO {
             throw new IllegalArgumentException("El número de adultos y niños no puede ser ambos cero.");
         }
     }
-    
+
     /**
-     * Valida que la fecha y hora de la reserva sea válida.
+     * Valida que la fecha y hora de la reserva sea válida, comparándola con el reloj de la aplicación.
      * 
      * @param fechaHora La fecha y hora de la reserva.
      * @throws IllegalArgumentException Si la fecha y hora no es válida.
      */
-    private void validarFechaHora(Date fechaHora) {
-        Date ahora = new Date();
-
+    private void validarFechaHora(LocalDateTime fechaHora) {
         // Validar que la reserva sea futura con al menos 6 horas de antelación
-        Calendar calendario = Calendar.getInstance();
-        calendario.setTime(ahora);
-        calendario.add(Calendar.HOUR, 6);
-        Date limiteMinimoReserva = calendario.getTime();
-
-        if (fechaHora.before(limiteMinimoReserva)) {
+        if (!ReservaDTO.cumpleAntelacion(fechaHora, Reloj.ahora())) {
+            metricas.registrarRechazo(Validacion.FECHA_HORA);
             throw new IllegalArgumentException("La reserva debe realizarse con al menos 6 horas de antelación.");
         }
 
         // Validar horario permitido (9:00 a 20:30)
-        Calendar horaReserva = Calendar.getInstance();
-        horaReserva.setTime(fechaHora);
-        int hora = horaReserva.get(Calendar.HOUR_OF_DAY);
-        int minuto = horaReserva.get(Calendar.MINUTE);
-
-        if (hora < 9 || (hora == 20 && minuto > 30) || hora > 20) {
+        if (!ReservaDTO.estaEnHorario(fechaHora)) {
+            metricas.registrarRechazo(Validacion.FECHA_HORA);
             throw new IllegalArgumentException("La reserva solo puede realizarse entre las 9:00 y las 20:30.");
         }
     }
-    
+
+    /**
+     * Valida que la pista no tenga ya otra reserva que se solape con el horario pedido.
+     *
+     * @param idPista           El ID de la pista.
+     * @param fechaHora         La fecha y hora de inicio.
+     * @param duracionMinutos   La duración en minutos.
+     * @param idReservaExcluida El ID de la reserva que se está modificando, o -1 si es una reserva nueva.
+     * @throws IllegalArgumentException Si la pista ya está reservada en ese horario.
+     */
+    private void validarPistaLibre(int idPista, LocalDateTime fechaHora, int duracionMinutos, int idReservaExcluida) {
+        if (!reservas.estaLibre(idPista, fechaHora, duracionMinutos, idReservaExcluida)) {
+            metricas.registrarRechazo(Validacion.PISTA_LIBRE);
+            throw new IllegalArgumentException("La pista ya está reservada en ese horario.");
+        }
+    }
+
+    /**
+     * Prepara la ocupación de las pistas para detectar reservas solapadas sin esperar a la primera
+     * reserva. Con la base de datos carga en el índice de ocupación las reservas que aún no han
+     * terminado; solo se carga una vez y después el índice se mantiene al guardar reservas.
+     *
+     * @throws IllegalStateException Si no se puede cargar la ocupación de las pistas.
+     */
+    public void cargarIndiceOcupacion() {
+        reservas.cargarOcupacion();
+    }
+
     /**
      * Valida que el número de jugadores no exceda el máximo permitido para la pista.
      *
@@ -1197,12 +955,11 @@ public class ReservasDAO {
         int totalJugadores = numeroAdultos + numeroNinos;
 
         if (totalJugadores > maxJugadores) {
+            metricas.registrarRechazo(Validacion.MAXIMO_JUGADORES);
             throw new IllegalArgumentException("El número total de jugadores excede el máximo permitido para la pista.");
         }
     }
 
-
-
     /**
      * Busca un jugador por su correo electrónico.
      *
@@ -1210,8 +967,7 @@ public class ReservasDAO {
      * @return El jugador encontrado, o null si no se encuentra.
      */
     public JugadorDTO buscarJugadorPorCorreo(String correoElectronico) {
-        JugadoresDAO jugadoresDAO = new JugadoresDAO();
-        return jugadoresDAO.buscarJugadorPorCorreo(correoElectronico);
+        return jugadores.buscarJugadorPorCorreo(correoElectronico);
     }
 
     /**
@@ -1221,9 +977,8 @@ public class ReservasDAO {
      * @return Una lista de pistas disponibles para el tipo de reserva dado.
      */
     public List<PistaDTO> listarPistasDisponibles(String tipoReserva) {
-        PistasDAO pistasDAO = new PistasDAO(); // Instanciación de PistasDAO
         try {
-            return pistasDAO.listarPistasDisponibles(tipoReserva); // Llamada al método en PistasDAO con el tipo de reserva
+            return pistas.listarPistasDisponibles(tipoReserva);
         } catch (SQLException e) {
             e.printStackTrace();
             return new ArrayList<>(); // Retorna una lista vacía en caso de excepción
@@ -1238,8 +993,7 @@ public class ReservasDAO {
      */
     public PistaDTO buscarPistaPorId(int idPista) {
         try {
-            PistasDAO pistasDAO = new PistasDAO(); // Instanciación directa de PistasDAO
-            return pistasDAO.buscarPistaPorId(idPista); // Llamada al método no estático
+            return pistas.buscarPistaPorId(idPista);
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -1253,11 +1007,9 @@ public class ReservasDAO {
      * @return true si se puede modificar o cancelar; false en caso contrario.
      */
     private boolean puedeModificarseOCancelarse(ReservaDTO reservaDTO) {
-        long MILISEGUNDOS_EN_24_HORAS = 24 * 60 * 60 * 1000;
-        long diferenciaTiempo = reservaDTO.getFechaHora().getTime() - new Date().getTime();
-        return diferenciaTiempo > MILISEGUNDOS_EN_24_HORAS;
+        return reservaDTO.puedeModificarseOCancelarse(Reloj.ahora());
     }
-    
+
     /**
      * Actualiza la fecha de inscripción del jugador si está en estado NULL.
      *
@@ -1265,11 +1017,10 @@ public class ReservasDAO {
      */
     public void actualizarFechaInscripcionSiEsNecesario(JugadorDTO jugadorDTO) {
         if (jugadorDTO.getFechaInscripcion() == null) {
-            JugadoresDAO jugadoresDAO = new JugadoresDAO();
-            jugadoresDAO.actualizarFechaInscripcion(jugadorDTO.getCorreoElectronico());
+            jugadores.actualizarFechaInscripcion(jugadorDTO.getCorreoElectronico());
         }
     }
-    
+
     /**
      * Obtiene un bono asociado a un jugador por su ID.
      *
@@ -1278,41 +1029,9 @@ public class ReservasDAO {
      * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
      */
     public Bono obtenerBonoPorJugador(int idJugador) throws SQLException {
-        Bono bono = null;
-        String sql = prop.getProperty("obtenerBonoPorJugador"); // Define esta consulta en `sql.properties`
-
-        // Abrir la conexión a la base de datos
-        DBConnection conexion = new DBConnection();
-        Connection con = (Connection) conexion.getConnection();
-
-        if (con == null) {
-            throw new SQLException("Error: No se pudo establecer la conexión a la base de datos.");
-        }
-
-        try (PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idJugador);
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                if (rs.next()) {
-                    bono = new Bono();
-                    bono.setIdBono(rs.getInt("idBono"));
-                    bono.setIdUsuario(idJugador);
-
-                    // Recuperar numeroSesion y calcular sesionesRestantes
-                    int numeroSesion = rs.getInt("numeroSesion");
-                    bono.setSesionesRestantes(5 - numeroSesion);
-
-                    bono.setFechaCaducidad(rs.getDate("fechaCaducidad"));
-                }
-            }
-        } finally {
-            if (con != null) {
-                con.close();
-            }
-        }
-
-        return bono;
+        return bonos.obtenerBonoPorJugador(idJugador);
     }
-    
+
     /**
      * Obtiene una reserva por su ID.
      *
@@ -1321,38 +1040,9 @@ public class ReservasDAO {
      * @throws SQLException Si ocurre un error al ejecutar la consulta SQL.
      */
     public ReservaDTO obtenerReservaPorId(int idReserva) throws SQLException {
-        ReservaDTO reservaDTO = null;
-        String sqlBaseReserva = prop.getProperty("buscarReservaPorId"); // Define esta consulta en `sql.properties`
-
-        DBConnection conexion = new DBConnection();
-        Connection con = (Connection) conexion.getConnection();
-
-        if (con == null) {
-            throw new SQLException("Error: No se pudo establecer la conexión a la base de datos.");
-        }
-
-        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
-            ps.setInt(1, idReserva);
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                if (rs.next()) {
-                    // Obtener datos comunes de la reserva
-                    int idJugador = rs.getInt("idJugador");
-                    int idPista = rs.getInt("idPista");
-                    Date fechaHora = rs.getTimestamp("fechaHora");
-                    
-                    // Usar el método `encontrarReserva` para obtener la reserva completa
-                    reservaDTO = encontrarReserva(idJugador, idPista, fechaHora);
-                }
-            }
-        } finally {
-            if (con != null) {
-                con.close();
-            }
-        }
-
-        return reservaDTO;
+        return reservas.obtenerReservaPorId(idReserva);
     }
-    
+
     /**
      * Obtiene una reserva asociada a un bono y un usuario.
      *
@@ -1361,97 +1051,7 @@ public class ReservasDAO {
      * @return La reserva encontrada, o null si no existe.
      */
     public ReservaDTO obtenerReservaPorIdBono(int idUsuario, Bono bono) {
-        ReservaDTO reservaDTO = null;
-        String sqlBaseReserva = prop.getProperty("encontrarReservaPorIdBono");
-        if (sqlBaseReserva == null) {
-            throw new IllegalStateException("La consulta 'encontrarReservaPorIdBono' no está definida.");
-        }
-
-        DBConnection conexion = new DBConnection();
-        Connection con = (Connection) conexion.getConnection();
-
-        try (PreparedStatement ps = con.prepareStatement(sqlBaseReserva)) {
-            ps.setInt(1, idUsuario);
-            ps.setInt(2, bono.getIdBono());
-
-            try (ResultSet rs = (ResultSet) ps.executeQuery()) {
-                if (rs.next()) {
-                    // Datos comunes de la reserva
-                    int idReserva = rs.getInt("idReserva");
-                    int idPista = rs.getInt("idPista");
-                    Date fechaHora = rs.getTimestamp("fechaHora");
-                    int duracionMin = rs.getInt("duracionMin");
-                    float precio = rs.getFloat("precio");
-                    float descuento = rs.getFloat("descuento");
-
-                    // Crear la instancia de la fábrica adecuada
-                    ReservaFactory reservaFactory = new ReservaBonoFactory();
-
-                    // Usar numeroSesion del objeto Bono
-                    int numeroSesion = 5 - bono.getSesionesRestantes();
-
-                    // Intentar identificar la reserva como familiar
-                    String sqlFamiliar = prop.getProperty("buscarReservaFamiliar");
-                    try (PreparedStatement psFamiliar = con.prepareStatement(sqlFamiliar)) {
-                        psFamiliar.setInt(1, idReserva);
-                        try (ResultSet rsFamiliar = (ResultSet) psFamiliar.executeQuery()) {
-                            if (rsFamiliar.next()) {
-                                int numeroAdultos = rsFamiliar.getInt("numAdultos");
-                                int numeroNinos = rsFamiliar.getInt("numNinos");
-                                reservaDTO = reservaFactory.crearReservaFamiliar(idUsuario, fechaHora, duracionMin, idPista, numeroAdultos, numeroNinos, bono, numeroSesion);
-                            }
-                        }
-                    }
-
-                    // Si no es familiar, intentar identificar como adulto
-                    if (reservaDTO == null) {
-                        String sqlAdulto = prop.getProperty("buscarReservaAdulto");
-                        try (PreparedStatement psAdulto = con.prepareStatement(sqlAdulto)) {
-                            psAdulto.setInt(1, idReserva);
-                            try (ResultSet rsAdulto = (ResultSet) psAdulto.executeQuery()) {
-                                if (rsAdulto.next()) {
-                                    int numeroAdultos = rsAdulto.getInt("numAdultos");
-                                    reservaDTO = reservaFactory.crearReservaAdulto(idUsuario, fechaHora, duracionMin, idPista, numeroAdultos, bono, numeroSesion);
-                                }
-                            }
-                        }
-                    }
-
-                    // Si no es ni familiar ni adulto, intentar identificar como infantil
-                    if (reservaDTO == null) {
-                        String sqlInfantil = prop.getProperty("buscarReservaInfantil");
-                        try (PreparedStatement psInfantil = con.prepareStatement(sqlInfantil)) {
-                            psInfantil.setInt(1, idReserva);
-                            try (ResultSet rsInfantil = (ResultSet) psInfantil.executeQuery()) {
-                                if (rsInfantil.next()) {
-                                    int numeroNinos = rsInfantil.getInt("numNinos");
-                                    reservaDTO = reservaFactory.crearReservaInfantil(idUsuario, fechaHora, duracionMin, idPista, numeroNinos, bono, numeroSesion);
-                                }
-                            }
-                        }
-                    }
-
-                    if (reservaDTO == null) {
-                        return null;
-                    }
-
-                    // Asignar precio y descuento a la reserva
-                    reservaDTO.setIdReserva(idReserva);
-                    reservaDTO.setPrecio(precio);
-                    reservaDTO.setDescuento(descuento);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (con != null) con.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
-        return reservaDTO;
+        return reservas.obtenerReservaPorIdBono(idUsuario, bono);
     }
 
 }
@@ -0,0 +1,84 @@
+package es.uco.pw.data.dao;
+
+/**
+ * Resultado de una de las solicitudes de una carga masiva de reservas: el ID de la reserva
+ * creada o el motivo por el que no se creó.
+ */
+public final class ResultadoReserva {
+
+    /**
+     * Posición de la solicitud en la lista recibida.
+     */
+    private final int indice;
+
+    /**
+     * ID de la reserva creada, o -1 si no se creó.
+     */
+    private final int idReserva;
+
+    /**
+     * Motivo por el que no se creó la reserva, o null si se creó.
+     */
+    private final String error;
+
+    /**
+     * Constructor del resultado.
+     *
+     * @param indice    La posición de la solicitud en la lista recibida.
+     * @param idReserva El ID de la reserva creada, o -1 si no se creó.
+     * @param error     El motivo por el que no se creó la reserva, o null si se creó.
+     */
+    ResultadoReserva(int indice, int idReserva, String error) {
+        this.indice = indice;
+        this.idReserva = idReserva;
+        this.error = error;
+    }
+
+    /**
+     * Obtiene la posición de la solicitud en la lista recibida.
+     *
+     * @return El índice de la solicitud.
+     */
+    public int getIndice() {
+        return indice;
+    }
+
+    /**
+     * Obtiene el ID de la reserva creada.
+     *
+     * @return El ID de la reserva, o -1 si no se creó.
+     */
+    public int getIdReserva() {
+        return idReserva;
+    }
+
+    /**
+     * Obtiene el motivo por el que no se creó la reserva.
+     *
+     * @return El mensaje de error, o null si la reserva se creó.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Indica si la reserva se creó.
+     *
+     * @return true si la reserva se creó; false en caso contrario.
+     */
+    public boolean isCorrecta() {
+        return error == null;
+    }
+
+    /**
+     * Devuelve el resultado en una línea.
+     *
+     * @return Cadena con el resultado de la solicitud.
+     */
+    @Override
+    public String toString() {
+        return isCorrecta()
+                ? "Solicitud " + indice + ": reserva " + idReserva + " creada."
+                : "Solicitud " + indice + ": " + error;
+    }
+}
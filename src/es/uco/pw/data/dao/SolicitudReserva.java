@@ -0,0 +1,117 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.pista.PistaDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Solicitud de una reserva individual dentro de una carga masiva, por ejemplo el calendario
+ * de una liga o de un torneo. Contiene los mismos datos que
+ * {@link ReservasDAO#hacerReservaIndividual(JugadorDTO, LocalDateTime, int, PistaDTO, int, int)}.
+ */
+public final class SolicitudReserva {
+
+    /**
+     * Jugador que realiza la reserva.
+     */
+    private final JugadorDTO jugadorDTO;
+
+    /**
+     * Fecha y hora de inicio de la reserva.
+     */
+    private final LocalDateTime fechaHora;
+
+    /**
+     * Duración de la reserva en minutos.
+     */
+    private final int duracionMinutos;
+
+    /**
+     * Pista que se reserva.
+     */
+    private final PistaDTO pistaDTO;
+
+    /**
+     * Número de adultos de la reserva.
+     */
+    private final int numeroAdultos;
+
+    /**
+     * Número de niños de la reserva.
+     */
+    private final int numeroNinos;
+
+    /**
+     * Constructor de la solicitud.
+     *
+     * @param jugadorDTO      El jugador que realiza la reserva.
+     * @param fechaHora       La fecha y hora de la reserva.
+     * @param duracionMinutos La duración de la reserva en minutos.
+     * @param pistaDTO        La pista a reservar.
+     * @param numeroAdultos   El número de adultos incluidos en la reserva.
+     * @param numeroNinos     El número de niños incluidos en la reserva.
+     */
+    public SolicitudReserva(JugadorDTO jugadorDTO, LocalDateTime fechaHora, int duracionMinutos, PistaDTO pistaDTO, int numeroAdultos, int numeroNinos) {
+        this.jugadorDTO = jugadorDTO;
+        this.fechaHora = fechaHora;
+        this.duracionMinutos = duracionMinutos;
+        this.pistaDTO = pistaDTO;
+        this.numeroAdultos = numeroAdultos;
+        this.numeroNinos = numeroNinos;
+    }
+
+    /**
+     * Obtiene el jugador que realiza la reserva.
+     *
+     * @return El jugador.
+     */
+    public JugadorDTO getJugadorDTO() {
+        return jugadorDTO;
+    }
+
+    /**
+     * Obtiene la fecha y hora de la reserva.
+     *
+     * @return La fecha y hora de inicio.
+     */
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+
+    /**
+     * Obtiene la duración de la reserva.
+     *
+     * @return La duración en minutos.
+     */
+    public int getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
+    /**
+     * Obtiene la pista solicitada.
+     *
+     * @return La pista.
+     */
+    public PistaDTO getPistaDTO() {
+        return pistaDTO;
+    }
+
+    /**
+     * Obtiene el número de adultos.
+     *
+     * @return El número de adultos.
+     */
+    public int getNumeroAdultos() {
+        return numeroAdultos;
+    }
+
+    /**
+     * Obtiene el número de niños.
+     *
+     * @return El número de niños.
+     */
+    public int getNumeroNinos() {
+        return numeroNinos;
+    }
+}
@@ -0,0 +1,230 @@
+package es.uco.pw.data.memoria;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jugadores guardados en memoria, con las mismas reglas y mensajes que {@code JugadoresDAO}.
+ * Los jugadores se indexan en orden por ID y, como índice secundario, por correo sin distinguir
+ * mayúsculas. Las escrituras se serializan y sustituyen el jugador guardado por una copia
+ * nueva, de modo que las lecturas no necesitan bloqueo y nunca ven un jugador a medio modificar.
+ */
+public class JugadoresMemoria implements RepositorioJugadores {
+
+    /**
+     * Jugadores ordenados por ID. Los objetos guardados no se modifican nunca: cada cambio los sustituye.
+     */
+    private final ConcurrentSkipListMap<Integer, JugadorDTO> porId = new ConcurrentSkipListMap<>();
+
+    /**
+     * Índice secundario con el ID de cada jugador por su correo normalizado.
+     */
+    private final Map<String, Integer> idPorCorreo = new ConcurrentHashMap<>();
+
+    /**
+     * Último ID asignado a un jugador.
+     */
+    private final AtomicInteger secuencia = new AtomicInteger();
+
+    /**
+     * Da de alta a un nuevo jugador o reactiva la cuenta desactivada con el mismo correo.
+     *
+     * @param nuevoJugador El nuevo jugador a registrar.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    @Override
+    public synchronized String altaJugador(JugadorDTO nuevoJugador) {
+        JugadorDTO existente = buscar(nuevoJugador.getCorreoElectronico());
+        if (existente != null) {
+            if (existente.isCuentaActiva()) {
+                return "Error: El correo ya está registrado y en uso";
+            }
+            JugadorDTO reactivado = copiar(existente);
+            reactivado.setNombreApellidos(nuevoJugador.getNombreApellidos());
+            reactivado.setFechaNacimiento(nuevoJugador.getFechaNacimiento());
+            reactivado.setFechaInscripcion(null);
+            reactivado.setCuentaActiva(true);
+            porId.put(reactivado.getIdJugador(), reactivado);
+            return "Cuenta reactivada y datos actualizados con éxito";
+        }
+        JugadorDTO jugador = copiar(nuevoJugador);
+        jugador.setIdJugador(secuencia.incrementAndGet());
+        jugador.setFechaInscripcion(null);
+        porId.put(jugador.getIdJugador(), jugador);
+        idPorCorreo.put(normalizar(jugador.getCorreoElectronico()), jugador.getIdJugador());
+        return "Jugador registrado con éxito.";
+    }
+
+    /**
+     * Da de baja a un jugador desactivando su cuenta.
+     *
+     * @param correoElectronico El correo del jugador a dar de baja.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    @Override
+    public synchronized String bajaJugador(String correoElectronico) {
+        JugadorDTO existente = buscar(correoElectronico);
+        if (existente == null) {
+            return "Error: No se encontró al jugador en la Base de Datos.";
+        }
+        if (!existente.isCuentaActiva()) {
+            return "Error: El jugador ya está dado de baja";
+        }
+        JugadorDTO baja = copiar(existente);
+        baja.setCuentaActiva(false);
+        porId.put(baja.getIdJugador(), baja);
+        return "Jugador dado de baja correctamente.";
+    }
+
+    /**
+     * Modifica los datos de un jugador con la cuenta activa, incluido su correo si no lo usa otro.
+     *
+     * @param correoElectronico    El correo actual del jugador.
+     * @param nuevoNombre          Nuevo nombre del jugador.
+     * @param nuevaFechaNacimiento Nueva fecha de nacimiento del jugador.
+     * @param nuevoCorreo          Nuevo correo del jugador.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    @Override
+    public synchronized String modificarJugador(String correoElectronico, String nuevoNombre, LocalDate nuevaFechaNacimiento, String nuevoCorreo) {
+        JugadorDTO existente = buscar(correoElectronico);
+        if (existente == null) {
+            return "Error: No se encontró el jugador en la base de datos.";
+        }
+        if (!existente.isCuentaActiva()) {
+            return "Error: La cuenta del jugador no está activa.";
+        }
+        Integer idOtro = idPorCorreo.get(normalizar(nuevoCorreo));
+        if (idOtro != null && idOtro != existente.getIdJugador()) {
+            return "Error: El nuevo correo ya está en uso por otro jugador.";
+        }
+        JugadorDTO modificado = copiar(existente);
+        modificado.setNombreApellidos(nuevoNombre);
+        modificado.setFechaNacimiento(nuevaFechaNacimiento);
+        modificado.setCorreoElectronico(nuevoCorreo);
+        // Primero el nuevo correo, para que el jugador siempre se encuentre por alguno de los dos
+        idPorCorreo.put(normalizar(nuevoCorreo), modificado.getIdJugador());
+        porId.put(modificado.getIdJugador(), modificado);
+        if (!normalizar(nuevoCorreo).equals(normalizar(correoElectronico))) {
+            idPorCorreo.remove(normalizar(correoElectronico));
+        }
+        return "Modificación realizada con éxito.";
+    }
+
+    /**
+     * Obtiene una página de jugadores activos recorriendo en orden los jugadores con ID mayor que el dado.
+     *
+     * @param despuesDeId  ID del último jugador de la página anterior, o 0 para la primera página.
+     * @param tamanoPagina Número máximo de jugadores de la página.
+     * @return Copias de los jugadores activos de la página.
+     * @throws IllegalArgumentException Si el tamaño de página no es positivo.
+     */
+    @Override
+    public List<JugadorDTO> listarJugadoresActivos(int despuesDeId, int tamanoPagina) {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo.");
+        }
+        List<JugadorDTO> pagina = new ArrayList<>();
+        for (JugadorDTO jugador : porId.tailMap(despuesDeId, false).values()) {
+            if (jugador.isCuentaActiva()) {
+                pagina.add(copiar(jugador));
+                if (pagina.size() == tamanoPagina) {
+                    break;
+                }
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Busca un jugador por su ID.
+     *
+     * @param idJugador El ID del jugador.
+     * @return Una copia del jugador, o null si no existe.
+     */
+    @Override
+    public JugadorDTO buscarJugadorPorId(int idJugador) {
+        JugadorDTO jugador = porId.get(idJugador);
+        return jugador == null ? null : copiar(jugador);
+    }
+
+    /**
+     * Busca un jugador por su correo electrónico mediante el índice secundario.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return Una copia del jugador, o null si no existe.
+     */
+    @Override
+    public JugadorDTO buscarJugadorPorCorreo(String correoElectronico) {
+        JugadorDTO jugador = buscar(correoElectronico);
+        return jugador == null ? null : copiar(jugador);
+    }
+
+    /**
+     * Pone la fecha de hoy como fecha de inscripción de un jugador.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    @Override
+    public synchronized String actualizarFechaInscripcion(String correoElectronico) {
+        JugadorDTO existente = buscar(correoElectronico);
+        if (existente != null) {
+            JugadorDTO inscrito = copiar(existente);
+            inscrito.setFechaInscripcion(Reloj.hoy());
+            porId.put(inscrito.getIdJugador(), inscrito);
+        }
+        return "Fecha de inscripción actualizada con éxito.";
+    }
+
+    /**
+     * Busca el jugador guardado con un correo, sin copiarlo.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return El jugador guardado, o null si no existe.
+     */
+    private JugadorDTO buscar(String correoElectronico) {
+        if (correoElectronico == null) {
+            return null;
+        }
+        Integer idJugador = idPorCorreo.get(normalizar(correoElectronico));
+        return idJugador == null ? null : porId.get(idJugador);
+    }
+
+    /**
+     * Normaliza un correo para usarlo como clave del índice secundario.
+     *
+     * @param correoElectronico El correo a normalizar.
+     * @return El correo sin espacios alrededor y en minúsculas.
+     */
+    private static String normalizar(String correoElectronico) {
+        return correoElectronico.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Copia un jugador, incluidas sus fechas.
+     *
+     * @param jugador El jugador a copiar.
+     * @return La copia del jugador.
+     */
+    private static JugadorDTO copiar(JugadorDTO jugador) {
+        JugadorDTO copia = new JugadorDTO();
+        copia.setIdJugador(jugador.getIdJugador());
+        copia.setNombreApellidos(jugador.getNombreApellidos());
+        copia.setFechaNacimiento(jugador.getFechaNacimiento());
+        copia.setFechaInscripcion(jugador.getFechaInscripcion());
+        copia.setCorreoElectronico(jugador.getCorreoElectronico());
+        copia.setCuentaActiva(jugador.isCuentaActiva());
+        return copia;
+    }
+}
@@ -0,0 +1,247 @@
+package es.uco.pw.data.memoria;
+
+import es.uco.pw.business.material.EstadoMaterial;
+import es.uco.pw.business.material.MaterialDTO;
+import es.uco.pw.business.material.TipoMaterial;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pistas y materiales guardados en memoria, con las mismas comprobaciones y mensajes que
+ * {@code PistasDAO}. Las pistas se guardan ordenadas por ID junto con sus materiales, con un
+ * índice secundario por nombre. Como en los jugadores, cada escritura sustituye la pista guardada
+ * por otra nueva y las lecturas devuelven copias sin bloquear.
+ */
+public class PistasMemoria implements RepositorioPistas {
+
+    /**
+     * Pistas por ID, en orden, cada una con sus materiales asociados.
+     */
+    private final ConcurrentSkipListMap<Integer, PistaDTO> pistas = new ConcurrentSkipListMap<>();
+
+    /**
+     * Índice secundario con el ID de cada pista por su nombre.
+     */
+    private final Map<String, Integer> idPorNombre = new ConcurrentHashMap<>();
+
+    /**
+     * Todos los materiales por ID, estén o no asociados a una pista.
+     */
+    private final Map<Integer, MaterialDTO> materiales = new ConcurrentHashMap<>();
+
+    /**
+     * Último ID asignado a una pista.
+     */
+    private final AtomicInteger secuencia = new AtomicInteger();
+
+    /**
+     * Crea una nueva pista, sin materiales.
+     *
+     * @param nombre       Nombre de la pista, que no puede repetirse.
+     * @param disponible   Indica si la pista está disponible.
+     * @param exterior     Indica si la pista es exterior.
+     * @param pista        Tamaño de la pista.
+     * @param maxJugadores Número máximo de jugadores en la pista.
+     * @throws IllegalArgumentException Si ya existe una pista con ese nombre.
+     */
+    @Override
+    public synchronized void crearPista(String nombre, boolean disponible, boolean exterior, TamanoPista pista, int maxJugadores) {
+        if (idPorNombre.containsKey(nombre)) {
+            throw new IllegalArgumentException("Ya existe una pista con el nombre especificado.");
+        }
+        int idPista = secuencia.incrementAndGet();
+        pistas.put(idPista, new PistaDTO(idPista, nombre, disponible, exterior, pista, maxJugadores));
+        idPorNombre.put(nombre, idPista);
+    }
+
+    /**
+     * Crea un nuevo material, todavía sin asociar a ninguna pista.
+     *
+     * @param idMaterial  Identificador del material, que no puede repetirse.
+     * @param tipo        Tipo del material.
+     * @param usoExterior Indica si el material es para uso exterior.
+     * @param estado      Estado del material.
+     * @throws IllegalArgumentException Si ya existe un material con ese ID.
+     */
+    @Override
+    public synchronized void crearMaterial(int idMaterial, TipoMaterial tipo, boolean usoExterior, EstadoMaterial estado) {
+        if (materiales.containsKey(idMaterial)) {
+            throw new IllegalArgumentException("Ya existe un material con el ID especificado.");
+        }
+        materiales.put(idMaterial, new MaterialDTO(idMaterial, tipo, usoExterior, estado));
+    }
+
+    /**
+     * Asocia un material a una pista disponible y lo marca como reservado.
+     *
+     * @param nombrePista El nombre de la pista.
+     * @param idMaterial  El ID del material.
+     * @return {@code true} si la asociación se realizó con éxito.
+     * @throws ElementoNoEncontradoException Si no existe la pista o el material.
+     * @throws AsociacionMaterialException Si no se cumplen las condiciones para la asociación.
+     */
+    @Override
+    public synchronized boolean asociarMaterialAPista(String nombrePista, int idMaterial) throws ElementoNoEncontradoException, AsociacionMaterialException {
+        Integer idPista = idPorNombre.get(nombrePista);
+        if (idPista == null) {
+            throw new ElementoNoEncontradoException("No se encontró la pista con el nombre especificado.");
+        }
+        PistaDTO pista = pistas.get(idPista);
+        if (!pista.isDisponible()) {
+            throw new AsociacionMaterialException("La pista no está disponible para la asociación de materiales.");
+        }
+        MaterialDTO material = materiales.get(idMaterial);
+        if (material == null) {
+            throw new ElementoNoEncontradoException("No se encontró el material con el ID especificado.");
+        }
+        if (material.getEstado() == EstadoMaterial.MAL_ESTADO || material.getEstado() == EstadoMaterial.RESERVADO) {
+            throw new AsociacionMaterialException("El material no se puede asociar porque está en MAL_ESTADO o ya está RESERVADO.");
+        }
+        if (pista.isExterior() && !material.isUsoExterior()) {
+            throw new AsociacionMaterialException("El material no se puede usar en una pista exterior porque no es apto para exteriores.");
+        }
+
+        int mismoTipo = 0;
+        for (MaterialDTO asociado : pista.getMateriales()) {
+            if (asociado.getTipo() == material.getTipo()) {
+                mismoTipo++;
+            }
+        }
+        if (material.getTipo() == TipoMaterial.PELOTAS && mismoTipo >= 12) {
+            throw new AsociacionMaterialException("No se pueden añadir más de 12 pelotas a la pista.");
+        }
+        if (material.getTipo() == TipoMaterial.CANASTAS && mismoTipo >= 2) {
+            throw new AsociacionMaterialException("No se pueden añadir más de 2 canastas a la pista.");
+        }
+        if (material.getTipo() == TipoMaterial.CONOS && mismoTipo >= 20) {
+            throw new AsociacionMaterialException("No se pueden añadir más de 20 conos a la pista.");
+        }
+
+        MaterialDTO reservado = new MaterialDTO(material.getId(), material.getTipo(), material.isUsoExterior(), EstadoMaterial.RESERVADO);
+        PistaDTO actualizada = copiar(pista);
+        actualizada.getMateriales().add(reservado);
+        materiales.put(idMaterial, reservado);
+        pistas.put(idPista, actualizada);
+        return true;
+    }
+
+    /**
+     * Busca todas las pistas disponibles.
+     *
+     * @return Lista de pistas disponibles.
+     */
+    @Override
+    public List<PistaDTO> buscarPistasDisponibles() {
+        List<PistaDTO> resultado = new ArrayList<>();
+        for (PistaDTO pista : pistas.values()) {
+            if (pista.isDisponible()) {
+                resultado.add(copiar(pista));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Lista las pistas que no están disponibles.
+     *
+     * @return Lista de pistas no disponibles.
+     */
+    @Override
+    public List<PistaDTO> listarPistasNoDisponibles() {
+        List<PistaDTO> resultado = new ArrayList<>();
+        for (PistaDTO pista : pistas.values()) {
+            if (!pista.isDisponible()) {
+                resultado.add(copiar(pista));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca las pistas disponibles de un tamaño que admiten un número de jugadores.
+     *
+     * @param numJugadores Número de jugadores.
+     * @param tipoPista    Tamaño de pista.
+     * @return Lista de pistas que cumplen los criterios.
+     */
+    @Override
+    public List<PistaDTO> buscarPistasDisponibles(int numJugadores, TamanoPista tipoPista) {
+        List<PistaDTO> resultado = new ArrayList<>();
+        for (PistaDTO pista : pistas.values()) {
+            if (pista.isDisponible() && pista.getPista() == tipoPista && pista.getMax_jugadores() >= numJugadores) {
+                resultado.add(copiar(pista));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Lista las pistas disponibles para un tipo de reserva, agrupadas por tamaño.
+     *
+     * @param tipoReserva Tipo de reserva (infantil, familiar o adulto).
+     * @return Lista de pistas admitidas para el tipo de reserva.
+     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     */
+    @Override
+    public List<PistaDTO> listarPistasDisponibles(String tipoReserva) {
+        List<PistaDTO> resultado = new ArrayList<>();
+        for (TamanoPista tamano : RepositorioPistas.tamanosAdmitidos(tipoReserva)) {
+            for (PistaDTO pista : pistas.values()) {
+                if (pista.isDisponible() && pista.getPista() == tamano) {
+                    resultado.add(copiar(pista));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Lista todas las pistas.
+     *
+     * @return Lista de pistas ordenada por ID.
+     */
+    @Override
+    public List<PistaDTO> listarPistas() {
+        List<PistaDTO> resultado = new ArrayList<>();
+        for (PistaDTO pista : pistas.values()) {
+            resultado.add(copiar(pista));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca una pista por su ID.
+     *
+     * @param idPista ID de la pista.
+     * @return Una copia de la pista, o null si no existe.
+     */
+    @Override
+    public PistaDTO buscarPistaPorId(int idPista) {
+        PistaDTO pista = pistas.get(idPista);
+        return pista == null ? null : copiar(pista);
+    }
+
+    /**
+     * Copia una pista y sus materiales.
+     *
+     * @param pista La pista a copiar.
+     * @return La copia de la pista.
+     */
+    private static PistaDTO copiar(PistaDTO pista) {
+        PistaDTO copia = new PistaDTO(pista.getIdPista(), pista.getNombrePista(), pista.isDisponible(),
+                pista.isExterior(), pista.getPista(), pista.getMax_jugadores());
+        for (MaterialDTO material : pista.getMateriales()) {
+            copia.getMateriales().add(new MaterialDTO(material.getId(), material.getTipo(),
+                    material.isUsoExterior(), material.getEstado()));
+        }
+        return copia;
+    }
+}
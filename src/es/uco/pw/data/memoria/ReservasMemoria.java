@@ -0,0 +1,1016 @@
+package es.uco.pw.data.memoria;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaAdulto;
+import es.uco.pw.business.reserva.ReservaBono;
+import es.uco.pw.business.reserva.ReservaBonoFactory;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.business.reserva.ReservaFactory;
+import es.uco.pw.business.reserva.ReservaFamiliar;
+import es.uco.pw.business.reserva.ReservaIndividualFactory;
+import es.uco.pw.business.reserva.ReservaInfantil;
+import es.uco.pw.data.cache.MapaOcupacion;
+import es.uco.pw.data.cache.ResumenIngresos;
+import es.uco.pw.data.cache.ResumenIngresos.Modalidad;
+import es.uco.pw.data.cache.ResumenIngresos.TipoReserva;
+import es.uco.pw.data.repositorio.GrupoOcupacion;
+import es.uco.pw.data.repositorio.PosicionReserva;
+import es.uco.pw.data.repositorio.RepositorioBonos;
+import es.uco.pw.data.repositorio.RepositorioBonos.SesionBonoOcupadaException;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.data.repositorio.RepositorioReservas;
+import es.uco.pw.data.repositorio.RepositorioReservas.PistaOcupadaException;
+import es.uco.pw.data.repositorio.TiemposReserva;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Reservas y bonos guardados en memoria. Además de la tabla principal por ID, mantiene tres
+ * índices secundarios:
+ * <ul>
+ *   <li>por pista y fecha de inicio, para comprobar solapes y consultar rangos de una pista;</li>
+ *   <li>por fecha de inicio, para las reservas futuras;</li>
+ *   <li>por jugador, para buscar sus reservas y las hechas con un bono.</li>
+ * </ul>
+ * un {@link MapaOcupacion} con los bloques de media hora ocupados, para buscar franjas libres, y
+ * un {@link ResumenIngresos} con los ingresos acumulados por día, pista, tipo y modalidad. Las
+ * reservas archivadas salen de la tabla principal y de los índices y se guardan aparte, ordenadas
+ * por fecha, para las consultas por rango y la ocupación.
+ * Las escrituras de reservas se serializan con el monitor del repositorio y comprueban todo
+ * antes de modificar nada, de modo que una reserva que falla no deja rastro. Las sesiones de los
+ * bonos se cambian sin bloqueo, sustituyendo la fila del bono solo si sigue siendo la leída.
+ * Las filas guardadas son inmutables y las lecturas no bloquean: cada reserva leída se construye
+ * de nuevo con las fábricas de reservas, igual que al leerla de la base de datos.
+ */
+public class ReservasMemoria implements RepositorioReservas, RepositorioBonos {
+
+    /**
+     * Repositorio de jugadores, para poner la fecha de inscripción al reservar.
+     */
+    private final RepositorioJugadores jugadores;
+
+    /**
+     * Reservas por ID.
+     */
+    private final Map<Integer, FilaReserva> reservas = new ConcurrentHashMap<>();
+
+    /**
+     * Franjas de cada pista ordenadas por inicio.
+     */
+    private final Map<Integer, NavigableSet<Franja>> porPista = new ConcurrentHashMap<>();
+
+    /**
+     * Franjas de todas las pistas ordenadas por inicio.
+     */
+    private final NavigableSet<Franja> porFecha = new ConcurrentSkipListSet<>();
+
+    /**
+     * Bloques de media hora ocupados de cada pista.
+     */
+    private final MapaOcupacion mapaOcupacion = new MapaOcupacion();
+
+    /**
+     * Ingresos acumulados de las reservas guardadas.
+     */
+    private final ResumenIngresos ingresos = new ResumenIngresos();
+
+    /**
+     * Reservas archivadas por ID, fuera de los índices de las reservas activas.
+     */
+    private final Map<Integer, FilaReserva> archivadas = new ConcurrentHashMap<>();
+
+    /**
+     * Franjas de las reservas archivadas ordenadas por inicio.
+     */
+    private final NavigableSet<Franja> archivoPorFecha = new ConcurrentSkipListSet<>();
+
+    /**
+     * IDs de las reservas de cada jugador, en orden de creación.
+     */
+    private final Map<Integer, NavigableSet<Integer>> porJugador = new ConcurrentHashMap<>();
+
+    /**
+     * Bonos por ID.
+     */
+    private final Map<Integer, FilaBono> bonos = new ConcurrentHashMap<>();
+
+    /**
+     * ID del bono de cada jugador que caduca más tarde.
+     */
+    private final Map<Integer, Integer> bonoVigentePorJugador = new ConcurrentHashMap<>();
+
+    /**
+     * Mayor duración guardada, en milisegundos: acota hacia atrás la búsqueda de solapes.
+     */
+    private volatile long duracionMaxima;
+
+    /**
+     * Último ID asignado a una reserva.
+     */
+    private final AtomicInteger secuenciaReservas = new AtomicInteger();
+
+    /**
+     * Último ID asignado a un bono.
+     */
+    private final AtomicInteger secuenciaBonos = new AtomicInteger();
+
+    /**
+     * Tiempos de la última reserva guardada por cada hilo.
+     */
+    private final ThreadLocal<TiemposReserva> ultimosTiempos = new ThreadLocal<>();
+
+    /**
+     * Constructor del repositorio.
+     *
+     * @param jugadores El repositorio de jugadores del mismo motor.
+     */
+    public ReservasMemoria(RepositorioJugadores jugadores) {
+        this.jugadores = jugadores;
+    }
+
+    /**
+     * Guarda una reserva con su bono y su sesión de bono, y la fecha de inscripción del jugador.
+     *
+     * @param reservaDTO La reserva a guardar; recibe el ID generado.
+     * @param jugadorDTO El jugador cuya fecha de inscripción se actualiza si es necesario, o null.
+     * @param bonoNuevo  Indica si el bono de la reserva se crea junto con ella.
+     * @return El ID de la reserva, o -1 si la reserva no tiene tipo.
+     * @throws SesionBonoOcupadaException Si el bono no existe, ha cambiado desde que se leyó o no le quedan sesiones.
+     * @throws PistaOcupadaException Si otra reserva de la pista se solapa con esta.
+     */
+    @Override
+    public synchronized int realizarReserva(ReservaDTO reservaDTO, JugadorDTO jugadorDTO, boolean bonoNuevo) {
+        long inicio = System.nanoTime();
+        long tiempoBonoNuevo = 0;
+        long tiempoSesionBono = 0;
+        long tiempoInscripcion = 0;
+        Bono bono = reservaDTO instanceof ReservaBono ? ((ReservaBono) reservaDTO).getBono() : null;
+
+        ReservaDTO reservaEspecifica = obtenerReservaEspecifica(reservaDTO);
+        if (reservaEspecifica == null) {
+            System.err.println("Error: La reserva no tiene tipo (familiar, adulto o infantil).");
+            return -1;
+        }
+        if (!estaLibre(reservaDTO.getIdPista(), reservaDTO.getFechaHora(), reservaDTO.getDuracionMinutos(), -1)) {
+            throw new PistaOcupadaException("La pista ya está reservada en ese horario.");
+        }
+        // La sesión se asigna lo primero: si el bono ha cambiado no se ha modificado nada todavía
+        long marca = System.nanoTime();
+        Integer idBono = null;
+        int numeroSesion = 0;
+        if (bono != null && bonoNuevo) {
+            numeroSesion = 1;
+            idBono = guardarBono(bono, numeroSesion).idBono;
+            tiempoBonoNuevo = System.nanoTime() - marca;
+            marca = System.nanoTime();
+        } else if (bono != null) {
+            numeroSesion = asignarSesionBono(bono);
+            idBono = bono.getIdBono();
+            tiempoSesionBono = System.nanoTime() - marca;
+            marca = System.nanoTime();
+        }
+
+        FilaReserva fila = crearFila(secuenciaReservas.incrementAndGet(), reservaDTO, reservaEspecifica, idBono);
+        indexar(fila);
+        long tiempoReserva = System.nanoTime() - marca;
+        marca = System.nanoTime();
+
+        if (jugadorDTO != null && jugadorDTO.getFechaInscripcion() == null) {
+            jugadores.actualizarFechaInscripcion(jugadorDTO.getCorreoElectronico());
+            tiempoInscripcion = System.nanoTime() - marca;
+        }
+
+        ultimosTiempos.set(new TiemposReserva(0, tiempoBonoNuevo, tiempoReserva, 0,
+                tiempoSesionBono, tiempoInscripcion, 0, System.nanoTime() - inicio));
+        reservaDTO.setIdReserva(fila.idReserva);
+        if (bono != null) {
+            ((ReservaBono) reservaDTO).setNumeroSesion(numeroSesion);
+            bono.setSesionesRestantes(5 - numeroSesion);
+        }
+        return fila.idReserva;
+    }
+
+    /**
+     * Asigna la siguiente sesión de un bono sustituyendo su fila solo si sigue teniendo las
+     * sesiones usadas con que se leyó.
+     *
+     * @param bono El bono tal como se leyó.
+     * @return El número de la sesión asignada, de 1 a 5.
+     * @throws SesionBonoOcupadaException Si el bono no existe, ha cambiado o no le quedan sesiones.
+     */
+    private int asignarSesionBono(Bono bono) {
+        int sesionesUsadas = 5 - bono.getSesionesRestantes();
+        FilaBono fila = bonos.get(bono.getIdBono());
+        if (fila == null || fila.sesionesUsadas != sesionesUsadas || sesionesUsadas >= 5
+                || !bonos.replace(fila.idBono, fila, fila.conSesionesUsadas(sesionesUsadas + 1))) {
+            throw new SesionBonoOcupadaException("La sesión " + (sesionesUsadas + 1) + " del bono "
+                    + bono.getIdBono() + " ya no está disponible.");
+        }
+        return sesionesUsadas + 1;
+    }
+
+    /**
+     * Obtiene los tiempos de la última reserva guardada por el hilo actual. En memoria no hay
+     * conexión ni commit, y la reserva se guarda con su tipo en un solo paso.
+     *
+     * @return Los tiempos de la última reserva, o null si el hilo aún no ha guardado ninguna.
+     */
+    @Override
+    public TiemposReserva getUltimosTiempos() {
+        return ultimosTiempos.get();
+    }
+
+    /**
+     * Guarda un lote de reservas individuales. Todas se comprueban, también que su horario siga
+     * libre, antes de guardar la primera.
+     *
+     * @param reservasNuevas Las reservas a guardar.
+     * @param jugadoresLote  El jugador de cada reserva, en el mismo orden.
+     * @return null si el lote se guardó, o el mensaje de error si no se guardó ninguna.
+     */
+    @Override
+    public synchronized String insertarReservas(List<ReservaDTO> reservasNuevas, List<JugadorDTO> jugadoresLote) {
+        List<ReservaDTO> especificas = new ArrayList<>();
+        for (ReservaDTO reservaDTO : reservasNuevas) {
+            ReservaDTO reservaEspecifica = obtenerReservaEspecifica(reservaDTO);
+            if (reservaEspecifica == null) {
+                return "Error: La reserva de la pista " + reservaDTO.getIdPista() + " no tiene tipo.";
+            }
+            if (!estaLibre(reservaDTO.getIdPista(), reservaDTO.getFechaHora(), reservaDTO.getDuracionMinutos(), -1)) {
+                return "La pista ya está reservada en ese horario.";
+            }
+            especificas.add(reservaEspecifica);
+        }
+
+        for (int i = 0; i < reservasNuevas.size(); i++) {
+            ReservaDTO reservaDTO = reservasNuevas.get(i);
+            FilaReserva fila = crearFila(secuenciaReservas.incrementAndGet(), reservaDTO, especificas.get(i), null);
+            indexar(fila);
+            reservaDTO.setIdReserva(fila.idReserva);
+        }
+
+        Set<String> inscritos = new HashSet<>();
+        for (JugadorDTO jugadorDTO : jugadoresLote) {
+            if (jugadorDTO.getFechaInscripcion() == null && inscritos.add(jugadorDTO.getCorreoElectronico())) {
+                jugadores.actualizarFechaInscripcion(jugadorDTO.getCorreoElectronico());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sustituye los datos y el tipo de una reserva, conservando su jugador y su bono.
+     *
+     * @param idReserva            El ID de la reserva.
+     * @param nuevaFechaHora       La nueva fecha y hora.
+     * @param nuevaDuracionMinutos La nueva duración en minutos.
+     * @param nuevoPrecio          El nuevo precio.
+     * @param nuevoDescuento       El nuevo descuento.
+     * @param nuevaIdPista         El ID de la nueva pista.
+     * @param numeroAdultos        El número de adultos, o null si la reserva es infantil.
+     * @param numeroNinos          El número de niños, o null si la reserva es de adultos.
+     * @throws IllegalStateException Si la reserva no existe.
+     * @throws PistaOcupadaException Si otra reserva de la nueva pista se solapa con el nuevo horario.
+     */
+    @Override
+    public synchronized void actualizarReserva(int idReserva, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, float nuevoPrecio, float nuevoDescuento, int nuevaIdPista, Integer numeroAdultos, Integer numeroNinos) {
+        FilaReserva anterior = reservas.get(idReserva);
+        if (anterior == null) {
+            throw new IllegalStateException("No se pudo actualizar la reserva principal con ID: " + idReserva);
+        }
+        if (!estaLibre(nuevaIdPista, nuevaFechaHora, nuevaDuracionMinutos, idReserva)) {
+            throw new PistaOcupadaException("La pista ya está reservada en ese horario.");
+        }
+        FilaReserva nueva = new FilaReserva(idReserva, anterior.idJugador, nuevaIdPista, Reloj.aMilisegundos(nuevaFechaHora),
+                nuevaDuracionMinutos, nuevoPrecio, nuevoDescuento, anterior.idBono, numeroAdultos, numeroNinos);
+        desindexar(anterior);
+        indexar(nueva);
+    }
+
+    /**
+     * Elimina una reserva de la tabla principal y de los índices.
+     *
+     * @param idReserva El ID de la reserva.
+     * @throws IllegalStateException Si la reserva no existe.
+     */
+    @Override
+    public synchronized void eliminarReserva(int idReserva) {
+        FilaReserva fila = reservas.get(idReserva);
+        if (fila == null) {
+            throw new IllegalStateException("No se encontró la reserva con ID: " + idReserva);
+        }
+        desindexar(fila);
+        ingresos.quitar(idReserva);
+    }
+
+    /**
+     * Elimina una reserva y devuelve la sesión a su bono con el monitor del repositorio, de modo
+     * que ninguna lectura ve la reserva eliminada con la sesión aún consumida.
+     *
+     * @param idReserva El ID de la reserva.
+     * @param idBono    El ID del bono de la reserva, o null si no es de bono.
+     */
+    @Override
+    public synchronized void cancelarReserva(int idReserva, Integer idBono) {
+        eliminarReserva(idReserva);
+        if (idBono != null) {
+            decrementarSesionesBono(idBono);
+        }
+    }
+
+    /**
+     * Consulta las reservas que empiezan a partir de ahora, recorriendo el índice por fecha.
+     *
+     * @return Las reservas futuras ordenadas por fecha.
+     */
+    @Override
+    public List<ReservaDTO> consultarReservasFuturas() {
+        Franja desde = new Franja(Reloj.milisegundos(), Integer.MIN_VALUE);
+        return leer(porFecha.tailSet(desde, true));
+    }
+
+    /**
+     * Recorre las reservas futuras sobre el índice por fecha, construyendo cada una al consumirla.
+     *
+     * @param despuesDe Posición de la última reserva leída, o null para empezar por la primera.
+     * @param limite    Número máximo de reservas, o 0 para no poner límite.
+     * @return Las reservas futuras, ordenadas por fecha y después por ID.
+     */
+    @Override
+    public Stream<ReservaDTO> recorrerReservasFuturas(PosicionReserva despuesDe, int limite) {
+        PosicionReserva desde = PosicionReserva.siguienteA(despuesDe, Reloj.milisegundos());
+        Stream<ReservaDTO> resultado = porFecha.tailSet(new Franja(desde.getFechaHoraMs(), desde.getIdReserva()), false).stream()
+                .map(franja -> {
+                    FilaReserva fila = reservas.get(franja.idReserva);
+                    return fila != null && fila.fechaHora == franja.inicio ? hidratarReserva(fila, null) : null;
+                })
+                .filter(Objects::nonNull);
+        return limite > 0 ? resultado.limit(limite) : resultado;
+    }
+
+    /**
+     * Consulta las reservas de una pista que empiezan entre dos instantes, ambos incluidos.
+     *
+     * @param desde   El primer instante.
+     * @param hasta   El último instante.
+     * @param idPista El ID de la pista.
+     * @return Las reservas de la pista en ese intervalo, también las archivadas, ordenadas por fecha.
+     */
+    @Override
+    public List<ReservaDTO> consultarReservasPorRangosDeFechaYPista(LocalDateTime desde, LocalDateTime hasta, int idPista) {
+        if (desde.isAfter(hasta)) {
+            return new ArrayList<>();
+        }
+        Franja primera = new Franja(Reloj.aMilisegundos(desde), Integer.MIN_VALUE);
+        Franja ultima = new Franja(Reloj.aMilisegundos(hasta), Integer.MAX_VALUE);
+        List<ReservaDTO> resultado = new ArrayList<>();
+        for (Franja franja : archivoPorFecha.subSet(primera, true, ultima, true)) {
+            FilaReserva fila = archivadas.get(franja.idReserva);
+            if (fila != null && fila.idPista == idPista) {
+                resultado.add(hidratarReserva(fila, null));
+            }
+        }
+        NavigableSet<Franja> franjas = porPista.get(idPista);
+        if (franjas != null) {
+            resultado.addAll(leer(franjas.subSet(primera, true, ultima, true)));
+        }
+        if (!archivoPorFecha.isEmpty()) {
+            resultado.sort(Comparator.comparing(ReservaDTO::getFechaHora).thenComparingInt(ReservaDTO::getIdReserva));
+        }
+        return resultado;
+    }
+
+    /**
+     * Agrupa las reservas de un intervalo recorriendo el índice por fecha de las archivadas y el
+     * de las activas. Cada reserva forma su propio grupo, ya que en memoria no hay consultas que
+     * ahorrar.
+     *
+     * @param desde El primer instante, incluido.
+     * @param hasta El último instante, excluido.
+     * @return Un grupo por cada reserva del intervalo.
+     */
+    @Override
+    public List<GrupoOcupacion> agruparOcupacion(LocalDateTime desde, LocalDateTime hasta) {
+        List<GrupoOcupacion> grupos = new ArrayList<>();
+        if (!desde.isBefore(hasta)) {
+            return grupos;
+        }
+        Franja primera = new Franja(Reloj.aMilisegundos(desde), Integer.MIN_VALUE);
+        Franja ultima = new Franja(Reloj.aMilisegundos(hasta), Integer.MIN_VALUE);
+        agrupar(archivoPorFecha.subSet(primera, true, ultima, false), archivadas, grupos);
+        agrupar(porFecha.subSet(primera, true, ultima, false), reservas, grupos);
+        return grupos;
+    }
+
+    /**
+     * Añade un grupo de ocupación por cada reserva de un recorrido de un índice.
+     *
+     * @param franjas Las franjas a recorrer.
+     * @param filas   Las filas de las reservas de esas franjas.
+     * @param grupos  La lista donde se añaden los grupos.
+     */
+    private static void agrupar(Set<Franja> franjas, Map<Integer, FilaReserva> filas, List<GrupoOcupacion> grupos) {
+        for (Franja franja : franjas) {
+            FilaReserva fila = filas.get(franja.idReserva);
+            if (fila != null) {
+                LocalDateTime inicio = Reloj.deMilisegundos(fila.fechaHora);
+                grupos.add(new GrupoOcupacion(fila.idPista, inicio.toLocalDate(),
+                        inicio.getHour() * 60 + inicio.getMinute(), fila.duracionMinutos, 1));
+            }
+        }
+    }
+
+    /**
+     * Mueve a las reservas archivadas las que empiezan antes de un instante, quitándolas de los
+     * índices de las reservas activas y conservando sus ingresos.
+     *
+     * @param antesDe El instante hasta el que se archiva, excluido.
+     * @return El número de reservas archivadas.
+     */
+    @Override
+    public synchronized int archivarReservas(LocalDateTime antesDe) {
+        List<Franja> antiguas = new ArrayList<>(porFecha.headSet(new Franja(Reloj.aMilisegundos(antesDe), Integer.MIN_VALUE), false));
+        int archivadasAhora = 0;
+        for (Franja franja : antiguas) {
+            FilaReserva fila = reservas.get(franja.idReserva);
+            if (fila != null) {
+                desindexar(fila);
+                archivadas.put(fila.idReserva, fila);
+                archivoPorFecha.add(franja);
+                archivadasAhora++;
+            }
+        }
+        return archivadasAhora;
+    }
+
+    /**
+     * Obtiene una reserva por su ID.
+     *
+     * @param idReserva El ID de la reserva.
+     * @return La reserva, o null si no existe.
+     */
+    @Override
+    public ReservaDTO obtenerReservaPorId(int idReserva) {
+        FilaReserva fila = reservas.get(idReserva);
+        return fila == null ? null : hidratarReserva(fila, null);
+    }
+
+    /**
+     * Busca la reserva de un jugador en una pista a una hora exacta, mediante el índice por pista.
+     *
+     * @param idJugador El ID del jugador.
+     * @param idPista   El ID de la pista.
+     * @param fechaHora La fecha y hora de inicio.
+     * @return La reserva, o null si no existe.
+     */
+    @Override
+    public ReservaDTO encontrarReserva(int idJugador, int idPista, LocalDateTime fechaHora) {
+        NavigableSet<Franja> franjas = porPista.get(idPista);
+        if (franjas == null) {
+            return null;
+        }
+        long inicio = Reloj.aMilisegundos(fechaHora);
+        for (Franja franja : franjas.subSet(new Franja(inicio, Integer.MIN_VALUE), true, new Franja(inicio, Integer.MAX_VALUE), true)) {
+            FilaReserva fila = reservas.get(franja.idReserva);
+            if (fila != null && fila.idJugador == idJugador) {
+                return hidratarReserva(fila, null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene la primera reserva que un jugador hizo con un bono.
+     *
+     * @param idUsuario El ID del jugador.
+     * @param bono      El bono, que se asigna a la reserva devuelta.
+     * @return La reserva, o null si no existe.
+     */
+    @Override
+    public ReservaDTO obtenerReservaPorIdBono(int idUsuario, Bono bono) {
+        NavigableSet<Integer> ids = porJugador.get(idUsuario);
+        if (ids == null) {
+            return null;
+        }
+        for (Integer idReserva : ids) {
+            FilaReserva fila = reservas.get(idReserva);
+            if (fila != null && fila.idBono != null && fila.idBono == bono.getIdBono()) {
+                return hidratarReserva(fila, bono);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Comprueba si una pista está libre recorriendo solo las franjas de la pista que pueden
+     * solaparse: las que empiezan antes del fin del intervalo y no antes de su inicio menos la
+     * mayor duración guardada.
+     *
+     * @param idPista           El ID de la pista.
+     * @param fechaHora         La fecha y hora de inicio.
+     * @param duracionMinutos   La duración en minutos.
+     * @param idReservaExcluida El ID de una reserva que no se tiene en cuenta, o -1.
+     * @return true si ninguna otra reserva de la pista se solapa con el intervalo.
+     */
+    @Override
+    public boolean estaLibre(int idPista, LocalDateTime fechaHora, int duracionMinutos, int idReservaExcluida) {
+        NavigableSet<Franja> franjas = porPista.get(idPista);
+        if (franjas == null) {
+            return true;
+        }
+        long inicio = Reloj.aMilisegundos(fechaHora);
+        long fin = inicio + duracionMinutos * 60_000L;
+        Franja desde = new Franja(inicio - duracionMaxima, Integer.MIN_VALUE);
+        Franja hasta = new Franja(fin, Integer.MIN_VALUE);
+        for (Franja franja : franjas.subSet(desde, true, hasta, false)) {
+            if (franja.idReserva == idReservaExcluida) {
+                continue;
+            }
+            FilaReserva fila = reservas.get(franja.idReserva);
+            if (fila != null && fila.fechaHora < fin && fila.fechaHora + fila.duracionMinutos * 60_000L > inicio) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Los índices en memoria están siempre al día, así que no hay nada que cargar.
+     */
+    @Override
+    public void cargarOcupacion() {
+    }
+
+    /**
+     * Obtiene los bloques ocupados de las pistas, que se actualizan con cada reserva guardada o quitada.
+     *
+     * @return El mapa de ocupación de las pistas.
+     */
+    @Override
+    public MapaOcupacion getMapaOcupacion() {
+        return mapaOcupacion;
+    }
+
+    /**
+     * Obtiene los ingresos acumulados, que se actualizan con cada reserva guardada o quitada
+     * desde que se crea el repositorio.
+     *
+     * @return El resumen de ingresos.
+     */
+    @Override
+    public ResumenIngresos getResumenIngresos() {
+        return ingresos;
+    }
+
+    /**
+     * Obtiene un bono por su ID.
+     *
+     * @param idBono El ID del bono.
+     * @return El bono, o null si no existe.
+     */
+    @Override
+    public Bono obtenerBono(int idBono) {
+        FilaBono fila = bonos.get(idBono);
+        return fila == null ? null : fila.aBono();
+    }
+
+    /**
+     * Obtiene el bono de un jugador que caduca más tarde.
+     *
+     * @param idJugador El ID del jugador.
+     * @return El bono, o null si el jugador no tiene ninguno.
+     */
+    @Override
+    public Bono obtenerBonoPorJugador(int idJugador) {
+        Integer idBono = bonoVigentePorJugador.get(idJugador);
+        return idBono == null ? null : obtenerBono(idBono);
+    }
+
+    /**
+     * Guarda un bono nuevo sin sesiones usadas y le asigna el ID generado.
+     *
+     * @param bono El bono a guardar.
+     */
+    @Override
+    public synchronized void insertarBono(Bono bono) {
+        guardarBono(bono, 0);
+    }
+
+    /**
+     * Cuenta una sesión más como usada, si al bono le queda alguna. Reintenta si otro hilo cambia
+     * el bono a la vez.
+     *
+     * @param idBono El ID del bono.
+     */
+    @Override
+    public void actualizarSesionesBono(int idBono) {
+        FilaBono fila;
+        do {
+            fila = bonos.get(idBono);
+            if (fila == null || fila.sesionesUsadas >= 5) {
+                return;
+            }
+        } while (!bonos.replace(idBono, fila, fila.conSesionesUsadas(fila.sesionesUsadas + 1)));
+    }
+
+    /**
+     * Devuelve al bono una sesión usada, si tiene alguna. Reintenta si otro hilo cambia el bono a la vez.
+     *
+     * @param idBono El ID del bono.
+     */
+    @Override
+    public void decrementarSesionesBono(int idBono) {
+        FilaBono fila;
+        do {
+            fila = bonos.get(idBono);
+            if (fila == null || fila.sesionesUsadas <= 0) {
+                return;
+            }
+        } while (!bonos.replace(idBono, fila, fila.conSesionesUsadas(fila.sesionesUsadas - 1)));
+    }
+
+    /**
+     * Guarda un bono nuevo y lo registra como el vigente de su jugador si es el que caduca más
+     * tarde. Debe llamarse con el monitor del repositorio.
+     *
+     * @param bono           El bono a guardar; recibe el ID generado.
+     * @param sesionesUsadas Las sesiones que el bono tiene ya consumidas al crearlo.
+     * @return La fila del bono guardado.
+     */
+    private FilaBono guardarBono(Bono bono, int sesionesUsadas) {
+        FilaBono fila = new FilaBono(secuenciaBonos.incrementAndGet(), bono.getIdUsuario(), sesionesUsadas, bono.getFechaCaducidad().toEpochDay());
+        bonos.put(fila.idBono, fila);
+        Integer idVigente = bonoVigentePorJugador.get(fila.idJugador);
+        if (idVigente == null || bonos.get(idVigente).fechaCaducidad <= fila.fechaCaducidad) {
+            bonoVigentePorJugador.put(fila.idJugador, fila.idBono);
+        }
+        bono.setIdBono(fila.idBono);
+        return fila;
+    }
+
+    /**
+     * Crea la fila de una reserva a partir del DTO y de su tipo.
+     *
+     * @param idReserva         El ID asignado a la reserva.
+     * @param reservaDTO        La reserva.
+     * @param reservaEspecifica El tipo de la reserva.
+     * @param idBono            El ID del bono, o null si es una reserva individual.
+     * @return La fila de la reserva.
+     */
+    private static FilaReserva crearFila(int idReserva, ReservaDTO reservaDTO, ReservaDTO reservaEspecifica, Integer idBono) {
+        Integer adultos = null;
+        Integer ninos = null;
+        if (reservaEspecifica instanceof ReservaFamiliar) {
+            adultos = ((ReservaFamiliar) reservaEspecifica).getNumeroAdultos();
+            ninos = ((ReservaFamiliar) reservaEspecifica).getNumeroNinos();
+        } else if (reservaEspecifica instanceof ReservaAdulto) {
+            adultos = ((ReservaAdulto) reservaEspecifica).getNumeroAdultos();
+        } else if (reservaEspecifica instanceof ReservaInfantil) {
+            ninos = ((ReservaInfantil) reservaEspecifica).getNumeroNinos();
+        }
+        return new FilaReserva(idReserva, reservaDTO.getIdUsuario(), reservaDTO.getIdPista(), Reloj.aMilisegundos(reservaDTO.getFechaHora()),
+                reservaDTO.getDuracionMinutos(), reservaDTO.getPrecio(), reservaDTO.getDescuento(), idBono, adultos, ninos);
+    }
+
+    /**
+     * Obtiene el tipo (familiar, adulto o infantil) de una reserva.
+     *
+     * @param reservaDTO La reserva.
+     * @return El tipo de la reserva, o null si no lo tiene.
+     */
+    private static ReservaDTO obtenerReservaEspecifica(ReservaDTO reservaDTO) {
+        ReservaDTO reservaEspecifica = reservaDTO.getReservaEspecifica();
+        if (reservaEspecifica instanceof ReservaFamiliar || reservaEspecifica instanceof ReservaAdulto
+                || reservaEspecifica instanceof ReservaInfantil) {
+            return reservaEspecifica;
+        }
+        return null;
+    }
+
+    /**
+     * Añade una fila a la tabla principal y a los índices. Debe llamarse con el monitor del repositorio.
+     *
+     * @param fila La fila a añadir.
+     */
+    private void indexar(FilaReserva fila) {
+        reservas.put(fila.idReserva, fila);
+        Franja franja = new Franja(fila.fechaHora, fila.idReserva);
+        porPista.computeIfAbsent(fila.idPista, id -> new ConcurrentSkipListSet<>()).add(franja);
+        porFecha.add(franja);
+        porJugador.computeIfAbsent(fila.idJugador, id -> new ConcurrentSkipListSet<>()).add(fila.idReserva);
+        mapaOcupacion.anadir(fila.idPista, fila.fechaHora, fila.fechaHora + fila.duracionMinutos * 60_000L);
+        ingresos.registrar(fila.idReserva, fila.idPista, fila.fechaHora, fila.precio, fila.descuento,
+                TipoReserva.de(fila.numeroAdultos, fila.numeroNinos), fila.idBono != null ? Modalidad.BONO : Modalidad.INDIVIDUAL);
+        duracionMaxima = Math.max(duracionMaxima, fila.duracionMinutos * 60_000L);
+    }
+
+    /**
+     * Quita una fila de la tabla principal y de los índices, pero no sus ingresos, que se quitan
+     * al eliminarla y se conservan al archivarla. Debe llamarse con el monitor del repositorio.
+     *
+     * @param fila La fila a quitar.
+     */
+    private void desindexar(FilaReserva fila) {
+        Franja franja = new Franja(fila.fechaHora, fila.idReserva);
+        NavigableSet<Franja> franjasPista = porPista.get(fila.idPista);
+        if (franjasPista != null) {
+            franjasPista.remove(franja);
+        }
+        porFecha.remove(franja);
+        NavigableSet<Integer> idsJugador = porJugador.get(fila.idJugador);
+        if (idsJugador != null) {
+            idsJugador.remove(fila.idReserva);
+        }
+        mapaOcupacion.quitar(fila.idPista, fila.fechaHora, fila.fechaHora + fila.duracionMinutos * 60_000L);
+        reservas.remove(fila.idReserva);
+    }
+
+    /**
+     * Construye las reservas de un recorrido de un índice, saltando las que se han borrado mientras tanto.
+     *
+     * @param franjas Las franjas a leer.
+     * @return Las reservas, en el orden de las franjas.
+     */
+    private List<ReservaDTO> leer(Set<Franja> franjas) {
+        List<ReservaDTO> resultado = new ArrayList<>();
+        for (Franja franja : franjas) {
+            FilaReserva fila = reservas.get(franja.idReserva);
+            if (fila != null && fila.fechaHora == franja.inicio) {
+                resultado.add(hidratarReserva(fila, null));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Construye una reserva a partir de su fila, con la fábrica que corresponde a si es de bono o no.
+     *
+     * @param fila La fila de la reserva.
+     * @param bono El bono a asignar a la reserva, o null para leerlo de los bonos guardados.
+     * @return La reserva.
+     */
+    private ReservaDTO hidratarReserva(FilaReserva fila, Bono bono) {
+        int numeroSesion = 0;
+        if (fila.idBono != null) {
+            FilaBono filaBono = bonos.get(fila.idBono);
+            if (filaBono != null) {
+                numeroSesion = filaBono.sesionesUsadas;
+                if (bono == null) {
+                    bono = filaBono.aBono();
+                }
+            }
+        }
+        boolean conBono = bono != null;
+        ReservaFactory reservaFactory = conBono ? new ReservaBonoFactory() : new ReservaIndividualFactory();
+        LocalDateTime fechaHora = Reloj.deMilisegundos(fila.fechaHora);
+
+        ReservaDTO reservaDTO;
+        if (fila.numeroAdultos != null && fila.numeroNinos != null) {
+            reservaDTO = conBono
+                    ? reservaFactory.crearReservaFamiliar(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, fila.numeroAdultos, fila.numeroNinos, bono, numeroSesion)
+                    : reservaFactory.crearReservaFamiliar(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, fila.numeroAdultos, fila.numeroNinos);
+        } else if (fila.numeroAdultos != null) {
+            reservaDTO = conBono
+                    ? reservaFactory.crearReservaAdulto(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, fila.numeroAdultos, bono, numeroSesion)
+                    : reservaFactory.crearReservaAdulto(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, fila.numeroAdultos);
+        } else {
+            int ninos = fila.numeroNinos == null ? 0 : fila.numeroNinos;
+            reservaDTO = conBono
+                    ? reservaFactory.crearReservaInfantil(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, ninos, bono, numeroSesion)
+                    : reservaFactory.crearReservaInfantil(fila.idJugador, fechaHora, fila.duracionMinutos, fila.idPista, ninos);
+        }
+        reservaDTO.setIdReserva(fila.idReserva);
+        reservaDTO.setPrecio(fila.precio);
+        reservaDTO.setDescuento(fila.descuento);
+        return reservaDTO;
+    }
+
+    /**
+     * Entrada de los índices ordenados: el inicio de una reserva y su ID, que desempata.
+     */
+    private static final class Franja implements Comparable<Franja> {
+
+        /**
+         * Inicio de la reserva en milisegundos.
+         */
+        private final long inicio;
+
+        /**
+         * ID de la reserva.
+         */
+        private final int idReserva;
+
+        /**
+         * Constructor de la franja.
+         *
+         * @param inicio    Inicio de la reserva en milisegundos.
+         * @param idReserva ID de la reserva.
+         */
+        private Franja(long inicio, int idReserva) {
+            this.inicio = inicio;
+            this.idReserva = idReserva;
+        }
+
+        /**
+         * Ordena por inicio y, a igual inicio, por ID de reserva.
+         *
+         * @param otra La franja con la que se compara.
+         * @return Negativo, cero o positivo según esta franja vaya antes, sea igual o vaya después.
+         */
+        @Override
+        public int compareTo(Franja otra) {
+            int porInicio = Long.compare(inicio, otra.inicio);
+            return porInicio != 0 ? porInicio : Integer.compare(idReserva, otra.idReserva);
+        }
+
+        /**
+         * Dos franjas son iguales si tienen el mismo inicio y la misma reserva.
+         *
+         * @param o El objeto con el que se compara.
+         * @return true si representan la misma entrada del índice.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Franja)) {
+                return false;
+            }
+            Franja otra = (Franja) o;
+            return inicio == otra.inicio && idReserva == otra.idReserva;
+        }
+
+        /**
+         * Calcula el hash a partir del inicio y del ID de la reserva.
+         *
+         * @return El hash de la franja.
+         */
+        @Override
+        public int hashCode() {
+            return Long.hashCode(inicio) * 31 + idReserva;
+        }
+    }
+
+    /**
+     * Fila inmutable de una reserva, con su tipo: familiar si tiene adultos y niños, de adultos
+     * si solo tiene adultos e infantil si solo tiene niños.
+     */
+    private static final class FilaReserva {
+
+        /**
+         * ID de la reserva.
+         */
+        private final int idReserva;
+
+        /**
+         * ID del jugador que hizo la reserva.
+         */
+        private final int idJugador;
+
+        /**
+         * ID de la pista reservada.
+         */
+        private final int idPista;
+
+        /**
+         * Inicio de la reserva en milisegundos.
+         */
+        private final long fechaHora;
+
+        /**
+         * Duración de la reserva en minutos.
+         */
+        private final int duracionMinutos;
+
+        /**
+         * Precio de la reserva.
+         */
+        private final float precio;
+
+        /**
+         * Descuento aplicado a la reserva.
+         */
+        private final float descuento;
+
+        /**
+         * ID del bono de la reserva, o null si es individual.
+         */
+        private final Integer idBono;
+
+        /**
+         * Número de adultos, o null si la reserva es infantil.
+         */
+        private final Integer numeroAdultos;
+
+        /**
+         * Número de niños, o null si la reserva es de adultos.
+         */
+        private final Integer numeroNinos;
+
+        /**
+         * Constructor de la fila.
+         *
+         * @param idReserva       ID de la reserva.
+         * @param idJugador       ID del jugador.
+         * @param idPista         ID de la pista.
+         * @param fechaHora       Inicio de la reserva en milisegundos.
+         * @param duracionMinutos Duración en minutos.
+         * @param precio          Precio de la reserva.
+         * @param descuento       Descuento aplicado.
+         * @param idBono          ID del bono, o null.
+         * @param numeroAdultos   Número de adultos, o null.
+         * @param numeroNinos     Número de niños, o null.
+         */
+        private FilaReserva(int idReserva, int idJugador, int idPista, long fechaHora, int duracionMinutos,
+                            float precio, float descuento, Integer idBono, Integer numeroAdultos, Integer numeroNinos) {
+            this.idReserva = idReserva;
+            this.idJugador = idJugador;
+            this.idPista = idPista;
+            this.fechaHora = fechaHora;
+            this.duracionMinutos = duracionMinutos;
+            this.precio = precio;
+            this.descuento = descuento;
+            this.idBono = idBono;
+            this.numeroAdultos = numeroAdultos;
+            this.numeroNinos = numeroNinos;
+        }
+    }
+
+    /**
+     * Fila inmutable de un bono. Consumir o devolver una sesión sustituye la fila.
+     */
+    private static final class FilaBono {
+
+        /**
+         * ID del bono.
+         */
+        private final int idBono;
+
+        /**
+         * ID del jugador propietario del bono.
+         */
+        private final int idJugador;
+
+        /**
+         * Número de sesiones usadas, de 0 a 5.
+         */
+        private final int sesionesUsadas;
+
+        /**
+         * Fecha de caducidad, en días desde el 1 de enero de 1970.
+         */
+        private final long fechaCaducidad;
+
+        /**
+         * Constructor de la fila.
+         *
+         * @param idBono         ID del bono.
+         * @param idJugador      ID del jugador.
+         * @param sesionesUsadas Número de sesiones usadas.
+         * @param fechaCaducidad Fecha de caducidad, en días desde el 1 de enero de 1970.
+         */
+        private FilaBono(int idBono, int idJugador, int sesionesUsadas, long fechaCaducidad) {
+            this.idBono = idBono;
+            this.idJugador = idJugador;
+            this.sesionesUsadas = sesionesUsadas;
+            this.fechaCaducidad = fechaCaducidad;
+        }
+
+        /**
+         * Crea una copia de la fila con otro número de sesiones usadas.
+         *
+         * @param sesiones El nuevo número de sesiones usadas.
+         * @return La nueva fila.
+         */
+        private FilaBono conSesionesUsadas(int sesiones) {
+            return new FilaBono(idBono, idJugador, sesiones, fechaCaducidad);
+        }
+
+        /**
+         * Construye el bono que representa la fila.
+         *
+         * @return El bono, con sus sesiones restantes.
+         */
+        private Bono aBono() {
+            Bono bono = new Bono();
+            bono.setIdBono(idBono);
+            bono.setIdUsuario(idJugador);
+            bono.setSesionesRestantes(5 - sesionesUsadas);
+            bono.setFechaCaducidad(LocalDate.ofEpochDay(fechaCaducidad));
+            return bono;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package es.uco.pw.data.metricas;
+
+import es.uco.pw.data.cache.CacheJugadores;
+import es.uco.pw.data.cache.CachePistas;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.EstadisticasConsultas;
+import es.uco.pw.data.common.HistogramaLatencias;
+import es.uco.pw.data.common.PoolConexiones;
+import es.uco.pw.data.repositorio.MotorDatos;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publica las métricas de la aplicación para consultarlas desde fuera: en JMX, con jconsole o
+ * cualquier agente que lea MBeans, y como texto en el formato de exposición de Prometheus.
+ * Se publican las operaciones y validaciones de {@link MetricasReservas}, los aciertos y fallos de
+ * las cachés de pistas y jugadores y, con el motor {@code jdbc}, el estado del pool de conexiones.
+ * <p>
+ * Los MBeans quedan bajo el dominio {@code es.uco.pw}. Con {@code metricas.jmx=false} no se
+ * registra ninguno, aunque el texto de Prometheus sigue disponible.
+ */
+public final class ExportadorMetricas {
+
+    /**
+     * Dominio de los nombres de los MBeans.
+     */
+    private static final String DOMINIO = "es.uco.pw";
+
+    /**
+     * Indica si ya se han registrado los MBeans, para no registrarlos dos veces.
+     */
+    private static boolean registrado = false;
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private ExportadorMetricas() {
+    }
+
+    /**
+     * Registra los MBeans en el servidor de MBeans de la plataforma. Solo se registran la primera
+     * vez; las llamadas siguientes no hacen nada. Un fallo al registrarlos se avisa en la salida
+     * de errores y no impide arrancar la aplicación.
+     *
+     * @param motor El motor de datos en uso, que decide si se publica el pool de conexiones.
+     */
+    public static synchronized void registrar(MotorDatos motor) {
+        if (registrado || !Configuracion.getInstancia().getBooleano("metricas.jmx", true)) {
+            return;
+        }
+        registrado = true;
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            MetricasReservas metricas = MetricasReservas.getInstancia();
+            publicar(servidor, "type=Reservas", metricas);
+            for (MetricaOperacion operacion : metricas.getOperaciones().values()) {
+                publicar(servidor, "type=Operacion,name=" + operacion.getNombre(), operacion);
+            }
+
+            CachePistas cachePistas = CachePistas.getInstancia();
+            publicar(servidor, "type=Cache,name=pistas", new EstadoCache(cachePistas::getAciertos,
+                    cachePistas::getFallos, () -> {
+                        CachePistas.Catalogo catalogo = cachePistas.getVigente();
+                        return catalogo == null ? 0 : catalogo.getPistas().size();
+                    }));
+            CacheJugadores cacheJugadores = CacheJugadores.getInstancia();
+            publicar(servidor, "type=Cache,name=jugadores", new EstadoCache(
+                    () -> cacheJugadores.getAciertos() + cacheJugadores.getAciertosNegativos(),
+                    cacheJugadores::getFallos, cacheJugadores::getTamano));
+
+            if (MotorDatos.JDBC.equals(motor.getNombre())) {
+                publicar(servidor, "type=PoolConexiones", new EstadoPool(PoolConexiones.getInstancia()));
+            }
+        } catch (JMException e) {
+            System.err.println("No se pudieron publicar las métricas en JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra un MBean bajo el dominio de la aplicación.
+     *
+     * @param servidor  El servidor de MBeans.
+     * @param propiedad Las propiedades del nombre del MBean.
+     * @param mbean     El objeto que lo implementa.
+     * @throws JMException Si el nombre no es válido o ya hay un MBean con ese nombre.
+     */
+    private static void publicar(MBeanServer servidor, String propiedad, Object mbean) throws JMException {
+        servidor.registerMBean(mbean, new ObjectName(DOMINIO + ":" + propiedad));
+    }
+
+    /**
+     * Escribe las métricas en el formato de texto de Prometheus. Los tiempos se exponen como
+     * resúmenes en segundos, con los cuantiles 0.5, 0.95 y 0.99.
+     *
+     * @param motor El motor de datos en uso, que decide si se incluye el pool de conexiones.
+     * @return El texto de las métricas.
+     */
+    public static String textoPrometheus(MotorDatos motor) {
+        StringBuilder sb = new StringBuilder(4096);
+        MetricasReservas metricas = MetricasReservas.getInstancia();
+
+        cabecera(sb, "reservas_operacion_segundos", "summary", "Duración de las operaciones de reservas y pistas.");
+        for (MetricaOperacion m : metricas.getOperaciones().values()) {
+            resumen(sb, "reservas_operacion_segundos", "operacion=\"" + m.getNombre() + "\"", m.getLatencias());
+        }
+        cabecera(sb, "reservas_operacion_fallos_total", "counter", "Llamadas a las operaciones que fallaron.");
+        for (MetricaOperacion m : metricas.getOperaciones().values()) {
+            valor(sb, "reservas_operacion_fallos_total", "operacion=\"" + m.getNombre() + "\"", m.getFallos());
+        }
+        cabecera(sb, "reservas_rechazos_total", "counter", "Reservas rechazadas por cada validación.");
+        for (MetricasReservas.Validacion validacion : MetricasReservas.Validacion.values()) {
+            valor(sb, "reservas_rechazos_total", "validacion=\"" + validacion.getNombre() + "\"",
+                    metricas.getRechazos(validacion));
+        }
+        cabecera(sb, "reservas_sesiones_bono_total", "counter", "Sesiones de bono consumidas y devueltas.");
+        valor(sb, "reservas_sesiones_bono_total", "movimiento=\"consumida\"", metricas.getSesionesBonoConsumidas());
+        valor(sb, "reservas_sesiones_bono_total", "movimiento=\"devuelta\"", metricas.getSesionesBonoDevueltas());
+
+        CachePistas cachePistas = CachePistas.getInstancia();
+        CacheJugadores cacheJugadores = CacheJugadores.getInstancia();
+        cabecera(sb, "reservas_cache_aciertos_total", "counter", "Lecturas servidas desde las cachés.");
+        valor(sb, "reservas_cache_aciertos_total", "cache=\"pistas\"", cachePistas.getAciertos());
+        valor(sb, "reservas_cache_aciertos_total", "cache=\"jugadores\"",
+                cacheJugadores.getAciertos() + cacheJugadores.getAciertosNegativos());
+        cabecera(sb, "reservas_cache_fallos_total", "counter", "Lecturas que no estaban en las cachés.");
+        valor(sb, "reservas_cache_fallos_total", "cache=\"pistas\"", cachePistas.getFallos());
+        valor(sb, "reservas_cache_fallos_total", "cache=\"jugadores\"", cacheJugadores.getFallos());
+
+        if (MotorDatos.JDBC.equals(motor.getNombre())) {
+            PoolConexiones pool = PoolConexiones.getInstancia();
+            cabecera(sb, "reservas_pool_conexiones", "gauge", "Conexiones del pool según su estado.");
+            valor(sb, "reservas_pool_conexiones", "estado=\"prestadas\"", pool.getConexionesPrestadas());
+            valor(sb, "reservas_pool_conexiones", "estado=\"inactivas\"", pool.getConexionesInactivas());
+            valor(sb, "reservas_pool_conexiones", "estado=\"abiertas\"", pool.getConexionesAbiertas());
+            valor(sb, "reservas_pool_conexiones", "estado=\"maximo\"", pool.getTamanoMaximo());
+            cabecera(sb, "reservas_pool_sentencias_total", "counter", "Sentencias ejecutadas con el pool.");
+            valor(sb, "reservas_pool_sentencias_total", null, pool.getSentenciasEjecutadas());
+            cabecera(sb, "reservas_pool_adquisicion_segundos", "summary", "Tiempo de obtención de las conexiones.");
+            resumen(sb, "reservas_pool_adquisicion_segundos", null, EstadisticasConsultas.getInstancia().getAdquisicion());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe las líneas de ayuda y tipo de una métrica.
+     *
+     * @param sb     El texto en construcción.
+     * @param nombre El nombre de la métrica.
+     * @param tipo   El tipo de Prometheus.
+     * @param ayuda  La descripción.
+     */
+    private static void cabecera(StringBuilder sb, String nombre, String tipo, String ayuda) {
+        sb.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+        sb.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+    }
+
+    /**
+     * Escribe una muestra de una métrica.
+     *
+     * @param sb        El texto en construcción.
+     * @param nombre    El nombre de la métrica.
+     * @param etiquetas Las etiquetas de la muestra, o null si no tiene.
+     * @param valor     El valor.
+     */
+    private static void valor(StringBuilder sb, String nombre, String etiquetas, Object valor) {
+        sb.append(nombre);
+        if (etiquetas != null) {
+            sb.append('{').append(etiquetas).append('}');
+        }
+        sb.append(' ').append(valor).append('\n');
+    }
+
+    /**
+     * Escribe un histograma de latencias como resumen de Prometheus, en segundos.
+     *
+     * @param sb         El texto en construcción.
+     * @param nombre     El nombre de la métrica.
+     * @param etiquetas  Las etiquetas comunes, o null si no tiene.
+     * @param histograma El histograma, en microsegundos.
+     */
+    private static void resumen(StringBuilder sb, String nombre, String etiquetas, HistogramaLatencias histograma) {
+        String prefijo = etiquetas == null ? "" : etiquetas + ",";
+        for (double cuantil : new double[] {0.5, 0.95, 0.99}) {
+            valor(sb, nombre, prefijo + "quantile=\"" + cuantil + "\"", segundos(histograma.percentil(cuantil)));
+        }
+        long total = histograma.getTotal();
+        valor(sb, nombre + "_sum", etiquetas, segundos(Math.round(histograma.getMedia() * total)));
+        valor(sb, nombre + "_count", etiquetas, total);
+    }
+
+    /**
+     * Convierte microsegundos en segundos con el punto como separador decimal.
+     *
+     * @param micros El tiempo en microsegundos.
+     * @return El tiempo en segundos.
+     */
+    private static String segundos(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1e6);
+    }
+
+    /**
+     * Atributos JMX de una caché.
+     */
+    public interface CacheMXBean {
+
+        /**
+         * Obtiene las lecturas servidas desde la caché.
+         *
+         * @return Número de aciertos.
+         */
+        long getAciertos();
+
+        /**
+         * Obtiene las lecturas que tuvieron que ir al repositorio.
+         *
+         * @return Número de fallos.
+         */
+        long getFallos();
+
+        /**
+         * Obtiene la proporción de lecturas servidas desde la caché.
+         *
+         * @return Los aciertos entre el total de lecturas, o 0 si no hay lecturas.
+         */
+        double getTasaAciertos();
+
+        /**
+         * Obtiene el número de elementos guardados en la caché.
+         *
+         * @return El tamaño actual.
+         */
+        long getTamano();
+    }
+
+    /**
+     * Atributos JMX del pool de conexiones.
+     */
+    public interface PoolConexionesMXBean {
+
+        /**
+         * Obtiene el número máximo de conexiones.
+         *
+         * @return Tamaño máximo del pool.
+         */
+        int getTamanoMaximo();
+
+        /**
+         * Obtiene las conexiones prestadas en este momento.
+         *
+         * @return Conexiones en uso.
+         */
+        int getConexionesPrestadas();
+
+        /**
+         * Obtiene las conexiones libres en este momento.
+         *
+         * @return Conexiones inactivas.
+         */
+        int getConexionesInactivas();
+
+        /**
+         * Obtiene las conexiones físicas abiertas.
+         *
+         * @return Conexiones abiertas.
+         */
+        int getConexionesAbiertas();
+
+        /**
+         * Obtiene las sentencias ejecutadas desde que se creó el pool.
+         *
+         * @return Sentencias ejecutadas.
+         */
+        long getSentenciasEjecutadas();
+
+        /**
+         * Obtiene las sentencias preparadas reutilizadas de la caché de sentencias.
+         *
+         * @return Aciertos de la caché de sentencias.
+         */
+        long getAciertosCacheSentencias();
+
+        /**
+         * Obtiene las sentencias preparadas que hubo que preparar de nuevo.
+         *
+         * @return Fallos de la caché de sentencias.
+         */
+        long getFallosCacheSentencias();
+
+        /**
+         * Obtiene el percentil 99 del tiempo de obtención de una conexión, con la espera incluida.
+         *
+         * @return El percentil 99 en milisegundos.
+         */
+        double getAdquisicionP99Ms();
+    }
+
+    /**
+     * Caché publicada en JMX a partir de sus contadores.
+     */
+    private static final class EstadoCache implements CacheMXBean {
+
+        /**
+         * Lectura de los aciertos.
+         */
+        private final LongSupplier aciertos;
+
+        /**
+         * Lectura de los fallos.
+         */
+        private final LongSupplier fallos;
+
+        /**
+         * Lectura del tamaño.
+         */
+        private final LongSupplier tamano;
+
+        /**
+         * Constructor del MBean de una caché.
+         *
+         * @param aciertos Lectura de los aciertos.
+         * @param fallos   Lectura de los fallos.
+         * @param tamano   Lectura del tamaño.
+         */
+        EstadoCache(LongSupplier aciertos, LongSupplier fallos, LongSupplier tamano) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.tamano = tamano;
+        }
+
+        @Override
+        public long getAciertos() {
+            return aciertos.getAsLong();
+        }
+
+        @Override
+        public long getFallos() {
+            return fallos.getAsLong();
+        }
+
+        @Override
+        public double getTasaAciertos() {
+            long a = aciertos.getAsLong();
+            long total = a + fallos.getAsLong();
+            return total == 0 ? 0.0 : (double) a / total;
+        }
+
+        @Override
+        public long getTamano() {
+            return tamano.getAsLong();
+        }
+    }
+
+    /**
+     * Pool de conexiones publicado en JMX.
+     */
+    private static final class EstadoPool implements PoolConexionesMXBean {
+
+        /**
+         * Pool que se publica.
+         */
+        private final PoolConexiones pool;
+
+        /**
+         * Constructor del MBean del pool.
+         *
+         * @param pool El pool de conexiones.
+         */
+        EstadoPool(PoolConexiones pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public int getTamanoMaximo() {
+            return pool.getTamanoMaximo();
+        }
+
+        @Override
+        public int getConexionesPrestadas() {
+            return pool.getConexionesPrestadas();
+        }
+
+        @Override
+        public int getConexionesInactivas() {
+            return pool.getConexionesInactivas();
+        }
+
+        @Override
+        public int getConexionesAbiertas() {
+            return pool.getConexionesAbiertas();
+        }
+
+        @Override
+        public long getSentenciasEjecutadas() {
+            return pool.getSentenciasEjecutadas();
+        }
+
+        @Override
+        public long getAciertosCacheSentencias() {
+            return pool.getAciertosCacheSentencias();
+        }
+
+        @Override
+        public long getFallosCacheSentencias() {
+            return pool.getFallosCacheSentencias();
+        }
+
+        @Override
+        public double getAdquisicionP99Ms() {
+            return EstadisticasConsultas.getInstancia().getAdquisicion().percentil(0.99) / 1e3;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package es.uco.pw.data.metricas;
+
+import es.uco.pw.data.common.HistogramaLatencias;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores y tiempos de una operación de reservas o de pistas: cuántas veces se ha llamado,
+ * cuántas ha fallado y cuánto ha tardado cada llamada, con éxito o sin él. Se publica en JMX
+ * con la interfaz {@link MetricaOperacionMXBean}.
+ */
+public final class MetricaOperacion implements MetricaOperacionMXBean {
+
+    /**
+     * Nombre del método medido.
+     */
+    private final String nombre;
+
+    /**
+     * Duración de todas las llamadas.
+     */
+    private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+    /**
+     * Llamadas que lanzaron una excepción o no llegaron a completar la operación.
+     */
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Crea las métricas vacías de una operación.
+     *
+     * @param nombre El nombre del método medido.
+     */
+    MetricaOperacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Anota una llamada a la operación.
+     *
+     * @param nanos La duración de la llamada, en nanosegundos.
+     * @param exito Indica si la operación se completó.
+     */
+    void registrar(long nanos, boolean exito) {
+        latencias.registrarNanos(nanos);
+        if (!exito) {
+            fallos.increment();
+        }
+    }
+
+    /**
+     * Pone a cero las métricas de la operación.
+     */
+    void reiniciar() {
+        latencias.reiniciar();
+        fallos.reset();
+    }
+
+    /**
+     * Obtiene el histograma de duración de las llamadas.
+     *
+     * @return El histograma, en microsegundos.
+     */
+    public HistogramaLatencias getLatencias() {
+        return latencias;
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public long getLlamadas() {
+        return latencias.getTotal();
+    }
+
+    @Override
+    public long getExitos() {
+        return Math.max(0, latencias.getTotal() - fallos.sum());
+    }
+
+    @Override
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    @Override
+    public double getMediaMs() {
+        return latencias.getMedia() / 1e3;
+    }
+
+    @Override
+    public double getP50Ms() {
+        return latencias.percentil(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP95Ms() {
+        return latencias.percentil(0.95) / 1e3;
+    }
+
+    @Override
+    public double getP99Ms() {
+        return latencias.percentil(0.99) / 1e3;
+    }
+
+    @Override
+    public double getMaximaMs() {
+        return latencias.getMaxima() / 1e3;
+    }
+}
@@ -0,0 +1,72 @@
+package es.uco.pw.data.metricas;
+
+/**
+ * Atributos JMX de una operación medida. Los contadores solo crecen desde que arranca la
+ * aplicación (salvo que se reinicien), así que las llamadas por minuto se obtienen restando dos
+ * lecturas; los tiempos están en milisegundos.
+ */
+public interface MetricaOperacionMXBean {
+
+    /**
+     * Obtiene el nombre del método medido.
+     *
+     * @return El nombre de la operación.
+     */
+    String getNombre();
+
+    /**
+     * Obtiene el número de llamadas a la operación.
+     *
+     * @return Las llamadas, con éxito o sin él.
+     */
+    long getLlamadas();
+
+    /**
+     * Obtiene el número de llamadas que completaron la operación.
+     *
+     * @return Las llamadas con éxito.
+     */
+    long getExitos();
+
+    /**
+     * Obtiene el número de llamadas que fallaron.
+     *
+     * @return Las llamadas sin éxito.
+     */
+    long getFallos();
+
+    /**
+     * Obtiene la duración media de las llamadas.
+     *
+     * @return La media en milisegundos.
+     */
+    double getMediaMs();
+
+    /**
+     * Obtiene la mediana de la duración de las llamadas.
+     *
+     * @return El percentil 50 en milisegundos.
+     */
+    double getP50Ms();
+
+    /**
+     * Obtiene el percentil 95 de la duración de las llamadas.
+     *
+     * @return El percentil 95 en milisegundos.
+     */
+    double getP95Ms();
+
+    /**
+     * Obtiene el percentil 99 de la duración de las llamadas.
+     *
+     * @return El percentil 99 en milisegundos.
+     */
+    double getP99Ms();
+
+    /**
+     * Obtiene la llamada más lenta.
+     *
+     * @return La duración máxima en milisegundos.
+     */
+    double getMaximaMs();
+}
@@ -0,0 +1,286 @@
+package es.uco.pw.data.metricas;
+
+import es.uco.pw.data.common.Configuracion;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de las métricas de negocio de las reservas: las llamadas y los tiempos de cada
+ * {@link Operacion}, los rechazos de cada {@link Validacion} y las sesiones de bono consumidas y
+ * devueltas. Los DAO anotan en él lo que hacen y {@link ExportadorMetricas} lo publica en JMX y
+ * en formato de texto de Prometheus.
+ * <p>
+ * Todo se guarda en contadores sin bloqueos, así que anotar cuesta unos pocos nanosegundos y no
+ * añade esperas entre reservas simultáneas. Con {@code metricas.activas=false} no se anota nada.
+ */
+public final class MetricasReservas implements MetricasReservasMXBean {
+
+    /**
+     * Operaciones medidas, con el nombre del método que las realiza.
+     */
+    public enum Operacion {
+        RESERVA_INDIVIDUAL("hacerReservaIndividual"),
+        RESERVA_BONO("hacerReservaBono"),
+        MODIFICACION("modificarReserva"),
+        CANCELACION("cancelarReserva"),
+        CREACION_MATERIAL("crearMaterial"),
+        ASOCIACION_MATERIAL("asociarMaterialAPista");
+
+        /**
+         * Nombre del método medido.
+         */
+        private final String nombre;
+
+        /**
+         * Constructor de la operación.
+         *
+         * @param nombre El nombre del método medido.
+         */
+        Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * Obtiene el nombre del método medido.
+         *
+         * @return El nombre de la operación.
+         */
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    /**
+     * Comprobaciones de las reservas cuyos rechazos se cuentan.
+     */
+    public enum Validacion {
+        FECHA_HORA("validarFechaHora"),
+        MAXIMO_JUGADORES("validarMaximoJugadores"),
+        TIPO_RESERVA("cumpleCondicionesTipoReserva"),
+        PISTA_LIBRE("validarPistaLibre");
+
+        /**
+         * Nombre del método que hace la comprobación.
+         */
+        private final String nombre;
+
+        /**
+         * Constructor de la validación.
+         *
+         * @param nombre El nombre del método que la hace.
+         */
+        Validacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * Obtiene el nombre del método que hace la comprobación.
+         *
+         * @return El nombre de la validación.
+         */
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    /**
+     * Instancia única del registro, compartida por todos los DAO.
+     */
+    private static final MetricasReservas INSTANCIA = new MetricasReservas();
+
+    /**
+     * Indica si se anotan las métricas.
+     */
+    private final boolean activas;
+
+    /**
+     * Métricas de cada operación.
+     */
+    private final Map<Operacion, MetricaOperacion> operaciones = new EnumMap<>(Operacion.class);
+
+    /**
+     * Rechazos de cada validación.
+     */
+    private final Map<Validacion, LongAdder> rechazos = new EnumMap<>(Validacion.class);
+
+    /**
+     * Sesiones de bono consumidas por reservas con bono.
+     */
+    private final LongAdder sesionesConsumidas = new LongAdder();
+
+    /**
+     * Sesiones de bono devueltas al cancelar reservas con bono.
+     */
+    private final LongAdder sesionesDevueltas = new LongAdder();
+
+    /**
+     * Constructor privado que lee la configuración y crea los contadores, que ya no cambian, de
+     * modo que los mapas pueden leerse desde cualquier hilo sin sincronizar.
+     */
+    private MetricasReservas() {
+        this.activas = Configuracion.getInstancia().getBooleano("metricas.activas", true);
+        for (Operacion operacion : Operacion.values()) {
+            operaciones.put(operacion, new MetricaOperacion(operacion.getNombre()));
+        }
+        for (Validacion validacion : Validacion.values()) {
+            rechazos.put(validacion, new LongAdder());
+        }
+    }
+
+    /**
+     * Obtiene el registro de métricas de las reservas.
+     *
+     * @return El registro compartido.
+     */
+    public static MetricasReservas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica si se anotan las métricas.
+     *
+     * @return true si las métricas están activas.
+     */
+    public boolean isActivas() {
+        return activas;
+    }
+
+    /**
+     * Anota una llamada a una operación que empezó en {@code inicioNanos}.
+     *
+     * @param operacion   La operación.
+     * @param inicioNanos El valor de {@link System#nanoTime()} al empezar.
+     * @param exito       Indica si la operación se completó.
+     */
+    public void registrar(Operacion operacion, long inicioNanos, boolean exito) {
+        if (activas) {
+            operaciones.get(operacion).registrar(System.nanoTime() - inicioNanos, exito);
+        }
+    }
+
+    /**
+     * Anota que una validación ha rechazado una reserva.
+     *
+     * @param validacion La validación que no se ha superado.
+     */
+    public void registrarRechazo(Validacion validacion) {
+        if (activas) {
+            rechazos.get(validacion).increment();
+        }
+    }
+
+    /**
+     * Anota que una reserva ha consumido una sesión de bono.
+     */
+    public void registrarSesionConsumida() {
+        if (activas) {
+            sesionesConsumidas.increment();
+        }
+    }
+
+    /**
+     * Anota que una cancelación ha devuelto una sesión al bono.
+     */
+    public void registrarSesionDevuelta() {
+        if (activas) {
+            sesionesDevueltas.increment();
+        }
+    }
+
+    /**
+     * Obtiene las métricas de una operación.
+     *
+     * @param operacion La operación.
+     * @return Sus contadores y tiempos.
+     */
+    public MetricaOperacion getOperacion(Operacion operacion) {
+        return operaciones.get(operacion);
+    }
+
+    /**
+     * Obtiene las métricas de todas las operaciones.
+     *
+     * @return Las métricas, en el orden de {@link Operacion}.
+     */
+    public Map<Operacion, MetricaOperacion> getOperaciones() {
+        return Collections.unmodifiableMap(operaciones);
+    }
+
+    /**
+     * Obtiene los rechazos de una validación.
+     *
+     * @param validacion La validación.
+     * @return Las reservas rechazadas por ella.
+     */
+    public long getRechazos(Validacion validacion) {
+        return rechazos.get(validacion).sum();
+    }
+
+    @Override
+    public long getRechazosFechaHora() {
+        return getRechazos(Validacion.FECHA_HORA);
+    }
+
+    @Override
+    public long getRechazosMaximoJugadores() {
+        return getRechazos(Validacion.MAXIMO_JUGADORES);
+    }
+
+    @Override
+    public long getRechazosTipoReserva() {
+        return getRechazos(Validacion.TIPO_RESERVA);
+    }
+
+    @Override
+    public long getRechazosPistaLibre() {
+        return getRechazos(Validacion.PISTA_LIBRE);
+    }
+
+    @Override
+    public long getSesionesBonoConsumidas() {
+        return sesionesConsumidas.sum();
+    }
+
+    @Override
+    public long getSesionesBonoDevueltas() {
+        return sesionesDevueltas.sum();
+    }
+
+    @Override
+    public void reiniciar() {
+        for (MetricaOperacion metrica : operaciones.values()) {
+            metrica.reiniciar();
+        }
+        for (LongAdder contador : rechazos.values()) {
+            contador.reset();
+        }
+        sesionesConsumidas.reset();
+        sesionesDevueltas.reset();
+    }
+
+    /**
+     * Resume las métricas en una tabla con los tiempos en milisegundos.
+     *
+     * @return El informe de las operaciones, las validaciones y los bonos.
+     */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %8s %7s %9s %9s %9s %9s%n", "Operación", "Llamadas", "Fallos",
+                "Media", "p95", "p99", "Máxima"));
+        for (MetricaOperacion m : operaciones.values()) {
+            sb.append(String.format("%-24s %8d %7d %9.3f %9.3f %9.3f %9.3f%n", m.getNombre(), m.getLlamadas(),
+                    m.getFallos(), m.getMediaMs(), m.getP95Ms(), m.getP99Ms(), m.getMaximaMs()));
+        }
+        sb.append("Reservas rechazadas por validación:");
+        for (Validacion validacion : Validacion.values()) {
+            sb.append(' ').append(validacion.getNombre()).append('=').append(getRechazos(validacion));
+        }
+        sb.append('\n');
+        sb.append("Sesiones de bono consumidas: ").append(getSesionesBonoConsumidas())
+                .append(", devueltas: ").append(getSesionesBonoDevueltas()).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package es.uco.pw.data.metricas;
+
+/**
+ * Atributos JMX de las reservas que no pertenecen a una operación concreta: los rechazos de cada
+ * validación y el movimiento de sesiones de bono. Todos son contadores acumulados desde el
+ * arranque o desde el último {@link #reiniciar()}.
+ */
+public interface MetricasReservasMXBean {
+
+    /**
+     * Obtiene las reservas rechazadas por fecha u hora no permitidas.
+     *
+     * @return Los rechazos de {@code validarFechaHora}.
+     */
+    long getRechazosFechaHora();
+
+    /**
+     * Obtiene las reservas rechazadas por exceder el máximo de jugadores de la pista.
+     *
+     * @return Los rechazos de {@code validarMaximoJugadores}.
+     */
+    long getRechazosMaximoJugadores();
+
+    /**
+     * Obtiene las reservas rechazadas porque la pista no admite su tipo.
+     *
+     * @return Los rechazos de {@code cumpleCondicionesTipoReserva}.
+     */
+    long getRechazosTipoReserva();
+
+    /**
+     * Obtiene las reservas rechazadas porque la pista ya estaba ocupada.
+     *
+     * @return Los rechazos de {@code validarPistaLibre}.
+     */
+    long getRechazosPistaLibre();
+
+    /**
+     * Obtiene las sesiones de bono consumidas.
+     *
+     * @return Las reservas con bono realizadas.
+     */
+    long getSesionesBonoConsumidas();
+
+    /**
+     * Obtiene las sesiones devueltas a su bono.
+     *
+     * @return Las reservas con bono canceladas.
+     */
+    long getSesionesBonoDevueltas();
+
+    /**
+     * Pone a cero todas las métricas de las reservas, también las de cada operación.
+     */
+    void reiniciar();
+}
@@ -0,0 +1,98 @@
+package es.uco.pw.data.repositorio;
+
+import java.time.LocalDate;
+
+/**
+ * Reservas de una pista que empiezan el mismo día a la misma hora y duran lo mismo. Es la fila
+ * agregada con la que se calcula la ocupación de las pistas sin leer cada reserva completa: con la
+ * base de datos la agrupación la hace una única consulta con GROUP BY.
+ */
+public final class GrupoOcupacion {
+
+    /**
+     * ID de la pista.
+     */
+    private final int idPista;
+
+    /**
+     * Día en que empiezan las reservas.
+     */
+    private final LocalDate dia;
+
+    /**
+     * Minuto del día en que empiezan, contado desde las 0:00.
+     */
+    private final int minutoInicio;
+
+    /**
+     * Duración de cada reserva, en minutos.
+     */
+    private final int duracionMinutos;
+
+    /**
+     * Número de reservas del grupo.
+     */
+    private final int reservas;
+
+    /**
+     * Constructor del grupo.
+     *
+     * @param idPista         El ID de la pista.
+     * @param dia             El día en que empiezan las reservas.
+     * @param minutoInicio    El minuto del día en que empiezan, desde las 0:00.
+     * @param duracionMinutos La duración de cada reserva, en minutos.
+     * @param reservas        El número de reservas del grupo.
+     */
+    public GrupoOcupacion(int idPista, LocalDate dia, int minutoInicio, int duracionMinutos, int reservas) {
+        this.idPista = idPista;
+        this.dia = dia;
+        this.minutoInicio = minutoInicio;
+        this.duracionMinutos = duracionMinutos;
+        this.reservas = reservas;
+    }
+
+    /**
+     * Obtiene el ID de la pista.
+     *
+     * @return El ID de la pista.
+     */
+    public int getIdPista() {
+        return idPista;
+    }
+
+    /**
+     * Obtiene el día en que empiezan las reservas.
+     *
+     * @return El día.
+     */
+    public LocalDate getDia() {
+        return dia;
+    }
+
+    /**
+     * Obtiene el minuto del día en que empiezan las reservas.
+     *
+     * @return Los minutos desde las 0:00.
+     */
+    public int getMinutoInicio() {
+        return minutoInicio;
+    }
+
+    /**
+     * Obtiene la duración de cada reserva.
+     *
+     * @return La duración, en minutos.
+     */
+    public int getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
+    /**
+     * Obtiene el número de reservas del grupo.
+     *
+     * @return Las reservas.
+     */
+    public int getReservas() {
+        return reservas;
+    }
+}
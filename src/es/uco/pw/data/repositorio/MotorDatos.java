@@ -0,0 +1,207 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.MigradorEsquema;
+import es.uco.pw.data.dao.JugadoresDAO;
+import es.uco.pw.data.dao.PistasDAO;
+import es.uco.pw.data.dao.ReservasBonosDAO;
+import es.uco.pw.data.memoria.JugadoresMemoria;
+import es.uco.pw.data.memoria.PistasMemoria;
+import es.uco.pw.data.memoria.ReservasMemoria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Motor de datos de la aplicación: agrupa los repositorios de jugadores, pistas, reservas y bonos
+ * de una misma implementación. La propiedad {@code motor} de {@code config.properties} elige el
+ * motor al arrancar:
+ * <ul>
+ *   <li>{@code jdbc} (por defecto): los DAO sobre la base de datos MySQL.</li>
+ *   <li>{@code memoria}: mapas concurrentes en memoria, sin base de datos. Empieza vacío y se
+ *       pierde al salir; sirve para demostraciones y pruebas de carga.</li>
+ * </ul>
+ */
+public final class MotorDatos {
+
+    /**
+     * Nombre del motor sobre la base de datos.
+     */
+    public static final String JDBC = "jdbc";
+
+    /**
+     * Nombre del motor en memoria.
+     */
+    public static final String MEMORIA = "memoria";
+
+    /**
+     * Nombre del motor.
+     */
+    private final String nombre;
+
+    /**
+     * Repositorio de jugadores.
+     */
+    private final RepositorioJugadores jugadores;
+
+    /**
+     * Repositorio de pistas y materiales.
+     */
+    private final RepositorioPistas pistas;
+
+    /**
+     * Repositorio de reservas.
+     */
+    private final RepositorioReservas reservas;
+
+    /**
+     * Repositorio de bonos.
+     */
+    private final RepositorioBonos bonos;
+
+    /**
+     * Constructor privado con los repositorios del motor.
+     *
+     * @param nombre    Nombre del motor.
+     * @param jugadores Repositorio de jugadores.
+     * @param pistas    Repositorio de pistas.
+     * @param reservas  Repositorio de reservas.
+     * @param bonos     Repositorio de bonos.
+     */
+    private MotorDatos(String nombre, RepositorioJugadores jugadores, RepositorioPistas pistas,
+                       RepositorioReservas reservas, RepositorioBonos bonos) {
+        this.nombre = nombre;
+        this.jugadores = jugadores;
+        this.pistas = pistas;
+        this.reservas = reservas;
+        this.bonos = bonos;
+    }
+
+    /**
+     * Contenedor del motor configurado, que se crea la primera vez que se pide.
+     */
+    private static final class Contenedor {
+
+        /**
+         * Motor elegido en {@code config.properties}.
+         */
+        private static final MotorDatos INSTANCIA = crear(Configuracion.getInstancia().getPropiedad("motor", JDBC));
+    }
+
+    /**
+     * Obtiene el motor elegido en {@code config.properties}, compartido por toda la aplicación.
+     *
+     * @return El motor de datos configurado.
+     * @throws IllegalArgumentException Si la propiedad {@code motor} no es un motor conocido.
+     */
+    public static MotorDatos getInstancia() {
+        return Contenedor.INSTANCIA;
+    }
+
+    /**
+     * Crea un motor nuevo. Cada motor en memoria creado así tiene sus propios datos.
+     *
+     * @param nombre El nombre del motor: {@code jdbc} o {@code memoria}.
+     * @return El motor creado.
+     * @throws IllegalArgumentException Si el nombre no es un motor conocido.
+     */
+    public static MotorDatos crear(String nombre) {
+        String motor = nombre.trim().toLowerCase(Locale.ROOT);
+        switch (motor) {
+            case JDBC: {
+                JugadoresDAO jugadoresDAO = new JugadoresDAO();
+                ReservasBonosDAO reservasBonosDAO = new ReservasBonosDAO(jugadoresDAO);
+                return new MotorDatos(JDBC, jugadoresDAO, new PistasDAO(), reservasBonosDAO, reservasBonosDAO);
+            }
+            case MEMORIA: {
+                JugadoresMemoria jugadoresMemoria = new JugadoresMemoria();
+                ReservasMemoria reservasMemoria = new ReservasMemoria(jugadoresMemoria);
+                return new MotorDatos(MEMORIA, jugadoresMemoria, new PistasMemoria(), reservasMemoria, reservasMemoria);
+            }
+            default:
+                throw new IllegalArgumentException("Motor de datos desconocido en config.properties: '" + nombre
+                        + "'. Los valores admitidos son '" + JDBC + "' y '" + MEMORIA + "'.");
+        }
+    }
+
+    /**
+     * Obtiene las claves de {@code sql.properties} que necesita el motor, para comprobarlas al arrancar.
+     *
+     * @return Las consultas requeridas; vacía si el motor no usa la base de datos.
+     */
+    public List<String> getConsultasRequeridas() {
+        if (!JDBC.equals(nombre)) {
+            return Collections.emptyList();
+        }
+        List<String> consultas = new ArrayList<>();
+        consultas.addAll(JugadoresDAO.CONSULTAS_REQUERIDAS);
+        consultas.addAll(PistasDAO.CONSULTAS_REQUERIDAS);
+        consultas.addAll(ReservasBonosDAO.CONSULTAS_REQUERIDAS);
+        consultas.addAll(MigradorEsquema.CONSULTAS_REQUERIDAS);
+        return consultas;
+    }
+
+    /**
+     * Aplica las migraciones pendientes del esquema si el motor usa la base de datos y la propiedad
+     * {@code esquema.migrarAlArrancar} está activada; por defecto no lo está y el esquema no se toca
+     * al arrancar. Un fallo se anota y no impide arrancar: el usuario de la base de datos puede no
+     * tener permisos para crear tablas o índices.
+     */
+    public void migrarEsquema() {
+        if (!JDBC.equals(nombre) || !Configuracion.getInstancia().getBooleano("esquema.migrarAlArrancar", false)) {
+            return;
+        }
+        try {
+            new MigradorEsquema().migrar();
+        } catch (IllegalStateException e) {
+            System.err.println("No se pudo migrar el esquema de la base de datos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el nombre del motor.
+     *
+     * @return {@code jdbc} o {@code memoria}.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el repositorio de jugadores.
+     *
+     * @return El repositorio de jugadores del motor.
+     */
+    public RepositorioJugadores getJugadores() {
+        return jugadores;
+    }
+
+    /**
+     * Obtiene el repositorio de pistas y materiales.
+     *
+     * @return El repositorio de pistas del motor.
+     */
+    public RepositorioPistas getPistas() {
+        return pistas;
+    }
+
+    /**
+     * Obtiene el repositorio de reservas.
+     *
+     * @return El repositorio de reservas del motor.
+     */
+    public RepositorioReservas getReservas() {
+        return reservas;
+    }
+
+    /**
+     * Obtiene el repositorio de bonos.
+     *
+     * @return El repositorio de bonos del motor.
+     */
+    public RepositorioBonos getBonos() {
+        return bonos;
+    }
+}
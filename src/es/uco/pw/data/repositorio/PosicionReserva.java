@@ -0,0 +1,88 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.reserva.ReservaDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición de una reserva en el orden (fechaHora, idReserva) en que se recorren las reservas
+ * futuras. Sirve para paginar por clave: la página siguiente empieza justo después de la última
+ * reserva de la anterior, sin saltar filas con un desplazamiento y sin que las reservas creadas o
+ * canceladas entre páginas hagan repetir o perder ninguna.
+ */
+public final class PosicionReserva {
+
+    /**
+     * Fecha y hora de la reserva, en milisegundos.
+     */
+    private final long fechaHora;
+
+    /**
+     * ID de la reserva, que desempata las reservas que empiezan a la vez.
+     */
+    private final int idReserva;
+
+    /**
+     * Constructor de la posición.
+     *
+     * @param fechaHora La fecha y hora de la reserva, en milisegundos.
+     * @param idReserva El ID de la reserva.
+     */
+    public PosicionReserva(long fechaHora, int idReserva) {
+        this.fechaHora = fechaHora;
+        this.idReserva = idReserva;
+    }
+
+    /**
+     * Obtiene la posición de una reserva.
+     *
+     * @param reservaDTO La reserva.
+     * @return La posición de la reserva.
+     */
+    public static PosicionReserva de(ReservaDTO reservaDTO) {
+        return new PosicionReserva(Reloj.aMilisegundos(reservaDTO.getFechaHora()), reservaDTO.getIdReserva());
+    }
+
+    /**
+     * Obtiene la posición desde la que seguir recorriendo las reservas futuras: la recibida o, si no
+     * hay ninguna o ya ha pasado, la de justo antes de las reservas que empiezan ahora.
+     *
+     * @param despuesDe La posición de la última reserva leída, o null.
+     * @param ahora     El instante actual, en milisegundos.
+     * @return La posición tras la que están las siguientes reservas futuras.
+     */
+    public static PosicionReserva siguienteA(PosicionReserva despuesDe, long ahora) {
+        if (despuesDe == null || despuesDe.fechaHora < ahora) {
+            return new PosicionReserva(ahora, -1);
+        }
+        return despuesDe;
+    }
+
+    /**
+     * Obtiene la fecha y hora de la posición.
+     *
+     * @return La fecha y hora.
+     */
+    public LocalDateTime getFechaHora() {
+        return Reloj.deMilisegundos(fechaHora);
+    }
+
+    /**
+     * Obtiene la fecha y hora de la posición en milisegundos.
+     *
+     * @return La fecha y hora, en milisegundos.
+     */
+    public long getFechaHoraMs() {
+        return fechaHora;
+    }
+
+    /**
+     * Obtiene el ID de la reserva de la posición.
+     *
+     * @return El ID de la reserva.
+     */
+    public int getIdReserva() {
+        return idReserva;
+    }
+}
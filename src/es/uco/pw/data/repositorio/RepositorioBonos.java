@@ -0,0 +1,76 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.business.reserva.Bono;
+
+import java.sql.SQLException;
+
+/**
+ * Operaciones de almacenamiento de los bonos de cinco sesiones. El número de sesiones usadas
+ * solo cambia de una en una, y nunca baja de 0 ni sube de 5. Las sesiones que consumen las
+ * reservas se asignan comparando con el número de sesiones leído (véase
+ * {@link RepositorioReservas#realizarReserva}), de modo que dos reservas simultáneas nunca
+ * reciben la misma sesión.
+ */
+public interface RepositorioBonos {
+
+    /**
+     * Obtiene un bono por su ID.
+     *
+     * @param idBono El ID del bono.
+     * @return El bono, o null si no existe.
+     */
+    Bono obtenerBono(int idBono);
+
+    /**
+     * Obtiene el bono de un jugador que caduca más tarde.
+     *
+     * @param idJugador El ID del jugador.
+     * @return El bono, o null si el jugador no tiene ninguno.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    Bono obtenerBonoPorJugador(int idJugador) throws SQLException;
+
+    /**
+     * Guarda un bono nuevo, sin sesiones usadas, y le asigna el ID generado.
+     *
+     * @param bono El bono a guardar.
+     */
+    void insertarBono(Bono bono);
+
+    /**
+     * Cuenta una sesión más como usada, si al bono le queda alguna.
+     *
+     * @param idBono El ID del bono.
+     * @throws IllegalStateException Si no se puede guardar el cambio.
+     */
+    void actualizarSesionesBono(int idBono);
+
+    /**
+     * Devuelve al bono una sesión usada, por ejemplo al cancelar una reserva.
+     *
+     * @param idBono El ID del bono.
+     * @throws IllegalStateException Si no se puede guardar el cambio.
+     */
+    void decrementarSesionesBono(int idBono);
+
+    /**
+     * Excepción que indica que el bono de una reserva ha cambiado desde que se leyó: otra reserva
+     * ha consumido la sesión esperada o el bono se ha agotado. Quien la recibe debe volver a leer
+     * el bono y reintentar la reserva; la reserva que la lanza no ha guardado nada.
+     */
+    class SesionBonoOcupadaException extends IllegalStateException {
+        /**
+         * Identificador para la serialización de la clase.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor que acepta un mensaje.
+         *
+         * @param message Mensaje de la excepción.
+         */
+        public SesionBonoOcupadaException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.business.jugador.JugadorDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Operaciones de almacenamiento de los jugadores. {@code JugadoresDAO} las implementa sobre la
+ * base de datos y {@code JugadoresMemoria} sobre mapas en memoria; el motor que se usa se elige
+ * al arrancar con {@link MotorDatos}.
+ */
+public interface RepositorioJugadores {
+
+    /**
+     * Da de alta a un nuevo jugador. Si el correo ya existe con la cuenta desactivada, reactiva la
+     * cuenta y actualiza sus datos.
+     *
+     * @param nuevoJugador El nuevo jugador a registrar.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    String altaJugador(JugadorDTO nuevoJugador);
+
+    /**
+     * Da de baja a un jugador desactivando su cuenta.
+     *
+     * @param correoElectronico El correo del jugador a dar de baja.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    String bajaJugador(String correoElectronico);
+
+    /**
+     * Modifica los datos de un jugador con la cuenta activa.
+     *
+     * @param correoElectronico    El correo actual del jugador.
+     * @param nuevoNombre          Nuevo nombre del jugador.
+     * @param nuevaFechaNacimiento Nueva fecha de nacimiento del jugador.
+     * @param nuevoCorreo          Nuevo correo del jugador.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    String modificarJugador(String correoElectronico, String nuevoNombre, LocalDate nuevaFechaNacimiento, String nuevoCorreo);
+
+    /**
+     * Obtiene una página de jugadores con la cuenta activa, ordenados por ID. La página siguiente
+     * empieza tras el ID del último jugador de la anterior, así que el coste de cada página no
+     * depende de cuántas se hayan leído antes.
+     *
+     * @param despuesDeId  ID del último jugador de la página anterior, o 0 para la primera página.
+     * @param tamanoPagina Número máximo de jugadores de la página.
+     * @return Los jugadores de la página; si hay menos que {@code tamanoPagina}, es la última.
+     * @throws IllegalArgumentException Si el tamaño de página no es positivo.
+     * @throws IllegalStateException Si no se pueden leer los jugadores.
+     */
+    List<JugadorDTO> listarJugadoresActivos(int despuesDeId, int tamanoPagina);
+
+    /**
+     * Busca un jugador por su ID.
+     *
+     * @param idJugador El ID del jugador.
+     * @return El jugador, o null si no existe.
+     */
+    JugadorDTO buscarJugadorPorId(int idJugador);
+
+    /**
+     * Busca un jugador por su correo electrónico, sin distinguir mayúsculas de minúsculas.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return El jugador, o null si no existe.
+     */
+    JugadorDTO buscarJugadorPorCorreo(String correoElectronico);
+
+    /**
+     * Pone la fecha de hoy como fecha de inscripción de un jugador.
+     *
+     * @param correoElectronico El correo del jugador.
+     * @return Mensaje indicando el resultado de la operación.
+     */
+    String actualizarFechaInscripcion(String correoElectronico);
+}
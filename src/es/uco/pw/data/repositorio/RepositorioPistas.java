@@ -0,0 +1,166 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.business.material.EstadoMaterial;
+import es.uco.pw.business.material.TipoMaterial;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Operaciones de almacenamiento de las pistas y de sus materiales. Las pistas se devuelven
+ * siempre ordenadas por ID y con sus materiales, y quien las recibe puede modificarlas sin
+ * alterar lo guardado.
+ */
+public interface RepositorioPistas {
+
+    /**
+     * Crea una nueva pista.
+     *
+     * @param nombre       Nombre de la pista, que no puede repetirse.
+     * @param disponible   Indica si la pista está disponible.
+     * @param exterior     Indica si la pista es exterior.
+     * @param pista        Tamaño de la pista.
+     * @param maxJugadores Número máximo de jugadores en la pista.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws IllegalArgumentException Si ya existe una pista con ese nombre.
+     */
+    void crearPista(String nombre, boolean disponible, boolean exterior, TamanoPista pista, int maxJugadores) throws SQLException;
+
+    /**
+     * Crea un nuevo material, todavía sin asociar a ninguna pista.
+     *
+     * @param idMaterial  Identificador del material, que no puede repetirse.
+     * @param tipo        Tipo del material.
+     * @param usoExterior Indica si el material es para uso exterior.
+     * @param estado      Estado del material.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws IllegalArgumentException Si ya existe un material con ese ID.
+     */
+    void crearMaterial(int idMaterial, TipoMaterial tipo, boolean usoExterior, EstadoMaterial estado) throws SQLException;
+
+    /**
+     * Asocia un material a una pista disponible y lo marca como reservado. Una pista admite como
+     * mucho 12 pelotas, 2 canastas y 20 conos, y una pista exterior solo materiales de exterior.
+     *
+     * @param nombrePista El nombre de la pista.
+     * @param idMaterial  El ID del material.
+     * @return {@code true} si la asociación se realizó con éxito.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws ElementoNoEncontradoException Si no existe la pista o el material.
+     * @throws AsociacionMaterialException Si no se cumplen las condiciones para la asociación.
+     */
+    boolean asociarMaterialAPista(String nombrePista, int idMaterial) throws SQLException, ElementoNoEncontradoException, AsociacionMaterialException;
+
+    /**
+     * Busca todas las pistas disponibles.
+     *
+     * @return Lista de pistas disponibles.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    List<PistaDTO> buscarPistasDisponibles() throws SQLException;
+
+    /**
+     * Lista las pistas que no están disponibles.
+     *
+     * @return Lista de pistas no disponibles.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    List<PistaDTO> listarPistasNoDisponibles() throws SQLException;
+
+    /**
+     * Busca las pistas disponibles de un tamaño que admiten un número de jugadores.
+     *
+     * @param numJugadores Número de jugadores.
+     * @param tipoPista    Tamaño de pista.
+     * @return Lista de pistas que cumplen los criterios.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    List<PistaDTO> buscarPistasDisponibles(int numJugadores, TamanoPista tipoPista) throws SQLException;
+
+    /**
+     * Lista las pistas disponibles para un tipo de reserva.
+     *
+     * @param tipoReserva Tipo de reserva (infantil, familiar o adulto).
+     * @return Lista de pistas admitidas para el tipo de reserva.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     */
+    List<PistaDTO> listarPistasDisponibles(String tipoReserva) throws SQLException;
+
+    /**
+     * Lista todas las pistas.
+     *
+     * @return Lista de pistas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    List<PistaDTO> listarPistas() throws SQLException;
+
+    /**
+     * Busca una pista por su ID.
+     *
+     * @param idPista ID de la pista.
+     * @return La pista, o null si no existe.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    PistaDTO buscarPistaPorId(int idPista) throws SQLException;
+
+    /**
+     * Obtiene los tamaños de pista en los que puede hacerse un tipo de reserva.
+     *
+     * @param tipoReserva Tipo de reserva (infantil, familiar o adulto).
+     * @return Los tamaños admitidos, en el orden en que se listan las pistas.
+     * @throws IllegalArgumentException Si el tipo de reserva no es válido.
+     */
+    static List<TamanoPista> tamanosAdmitidos(String tipoReserva) {
+        switch (tipoReserva.toLowerCase()) {
+            case "infantil":
+                return List.of(TamanoPista.MINIBASKET);
+            case "familiar":
+                return List.of(TamanoPista.MINIBASKET, TamanoPista._3VS3);
+            case "adulto":
+                return List.of(TamanoPista.ADULTOS);
+            default:
+                throw new IllegalArgumentException("Tipo de reserva no válido: " + tipoReserva);
+        }
+    }
+
+    /**
+     * Excepción personalizada para indicar que un elemento no fue encontrado.
+     */
+    class ElementoNoEncontradoException extends Exception {
+    	/**
+    	 * Identificador para la serialización de la clase.
+    	 */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor que acepta un mensaje.
+         *
+         * @param message Mensaje de la excepción.
+         */
+        public ElementoNoEncontradoException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Excepción personalizada para errores en la asociación de materiales.
+     */
+    class AsociacionMaterialException extends Exception {
+    	/**
+    	 * Identificador para la serialización de la clase.
+    	 */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor que acepta un mensaje.
+         *
+         * @param message Mensaje de la excepción.
+         */
+        public AsociacionMaterialException(String message) {
+            super(message);
+        }
+    }
+}
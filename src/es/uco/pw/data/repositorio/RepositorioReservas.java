@@ -0,0 +1,239 @@
+package es.uco.pw.data.repositorio;
+
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.data.cache.MapaOcupacion;
+import es.uco.pw.data.cache.ResumenIngresos;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Operaciones de almacenamiento de las reservas. Las validaciones de negocio (antelación,
+ * horario, tipo de pista, jugadores) las hace {@code ReservasDAO} antes de llamar a estas
+ * operaciones; el repositorio se encarga de guardar de forma atómica y de responder si una
+ * pista está libre. Las reservas leídas incluyen su tipo (familiar, adulto o infantil) y, si son
+ * de bono, el bono con sus sesiones actuales.
+ */
+public interface RepositorioReservas {
+
+    /**
+     * Guarda una reserva de forma atómica: crea el bono si es nuevo, guarda la reserva y su tipo,
+     * consume una sesión del bono y pone la fecha de inscripción del jugador si aún no la tiene.
+     * Si algo falla no queda guardado nada.
+     * <p>
+     * La sesión de un bono existente se consume con una comparación e intercambio: solo se
+     * asigna si el bono sigue teniendo exactamente las sesiones restantes con las que se leyó.
+     * Un bono nuevo se crea con su primera sesión ya consumida. Al guardar la reserva, su número
+     * de sesión (de 1 a 5) y las sesiones restantes del bono quedan actualizados.
+     *
+     * @param reservaDTO La reserva a guardar; recibe el ID generado.
+     * @param jugadorDTO El jugador cuya fecha de inscripción se actualiza si es necesario, o null.
+     * @param bonoNuevo  Indica si el bono de la reserva se crea junto con ella.
+     * @return El ID de la reserva, o -1 si no se pudo guardar.
+     * @throws RepositorioBonos.SesionBonoOcupadaException Si el bono ha cambiado desde que se leyó
+     *         o ya no le quedan sesiones.
+     * @throws PistaOcupadaException Si, al guardar, otra reserva de la pista se solapa con esta.
+     */
+    int realizarReserva(ReservaDTO reservaDTO, JugadorDTO jugadorDTO, boolean bonoNuevo);
+
+    /**
+     * Guarda de una vez un lote de reservas individuales ya validadas. O se guardan todas o
+     * ninguna; si se guardan, cada reserva recibe su ID.
+     *
+     * @param reservas  Las reservas a guardar.
+     * @param jugadores El jugador de cada reserva, en el mismo orden; a los que no tienen fecha
+     *                  de inscripción se les pone la de hoy.
+     * @return null si el lote se guardó, o el mensaje de error si no se guardó ninguna, también
+     *         cuando, al guardar, alguna se solapa con otra reserva de su pista.
+     */
+    String insertarReservas(List<ReservaDTO> reservas, List<JugadorDTO> jugadores);
+
+    /**
+     * Actualiza los datos de una reserva y su tipo, que puede cambiar. El tipo lo determinan los
+     * números que no son null: solo adultos, solo niños o ambos.
+     *
+     * @param idReserva            El ID de la reserva.
+     * @param nuevaFechaHora       La nueva fecha y hora.
+     * @param nuevaDuracionMinutos La nueva duración en minutos.
+     * @param nuevoPrecio          El nuevo precio.
+     * @param nuevoDescuento       El nuevo descuento.
+     * @param nuevaIdPista         El ID de la nueva pista.
+     * @param numeroAdultos        El número de adultos, o null si la reserva es infantil.
+     * @param numeroNinos          El número de niños, o null si la reserva es de adultos.
+     * @throws IllegalStateException Si la reserva no existe o no se puede actualizar.
+     * @throws PistaOcupadaException Si, al guardar, otra reserva de la nueva pista se solapa con el nuevo horario.
+     */
+    void actualizarReserva(int idReserva, LocalDateTime nuevaFechaHora, int nuevaDuracionMinutos, float nuevoPrecio, float nuevoDescuento, int nuevaIdPista, Integer numeroAdultos, Integer numeroNinos);
+
+    /**
+     * Elimina una reserva y su tipo. No devuelve la sesión del bono.
+     *
+     * @param idReserva El ID de la reserva.
+     * @throws IllegalStateException Si la reserva no existe o no se puede eliminar.
+     */
+    void eliminarReserva(int idReserva);
+
+    /**
+     * Cancela una reserva: elimina la reserva y su tipo y, si es de bono, devuelve la sesión al
+     * bono. O se hace todo o no se hace nada.
+     *
+     * @param idReserva El ID de la reserva.
+     * @param idBono    El ID del bono de la reserva, o null si no es de bono.
+     * @throws IllegalStateException Si la reserva no existe o no se puede cancelar.
+     */
+    void cancelarReserva(int idReserva, Integer idBono);
+
+    /**
+     * Consulta las reservas que empiezan a partir de ahora, ordenadas por fecha.
+     *
+     * @return Las reservas futuras.
+     */
+    List<ReservaDTO> consultarReservasFuturas();
+
+    /**
+     * Recorre las reservas futuras en orden de fecha e ID sin cargarlas todas en memoria: las reservas
+     * se leen a medida que se consumen. Con la base de datos el flujo mantiene abiertos un cursor y
+     * una conexión hasta que se agota o se cierra, así que debe cerrarse siempre, por ejemplo con un
+     * try-with-resources, sobre todo si se deja de leer antes del final.
+     *
+     * @param despuesDe Posición de la última reserva leída, para seguir tras ella, o null para empezar
+     *                  por la primera reserva futura.
+     * @param limite    Número máximo de reservas a leer, o 0 para no poner límite.
+     * @return Las reservas futuras, ordenadas por fecha y después por ID.
+     * @throws IllegalStateException Si no se puede abrir o leer el cursor.
+     */
+    Stream<ReservaDTO> recorrerReservasFuturas(PosicionReserva despuesDe, int limite);
+
+    /**
+     * Consulta las reservas de una pista que empiezan entre dos instantes, ambos incluidos,
+     * ordenadas por fecha. Incluye las reservas archivadas.
+     *
+     * @param desde   El primer instante.
+     * @param hasta   El último instante.
+     * @param idPista El ID de la pista.
+     * @return Las reservas de la pista en ese intervalo.
+     */
+    List<ReservaDTO> consultarReservasPorRangosDeFechaYPista(LocalDateTime desde, LocalDateTime hasta, int idPista);
+
+    /**
+     * Agrupa las reservas de todas las pistas que empiezan en el intervalo [desde, hasta) por
+     * pista, día, hora de inicio y duración, sin construir las reservas. Es lo único que hace
+     * falta para calcular la ocupación de las pistas en intervalos largos. Incluye las reservas
+     * archivadas.
+     *
+     * @param desde El primer instante, incluido.
+     * @param hasta El último instante, excluido.
+     * @return Los grupos de reservas, sin un orden concreto.
+     * @throws IllegalStateException Si no se pueden leer las reservas.
+     */
+    List<GrupoOcupacion> agruparOcupacion(LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Obtiene una reserva por su ID.
+     *
+     * @param idReserva El ID de la reserva.
+     * @return La reserva, o null si no existe.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    ReservaDTO obtenerReservaPorId(int idReserva) throws SQLException;
+
+    /**
+     * Busca la reserva de un jugador en una pista a una hora exacta.
+     *
+     * @param idJugador El ID del jugador.
+     * @param idPista   El ID de la pista.
+     * @param fechaHora La fecha y hora de inicio.
+     * @return La reserva, o null si no existe.
+     */
+    ReservaDTO encontrarReserva(int idJugador, int idPista, LocalDateTime fechaHora);
+
+    /**
+     * Obtiene la primera reserva que un jugador hizo con un bono.
+     *
+     * @param idUsuario El ID del jugador.
+     * @param bono      El bono.
+     * @return La reserva, o null si no existe.
+     */
+    ReservaDTO obtenerReservaPorIdBono(int idUsuario, Bono bono);
+
+    /**
+     * Comprueba si una pista está libre en el intervalo [fechaHora, fechaHora + duracionMinutos).
+     *
+     * @param idPista           El ID de la pista.
+     * @param fechaHora         La fecha y hora de inicio.
+     * @param duracionMinutos   La duración en minutos.
+     * @param idReservaExcluida El ID de una reserva que no se tiene en cuenta, o -1.
+     * @return true si ninguna otra reserva de la pista se solapa con el intervalo.
+     */
+    boolean estaLibre(int idPista, LocalDateTime fechaHora, int duracionMinutos, int idReservaExcluida);
+
+    /**
+     * Prepara lo necesario para responder a {@link #estaLibre(int, LocalDateTime, int, int)}, para no
+     * hacerlo en la primera reserva. Llamarlo más de una vez no tiene efecto.
+     *
+     * @throws IllegalStateException Si no se puede cargar la ocupación de las pistas.
+     */
+    void cargarOcupacion();
+
+    /**
+     * Obtiene la ocupación de las pistas por bloques de media hora, que el repositorio mantiene al
+     * guardar, modificar y eliminar reservas. Solo está completa después de {@link #cargarOcupacion()}.
+     *
+     * @return El mapa de ocupación de las pistas.
+     */
+    MapaOcupacion getMapaOcupacion();
+
+    /**
+     * Obtiene los ingresos de las reservas acumulados por día, pista, tipo y modalidad, que el
+     * repositorio mantiene al guardar, modificar y eliminar reservas. Si aún no se han leído las
+     * reservas existentes, se leen antes de devolverlo.
+     *
+     * @return El resumen de ingresos, ya cargado.
+     * @throws IllegalStateException Si no se pueden leer las reservas existentes.
+     */
+    ResumenIngresos getResumenIngresos();
+
+    /**
+     * Archiva las reservas que empiezan antes de un instante: dejan de estar entre las reservas
+     * activas, con las que se comprueban solapes y se buscan las reservas futuras, pero se siguen
+     * leyendo al consultar un rango de fechas, al agrupar la ocupación y en los ingresos.
+     *
+     * @param antesDe El instante hasta el que se archiva, excluido.
+     * @return El número de reservas archivadas.
+     * @throws IllegalStateException Si no se pueden archivar las reservas.
+     */
+    int archivarReservas(LocalDateTime antesDe);
+
+    /**
+     * Obtiene los tiempos de cada fase de la última reserva guardada por el hilo actual.
+     *
+     * @return Los tiempos de la última reserva, o null si el hilo aún no ha guardado ninguna.
+     */
+    TiemposReserva getUltimosTiempos();
+
+    /**
+     * Excepción que indica que, al guardar una reserva, el almacenamiento ya tiene otra reserva
+     * de la misma pista que se solapa con ella. Los cerrojos de {@code ReservasDAO} solo coordinan
+     * un proceso, así que puede ocurrir aunque la comprobación previa diera la pista por libre: la
+     * otra reserva la ha guardado otro proceso sobre la misma base de datos. No se ha guardado nada.
+     */
+    class PistaOcupadaException extends IllegalArgumentException {
+        /**
+         * Identificador para la serialización de la clase.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor que acepta un mensaje.
+         *
+         * @param message Mensaje de la excepción.
+         */
+        public PistaOcupadaException(String message) {
+            super(message);
+        }
+    }
+}
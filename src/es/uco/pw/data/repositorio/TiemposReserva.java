@@ -0,0 +1,157 @@
+package es.uco.pw.data.repositorio;
+
+/**
+ * Tiempos de cada fase de una reserva guardada de forma atómica por un {@link RepositorioReservas}.
+ * Todos los tiempos se expresan en nanosegundos; el motor en memoria deja a 0 las fases que no
+ * tiene, como la conexión o el commit.
+ */
+public final class TiemposReserva {
+
+    /**
+     * Tiempo para obtener la conexión del pool y abrir la transacción.
+     */
+    private final long conexion;
+
+    /**
+     * Tiempo de la creación del bono, si la reserva necesita un bono nuevo.
+     */
+    private final long bonoNuevo;
+
+    /**
+     * Tiempo de la inserción en la tabla {@code Reserva}.
+     */
+    private final long reserva;
+
+    /**
+     * Tiempo de la inserción en la tabla del tipo de reserva (familiar, adulto o infantil).
+     */
+    private final long tipoReserva;
+
+    /**
+     * Tiempo de la actualización de las sesiones del bono.
+     */
+    private final long sesionBono;
+
+    /**
+     * Tiempo de la actualización de la fecha de inscripción del jugador.
+     */
+    private final long inscripcion;
+
+    /**
+     * Tiempo del commit de la transacción.
+     */
+    private final long commit;
+
+    /**
+     * Tiempo total de la reserva.
+     */
+    private final long total;
+
+    /**
+     * Constructor con los tiempos de todas las fases.
+     *
+     * @param conexion    Tiempo para obtener la conexión y abrir la transacción.
+     * @param bonoNuevo   Tiempo de la creación del bono.
+     * @param reserva     Tiempo de la inserción en {@code Reserva}.
+     * @param tipoReserva Tiempo de la inserción del tipo de reserva.
+     * @param sesionBono  Tiempo de la actualización de las sesiones del bono.
+     * @param inscripcion Tiempo de la actualización de la fecha de inscripción.
+     * @param commit      Tiempo del commit.
+     * @param total       Tiempo total.
+     */
+    public TiemposReserva(long conexion, long bonoNuevo, long reserva, long tipoReserva, long sesionBono, long inscripcion, long commit, long total) {
+        this.conexion = conexion;
+        this.bonoNuevo = bonoNuevo;
+        this.reserva = reserva;
+        this.tipoReserva = tipoReserva;
+        this.sesionBono = sesionBono;
+        this.inscripcion = inscripcion;
+        this.commit = commit;
+        this.total = total;
+    }
+
+    /**
+     * Obtiene el tiempo para obtener la conexión y abrir la transacción.
+     *
+     * @return Tiempo en nanosegundos.
+     */
+    public long getConexion() {
+        return conexion;
+    }
+
+    /**
+     * Obtiene el tiempo de la creación del bono.
+     *
+     * @return Tiempo en nanosegundos, 0 si no se creó ningún bono.
+     */
+    public long getBonoNuevo() {
+        return bonoNuevo;
+    }
+
+    /**
+     * Obtiene el tiempo de la inserción en la tabla {@code Reserva}.
+     *
+     * @return Tiempo en nanosegundos.
+     */
+    public long getReserva() {
+        return reserva;
+    }
+
+    /**
+     * Obtiene el tiempo de la inserción del tipo de reserva.
+     *
+     * @return Tiempo en nanosegundos.
+     */
+    public long getTipoReserva() {
+        return tipoReserva;
+    }
+
+    /**
+     * Obtiene el tiempo de la actualización de las sesiones del bono.
+     *
+     * @return Tiempo en nanosegundos, 0 si la reserva no usa bono.
+     */
+    public long getSesionBono() {
+        return sesionBono;
+    }
+
+    /**
+     * Obtiene el tiempo de la actualización de la fecha de inscripción.
+     *
+     * @return Tiempo en nanosegundos, 0 si no fue necesaria.
+     */
+    public long getInscripcion() {
+        return inscripcion;
+    }
+
+    /**
+     * Obtiene el tiempo del commit.
+     *
+     * @return Tiempo en nanosegundos.
+     */
+    public long getCommit() {
+        return commit;
+    }
+
+    /**
+     * Obtiene el tiempo total de la reserva.
+     *
+     * @return Tiempo en nanosegundos.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Devuelve los tiempos de cada fase en milisegundos.
+     *
+     * @return Cadena con los tiempos de la reserva.
+     */
+    @Override
+    public String toString() {
+        return String.format("Tiempos de la reserva (ms): conexión %.3f, bono nuevo %.3f, reserva %.3f, tipo %.3f, "
+                + "sesión del bono %.3f, inscripción %.3f, commit %.3f, total %.3f",
+                conexion / 1e6, bonoNuevo / 1e6, reserva / 1e6, tipoReserva / 1e6,
+                sesionBono / 1e6, inscripcion / 1e6, commit / 1e6, total / 1e6);
+    }
+}
@@ -0,0 +1,349 @@
+package es.uco.pw.displays.api;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lectura y escritura del JSON que intercambia la API de reservas. Solo se necesita lo que usan
+ * sus peticiones y respuestas, así que no se depende de ninguna biblioteca: las peticiones son
+ * objetos planos cuyos valores son textos, números, booleanos o null, y las respuestas se
+ * escriben a partir de mapas, colecciones y valores simples.
+ */
+final class Json {
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private Json() {
+    }
+
+    /**
+     * Escribe un valor como JSON. Los mapas se escriben como objetos, en el orden de sus claves;
+     * las colecciones como listas; los números y booleanos tal cual, y el resto como textos.
+     *
+     * @param valor El valor a escribir.
+     * @return El texto JSON.
+     */
+    static String escribir(Object valor) {
+        StringBuilder sb = new StringBuilder(256);
+        escribir(sb, valor);
+        return sb.toString();
+    }
+
+    /**
+     * Escribe un valor como JSON al final de un texto.
+     *
+     * @param sb    El texto en construcción.
+     * @param valor El valor a escribir.
+     */
+    private static void escribir(StringBuilder sb, Object valor) {
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof Map) {
+            sb.append('{');
+            boolean primero = true;
+            for (Map.Entry<?, ?> entrada : ((Map<?, ?>) valor).entrySet()) {
+                if (!primero) {
+                    sb.append(',');
+                }
+                primero = false;
+                escribirTexto(sb, String.valueOf(entrada.getKey()));
+                sb.append(':');
+                escribir(sb, entrada.getValue());
+            }
+            sb.append('}');
+        } else if (valor instanceof Collection) {
+            sb.append('[');
+            boolean primero = true;
+            for (Object elemento : (Collection<?>) valor) {
+                if (!primero) {
+                    sb.append(',');
+                }
+                primero = false;
+                escribir(sb, elemento);
+            }
+            sb.append(']');
+        } else if (valor instanceof Double || valor instanceof Float) {
+            double numero = ((Number) valor).doubleValue();
+            if (Double.isNaN(numero) || Double.isInfinite(numero)) {
+                sb.append("null");
+            } else {
+                sb.append(valor);
+            }
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else {
+            escribirTexto(sb, valor.toString());
+        }
+    }
+
+    /**
+     * Escribe un texto entre comillas, escapando los caracteres que lo requieren.
+     *
+     * @param sb    El texto en construcción.
+     * @param texto El texto a escribir.
+     */
+    private static void escribirTexto(StringBuilder sb, String texto) {
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Lee un objeto JSON plano. Los números se devuelven como {@link Long} si son enteros y como
+     * {@link Double} si no lo son.
+     *
+     * @param texto El texto JSON.
+     * @return Los campos del objeto, en el orden en que aparecen.
+     * @throws IllegalArgumentException Si el texto no es un objeto JSON plano válido.
+     */
+    static Map<String, Object> leerObjeto(String texto) {
+        return new Lector(texto).leerObjeto();
+    }
+
+    /**
+     * Analizador de un objeto JSON plano.
+     */
+    private static final class Lector {
+
+        /**
+         * Texto que se analiza.
+         */
+        private final String texto;
+
+        /**
+         * Posición del siguiente carácter a leer.
+         */
+        private int pos = 0;
+
+        /**
+         * Constructor del lector.
+         *
+         * @param texto El texto a analizar.
+         */
+        Lector(String texto) {
+            this.texto = texto;
+        }
+
+        /**
+         * Lee el objeto completo y comprueba que no le sigue nada más.
+         *
+         * @return Los campos del objeto.
+         */
+        Map<String, Object> leerObjeto() {
+            Map<String, Object> campos = new LinkedHashMap<>();
+            esperar('{');
+            saltarEspacios();
+            if (consumir('}')) {
+                return comprobarFinal(campos);
+            }
+            do {
+                saltarEspacios();
+                String clave = leerTexto();
+                esperar(':');
+                campos.put(clave, leerValor());
+                saltarEspacios();
+            } while (consumir(','));
+            esperar('}');
+            return comprobarFinal(campos);
+        }
+
+        /**
+         * Comprueba que tras el objeto solo quedan espacios.
+         *
+         * @param campos Los campos leídos.
+         * @return Los mismos campos.
+         */
+        private Map<String, Object> comprobarFinal(Map<String, Object> campos) {
+            saltarEspacios();
+            if (pos != texto.length()) {
+                throw error("Sobra texto tras el objeto");
+            }
+            return campos;
+        }
+
+        /**
+         * Lee un valor simple.
+         *
+         * @return El valor leído.
+         */
+        private Object leerValor() {
+            saltarEspacios();
+            if (pos >= texto.length()) {
+                throw error("Falta un valor");
+            }
+            char c = texto.charAt(pos);
+            if (c == '"') {
+                return leerTexto();
+            }
+            if (texto.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (texto.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (texto.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return leerNumero();
+            }
+            throw error("Solo se admiten textos, números, booleanos y null como valores");
+        }
+
+        /**
+         * Lee un número.
+         *
+         * @return El número, entero o decimal.
+         */
+        private Object leerNumero() {
+            int inicio = pos;
+            while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String numero = texto.substring(inicio, pos);
+            try {
+                if (numero.indexOf('.') < 0 && numero.indexOf('e') < 0 && numero.indexOf('E') < 0) {
+                    return Long.parseLong(numero);
+                }
+                return Double.parseDouble(numero);
+            } catch (NumberFormatException e) {
+                throw error("Número no válido: " + numero);
+            }
+        }
+
+        /**
+         * Lee un texto entre comillas.
+         *
+         * @return El texto, sin comillas y con los escapes resueltos.
+         */
+        private String leerTexto() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < texto.length()) {
+                char c = texto.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(pos++);
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escape);
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > texto.length()) {
+                            throw error("Escape \\u incompleto");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Escape \\u no válido");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("Escape no válido: \\" + escape);
+                }
+            }
+            throw error("Texto sin cerrar");
+        }
+
+        /**
+         * Salta los espacios en blanco.
+         */
+        private void saltarEspacios() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * Consume un carácter si es el siguiente, sin contar espacios.
+         *
+         * @param c El carácter.
+         * @return true si estaba y se ha consumido.
+         */
+        private boolean consumir(char c) {
+            saltarEspacios();
+            if (pos < texto.length() && texto.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consume un carácter que debe ser el siguiente, sin contar espacios.
+         *
+         * @param c El carácter.
+         */
+        private void esperar(char c) {
+            if (!consumir(c)) {
+                throw error("Se esperaba '" + c + "'");
+            }
+        }
+
+        /**
+         * Crea el error de un JSON mal formado, con la posición en que se detectó.
+         *
+         * @param mensaje La descripción del error.
+         * @return La excepción.
+         */
+        private IllegalArgumentException error(String mensaje) {
+            return new IllegalArgumentException("JSON no válido en la posición " + pos + ": " + mensaje + ".");
+        }
+    }
+}
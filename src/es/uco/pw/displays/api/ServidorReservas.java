@@ -0,0 +1,1314 @@
+package es.uco.pw.displays.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import es.uco.pw.business.common.FormatosFecha;
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaAdulto;
+import es.uco.pw.business.reserva.ReservaBono;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.business.reserva.ReservaFamiliar;
+import es.uco.pw.business.reserva.ReservaInfantil;
+import es.uco.pw.data.asincrono.FachadaAsincrona;
+import es.uco.pw.data.common.Configuracion;
+import es.uco.pw.data.common.HistogramaLatencias;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.dao.ArchivadorReservas;
+import es.uco.pw.data.dao.FranjaLibre;
+import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.metricas.ExportadorMetricas;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.PosicionReserva;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalQuery;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Servidor HTTP con una API JSON para las operaciones de los menús de reservas, pistas y jugadores,
+ * de modo que la web y la aplicación móvil puedan usarlas a la vez. Las peticiones se reciben en
+ * unos pocos hilos que solo las encaminan; el trabajo con los datos lo hace la
+ * {@link FachadaAsincrona}, que limita cuántas operaciones usan la base de datos a la vez, y la
+ * respuesta se envía al completarse la operación. Las rutas que guardan datos llaman a los métodos
+ * de la fachada para cada escritura, y las búsquedas previas y la lectura del resultado van en
+ * operaciones aparte de la fachada.
+ * <p>
+ * Las fechas y horas se escriben como {@code yyyy-MM-dd HH:mm}, igual que en los menús. Los datos
+ * de las peticiones GET y DELETE van en la URL; los de POST y PUT, en un objeto JSON. Los errores
+ * se devuelven como {@code {"error": "..."}}: 400 si los datos no son válidos, 404 si no existe el
+ * jugador, la pista o la reserva y 503 si no se pudo acceder a los datos. Para cada ruta se lleva un
+ * histograma de latencias, que se consulta en {@code GET /metricas}; las métricas de reservas,
+ * cachés y pool se exponen en el formato de texto de Prometheus en {@code GET /metricas/prometheus}.
+ * <p>
+ * Por defecto solo escucha en la interfaz local ({@code api.direccion=127.0.0.1}). Con
+ * {@code api.token} cada petición debe llevar la cabecera {@code Authorization: Bearer <token>} o
+ * se responde con 401; para escuchar en otra interfaz el token es obligatorio, y aun así la API
+ * no cifra nada, así que fuera de la máquina debe quedar detrás de un proxy con HTTPS.
+ */
+public class ServidorReservas implements AutoCloseable {
+
+    /**
+     * Formato de las fechas con hora, para los mensajes de error; se analizan con
+     * {@link FormatosFecha#FECHA_HORA}.
+     */
+    private static final String FORMATO_FECHA_HORA = "yyyy-MM-dd HH:mm";
+
+    /**
+     * Formato de las fechas sin hora, para los mensajes de error; se analizan con
+     * {@link FormatosFecha#FECHA}.
+     */
+    private static final String FORMATO_FECHA = "yyyy-MM-dd";
+
+    /**
+     * Tamaño máximo del cuerpo de una petición, en bytes.
+     */
+    private static final int TAMANO_MAXIMO_PETICION = 64 * 1024;
+
+    /**
+     * Número de reservas o jugadores por página si la petición no lo indica.
+     */
+    private static final int TAMANO_PAGINA_POR_DEFECTO = 20;
+
+    /**
+     * Número máximo de reservas o jugadores por página.
+     */
+    private static final int TAMANO_PAGINA_MAXIMO = 500;
+
+    /**
+     * Interfaz en la que se escucha si no se indica {@code api.direccion}.
+     */
+    private static final String DIRECCION_POR_DEFECTO = "127.0.0.1";
+
+    /**
+     * Prefijo del token en la cabecera {@code Authorization}.
+     */
+    private static final String PREFIJO_TOKEN = "Bearer ";
+
+    /**
+     * Servidor HTTP del JDK.
+     */
+    private final HttpServer servidor;
+
+    /**
+     * Hilos que reciben y encaminan las peticiones.
+     */
+    private final ExecutorService despachador;
+
+    /**
+     * Fachada que ejecuta las operaciones sobre los datos.
+     */
+    private final FachadaAsincrona fachada;
+
+    /**
+     * Motor de datos del servidor, que decide qué métricas se exponen.
+     */
+    private final MotorDatos motor;
+
+    /**
+     * Lógica de reservas.
+     */
+    private final ReservasDAO reservasDAO;
+
+    /**
+     * Repositorio de pistas.
+     */
+    private final RepositorioPistas pistas;
+
+    /**
+     * Repositorio de jugadores.
+     */
+    private final RepositorioJugadores jugadores;
+
+    /**
+     * Cabecera {@code Authorization} que deben llevar las peticiones, en bytes, o null si la API
+     * no exige token.
+     */
+    private final byte[] autorizacion;
+
+    /**
+     * Rutas de la API, indexadas por método y patrón, por ejemplo {@code POST /reservas}.
+     */
+    private final Map<String, Ruta> rutas = new LinkedHashMap<>();
+
+    /**
+     * Crea el servidor sobre un motor de datos, sin empezar a atender peticiones.
+     *
+     * @param motor     El motor de datos.
+     * @param direccion La interfaz en la que escuchar, por ejemplo {@code 127.0.0.1}.
+     * @param puerto    El puerto en el que escuchar, o 0 para uno libre cualquiera.
+     * @param token     El token que deben llevar las peticiones, o null o vacío para no exigirlo.
+     * @throws IOException Si no se puede abrir el puerto.
+     * @throws IllegalStateException Si se escucha fuera de la interfaz local sin token.
+     */
+    public ServidorReservas(MotorDatos motor, String direccion, int puerto, String token) throws IOException {
+        InetSocketAddress escucha = new InetSocketAddress(direccion, puerto);
+        if (escucha.isUnresolved()) {
+            throw new IllegalStateException("No se reconoce la dirección '" + direccion + "' de api.direccion.");
+        }
+        boolean conToken = token != null && !token.trim().isEmpty();
+        if (!escucha.getAddress().isLoopbackAddress() && !conToken) {
+            throw new IllegalStateException("La API solo puede escuchar en " + direccion
+                    + " con un token: indique api.token en config.properties o use api.direccion=" + DIRECCION_POR_DEFECTO + ".");
+        }
+        this.autorizacion = conToken ? (PREFIJO_TOKEN + token.trim()).getBytes(StandardCharsets.UTF_8) : null;
+
+        this.fachada = new FachadaAsincrona(motor);
+        this.motor = motor;
+        this.reservasDAO = new ReservasDAO(motor);
+        this.pistas = motor.getPistas();
+        this.jugadores = motor.getJugadores();
+
+        registrarRutas();
+
+        int hilos = Math.max(1, Configuracion.getInstancia().getEntero("api.hilos", 2));
+        AtomicInteger contador = new AtomicInteger();
+        this.despachador = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "api-reservas-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.servidor = HttpServer.create(escucha, 0);
+        this.servidor.createContext("/", this::atender);
+        this.servidor.setExecutor(despachador);
+    }
+
+    /**
+     * Arranca el servidor con el motor de datos, la dirección, el puerto y el token de
+     * config.properties. Se detiene con
+     * Ctrl+C, y al detenerse muestra las latencias de cada ruta.
+     *
+     * @param args Los argumentos de línea de comandos (no utilizados).
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public static void main(String[] args) throws IOException {
+        MotorDatos motor = MotorDatos.getInstancia();
+        if (!motor.getConsultasRequeridas().isEmpty()) {
+            RegistroConsultas.getInstancia().validar(motor.getConsultasRequeridas());
+        }
+        motor.migrarEsquema();
+
+        Configuracion config = Configuracion.getInstancia();
+        String direccion = config.getPropiedad("api.direccion", DIRECCION_POR_DEFECTO).trim();
+        int puerto = config.getEntero("api.puerto", 8080);
+        ServidorReservas servidor = new ServidorReservas(motor, direccion, puerto, config.getPropiedad("api.token"));
+        ExportadorMetricas.registrar(motor);
+        try {
+            servidor.reservasDAO.cargarIndiceOcupacion();
+        } catch (IllegalStateException e) {
+            System.err.println("No se pudo cargar la ocupación de las pistas; se cargará al hacer la primera reserva.");
+        }
+        new ArchivadorReservas(motor.getReservas()).programar();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            System.out.println(servidor.resumenLatencias());
+        }));
+        servidor.iniciar();
+        System.out.println("API de reservas escuchando en " + direccion + ":" + servidor.getPuerto()
+                + (servidor.autorizacion == null ? " sin token" : " con token") + ". Pulse Ctrl+C para detenerla.");
+    }
+
+    /**
+     * Empieza a atender peticiones.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor.
+     *
+     * @return El puerto.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Obtiene el histograma de latencias de una ruta.
+     *
+     * @param ruta El método y el patrón de la ruta, por ejemplo {@code POST /reservas}.
+     * @return El histograma, o null si la ruta no existe.
+     */
+    public HistogramaLatencias getLatencias(String ruta) {
+        Ruta encontrada = rutas.get(ruta);
+        return encontrada == null ? null : encontrada.latencias;
+    }
+
+    /**
+     * Resume las latencias de las rutas que han recibido alguna petición.
+     *
+     * @return Una línea por ruta.
+     */
+    public String resumenLatencias() {
+        StringBuilder sb = new StringBuilder("Latencias de la API:");
+        for (Ruta ruta : rutas.values()) {
+            if (ruta.latencias.getTotal() > 0) {
+                sb.append("\n  ").append(ruta.nombre).append(": ").append(ruta.latencias)
+                  .append(", ").append(ruta.errores.sum()).append(" errores");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Deja de aceptar peticiones, espera hasta un segundo a que terminen las que están en curso
+     * y cierra la fachada.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        fachada.close();
+        despachador.shutdown();
+    }
+
+    /**
+     * Registra las rutas de la API.
+     */
+    private void registrarRutas() {
+        // Reservas
+        ruta("GET /reservas/futuras", true, this::consultarReservasFuturas);
+        ruta("GET /reservas", true, this::consultarReservasPorPista);
+        ruta("GET /reservas/{id}", true, this::obtenerReserva);
+        rutaAsincrona("POST /reservas", this::hacerReservaIndividual);
+        rutaAsincrona("POST /reservas/bono", this::hacerReservaBono);
+        rutaAsincrona("PUT /reservas", this::modificarReserva);
+        rutaAsincrona("DELETE /reservas", this::cancelarReserva);
+        // Pistas
+        ruta("GET /pistas", true, this::listarPistas);
+        ruta("GET /pistas/libres", true, this::buscarFranjasLibres);
+        ruta("GET /pistas/{id}", true, this::obtenerPista);
+        // Jugadores
+        ruta("GET /jugadores", true, this::consultarJugadores);
+        ruta("POST /jugadores", true, this::altaJugador);
+        // Métricas, que no usan los datos
+        ruta("GET /metricas", false, peticion -> new Respuesta(200, metricas()));
+        ruta("GET /metricas/prometheus", false, peticion -> new Respuesta(200, ExportadorMetricas.textoPrometheus(motor)));
+    }
+
+    /**
+     * Registra una ruta.
+     *
+     * @param nombre    El método y el patrón de la ruta.
+     * @param usaDatos  Indica si la operación usa los datos y debe pasar por la fachada.
+     * @param operacion La operación que atiende la ruta.
+     */
+    private void ruta(String nombre, boolean usaDatos, Operacion operacion) {
+        if (usaDatos) {
+            rutaAsincrona(nombre, peticion -> fachada.ejecutar(() -> operacion.atender(peticion)));
+            return;
+        }
+        rutaAsincrona(nombre, peticion -> {
+            try {
+                return CompletableFuture.completedFuture(operacion.atender(peticion));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Registra una ruta cuya operación encadena ella misma las operaciones de la fachada.
+     *
+     * @param nombre    El método y el patrón de la ruta.
+     * @param operacion La operación que atiende la ruta.
+     */
+    private void rutaAsincrona(String nombre, OperacionAsincrona operacion) {
+        rutas.put(nombre, new Ruta(nombre, operacion));
+    }
+
+    /**
+     * Atiende una petición: busca su ruta, lee sus datos y ejecuta la operación, que responde
+     * cuando se completa.
+     *
+     * @param intercambio La petición y su respuesta.
+     */
+    private void atender(HttpExchange intercambio) {
+        if (!autorizada(intercambio)) {
+            intercambio.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            responder(intercambio, 401, error("Falta el token de la API o no es válido."));
+            return;
+        }
+        long inicio = System.nanoTime();
+        String metodo = intercambio.getRequestMethod();
+        String solicitado = intercambio.getRequestURI().getPath();
+        String camino = solicitado.length() > 1 && solicitado.endsWith("/")
+                ? solicitado.substring(0, solicitado.length() - 1) : solicitado;
+
+        // Las rutas con un ID se registran con {id} en su lugar
+        String id = null;
+        Ruta ruta = rutas.get(metodo + " " + camino);
+        int barra = camino.lastIndexOf('/');
+        if (ruta == null && barra > 0 && camino.substring(barra + 1).matches("\\d{1,9}")) {
+            id = camino.substring(barra + 1);
+            ruta = rutas.get(metodo + " " + camino.substring(0, barra) + "/{id}");
+        }
+        if (ruta == null) {
+            boolean existe = rutas.keySet().stream().anyMatch(r -> r.endsWith(" " + camino));
+            responder(intercambio, existe ? 405 : 404, error(existe ? "Método no permitido." : "Ruta no encontrada."));
+            return;
+        }
+
+        Ruta elegida = ruta;
+        Peticion peticion;
+        try {
+            peticion = new Peticion(leerDatos(intercambio), id);
+        } catch (IllegalArgumentException | IOException e) {
+            terminar(elegida, intercambio, inicio, null, e);
+            return;
+        }
+
+        CompletableFuture<Respuesta> respuesta;
+        try {
+            respuesta = elegida.operacion.atender(peticion);
+        } catch (RuntimeException e) {
+            // Datos de la petición que faltan o no son válidos
+            terminar(elegida, intercambio, inicio, null, e);
+            return;
+        }
+        respuesta.whenComplete((enviada, error) -> terminar(elegida, intercambio, inicio, enviada, error));
+    }
+
+    /**
+     * Comprueba que una petición lleva el token de la API, si se exige. La comparación tarda lo
+     * mismo acierte o no, para no dar pistas sobre el token.
+     *
+     * @param intercambio La petición.
+     * @return true si la API no exige token o la petición lleva el correcto.
+     */
+    private boolean autorizada(HttpExchange intercambio) {
+        if (autorizacion == null) {
+            return true;
+        }
+        String cabecera = intercambio.getRequestHeaders().getFirst("Authorization");
+        return cabecera != null && MessageDigest.isEqual(autorizacion, cabecera.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Envía la respuesta de una operación, o su error, y anota la latencia de la ruta.
+     *
+     * @param ruta        La ruta atendida.
+     * @param intercambio La petición y su respuesta.
+     * @param inicio      Momento en que se recibió la petición, en nanosegundos.
+     * @param respuesta   La respuesta de la operación, o null si falló.
+     * @param fallo       El error de la operación, o null si terminó bien.
+     */
+    private void terminar(Ruta ruta, HttpExchange intercambio, long inicio, Respuesta respuesta, Throwable fallo) {
+        Respuesta enviada = fallo == null ? respuesta : respuestaDeError(fallo);
+        if (enviada.estado >= 400) {
+            ruta.errores.increment();
+        }
+        responder(intercambio, enviada.estado, enviada.cuerpo);
+        ruta.latencias.registrarNanos(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Traduce un error al código HTTP que le corresponde.
+     *
+     * @param fallo El error.
+     * @return La respuesta de error.
+     */
+    private static Respuesta respuestaDeError(Throwable fallo) {
+        Throwable causa = fallo instanceof CompletionException && fallo.getCause() != null ? fallo.getCause() : fallo;
+        if (causa instanceof NoEncontradoException) {
+            return noEncontrado(causa.getMessage());
+        }
+        if (causa instanceof IllegalArgumentException) {
+            return new Respuesta(400, error(causa.getMessage()));
+        }
+        if (causa instanceof IllegalStateException || causa instanceof SQLException) {
+            return new Respuesta(503, error(causa.getMessage()));
+        }
+        if (causa instanceof IOException) {
+            return new Respuesta(400, error("No se pudo leer la petición."));
+        }
+        causa.printStackTrace();
+        return new Respuesta(500, error("Error interno del servidor."));
+    }
+
+    /**
+     * Escribe la respuesta y cierra el intercambio. Los textos se envían tal cual, como texto
+     * plano; el resto de contenidos, como JSON.
+     *
+     * @param intercambio La petición y su respuesta.
+     * @param estado      El código HTTP.
+     * @param cuerpo      El contenido, o null para responder sin cuerpo.
+     */
+    private static void responder(HttpExchange intercambio, int estado, Object cuerpo) {
+        try {
+            if (cuerpo == null) {
+                intercambio.sendResponseHeaders(estado, -1);
+            } else {
+                boolean texto = cuerpo instanceof String;
+                byte[] bytes = (texto ? (String) cuerpo : Json.escribir(cuerpo)).getBytes(StandardCharsets.UTF_8);
+                intercambio.getResponseHeaders().set("Content-Type",
+                        texto ? "text/plain; version=0.0.4; charset=utf-8" : "application/json; charset=utf-8");
+                intercambio.sendResponseHeaders(estado, bytes.length);
+                try (OutputStream salida = intercambio.getResponseBody()) {
+                    salida.write(bytes);
+                }
+            }
+        } catch (IOException e) {
+            // El cliente ha cerrado la conexión; no hay a quién avisar
+            System.err.println("No se pudo enviar la respuesta: " + e.getMessage());
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Lee los datos de una petición: los parámetros de la URL y, si hay cuerpo, los campos del
+     * objeto JSON, que tienen prioridad.
+     *
+     * @param intercambio La petición.
+     * @return Los datos de la petición.
+     * @throws IOException Si no se puede leer el cuerpo.
+     * @throws IllegalArgumentException Si el cuerpo es demasiado grande o no es un objeto JSON plano.
+     */
+    private static Map<String, Object> leerDatos(HttpExchange intercambio) throws IOException {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        if (consulta != null && !consulta.isEmpty()) {
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                String clave = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), StandardCharsets.UTF_8);
+                String valor = igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+                datos.put(clave, valor);
+            }
+        }
+
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            byte[] cuerpo = entrada.readNBytes(TAMANO_MAXIMO_PETICION + 1);
+            if (cuerpo.length > TAMANO_MAXIMO_PETICION) {
+                throw new IllegalArgumentException("La petición supera los " + TAMANO_MAXIMO_PETICION + " bytes.");
+            }
+            String texto = new String(cuerpo, StandardCharsets.UTF_8);
+            if (!texto.isBlank()) {
+                datos.putAll(Json.leerObjeto(texto));
+            }
+        }
+        return datos;
+    }
+
+    /**
+     * GET /reservas/futuras: una página de reservas futuras. Admite {@code tamano} y, para pedir la
+     * página siguiente, {@code despuesDeFecha} y {@code despuesDeId} con los valores del campo
+     * {@code siguiente} de la respuesta anterior.
+     *
+     * @param peticion La petición.
+     * @return Las reservas de la página y la posición de la siguiente, o null si es la última.
+     */
+    private Respuesta consultarReservasFuturas(Peticion peticion) {
+        int tamano = peticion.tamanoPagina();
+        PosicionReserva despuesDe = null;
+        if (peticion.tiene("despuesDeFecha")) {
+            despuesDe = new PosicionReserva(Reloj.aMilisegundos(peticion.fechaHora("despuesDeFecha")), peticion.entero("despuesDeId"));
+        }
+
+        List<ReservaDTO> pagina = reservasDAO.consultarPaginaReservasFuturas(despuesDe, tamano);
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("reservas", pagina.stream().map(ServidorReservas::aMapa).collect(Collectors.toList()));
+        Map<String, Object> siguiente = null;
+        if (pagina.size() == tamano) {
+            ReservaDTO ultima = pagina.get(pagina.size() - 1);
+            siguiente = new LinkedHashMap<>();
+            siguiente.put("despuesDeFecha", formatear(ultima.getFechaHora()));
+            siguiente.put("despuesDeId", ultima.getIdReserva());
+        }
+        cuerpo.put("siguiente", siguiente);
+        return new Respuesta(200, cuerpo);
+    }
+
+    /**
+     * GET /reservas: reservas de una pista ({@code idPista}) entre dos días ({@code desde} y
+     * {@code hasta}, ambos incluidos).
+     *
+     * @param peticion La petición.
+     * @return Las reservas encontradas.
+     */
+    private Respuesta consultarReservasPorPista(Peticion peticion) {
+        int idPista = peticion.entero("idPista");
+        LocalDate desde = peticion.fecha("desde");
+        LocalDate hasta = peticion.fecha("hasta");
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha 'hasta' no puede ser anterior a 'desde'.");
+        }
+        List<ReservaDTO> encontradas = reservasDAO.consultarReservasPorRangosDeFechaYPista(desde, hasta, idPista);
+        return new Respuesta(200, encontradas.stream().map(ServidorReservas::aMapa).collect(Collectors.toList()));
+    }
+
+    /**
+     * GET /reservas/{id}: una reserva.
+     *
+     * @param peticion La petición.
+     * @return La reserva.
+     * @throws SQLException Si falla la consulta.
+     */
+    private Respuesta obtenerReserva(Peticion peticion) throws SQLException {
+        ReservaDTO reservaDTO = reservasDAO.obtenerReservaPorId(peticion.id());
+        return reservaDTO == null ? noEncontrado("Reserva no encontrada.") : new Respuesta(200, aMapa(reservaDTO));
+    }
+
+    /**
+     * POST /reservas: reserva individual, con {@code correo}, {@code idPista}, {@code fechaHora},
+     * {@code duracion}, {@code adultos} y {@code ninos}.
+     *
+     * @param peticion La petición.
+     * @return El futuro con la reserva creada.
+     */
+    private CompletableFuture<Respuesta> hacerReservaIndividual(Peticion peticion) {
+        LocalDateTime fechaHora = peticion.fechaHora("fechaHora");
+        int duracion = peticion.entero("duracion");
+        int adultos = peticion.entero("adultos", 0);
+        int ninos = peticion.entero("ninos", 0);
+        return fachada.ejecutar(() -> destino(peticion, true))
+                .thenCompose(d -> fachada.hacerReservaIndividual(d.jugador, fechaHora, duracion, d.pista, adultos, ninos))
+                .thenCompose(idReserva -> {
+                    if (idReserva == -1) {
+                        throw new IllegalStateException("No se pudo guardar la reserva individual.");
+                    }
+                    return fachada.ejecutar(() -> new Respuesta(201, aMapa(reservasDAO.obtenerReservaPorId(idReserva))));
+                });
+    }
+
+    /**
+     * POST /reservas/bono: reserva con bono, con los mismos datos que la individual.
+     *
+     * @param peticion La petición.
+     * @return El futuro con la reserva creada.
+     */
+    private CompletableFuture<Respuesta> hacerReservaBono(Peticion peticion) {
+        LocalDateTime fechaHora = peticion.fechaHora("fechaHora");
+        int duracion = peticion.entero("duracion");
+        int adultos = peticion.entero("adultos", 0);
+        int ninos = peticion.entero("ninos", 0);
+        return fachada.ejecutar(() -> destino(peticion, true))
+                .thenCompose(d -> fachada.hacerReservaBono(d.jugador, fechaHora, duracion, d.pista, adultos, ninos)
+                        .thenCompose(realizada -> {
+                            if (!realizada) {
+                                throw new IllegalStateException("No se pudo guardar la reserva con bono.");
+                            }
+                            return fachada.ejecutar(() -> new Respuesta(201, aMapa(
+                                    reservasDAO.encontrarReserva(d.jugador.getIdJugador(), d.pista.getIdPista(), fechaHora))));
+                        }));
+    }
+
+    /**
+     * PUT /reservas: modifica la reserva identificada por {@code correo}, {@code idPista} y
+     * {@code fechaHora}. Los nuevos datos son {@code nuevaFechaHora}, {@code duracion},
+     * {@code adultos}, {@code ninos} y, para cambiar de pista, {@code nuevaIdPista}.
+     *
+     * @param peticion La petición.
+     * @return El futuro con la reserva modificada.
+     */
+    private CompletableFuture<Respuesta> modificarReserva(Peticion peticion) {
+        LocalDateTime fechaHoraOriginal = peticion.fechaHora("fechaHora");
+        LocalDateTime nuevaFechaHora = peticion.fechaHora("nuevaFechaHora");
+        int duracion = peticion.entero("duracion");
+        int adultos = peticion.entero("adultos", 0);
+        int ninos = peticion.entero("ninos", 0);
+        return fachada.ejecutar(() -> prepararModificacion(peticion, fechaHoraOriginal, adultos, ninos))
+                .thenCompose(m -> fachada.modificarReserva(m.jugador, m.pistaOriginal, fechaHoraOriginal, m.nuevaPista, nuevaFechaHora,
+                                duracion, adultos, ninos, m.bono, m.numeroSesion)
+                        .thenCompose(v -> fachada.ejecutar(() -> new Respuesta(200, aMapa(
+                                reservasDAO.encontrarReserva(m.jugador.getIdJugador(), m.nuevaPista.getIdPista(), nuevaFechaHora))))));
+    }
+
+    /**
+     * Busca el jugador, las pistas y la reserva que se quiere modificar.
+     *
+     * @param peticion          La petición.
+     * @param fechaHoraOriginal La fecha y hora de la reserva.
+     * @param adultos           El nuevo número de adultos.
+     * @param ninos             El nuevo número de niños.
+     * @return Los datos de la modificación.
+     * @throws NoEncontradoException Si no existe el jugador, alguna de las pistas o la reserva.
+     */
+    private Modificacion prepararModificacion(Peticion peticion, LocalDateTime fechaHoraOriginal, int adultos, int ninos) {
+        Destino original = destino(peticion, false);
+        ReservaDTO reserva = reservasDAO.encontrarReserva(original.jugador.getIdJugador(), original.pista.getIdPista(), fechaHoraOriginal);
+        if (reserva == null) {
+            throw new NoEncontradoException("Reserva no encontrada.");
+        }
+
+        PistaDTO nuevaPista = original.pista;
+        if (peticion.tiene("nuevaIdPista")) {
+            nuevaPista = pistaAdmitida(peticion.entero("nuevaIdPista"), adultos, ninos);
+            if (nuevaPista == null) {
+                throw new NoEncontradoException("Pista no encontrada.");
+            }
+        }
+        return new Modificacion(original, nuevaPista, reserva);
+    }
+
+    /**
+     * DELETE /reservas: cancela la reserva identificada por {@code correo}, {@code idPista} y
+     * {@code fechaHora}.
+     *
+     * @param peticion La petición.
+     * @return El futuro con una respuesta vacía.
+     */
+    private CompletableFuture<Respuesta> cancelarReserva(Peticion peticion) {
+        LocalDateTime fechaHora = peticion.fechaHora("fechaHora");
+        return fachada.ejecutar(() -> destino(peticion, false))
+                .thenCompose(d -> fachada.cancelarReserva(d.jugador, d.pista, fechaHora))
+                .thenApply(v -> new Respuesta(204, null));
+    }
+
+    /**
+     * Busca el jugador de {@code correo} y la pista de {@code idPista} de una petición.
+     *
+     * @param peticion  La petición.
+     * @param admitida  Si la pista debe admitir además la reserva de {@code adultos} y {@code ninos}.
+     * @return El jugador y la pista.
+     * @throws NoEncontradoException Si no existe el jugador o la pista.
+     * @throws IllegalArgumentException Si la pista no admite la reserva.
+     */
+    private Destino destino(Peticion peticion, boolean admitida) {
+        JugadorDTO jugadorDTO = reservasDAO.buscarJugadorPorCorreo(peticion.texto("correo"));
+        if (jugadorDTO == null) {
+            throw new NoEncontradoException("Jugador no encontrado.");
+        }
+        int idPista = peticion.entero("idPista");
+        PistaDTO pistaDTO = admitida
+                ? pistaAdmitida(idPista, peticion.entero("adultos", 0), peticion.entero("ninos", 0))
+                : reservasDAO.buscarPistaPorId(idPista);
+        if (pistaDTO == null) {
+            throw new NoEncontradoException("Pista no encontrada.");
+        }
+        return new Destino(jugadorDTO, pistaDTO);
+    }
+
+    /**
+     * GET /pistas: todas las pistas o, con {@code adultos} y {@code ninos}, las disponibles para
+     * ese tipo de reserva con capacidad suficiente.
+     *
+     * @param peticion La petición.
+     * @return Las pistas.
+     * @throws SQLException Si falla la consulta.
+     */
+    private Respuesta listarPistas(Peticion peticion) throws SQLException {
+        List<PistaDTO> encontradas;
+        if (peticion.tiene("adultos") || peticion.tiene("ninos")) {
+            encontradas = pistasAdmitidas(peticion.entero("adultos", 0), peticion.entero("ninos", 0));
+        } else {
+            encontradas = pistas.listarPistas();
+        }
+        return new Respuesta(200, encontradas.stream().map(ServidorReservas::aMapa).collect(Collectors.toList()));
+    }
+
+    /**
+     * GET /pistas/{id}: una pista.
+     *
+     * @param peticion La petición.
+     * @return La pista.
+     */
+    private Respuesta obtenerPista(Peticion peticion) {
+        PistaDTO pistaDTO = reservasDAO.buscarPistaPorId(peticion.id());
+        return pistaDTO == null ? noEncontrado("Pista no encontrada.") : new Respuesta(200, aMapa(pistaDTO));
+    }
+
+    /**
+     * GET /pistas/libres: primeros horarios libres entre {@code desde} y {@code hasta} para una
+     * {@code duracion}, con los filtros opcionales {@code tamano} (MINIBASKET, ADULTOS o _3VS3),
+     * {@code exterior}, {@code jugadores} y {@code maximo}.
+     *
+     * @param peticion La petición.
+     * @return Las franjas libres.
+     */
+    private Respuesta buscarFranjasLibres(Peticion peticion) {
+        TamanoPista tamano = null;
+        if (peticion.tiene("tamano")) {
+            try {
+                tamano = TamanoPista.valueOf(peticion.texto("tamano").toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Tamaño de pista no válido: " + peticion.texto("tamano"));
+            }
+        }
+        Boolean exterior = peticion.tiene("exterior") ? Boolean.valueOf(peticion.texto("exterior")) : null;
+
+        List<FranjaLibre> franjas = reservasDAO.buscarFranjasLibres(peticion.fechaHora("desde"), peticion.fechaHora("hasta"),
+                peticion.entero("duracion"), tamano, exterior, peticion.entero("jugadores", 1),
+                Math.min(peticion.entero("maximo", 10), TAMANO_PAGINA_MAXIMO));
+        List<Map<String, Object>> cuerpo = new ArrayList<>(franjas.size());
+        for (FranjaLibre franja : franjas) {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("fechaHora", formatear(franja.getFechaHora()));
+            mapa.put("duracionMinutos", franja.getDuracionMinutos());
+            mapa.put("precio", franja.getPrecio());
+            mapa.put("pista", aMapa(franja.getPista()));
+            cuerpo.add(mapa);
+        }
+        return new Respuesta(200, cuerpo);
+    }
+
+    /**
+     * GET /jugadores: el jugador con un {@code correo} o, sin él, una página de jugadores activos
+     * a partir de {@code despuesDeId}.
+     *
+     * @param peticion La petición.
+     * @return El jugador o la página de jugadores.
+     */
+    private Respuesta consultarJugadores(Peticion peticion) {
+        if (peticion.tiene("correo")) {
+            JugadorDTO jugadorDTO = jugadores.buscarJugadorPorCorreo(peticion.texto("correo"));
+            return jugadorDTO == null ? noEncontrado("Jugador no encontrado.") : new Respuesta(200, aMapa(jugadorDTO));
+        }
+        List<JugadorDTO> pagina = jugadores.listarJugadoresActivos(peticion.entero("despuesDeId", 0), peticion.tamanoPagina());
+        return new Respuesta(200, pagina.stream().map(ServidorReservas::aMapa).collect(Collectors.toList()));
+    }
+
+    /**
+     * POST /jugadores: alta de un jugador con {@code nombre}, {@code fechaNacimiento} y {@code correo}.
+     *
+     * @param peticion La petición.
+     * @return El jugador dado de alta.
+     */
+    private Respuesta altaJugador(Peticion peticion) {
+        String correo = peticion.texto("correo");
+        String mensaje = jugadores.altaJugador(new JugadorDTO(peticion.texto("nombre"), peticion.fecha("fechaNacimiento"), correo));
+        JugadorDTO jugadorDTO = jugadores.buscarJugadorPorCorreo(correo);
+        if (jugadorDTO == null) {
+            throw new IllegalArgumentException(mensaje);
+        }
+        return new Respuesta(201, aMapa(jugadorDTO));
+    }
+
+    /**
+     * Obtiene las latencias de todas las rutas.
+     *
+     * @return Para cada ruta, el número de peticiones y errores y las latencias en milisegundos.
+     */
+    private Map<String, Object> metricas() {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        for (Ruta ruta : rutas.values()) {
+            HistogramaLatencias h = ruta.latencias;
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("peticiones", h.getTotal());
+            mapa.put("errores", ruta.errores.sum());
+            mapa.put("mediaMs", h.getMedia() / 1e3);
+            mapa.put("p50Ms", h.percentil(0.50) / 1e3);
+            mapa.put("p95Ms", h.percentil(0.95) / 1e3);
+            mapa.put("p99Ms", h.percentil(0.99) / 1e3);
+            mapa.put("maximaMs", h.getMaxima() / 1e3);
+            cuerpo.put(ruta.nombre, mapa);
+        }
+        Map<String, Object> fachadaMapa = new LinkedHashMap<>();
+        fachadaMapa.put("hilosVirtuales", fachada.usaHilosVirtuales());
+        fachadaMapa.put("concurrenciaMaxima", fachada.getConcurrenciaMaxima());
+        fachadaMapa.put("pendientes", fachada.getPendientes());
+        fachadaMapa.put("esperando", fachada.getEsperando());
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("rutas", cuerpo);
+        respuesta.put("fachada", fachadaMapa);
+        return respuesta;
+    }
+
+    /**
+     * Busca una pista y comprueba, como los menús, que admite el tipo de reserva y el número de
+     * jugadores.
+     *
+     * @param idPista El ID de la pista.
+     * @param adultos El número de adultos.
+     * @param ninos   El número de niños.
+     * @return La pista, o null si no existe.
+     * @throws IllegalArgumentException Si la pista no admite la reserva.
+     */
+    private PistaDTO pistaAdmitida(int idPista, int adultos, int ninos) {
+        PistaDTO pistaDTO = reservasDAO.buscarPistaPorId(idPista);
+        if (pistaDTO == null) {
+            return null;
+        }
+        boolean admitida;
+        try {
+            admitida = pistasAdmitidas(adultos, ninos).stream().anyMatch(p -> p.getIdPista() == idPista);
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudieron consultar las pistas disponibles.", e);
+        }
+        if (!admitida) {
+            throw new IllegalArgumentException("La pista " + idPista + " no está disponible para una reserva "
+                    + reservasDAO.determinarTipoReserva(adultos, ninos) + " de " + (adultos + ninos) + " jugadores.");
+        }
+        return pistaDTO;
+    }
+
+    /**
+     * Lista las pistas disponibles para el tipo de reserva que corresponde a unos jugadores y con
+     * capacidad para todos ellos.
+     *
+     * @param adultos El número de adultos.
+     * @param ninos   El número de niños.
+     * @return Las pistas admitidas.
+     * @throws SQLException Si falla la consulta.
+     */
+    private List<PistaDTO> pistasAdmitidas(int adultos, int ninos) throws SQLException {
+        int total = adultos + ninos;
+        return pistas.listarPistasDisponibles(reservasDAO.determinarTipoReserva(adultos, ninos)).stream()
+                .filter(p -> p.getMax_jugadores() >= total)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Convierte una reserva a un mapa para escribirla como JSON.
+     *
+     * @param reservaDTO La reserva.
+     * @return Los campos de la reserva, o null si no hay reserva.
+     */
+    private static Map<String, Object> aMapa(ReservaDTO reservaDTO) {
+        if (reservaDTO == null) {
+            return null;
+        }
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("idReserva", reservaDTO.getIdReserva());
+        mapa.put("idUsuario", reservaDTO.getIdUsuario());
+        mapa.put("idPista", reservaDTO.getIdPista());
+        mapa.put("fechaHora", formatear(reservaDTO.getFechaHora()));
+        mapa.put("duracionMinutos", reservaDTO.getDuracionMinutos());
+        mapa.put("precio", reservaDTO.getPrecio());
+        mapa.put("descuento", reservaDTO.getDescuento());
+
+        ReservaDTO especifica = reservaDTO.getReservaEspecifica();
+        if (especifica instanceof ReservaInfantil) {
+            mapa.put("tipo", "infantil");
+            mapa.put("ninos", ((ReservaInfantil) especifica).getNumeroNinos());
+        } else if (especifica instanceof ReservaFamiliar) {
+            mapa.put("tipo", "familiar");
+            mapa.put("adultos", ((ReservaFamiliar) especifica).getNumeroAdultos());
+            mapa.put("ninos", ((ReservaFamiliar) especifica).getNumeroNinos());
+        } else if (especifica instanceof ReservaAdulto) {
+            mapa.put("tipo", "adulto");
+            mapa.put("adultos", ((ReservaAdulto) especifica).getNumeroAdultos());
+        }
+        if (reservaDTO instanceof ReservaBono) {
+            mapa.put("idBono", ((ReservaBono) reservaDTO).getIdBono());
+            mapa.put("numeroSesion", ((ReservaBono) reservaDTO).getNumeroSesion());
+        }
+        return mapa;
+    }
+
+    /**
+     * Convierte una pista a un mapa para escribirla como JSON.
+     *
+     * @param pistaDTO La pista.
+     * @return Los campos de la pista.
+     */
+    private static Map<String, Object> aMapa(PistaDTO pistaDTO) {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("idPista", pistaDTO.getIdPista());
+        mapa.put("nombre", pistaDTO.getNombrePista());
+        mapa.put("disponible", pistaDTO.isDisponible());
+        mapa.put("exterior", pistaDTO.isExterior());
+        mapa.put("tamano", pistaDTO.getPista());
+        mapa.put("maxJugadores", pistaDTO.getMax_jugadores());
+        return mapa;
+    }
+
+    /**
+     * Convierte un jugador a un mapa para escribirlo como JSON.
+     *
+     * @param jugadorDTO El jugador.
+     * @return Los campos del jugador.
+     */
+    private static Map<String, Object> aMapa(JugadorDTO jugadorDTO) {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("idJugador", jugadorDTO.getIdJugador());
+        mapa.put("nombre", jugadorDTO.getNombreApellidos());
+        mapa.put("correo", jugadorDTO.getCorreoElectronico());
+        mapa.put("fechaNacimiento", jugadorDTO.getFechaNacimiento() == null ? null : FormatosFecha.FECHA.format(jugadorDTO.getFechaNacimiento()));
+        mapa.put("fechaInscripcion", jugadorDTO.getFechaInscripcion() == null ? null : FormatosFecha.FECHA.format(jugadorDTO.getFechaInscripcion()));
+        mapa.put("cuentaActiva", jugadorDTO.isCuentaActiva());
+        return mapa;
+    }
+
+    /**
+     * Escribe una fecha con hora en el formato de la API.
+     *
+     * @param fecha La fecha.
+     * @return La fecha como {@code yyyy-MM-dd HH:mm}.
+     */
+    private static String formatear(LocalDateTime fecha) {
+        return FormatosFecha.FECHA_HORA.format(fecha);
+    }
+
+    /**
+     * Crea el cuerpo de una respuesta de error.
+     *
+     * @param mensaje El mensaje de error.
+     * @return El cuerpo con el mensaje.
+     */
+    private static Map<String, Object> error(String mensaje) {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("error", mensaje);
+        return cuerpo;
+    }
+
+    /**
+     * Crea una respuesta 404.
+     *
+     * @param mensaje Lo que no se ha encontrado.
+     * @return La respuesta.
+     */
+    private static Respuesta noEncontrado(String mensaje) {
+        return new Respuesta(404, error(mensaje));
+    }
+
+    /**
+     * Operación que atiende una ruta.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+
+        /**
+         * Atiende una petición.
+         *
+         * @param peticion La petición.
+         * @return La respuesta.
+         * @throws Exception Si la operación falla.
+         */
+        Respuesta atender(Peticion peticion) throws Exception;
+    }
+
+    /**
+     * Operación que atiende una ruta encadenando operaciones de la fachada.
+     */
+    @FunctionalInterface
+    private interface OperacionAsincrona {
+
+        /**
+         * Atiende una petición.
+         *
+         * @param peticion La petición.
+         * @return El futuro con la respuesta.
+         * @throws IllegalArgumentException Si a la petición le falta algún dato o no es válido.
+         */
+        CompletableFuture<Respuesta> atender(Peticion peticion);
+    }
+
+    /**
+     * Error de una operación cuando no existe el jugador, la pista o la reserva pedidos; se
+     * responde con 404.
+     */
+    private static final class NoEncontradoException extends RuntimeException {
+
+        /**
+         * Versión de la clase para la serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor de la excepción.
+         *
+         * @param mensaje Qué no se ha encontrado.
+         */
+        NoEncontradoException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /**
+     * Jugador y pista de una petición, ya buscados.
+     */
+    private static final class Destino {
+
+        /**
+         * Jugador de la petición.
+         */
+        private final JugadorDTO jugador;
+
+        /**
+         * Pista de la petición.
+         */
+        private final PistaDTO pista;
+
+        /**
+         * Constructor del destino.
+         *
+         * @param jugador Jugador de la petición.
+         * @param pista   Pista de la petición.
+         */
+        Destino(JugadorDTO jugador, PistaDTO pista) {
+            this.jugador = jugador;
+            this.pista = pista;
+        }
+    }
+
+    /**
+     * Datos ya buscados de una modificación de reserva.
+     */
+    private static final class Modificacion {
+
+        /**
+         * Jugador de la reserva.
+         */
+        private final JugadorDTO jugador;
+
+        /**
+         * Pista en la que está la reserva.
+         */
+        private final PistaDTO pistaOriginal;
+
+        /**
+         * Pista a la que pasa la reserva, la misma si no cambia.
+         */
+        private final PistaDTO nuevaPista;
+
+        /**
+         * Bono de la reserva, o null si es individual.
+         */
+        private final Bono bono;
+
+        /**
+         * Número de sesión del bono, o 0 si la reserva es individual.
+         */
+        private final int numeroSesion;
+
+        /**
+         * Constructor de la modificación.
+         *
+         * @param original   Jugador y pista de la reserva.
+         * @param nuevaPista Pista a la que pasa la reserva.
+         * @param reserva    La reserva que se modifica.
+         */
+        Modificacion(Destino original, PistaDTO nuevaPista, ReservaDTO reserva) {
+            this.jugador = original.jugador;
+            this.pistaOriginal = original.pista;
+            this.nuevaPista = nuevaPista;
+            boolean conBono = reserva instanceof ReservaBono;
+            this.bono = conBono ? ((ReservaBono) reserva).getBono() : null;
+            this.numeroSesion = conBono ? ((ReservaBono) reserva).getNumeroSesion() : 0;
+        }
+    }
+
+    /**
+     * Ruta de la API con su operación y sus métricas.
+     */
+    private static final class Ruta {
+
+        /**
+         * Método y patrón de la ruta.
+         */
+        private final String nombre;
+
+        /**
+         * Operación que atiende la ruta.
+         */
+        private final OperacionAsincrona operacion;
+
+        /**
+         * Latencias de las peticiones, desde que se reciben hasta que se envía la respuesta.
+         */
+        private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+        /**
+         * Peticiones respondidas con un código de error.
+         */
+        private final LongAdder errores = new LongAdder();
+
+        /**
+         * Constructor de la ruta.
+         *
+         * @param nombre    Método y patrón de la ruta.
+         * @param operacion Operación que atiende la ruta.
+         */
+        Ruta(String nombre, OperacionAsincrona operacion) {
+            this.nombre = nombre;
+            this.operacion = operacion;
+        }
+    }
+
+    /**
+     * Respuesta de una operación.
+     */
+    private static final class Respuesta {
+
+        /**
+         * Código HTTP.
+         */
+        private final int estado;
+
+        /**
+         * Contenido que se escribe como JSON, un texto que se envía tal cual, o null si no hay.
+         */
+        private final Object cuerpo;
+
+        /**
+         * Constructor de la respuesta.
+         *
+         * @param estado Código HTTP.
+         * @param cuerpo Contenido de la respuesta, o null.
+         */
+        Respuesta(int estado, Object cuerpo) {
+            this.estado = estado;
+            this.cuerpo = cuerpo;
+        }
+    }
+
+    /**
+     * Datos de una petición, con las conversiones que necesitan las operaciones. Cualquier dato
+     * que falte o no sea válido produce una {@link IllegalArgumentException}, que se responde con 400.
+     */
+    private static final class Peticion {
+
+        /**
+         * Parámetros de la URL y campos del cuerpo.
+         */
+        private final Map<String, Object> datos;
+
+        /**
+         * ID de la ruta, o null si no tiene.
+         */
+        private final String id;
+
+        /**
+         * Constructor de la petición.
+         *
+         * @param datos Los datos de la petición.
+         * @param id    El ID de la ruta, o null.
+         */
+        Peticion(Map<String, Object> datos, String id) {
+            this.datos = datos;
+            this.id = id;
+        }
+
+        /**
+         * Obtiene el ID de la ruta.
+         *
+         * @return El ID.
+         */
+        int id() {
+            return Integer.parseInt(id);
+        }
+
+        /**
+         * Indica si la petición trae un dato no vacío.
+         *
+         * @param nombre El nombre del dato.
+         * @return true si el dato está.
+         */
+        boolean tiene(String nombre) {
+            Object valor = datos.get(nombre);
+            return valor != null && !valor.toString().isEmpty();
+        }
+
+        /**
+         * Obtiene un dato obligatorio como texto.
+         *
+         * @param nombre El nombre del dato.
+         * @return El texto.
+         */
+        String texto(String nombre) {
+            if (!tiene(nombre)) {
+                throw new IllegalArgumentException("Falta el dato '" + nombre + "'.");
+            }
+            return datos.get(nombre).toString();
+        }
+
+        /**
+         * Obtiene un dato obligatorio como entero.
+         *
+         * @param nombre El nombre del dato.
+         * @return El entero.
+         */
+        int entero(String nombre) {
+            Object valor = datos.get(nombre);
+            if (valor instanceof Long && (Long) valor == ((Long) valor).intValue()) {
+                return ((Long) valor).intValue();
+            }
+            try {
+                return Integer.parseInt(texto(nombre).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El dato '" + nombre + "' debe ser un número entero.");
+            }
+        }
+
+        /**
+         * Obtiene un dato opcional como entero.
+         *
+         * @param nombre     El nombre del dato.
+         * @param porDefecto El valor si el dato no está.
+         * @return El entero.
+         */
+        int entero(String nombre, int porDefecto) {
+            return tiene(nombre) ? entero(nombre) : porDefecto;
+        }
+
+        /**
+         * Obtiene el tamaño de página pedido, entre 1 y el máximo de la API.
+         *
+         * @return El tamaño de página.
+         */
+        int tamanoPagina() {
+            int tamano = entero("tamano", TAMANO_PAGINA_POR_DEFECTO);
+            if (tamano <= 0 || tamano > TAMANO_PAGINA_MAXIMO) {
+                throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + TAMANO_PAGINA_MAXIMO + ".");
+            }
+            return tamano;
+        }
+
+        /**
+         * Obtiene un dato obligatorio como fecha con hora.
+         *
+         * @param nombre El nombre del dato.
+         * @return La fecha.
+         */
+        LocalDateTime fechaHora(String nombre) {
+            return leerFecha(nombre, FormatosFecha.FECHA_HORA, LocalDateTime::from, FORMATO_FECHA_HORA);
+        }
+
+        /**
+         * Obtiene un dato obligatorio como fecha sin hora.
+         *
+         * @param nombre El nombre del dato.
+         * @return La fecha.
+         */
+        LocalDate fecha(String nombre) {
+            return leerFecha(nombre, FormatosFecha.FECHA, LocalDate::from, FORMATO_FECHA);
+        }
+
+        /**
+         * Lee una fecha con un formato estricto.
+         *
+         * @param <T>         El tipo de la fecha.
+         * @param nombre      El nombre del dato.
+         * @param formateador El formato compartido con que se analiza.
+         * @param tipo        La conversión del resultado al tipo de la fecha.
+         * @param formato     El formato, para el mensaje de error.
+         * @return La fecha.
+         */
+        private <T> T leerFecha(String nombre, DateTimeFormatter formateador, TemporalQuery<T> tipo, String formato) {
+            try {
+                return formateador.parse(texto(nombre), tipo);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("El dato '" + nombre + "' debe tener el formato " + formato + ".");
+            }
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package es.uco.pw.displays.jugadores;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Scanner;
+import es.uco.pw.business.common.FormatosFecha;
 import es.uco.pw.business.jugador.JugadorDTO;
-import es.uco.pw.data.dao.JugadoresDAO;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.RepositorioJugadores;
 
 /**
  * Clase principal que implementa un menú de gestión de jugadores.
  * Permite realizar operaciones como alta, modificación, baja y listado de jugadores
- * mediante el uso de la clase JugadoresDAO.
+ * mediante el repositorio de jugadores del motor de datos configurado.
  */
 public class mainJugadores {
 
+    /**
+     * Número de jugadores que se muestran antes de preguntar si se quieren ver más.
+     */
+    private static final int JUGADORES_POR_PAGINA = 20;
+
     /**
      * Imprime el menú principal de opciones para la gestión de jugadores.
      */
@@ -37,8 +44,7 @@ public class mainJugadores {
      * @param sc El objeto Scanner utilizado para leer las entradas del usuario.
      */
     public static void main(Scanner sc) {
-        JugadoresDAO gestor = new JugadoresDAO();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        RepositorioJugadores gestor = MotorDatos.getInstancia().getJugadores();
         int opcion;
 
         do {
@@ -55,7 +61,7 @@ public class mainJugadores {
 
                         System.out.print("Ingrese fecha de nacimiento (yyyy-MM-dd): ");
                         String fechaNacimientoStr = sc.nextLine();
-                        Date fechaNacimiento = dateFormat.parse(fechaNacimientoStr);
+                        LocalDate fechaNacimiento = LocalDate.parse(fechaNacimientoStr, FormatosFecha.FECHA);
 
                         System.out.print("Ingrese el correo electrónico: ");
                         String correo = sc.nextLine();
@@ -69,7 +75,7 @@ public class mainJugadores {
                         String resultado = gestor.altaJugador(nuevoJugador);
                         System.out.println(resultado);
 
-                    } catch (ParseException e) {
+                    } catch (DateTimeParseException e) {
                         System.out.println("Formato de fecha incorrecto. Intente nuevamente.");
                     }
                     break;
@@ -84,10 +90,10 @@ public class mainJugadores {
 
                     System.out.print("Ingrese la nueva fecha de nacimiento (yyyy-MM-dd): ");
                     String nuevaFechaNacimientoStr = sc.nextLine();
-                    Date nuevaFechaNacimiento;
+                    LocalDate nuevaFechaNacimiento;
                     try {
-                        nuevaFechaNacimiento = dateFormat.parse(nuevaFechaNacimientoStr);
-                    } catch (ParseException e) {
+                        nuevaFechaNacimiento = LocalDate.parse(nuevaFechaNacimientoStr, FormatosFecha.FECHA);
+                    } catch (DateTimeParseException e) {
                         System.out.println("Formato de fecha incorrecto.");
                         break;
                     }
@@ -101,8 +107,11 @@ public class mainJugadores {
                     break;
 
                 case 3: // Listar jugadores
-                    String resultadoListado = gestor.listarJugadores();
-                    System.out.println(resultadoListado);
+                    try {
+                        listarJugadores(sc, gestor);
+                    } catch (IllegalStateException e) {
+                        System.out.println(e.getMessage());
+                    }
                     break;
 
                 case 4: // Baja de jugador
@@ -125,4 +134,40 @@ public class mainJugadores {
             }
         } while (opcion != 0);
     }
+
+    /**
+     * Muestra los jugadores activos por páginas, preguntando antes de pedir la siguiente.
+     *
+     * @param sc     El objeto Scanner utilizado para leer las entradas del usuario.
+     * @param gestor El repositorio de jugadores.
+     * @throws IllegalStateException Si no se pueden leer los jugadores.
+     */
+    private static void listarJugadores(Scanner sc, RepositorioJugadores gestor) {
+        int ultimoId = 0;
+        boolean primeraPagina = true;
+        while (true) {
+            List<JugadorDTO> pagina = gestor.listarJugadoresActivos(ultimoId, JUGADORES_POR_PAGINA);
+            if (primeraPagina) {
+                System.out.println(pagina.isEmpty() ? "No hay jugadores activos en la base de datos." : "Listando jugadores activos:");
+                primeraPagina = false;
+            }
+            for (JugadorDTO jugador : pagina) {
+                System.out.println("ID: " + jugador.getIdJugador());
+                System.out.println("Nombre: " + jugador.getNombreApellidos());
+                System.out.println("Fecha de Nacimiento: " + FormatosFecha.FECHA_LEGIBLE.format(jugador.getFechaNacimiento()));
+                System.out.println("Fecha de Inscripción: " + (jugador.getFechaInscripcion() != null
+                        ? FormatosFecha.FECHA_LEGIBLE.format(jugador.getFechaInscripcion()) : "No inscrito"));
+                System.out.println("Correo Electrónico: " + jugador.getCorreoElectronico());
+                System.out.println("----------------------------------");
+                ultimoId = jugador.getIdJugador();
+            }
+            if (pagina.size() < JUGADORES_POR_PAGINA) {
+                return;
+            }
+            System.out.print("¿Mostrar más jugadores? (s/n): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("s")) {
+                return;
+            }
+        }
+    }
 }
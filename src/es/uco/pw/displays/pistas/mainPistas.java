@@ -6,9 +6,9 @@ import java.util.Scanner;
 import es.uco.pw.business.material.*;
 import es.uco.pw.business.pista.PistaDTO;
 import es.uco.pw.business.pista.TamanoPista;
-import es.uco.pw.data.dao.PistasDAO;
-import es.uco.pw.data.dao.PistasDAO.AsociacionMaterialException;
-import es.uco.pw.data.dao.PistasDAO.ElementoNoEncontradoException;
+import es.uco.pw.data.repositorio.RepositorioPistas;
+import es.uco.pw.data.repositorio.RepositorioPistas.AsociacionMaterialException;
+import es.uco.pw.data.repositorio.RepositorioPistas.ElementoNoEncontradoException;
 
 /**
  * Clase que representa el menú principal de gestión de pistas deportivas.
@@ -38,10 +38,10 @@ public class mainPistas {
      * Método principal para gestionar las opciones del menú.
      *
      * @param sc        Objeto Scanner para la entrada de datos del usuario.
-     * @param pistasDAO Objeto PistasDAO para gestionar las operaciones con la base de datos.
+     * @param pistasDAO Repositorio de pistas del motor de datos con el que se gestionan las operaciones.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
-    public static void main(Scanner sc, PistasDAO pistasDAO) throws SQLException {
+    public static void main(Scanner sc, RepositorioPistas pistasDAO) throws SQLException {
         int opcion;
 
         do {
@@ -2,14 +2,19 @@ package es.uco.pw.displays.principal;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.text.ParseException;
 import java.util.Scanner;
 
 import es.uco.pw.displays.jugadores.mainJugadores;
 import es.uco.pw.displays.pistas.mainPistas;
 import es.uco.pw.displays.reservas.mainReservas;
-import es.uco.pw.data.dao.PistasDAO;
+import es.uco.pw.data.common.EstadisticasConsultas;
+import es.uco.pw.data.common.RegistroConsultas;
+import es.uco.pw.data.dao.ArchivadorReservas;
 import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.metricas.ExportadorMetricas;
+import es.uco.pw.data.metricas.MetricasReservas;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.RepositorioPistas;
 /**
  * Clase principal que gestiona la ejecución del sistema de gestión.
  */
@@ -25,6 +30,9 @@ public class mainPrincipal {
         System.out.println("1. Menú de Pistas");
         System.out.println("2. Menú de Reservas");
         System.out.println("3. Menú de Usuarios");
+        System.out.println("4. Estadísticas de consultas SQL");
+        System.out.println("5. Métricas de reservas");
+        System.out.println("6. Archivar reservas pasadas");
         System.out.println("0. Salir del programa");
         System.out.println("=====================================");
         System.out.print("Seleccione una opción: ");
@@ -35,13 +43,39 @@ public class mainPrincipal {
      *
      * @param args Los argumentos de línea de comandos (no utilizados).
      * @throws IOException    Si ocurre un error al cargar o guardar datos en los ficheros.
-     * @throws ParseException Si ocurre un error de análisis de datos.
      * @throws SQLException  Si ocurre un error en la Base de Datos.
+     * @throws IllegalStateException Si falta alguna de las consultas que utilizan los DAO.
+     * @throws IllegalArgumentException Si el motor de datos configurado no existe.
      */
-    public static void main(String[] args) throws IOException, ParseException, SQLException {
+    public static void main(String[] args) throws IOException, SQLException {
+        // Motor de datos elegido en config.properties (base de datos o memoria)
+        MotorDatos motor = MotorDatos.getInstancia();
+
+        // Comprobar antes de mostrar el menú que existen todas las consultas de los DAO
+        if (!motor.getConsultasRequeridas().isEmpty()) {
+            RegistroConsultas.getInstancia().validar(motor.getConsultasRequeridas());
+        }
+
+        // Crear las tablas e índices que falten en la base de datos
+        motor.migrarEsquema();
+
+        // Publicar en JMX las métricas de reservas, cachés y pool
+        ExportadorMetricas.registrar(motor);
+
         Scanner sc = new Scanner(System.in);
-        ReservasDAO reservasDAO = new ReservasDAO();
-        PistasDAO pistasDAO = new PistasDAO();
+        ReservasDAO reservasDAO = new ReservasDAO(motor);
+        RepositorioPistas pistasDAO = motor.getPistas();
+
+        // Cargar la ocupación de las pistas para detectar reservas solapadas
+        try {
+            reservasDAO.cargarIndiceOcupacion();
+        } catch (IllegalStateException e) {
+            System.err.println("No se pudo cargar la ocupación de las pistas; se cargará al hacer la primera reserva.");
+        }
+
+        // Archivar periódicamente las reservas que quedan fuera del horizonte configurado
+        ArchivadorReservas archivador = new ArchivadorReservas(motor.getReservas());
+        archivador.programar();
         
         int opcion;
         boolean continuar = true;
@@ -64,6 +98,15 @@ public class mainPrincipal {
                     System.out.println("Accediendo al Menú de Usuarios...");
                     mainJugadores.main(sc); // Pasar el Scanner al menú de Usuarios
                     break;
+                case 4:
+                    mostrarEstadisticasConsultas(sc);
+                    break;
+                case 5:
+                    mostrarMetricasReservas(sc);
+                    break;
+                case 6:
+                    archivarReservas(archivador);
+                    break;
                 case 0:
                     System.out.println("Saliendo del programa...");
                     continuar = false; // Romper el bucle para salir
@@ -73,7 +116,63 @@ public class mainPrincipal {
             }
         }
 
+        archivador.detener();
         sc.close(); // Cerrar el Scanner al final
     }
+
+    /**
+     * Archiva en el momento las reservas anteriores al horizonte configurado y muestra cuántas se
+     * han archivado.
+     *
+     * @param archivador El archivador de reservas.
+     */
+    private static void archivarReservas(ArchivadorReservas archivador) {
+        System.out.println("Archivando las reservas anteriores al " + archivador.getLimite() + "...");
+        try {
+            System.out.println("Reservas archivadas: " + archivador.archivar());
+        } catch (IllegalStateException e) {
+            System.out.println("Error al archivar las reservas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Muestra las estadísticas de las consultas SQL ejecutadas desde el arranque o desde la última
+     * puesta a cero, y pregunta si se quieren poner a cero.
+     *
+     * @param sc Scanner para la entrada del usuario.
+     */
+    private static void mostrarEstadisticasConsultas(Scanner sc) {
+        EstadisticasConsultas estadisticas = EstadisticasConsultas.getInstancia();
+        if (!estadisticas.isActivas()) {
+            System.out.println("Las estadísticas de consultas están desactivadas (consultas.estadisticas=false).");
+            return;
+        }
+        System.out.print(estadisticas.informe());
+        System.out.print("¿Poner a cero las estadísticas? (s/n): ");
+        if (sc.nextLine().trim().equalsIgnoreCase("s")) {
+            estadisticas.reiniciar();
+            System.out.println("Estadísticas puestas a cero.");
+        }
+    }
+
+    /**
+     * Muestra las llamadas, los tiempos y los rechazos de las operaciones de reservas y materiales,
+     * y pregunta si se quieren poner a cero.
+     *
+     * @param sc Scanner para la entrada del usuario.
+     */
+    private static void mostrarMetricasReservas(Scanner sc) {
+        MetricasReservas metricas = MetricasReservas.getInstancia();
+        if (!metricas.isActivas()) {
+            System.out.println("Las métricas de reservas están desactivadas (metricas.activas=false).");
+            return;
+        }
+        System.out.print(metricas.informe());
+        System.out.print("¿Poner a cero las métricas? (s/n): ");
+        if (sc.nextLine().trim().equalsIgnoreCase("s")) {
+            metricas.reiniciar();
+            System.out.println("Métricas puestas a cero.");
+        }
+    }
 }
 
@@ -1,15 +1,28 @@
 package es.uco.pw.displays.reservas;
 
+import es.uco.pw.business.common.FormatosFecha;
+import es.uco.pw.business.common.Reloj;
 import es.uco.pw.business.jugador.JugadorDTO;
 import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
 import es.uco.pw.business.reserva.*;
+import es.uco.pw.data.cache.ResumenIngresos;
+import es.uco.pw.data.dao.FranjaLibre;
+import es.uco.pw.data.dao.InformeOcupacion;
 import es.uco.pw.data.dao.ReservasDAO;
+import es.uco.pw.data.repositorio.PosicionReserva;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.stream.Collectors;
 
@@ -21,6 +34,11 @@ import java.util.stream.Collectors;
  */
 public class mainReservas {
 
+    /**
+     * Número de reservas futuras que se muestran antes de preguntar si se quieren ver más.
+     */
+    private static final int RESERVAS_POR_PAGINA = 20;
+
 	/**
      * Imprime el menú principal del gestor de reservas.
      */
@@ -34,11 +52,30 @@ public class mainReservas {
         System.out.println("4. Cancelar reserva");
         System.out.println("5. Consultar reservas futuras");
         System.out.println("6. Consultar reservas por día y pista");
+        System.out.println("7. Buscar horarios libres");
+        System.out.println("8. Informe de ocupación de pistas");
+        System.out.println("9. Ingresos de las reservas");
         System.out.println("0. Volver al menú principal");
         System.out.println("=====================================");
         System.out.print("Seleccione una opción: ");
     }
 
+    /**
+     * Imprime los ingresos de cada grupo de reservas, uno por línea.
+     *
+     * @param titulo   El título de la agrupación.
+     * @param ingresos Los ingresos de cada grupo.
+     */
+    private static void imprimirIngresos(String titulo, Map<?, ResumenIngresos.Acumulado> ingresos) {
+        System.out.println(titulo + ":");
+        if (ingresos.isEmpty()) {
+            System.out.println("  Sin reservas.");
+        }
+        for (Map.Entry<?, ResumenIngresos.Acumulado> entrada : ingresos.entrySet()) {
+            System.out.println("  " + entrada.getKey() + ": " + entrada.getValue());
+        }
+    }
+
     /**
      * Método principal que inicia el gestor de reservas.
      * 
@@ -47,7 +84,6 @@ public class mainReservas {
      * @throws SQLException en caso de errores en la Base de Datos.
      */
     public static void main(Scanner sc, ReservasDAO reservasDAO) throws SQLException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
         int opcion;
         boolean continuar = true;
 
@@ -113,7 +149,7 @@ public class mainReservas {
 
                     // Solicitar detalles adicionales de la reserva
                     System.out.print("Ingrese fecha y hora (yyyy-MM-dd HH:mm): ");
-                    Date fechaHora = dateFormat.parse(sc.nextLine());
+                    LocalDateTime fechaHora = LocalDateTime.parse(sc.nextLine(), FormatosFecha.FECHA_HORA);
 
                     System.out.print("Ingrese duración en minutos (60, 90, 120): ");
                     int duracionMinutos = sc.nextInt();
@@ -123,15 +159,18 @@ public class mainReservas {
                     try {
                         // Crear la reserva individual
                         int idReserva = reservasDAO.hacerReservaIndividual(jugadorDTO, fechaHora, duracionMinutos, pistaDTO, numeroAdultos, numeroNinos);
-
-                        // Mostrar los detalles de la reserva creada
-                        ReservaDTO reserva = reservasDAO.obtenerReservaPorId(idReserva);
-                        System.out.println("Reserva individual creada correctamente:");
-                        System.out.println(reserva.toString());
+                        if (idReserva == -1) {
+                            System.out.println("Error al crear la reserva individual.");
+                        } else {
+                            // Mostrar los detalles de la reserva creada
+                            ReservaDTO reserva = reservasDAO.obtenerReservaPorId(idReserva);
+                            System.out.println("Reserva individual creada correctamente:");
+                            System.out.println(reserva.toString());
+                        }
                     } catch (IllegalArgumentException e) {
                         System.out.println("Error al crear la reserva: " + e.getMessage());
                     }
-                } catch (ParseException e) {
+                } catch (DateTimeParseException e) {
                     System.out.println("Formato de fecha incorrecto.");
                 }
                 break;
@@ -193,7 +232,7 @@ public class mainReservas {
 
                     // Solicitar detalles adicionales de la reserva
                     System.out.print("Ingrese fecha y hora de la reserva (yyyy-MM-dd HH:mm): ");
-                    Date fechaHoraBono = dateFormat.parse(sc.nextLine());
+                    LocalDateTime fechaHoraBono = LocalDateTime.parse(sc.nextLine(), FormatosFecha.FECHA_HORA);
 
                     System.out.print("Ingrese duración en minutos (60, 90, 120): ");
                     int duracionMinutosBono = sc.nextInt();
@@ -213,13 +252,15 @@ public class mainReservas {
                             } else {
                                 System.out.println("Error al recuperar la reserva de bono creada.");
                             }
+                        } else {
+                            System.out.println("Error al crear la reserva con bono.");
                         }
-                    } catch (IllegalArgumentException e) {
+                    } catch (IllegalArgumentException | IllegalStateException e) {
                         System.out.println("Error al crear la reserva con bono: " + e.getMessage());
                     } catch (SQLException e) {
                         System.out.println("Error en la base de datos: " + e.getMessage());
                     }
-                } catch (ParseException e) {
+                } catch (DateTimeParseException e) {
                     System.out.println("Formato de fecha incorrecto.");
                 }
                 break;
@@ -250,7 +291,7 @@ public class mainReservas {
 
                     // Ingresar fecha y hora originales
                     System.out.print("Ingrese fecha y hora originales (yyyy-MM-dd HH:mm): ");
-                    Date fechaHoraModificacion = dateFormat.parse(sc.nextLine());
+                    LocalDateTime fechaHoraModificacion = LocalDateTime.parse(sc.nextLine(), FormatosFecha.FECHA_HORA);
 
                     // Buscar la reserva original
                     ReservaDTO reservaDTO = reservasDAO.encontrarReserva(jugadorModificacion.getIdJugador(), idPistaModificacion, fechaHoraModificacion);
@@ -310,7 +351,7 @@ public class mainReservas {
 
                     // Ingresar nuevos detalles de la reserva
                     System.out.print("Ingrese nueva fecha y hora (yyyy-MM-dd HH:mm): ");
-                    Date nuevaFechaHora = dateFormat.parse(sc.nextLine());
+                    LocalDateTime nuevaFechaHora = LocalDateTime.parse(sc.nextLine(), FormatosFecha.FECHA_HORA);
 
                     System.out.print("Ingrese nueva duración en minutos (60, 90, 120): ");
                     int nuevaDuracion = sc.nextInt();
@@ -350,7 +391,7 @@ public class mainReservas {
                     } catch (IllegalArgumentException e) {
                         System.out.println("Error al modificar la reserva: " + e.getMessage());
                     }
-                } catch (ParseException e) {
+                } catch (DateTimeParseException e) {
                     System.out.println("Formato de fecha incorrecto.");
                 }
                 break;
@@ -374,7 +415,7 @@ public class mainReservas {
                         sc.nextLine(); // Limpiar buffer
 
                         System.out.print("Ingrese fecha y hora de la reserva (yyyy-MM-dd HH:mm): ");
-                        Date fechaHoraCancelacion = dateFormat.parse(sc.nextLine());
+                        LocalDateTime fechaHoraCancelacion = LocalDateTime.parse(sc.nextLine(), FormatosFecha.FECHA_HORA);
 
                         // Obtener la pista directamente usando el método buscarPistaPorId
                         PistaDTO pistaCancelacion = reservasDAO.buscarPistaPorId(idPistaCancelacion);
@@ -387,26 +428,35 @@ public class mainReservas {
                             // Cancelar la reserva usando los detalles del jugador, pista y fecha/hora de la reserva
                         	reservasDAO.cancelarReserva(jugadorCancelacion, pistaCancelacion, fechaHoraCancelacion);
                             System.out.println("Reserva cancelada exitosamente.");
-                        } catch (IllegalArgumentException e) {
+                        } catch (IllegalArgumentException | IllegalStateException e) {
                             System.out.println("Error al cancelar la reserva: " + e.getMessage());
                         }
-                    } catch (ParseException e) {
+                    } catch (DateTimeParseException e) {
                         System.out.println("Formato de fecha incorrecto.");
                     }
                     break;
 
                 case 5:
                     System.out.println("Consultando reservas futuras...");
-                    List<ReservaDTO> reservasFuturas = reservasDAO.consultarReservasFuturas();
-
-                    if (reservasFuturas.isEmpty()) {
-                        System.out.println("No hay reservas futuras.");
-                    } else {
-                    	for (ReservaDTO reserva : reservasFuturas) {
-                    	    System.out.println("Número de Reserva: " + reserva.getIdReserva());
-                    	    System.out.println(reserva.toString());
-                    	    System.out.println("------------------------------------");
-                    	}
+                    // Se muestran por páginas, pidiendo cada una a partir de la última reserva mostrada
+                    PosicionReserva ultimaMostrada = null;
+                    boolean hayMas = true;
+                    while (hayMas) {
+                        List<ReservaDTO> reservasFuturas = reservasDAO.consultarPaginaReservasFuturas(ultimaMostrada, RESERVAS_POR_PAGINA);
+                        if (reservasFuturas.isEmpty() && ultimaMostrada == null) {
+                            System.out.println("No hay reservas futuras.");
+                        }
+                        for (ReservaDTO reserva : reservasFuturas) {
+                            System.out.println("Número de Reserva: " + reserva.getIdReserva());
+                            System.out.println(reserva.toString());
+                            System.out.println("------------------------------------");
+                            ultimaMostrada = PosicionReserva.de(reserva);
+                        }
+                        hayMas = reservasFuturas.size() == RESERVAS_POR_PAGINA;
+                        if (hayMas) {
+                            System.out.print("¿Mostrar más reservas? (s/n): ");
+                            hayMas = sc.nextLine().trim().equalsIgnoreCase("s");
+                        }
                     }
                     break;
 
@@ -414,13 +464,11 @@ public class mainReservas {
                 case 6:
                     System.out.println("Consultando reservas por rango de fechas y pista...");
                     try {
-                        SimpleDateFormat formatoFecha = new SimpleDateFormat("yyyy-MM-dd");
-
                         System.out.print("Ingrese la fecha de inicio (yyyy-MM-dd): ");
-                        Date fechaInicio = formatoFecha.parse(sc.nextLine());
+                        LocalDate fechaInicio = LocalDate.parse(sc.nextLine(), FormatosFecha.FECHA);
 
                         System.out.print("Ingrese la fecha de fin (yyyy-MM-dd): ");
-                        Date fechaFin = formatoFecha.parse(sc.nextLine());
+                        LocalDate fechaFin = LocalDate.parse(sc.nextLine(), FormatosFecha.FECHA);
 
                         System.out.print("Ingrese ID de la pista: ");
                         int idPistaConsulta = sc.nextInt();
@@ -446,6 +494,97 @@ public class mainReservas {
 
 
 
+                case 7:
+                    System.out.println("Buscando horarios libres...");
+                    try {
+                        System.out.print("Ingrese duración en minutos (60, 90, 120): ");
+                        int duracionBuscada = sc.nextInt();
+
+                        System.out.print("Tipo de pista (0: Cualquiera, 1: MINIBASKET, 2: ADULTOS, 3: 3VS3): ");
+                        int tipoBuscado = sc.nextInt();
+                        TamanoPista tamanoBuscado = tipoBuscado == 1 ? TamanoPista.MINIBASKET
+                                : tipoBuscado == 2 ? TamanoPista.ADULTOS : tipoBuscado == 3 ? TamanoPista._3VS3 : null;
+
+                        System.out.print("Ubicación (0: Cualquiera, 1: Exterior, 2: Interior): ");
+                        int ubicacion = sc.nextInt();
+                        Boolean exteriorBuscado = ubicacion == 1 ? Boolean.TRUE : ubicacion == 2 ? Boolean.FALSE : null;
+
+                        System.out.print("Ingrese número de jugadores: ");
+                        int jugadoresBuscados = sc.nextInt();
+
+                        System.out.print("Ingrese cuántos días buscar a partir de hoy: ");
+                        int diasBusqueda = sc.nextInt();
+
+                        System.out.print("Ingrese cuántos horarios mostrar como máximo: ");
+                        int maximoFranjas = sc.nextInt();
+                        sc.nextLine(); // Limpiar buffer
+
+                        LocalDateTime ahora = Reloj.ahora();
+                        LocalDateTime limite = ahora.plusDays(diasBusqueda);
+                        List<FranjaLibre> franjas = reservasDAO.buscarFranjasLibres(ahora, limite, duracionBuscada,
+                                tamanoBuscado, exteriorBuscado, jugadoresBuscados, maximoFranjas);
+
+                        if (franjas.isEmpty()) {
+                            System.out.println("No hay horarios libres con esas condiciones.");
+                        } else {
+                            for (FranjaLibre franja : franjas) {
+                                System.out.println(franja);
+                            }
+                        }
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Error al buscar horarios libres: " + e.getMessage());
+                    }
+                    break;
+
+                case 8:
+                    System.out.println("Calculando la ocupación de las pistas...");
+                    try {
+                        System.out.print("Ingrese el primer día (yyyy-MM-dd): ");
+                        LocalDate primerDia = LocalDate.parse(sc.nextLine().trim());
+                        System.out.print("Ingrese el último día (yyyy-MM-dd): ");
+                        LocalDate ultimoDia = LocalDate.parse(sc.nextLine().trim());
+
+                        InformeOcupacion informe = reservasDAO.generarInformeOcupacion(primerDia, ultimoDia);
+                        System.out.print(informe.mapaDeCalor());
+
+                        System.out.print("Fichero CSV en el que exportar el detalle (vacío para no exportar): ");
+                        String fichero = sc.nextLine().trim();
+                        if (!fichero.isEmpty()) {
+                            try (Writer salida = Files.newBufferedWriter(Paths.get(fichero), StandardCharsets.UTF_8)) {
+                                informe.escribirCsv(salida);
+                            }
+                            System.out.println("Ocupación exportada a " + fichero + ".");
+                        }
+                    } catch (DateTimeParseException e) {
+                        System.out.println("Fecha no válida: " + e.getParsedString());
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        System.out.println("Error al calcular la ocupación: " + e.getMessage());
+                    } catch (IOException e) {
+                        System.out.println("Error al exportar la ocupación: " + e.getMessage());
+                    }
+                    break;
+
+                case 9:
+                    System.out.println("Consultando los ingresos de las reservas...");
+                    try {
+                        System.out.print("Ingrese el primer día (yyyy-MM-dd): ");
+                        LocalDate desdeIngresos = LocalDate.parse(sc.nextLine().trim());
+                        System.out.print("Ingrese el último día (yyyy-MM-dd): ");
+                        LocalDate hastaIngresos = LocalDate.parse(sc.nextLine().trim());
+
+                        ResumenIngresos ingresos = reservasDAO.obtenerResumenIngresos();
+                        System.out.println("Total: " + ingresos.total(desdeIngresos, hastaIngresos));
+                        imprimirIngresos("Por tipo de reserva", ingresos.porTipo(desdeIngresos, hastaIngresos));
+                        imprimirIngresos("Por modalidad", ingresos.porModalidad(desdeIngresos, hastaIngresos));
+                        imprimirIngresos("Por pista (ID)", ingresos.porPista(desdeIngresos, hastaIngresos));
+                        imprimirIngresos("Por día", ingresos.porDia(desdeIngresos, hastaIngresos));
+                    } catch (DateTimeParseException e) {
+                        System.out.println("Fecha no válida: " + e.getParsedString());
+                    } catch (IllegalStateException e) {
+                        System.out.println("Error al consultar los ingresos: " + e.getMessage());
+                    }
+                    break;
+
                 case 0:
                     // Volver al menú principal
                     System.out.println("Volviendo al menú principal...");
@@ -7,4 +7,9 @@
  */
 module GM1_i02abhak {
 	requires java.sql;
+	requires java.management;
+	requires jdk.management;
+	requires jdk.httpserver;
+
+	exports es.uco.pw.data.metricas to java.management;
 }
\ No newline at end of file
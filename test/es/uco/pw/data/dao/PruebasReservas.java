@@ -0,0 +1,361 @@
+package es.uco.pw.data.dao;
+
+import es.uco.pw.business.common.Reloj;
+import es.uco.pw.business.jugador.JugadorDTO;
+import es.uco.pw.business.pista.PistaDTO;
+import es.uco.pw.business.pista.TamanoPista;
+import es.uco.pw.business.reserva.Bono;
+import es.uco.pw.business.reserva.ReservaBono;
+import es.uco.pw.business.reserva.ReservaBonoFactory;
+import es.uco.pw.business.reserva.ReservaDTO;
+import es.uco.pw.business.reserva.ReservaIndividualFactory;
+import es.uco.pw.data.repositorio.MotorDatos;
+import es.uco.pw.data.repositorio.RepositorioBonos;
+import es.uco.pw.data.repositorio.RepositorioReservas;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pruebas de las reservas sobre el motor en memoria: reservas con bono simultáneas de un mismo
+ * jugador y rechazo de reservas que se solapan en una pista. Cada prueba crea su propio motor,
+ * con un jugador y varias pistas de adultos, así que no necesitan base de datos.
+ *
+ * Uso: {@code java es.uco.pw.data.dao.PruebasReservas}; termina con código 1 si falla alguna.
+ */
+public class PruebasReservas {
+
+    /**
+     * Número de pistas de adultos que se crean en cada motor.
+     */
+    private static final int PISTAS = 8;
+
+    /**
+     * Una prueba que lanza una excepción si falla.
+     */
+    private interface Prueba {
+
+        /**
+         * Ejecuta la prueba.
+         *
+         * @throws Exception Si la prueba falla o no se puede ejecutar.
+         */
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Motor en memoria de la prueba en curso.
+     */
+    private final MotorDatos motor = MotorDatos.crear(MotorDatos.MEMORIA);
+
+    /**
+     * DAO de reservas sobre el motor de la prueba.
+     */
+    private final ReservasDAO reservasDAO = new ReservasDAO(motor);
+
+    /**
+     * Jugador que hace todas las reservas.
+     */
+    private final JugadorDTO jugador;
+
+    /**
+     * Pistas de adultos del motor.
+     */
+    private final List<PistaDTO> pistas;
+
+    /**
+     * Crea el motor de una prueba con su jugador y sus pistas.
+     *
+     * @throws SQLException Si no se pueden crear las pistas.
+     */
+    private PruebasReservas() throws SQLException {
+        motor.getJugadores().altaJugador(new JugadorDTO("Jugador de prueba", Reloj.hoy().minusYears(30), "prueba@ejemplo.es"));
+        for (int i = 1; i <= PISTAS; i++) {
+            motor.getPistas().crearPista("Pista " + i, true, false, TamanoPista.ADULTOS, 10);
+        }
+        jugador = motor.getJugadores().buscarJugadorPorCorreo("prueba@ejemplo.es");
+        pistas = motor.getPistas().listarPistasDisponibles("adulto");
+        comprobar(pistas.size() == PISTAS, "se esperaban " + PISTAS + " pistas de adultos y hay " + pistas.size());
+    }
+
+    /**
+     * Ejecuta todas las pruebas y muestra el resultado de cada una.
+     *
+     * @param args No se usan.
+     */
+    public static void main(String[] args) {
+        int fallos = 0;
+        fallos += ejecutar("reservasConBonoSimultaneas", () -> new PruebasReservas().reservasConBonoSimultaneas());
+        fallos += ejecutar("sesionesDistintasDelMismoBono", () -> new PruebasReservas().sesionesDistintasDelMismoBono());
+        fallos += ejecutar("reservasSolapadasSimultaneas", () -> new PruebasReservas().reservasSolapadasSimultaneas());
+        fallos += ejecutar("repositorioRechazaSolapes", () -> new PruebasReservas().repositorioRechazaSolapes());
+        fallos += ejecutar("loteConReservasSolapadas", () -> new PruebasReservas().loteConReservasSolapadas());
+        if (fallos > 0) {
+            System.out.println(fallos + " pruebas fallidas.");
+            System.exit(1);
+        }
+        System.out.println("Todas las pruebas son correctas.");
+    }
+
+    /**
+     * Ejecuta una prueba y muestra si es correcta.
+     *
+     * @param nombre El nombre de la prueba.
+     * @param prueba La prueba.
+     * @return 0 si es correcta y 1 si falla.
+     */
+    private static int ejecutar(String nombre, Prueba prueba) {
+        try {
+            prueba.ejecutar();
+            System.out.println("OK     " + nombre);
+            return 0;
+        } catch (Exception | AssertionError e) {
+            System.out.println("FALLO  " + nombre + ": " + e);
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Cinco reservas con bono simultáneas del mismo jugador, cada una en su pista, consumen las
+     * cinco sesiones de un único bono: todas se guardan y al bono no le queda ninguna.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private void reservasConBonoSimultaneas() throws Exception {
+        LocalDateTime fechaHora = franja(10);
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PistaDTO pista = pistas.get(i);
+            tareas.add(() -> reservasDAO.hacerReservaBono(jugador, fechaHora, 60, pista, 2, 0));
+        }
+        for (Boolean realizada : ejecutarALaVez(tareas)) {
+            comprobar(realizada, "una reserva con bono no se ha guardado");
+        }
+        Bono bono = motor.getBonos().obtenerBonoPorJugador(jugador.getIdJugador());
+        comprobar(bono != null && bono.getSesionesRestantes() == 0,
+                "al bono deberían quedarle 0 sesiones y le quedan " + (bono == null ? "-" : bono.getSesionesRestantes()));
+    }
+
+    /**
+     * Varias reservas simultáneas que han leído el mismo bono reciben números de sesión distintos:
+     * las que llegan tarde vuelven a leer el bono y reintentan, y una vez agotado se rechazan.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private void sesionesDistintasDelMismoBono() throws Exception {
+        RepositorioReservas repositorio = motor.getReservas();
+        RepositorioBonos bonos = motor.getBonos();
+        LocalDateTime fechaHora = franja(11);
+
+        // La primera reserva crea el bono con la sesión 1
+        Bono nuevo = new Bono();
+        nuevo.setIdUsuario(jugador.getIdJugador());
+        nuevo.setFechaCaducidad(nuevo.calcularFechaCaducidad(Reloj.hoy()));
+        ReservaBono primera = (ReservaBono) new ReservaBonoFactory().crearReservaAdulto(jugador.getIdJugador(), fechaHora, 60,
+                pistas.get(0).getIdPista(), 2, nuevo, 1);
+        repositorio.realizarReserva(primera, jugador, true);
+        comprobar(primera.getNumeroSesion() == 1, "la primera reserva debería tener la sesión 1 y tiene " + primera.getNumeroSesion());
+
+        // Todas las reservas parten de una lectura del bono anterior a cualquiera de ellas, así que
+        // todas esperan la sesión 2 y las que no la consiguen tienen que reintentar
+        List<Callable<Integer>> tareas = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            int idPista = pistas.get(i).getIdPista();
+            Bono leido = bonos.obtenerBonoPorJugador(jugador.getIdJugador());
+            tareas.add(() -> {
+                Bono bono = leido;
+                while (true) {
+                    ReservaBono reserva = (ReservaBono) new ReservaBonoFactory().crearReservaAdulto(jugador.getIdJugador(), fechaHora, 60,
+                            idPista, 2, bono, 5 - bono.getSesionesRestantes() + 1);
+                    try {
+                        repositorio.realizarReserva(reserva, jugador, false);
+                        return reserva.getNumeroSesion();
+                    } catch (RepositorioBonos.SesionBonoOcupadaException e) {
+                        // Otra reserva ha consumido la sesión esperada: se vuelve a leer el bono
+                        bono = bonos.obtenerBonoPorJugador(jugador.getIdJugador());
+                    }
+                }
+            });
+        }
+        List<Integer> sesiones = ejecutarALaVez(tareas);
+        Collections.sort(sesiones);
+        comprobar(sesiones.equals(List.of(2, 3, 4, 5)), "se esperaban las sesiones [2, 3, 4, 5] y se han asignado " + sesiones);
+
+        Bono agotado = bonos.obtenerBonoPorJugador(jugador.getIdJugador());
+        ReservaDTO sexta = new ReservaBonoFactory().crearReservaAdulto(jugador.getIdJugador(), fechaHora, 60,
+                pistas.get(5).getIdPista(), 2, agotado, 6);
+        try {
+            repositorio.realizarReserva(sexta, jugador, false);
+            throw new AssertionError("una sexta reserva ha consumido una sesión de un bono agotado");
+        } catch (RepositorioBonos.SesionBonoOcupadaException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Varias reservas simultáneas del mismo horario en la misma pista: solo se guarda una y las
+     * demás se rechazan por estar la pista ocupada.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private void reservasSolapadasSimultaneas() throws Exception {
+        PistaDTO pista = pistas.get(0);
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            // Cada reserva empieza 10 minutos más tarde que la anterior, así que todas se solapan
+            LocalDateTime fechaHora = franja(10).plusMinutes(10L * i);
+            tareas.add(() -> {
+                try {
+                    reservasDAO.hacerReservaIndividual(jugador, fechaHora, 90, pista, 2, 0);
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            });
+        }
+        int guardadas = 0;
+        for (Boolean guardada : ejecutarALaVez(tareas)) {
+            guardadas += guardada ? 1 : 0;
+        }
+        comprobar(guardadas == 1, "se esperaba una reserva guardada y se han guardado " + guardadas);
+        comprobar(reservasEnPista(pista) == 1, "la pista debería tener una reserva y tiene " + reservasEnPista(pista));
+    }
+
+    /**
+     * El repositorio rechaza por sí mismo, sin la comprobación previa del DAO, una reserva nueva o
+     * modificada que se solapa con otra de la misma pista, y no guarda nada.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private void repositorioRechazaSolapes() throws Exception {
+        RepositorioReservas repositorio = motor.getReservas();
+        int idPista = pistas.get(0).getIdPista();
+        ReservaIndividualFactory fabrica = new ReservaIndividualFactory();
+
+        ReservaDTO primera = fabrica.crearReservaAdulto(jugador.getIdJugador(), franja(10), 90, idPista, 2);
+        repositorio.realizarReserva(primera, jugador, false);
+        ReservaDTO solapada = fabrica.crearReservaAdulto(jugador.getIdJugador(), franja(10).plusMinutes(30), 60, idPista, 2);
+        try {
+            repositorio.realizarReserva(solapada, jugador, false);
+            throw new AssertionError("se ha guardado una reserva solapada");
+        } catch (RepositorioReservas.PistaOcupadaException e) {
+            // Esperado
+        }
+
+        // Una reserva que empieza justo cuando termina la otra no se solapa
+        ReservaDTO siguiente = fabrica.crearReservaAdulto(jugador.getIdJugador(), franja(10).plusMinutes(90), 60, idPista, 2);
+        int idSiguiente = repositorio.realizarReserva(siguiente, jugador, false);
+        comprobar(idSiguiente > 0, "no se ha guardado una reserva contigua");
+        try {
+            repositorio.actualizarReserva(idSiguiente, franja(10).plusMinutes(60), 60, 20, 0, idPista, 2, null);
+            throw new AssertionError("se ha movido una reserva a un horario ocupado");
+        } catch (RepositorioReservas.PistaOcupadaException e) {
+            // Esperado
+        }
+        comprobar(!repositorio.estaLibre(idPista, franja(10).plusMinutes(30), 30, -1),
+                "la reserva original ya no ocupa la pista");
+        comprobar(reservasEnPista(pistas.get(0)) == 2, "la pista debería tener dos reservas");
+    }
+
+    /**
+     * En una carga masiva la solicitud que se solapa con otra de la misma carga se rechaza y las
+     * demás se guardan; y si el repositorio recibe un lote con una reserva que se solapa con otra
+     * ya guardada, no guarda ninguna.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private void loteConReservasSolapadas() throws Exception {
+        PistaDTO pista = pistas.get(0);
+        List<SolicitudReserva> solicitudes = List.of(
+                new SolicitudReserva(jugador, franja(10), 60, pista, 2, 0),
+                new SolicitudReserva(jugador, franja(10).plusMinutes(90), 60, pistas.get(1), 2, 0),
+                new SolicitudReserva(jugador, franja(10).plusMinutes(30), 60, pista, 2, 0));
+        List<ResultadoReserva> resultados = reservasDAO.hacerReservasIndividuales(solicitudes);
+        comprobar(resultados.size() == 3, "se esperaban 3 resultados y hay " + resultados.size());
+        comprobar(resultados.get(0).isCorrecta() && resultados.get(1).isCorrecta(), "se ha rechazado una reserva válida del lote");
+        comprobar(!resultados.get(2).isCorrecta(), "la reserva solapada del lote se ha aceptado");
+        comprobar(reservasEnPista(pista) == 1, "la pista debería tener una reserva y tiene " + reservasEnPista(pista));
+
+        ReservaIndividualFactory fabrica = new ReservaIndividualFactory();
+        List<ReservaDTO> lote = List.of(
+                fabrica.crearReservaAdulto(jugador.getIdJugador(), franja(15), 60, pistas.get(2).getIdPista(), 2),
+                fabrica.crearReservaAdulto(jugador.getIdJugador(), franja(10).plusMinutes(15), 60, pista.getIdPista(), 2));
+        String error = motor.getReservas().insertarReservas(lote, List.of(jugador, jugador));
+        comprobar(error != null, "el repositorio ha guardado un lote con una reserva solapada");
+        comprobar(reservasEnPista(pistas.get(2)) == 0, "un lote rechazado ha guardado reservas");
+    }
+
+    /**
+     * Cuenta las reservas de una pista el día de {@link #franja(int)}.
+     *
+     * @param pista La pista.
+     * @return El número de reservas.
+     */
+    private int reservasEnPista(PistaDTO pista) {
+        return reservasDAO.consultarReservasPorRangosDeFechaYPista(franja(10).toLocalDate(), franja(10).toLocalDate(),
+                pista.getIdPista()).size();
+    }
+
+    /**
+     * Obtiene una hora de un día futuro, dentro del horario de reservas.
+     *
+     * @param hora La hora del día.
+     * @return Dentro de diez días, a esa hora en punto.
+     */
+    private static LocalDateTime franja(int hora) {
+        return Reloj.hoy().plusDays(10).atTime(hora, 0);
+    }
+
+    /**
+     * Lanza varias tareas en hilos distintos, las suelta a la vez y espera sus resultados.
+     *
+     * @param tareas Las tareas.
+     * @param <T>    El tipo del resultado de las tareas.
+     * @return Los resultados, en el orden de las tareas.
+     * @throws Exception Si alguna tarea falla o no termina en 30 segundos.
+     */
+    private static <T> List<T> ejecutarALaVez(List<Callable<T>> tareas) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(tareas.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<T>> futuros = new ArrayList<>();
+            for (Callable<T> tarea : tareas) {
+                futuros.add(hilos.submit(() -> {
+                    salida.await();
+                    return tarea.call();
+                }));
+            }
+            salida.countDown();
+            List<T> resultados = new ArrayList<>();
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get(30, TimeUnit.SECONDS));
+            }
+            return resultados;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    /**
+     * Comprueba una condición de una prueba.
+     *
+     * @param condicion La condición que debe cumplirse.
+     * @param mensaje   La descripción del fallo.
+     * @throws AssertionError Si la condición no se cumple.
+     */
+    private static void comprobar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            throw new AssertionError(mensaje);
+        }
+    }
+}